@@ -0,0 +1,127 @@
+package at.jku.isse.cloud.artifact;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import at.jku.sea.cloud.Artifact;
+
+/**
+ * The artifacts of a package in pages of a fixed size. The package is listed once, when the first page is requested, and the
+ * pages are cut from the listing while they are iterated, so the work that is done per artifact (reading its properties, creating its
+ * reverse links) can proceed page by page and only has to keep the artifacts of the current pages. A filter, e.g. the query for the
+ * artifacts of a type, is applied to every page when it is cut, so a page may contain fewer artifacts than the page size.
+ * The pages can be iterated more than once; the listing is reused. This class is not thread-safe.
+ */
+public class ArtifactPages implements Iterable<List<Artifact>> {
+
+	/**
+	 * The default number of artifacts per page.
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 500;
+
+	private final Supplier<Collection<Artifact>> listing;
+	private final UnaryOperator<List<Artifact>> filter;
+	private final int pageSize;
+
+	private List<Artifact> artifacts;
+
+	ArtifactPages(Supplier<Collection<Artifact>> listing, UnaryOperator<List<Artifact>> filter, int pageSize) {
+		if(pageSize < 1) {
+			throw new IllegalArgumentException("The page size must be positive: " + pageSize);
+		}
+		this.listing = requireNonNull(listing);
+		this.filter = requireNonNull(filter);
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Returns the pages of the given artifacts, which are already in memory, e.g. to pass them to an API that expects pages.
+	 * @param artifacts the artifacts
+	 * @param pageSize the number of artifacts per page
+	 * @return the pages
+	 */
+	public static ArtifactPages of(Collection<Artifact> artifacts, int pageSize) {
+		return new ArtifactPages(() -> artifacts, UnaryOperator.identity(), pageSize);
+	}
+
+	/**
+	 * Returns the pages of the artifacts whose ids are greater than the given id, in ascending order of their ids, e.g. to resume
+	 * a run from the id of the last processed artifact. The order doesn't depend on the order in which the package lists its artifacts,
+	 * so the same artifacts are skipped every time. The ids are local to the artifacts, so sorting them doesn't read anything.
+	 * @param artifactId the id of the last artifact that is skipped, or {@link Long#MIN_VALUE} to keep all artifacts
+	 * @return the pages
+	 */
+	public ArtifactPages startingAfter(long artifactId) {
+		return new ArtifactPages(() -> list().stream()
+				.filter(artifact -> artifact.getId() > artifactId)
+				.sorted(Comparator.comparingLong(Artifact::getId))
+				.collect(Collectors.toList()), filter, pageSize);
+	}
+	
+	/**
+	 * Returns the number of artifacts per page.
+	 * @return the page size
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * Returns the number of listed artifacts before the filter is applied. The package is listed, if it hasn't been listed yet.
+	 * @return the number of listed artifacts
+	 */
+	public int getListedCount() {
+		return list().size();
+	}
+
+	/**
+	 * Returns true, if the package doesn't contain any artifacts. The package is listed, if it hasn't been listed yet.
+	 * @return true, if there are no pages
+	 */
+	public boolean isEmpty() {
+		return list().isEmpty();
+	}
+
+	private List<Artifact> list() {
+		if(artifacts == null) {
+			Collection<Artifact> listed = listing.get();
+			artifacts = listed instanceof List ? (List<Artifact>) listed : new ArrayList<>(listed);
+		}
+		return artifacts;
+	}
+
+	@Override
+	public Iterator<List<Artifact>> iterator() {
+		List<Artifact> listed = list();
+		return new Iterator<List<Artifact>>() {
+
+			private int from;
+
+			@Override
+			public boolean hasNext() {
+				return from < listed.size();
+			}
+
+			@Override
+			public List<Artifact> next() {
+				if(!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				int to = Math.min(from + pageSize, listed.size());
+				List<Artifact> page = new ArrayList<>(listed.subList(from, to));
+				from = to;
+				return Collections.unmodifiableList(filter.apply(page));
+			}
+		};
+	}
+}
@@ -0,0 +1,230 @@
+package at.jku.isse.cloud.artifact;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import at.jku.sea.cloud.Artifact;
+import at.jku.sea.cloud.CollectionArtifact;
+import at.jku.sea.cloud.Package;
+import at.jku.sea.cloud.Workspace;
+
+/**
+ * A unit of work that defers the write operations of a {@link DSConnection}. While a batch is active for a thread,
+ * package assignments, property creations, property values and collection elements are not sent to the Design Space
+ * when they are issued, but are collected per artifact and written when the batch is flushed.
+ * <p>
+ * Note that these are deferred writes, not grouped requests: the Design Space API has no request that writes several
+ * properties or creates several artifacts at once, so a flush still sends one request per package assignment and property
+ * value (two for a new property). The round trips that are saved are the ones that never have to be sent: repeated writes
+ * to the same property only send the last value, all elements added to a collection artifact are sent with a single
+ * request, and the pending writes of an artifact that is deleted, or of an element that is removed again, are dropped.
+ * The saved round trips are counted by the counter {@value #SAVED_ROUND_TRIPS}. Hardly any are saved when every artifact is
+ * written once, as when the reverse links of a package are created; the batch saves round trips for updates, which may add
+ * several elements to the same "@opposite" collection and replace reverse links within a page.
+ * <p>
+ * Artifacts are still created immediately, so callers can keep working with the returned artifacts. Reading properties
+ * that have been written within the batch is only reliable after the batch has been flushed.
+ * A batch is bound to the thread that started it and is flushed automatically when it is closed, when the connection
+ * commits or when the number of pending writes reaches the configured limit.
+ */
+public class DSBatch implements AutoCloseable {
+
+	public static final String SAVED_ROUND_TRIPS = "DSBatch.savedRoundTrips";
+
+	private final DSConnection conn;
+	private final Workspace ws;
+	private final int maxPendingWrites;
+
+	private final Map<Long, PendingArtifact> pendingArtifacts = new LinkedHashMap<>();
+	private int pendingWrites;
+	private boolean closed;
+
+	DSBatch(DSConnection conn, Workspace ws, int maxPendingWrites) {
+		if(maxPendingWrites < 1) {
+			throw new IllegalArgumentException("The number of pending writes must be positive: " + maxPendingWrites);
+		}
+		this.conn = conn;
+		this.ws = ws;
+		this.maxPendingWrites = maxPendingWrites;
+	}
+
+	void setPackage(Artifact artifact, Package pkg) {
+		PendingArtifact pendingArtifact = pending(artifact);
+		pendingArtifact.pkg = pkg;
+		written(pendingArtifact, 1, 1);
+	}
+
+	void createProperty(Artifact artifact, String name, Object value) {
+		PendingArtifact pendingArtifact = pending(artifact);
+		pendingArtifact.properties.put(name, new PropertyWrite(true, value));
+		written(pendingArtifact, 1, 2);
+	}
+
+	void setProperty(Artifact artifact, String name, Object value) {
+		PendingArtifact pendingArtifact = pending(artifact);
+		PropertyWrite previous = pendingArtifact.properties.get(name);
+		pendingArtifact.properties.put(name, new PropertyWrite(previous != null && previous.create, value));
+		written(pendingArtifact, 1, 1);
+	}
+
+	void addElements(CollectionArtifact collection, Collection<?> elements) {
+		PendingArtifact pendingArtifact = pending(collection);
+		pendingArtifact.elements.addAll(elements);
+		written(pendingArtifact, elements.size(), 1);
+	}
+
+	void addElement(CollectionArtifact collection, Object element) {
+		PendingArtifact pendingArtifact = pending(collection);
+		pendingArtifact.elements.add(element);
+		written(pendingArtifact, 1, 1);
+	}
+
+	void discard(Artifact artifact) {
+		PendingArtifact pendingArtifact = pendingArtifacts.remove(artifact.getId());
+		if(pendingArtifact != null) {
+			pendingWrites -= pendingArtifact.writes;
+			conn.getMetrics().add(SAVED_ROUND_TRIPS, pendingArtifact.deferredRoundTrips);
+		}
+	}
+
+	boolean discardElement(CollectionArtifact collection, Object element) {
+		PendingArtifact pendingArtifact = pendingArtifacts.get(collection.getId());
+		if(pendingArtifact == null || !pendingArtifact.elements.remove(element)) {
+			return false;
+		}
+		pendingArtifact.writes--;
+		pendingWrites--;
+		return true;
+	}
+
+	/**
+	 * Returns the number of write operations that are buffered and have not been sent to the Design Space yet.
+	 * Every buffered package assignment, property value and collection element counts as one write operation.
+	 * @return the number of pending write operations
+	 */
+	public int getPendingWrites() {
+		return pendingWrites;
+	}
+
+	/**
+	 * Sends all buffered write operations to the Design Space. The writes are ordered by artifact: first the package of
+	 * the artifact is set, then its properties are created and set and finally the buffered collection elements are added.
+	 * The writes of an artifact are no longer pending once they have been sent, so if the flush fails, then only the writes
+	 * of the failed artifact and of the artifacts after it are sent again by the next flush.
+	 * @return the artifacts that have been written, in the order in which they were first touched in this batch
+	 */
+	public List<Artifact> flush() {
+		List<Artifact> resolved = new ArrayList<>(pendingArtifacts.size());
+		if(pendingArtifacts.isEmpty()) {
+			return resolved;
+		}
+		long start = System.nanoTime();
+		int roundTrips = 0;
+		int savedRoundTrips = 0;
+		try {
+			for(Iterator<PendingArtifact> pending = pendingArtifacts.values().iterator(); pending.hasNext();) {
+				PendingArtifact pendingArtifact = pending.next();
+				int written = pendingArtifact.write(ws);
+				pending.remove();
+				pendingWrites -= pendingArtifact.writes;
+				roundTrips += written;
+				savedRoundTrips += Math.max(0, pendingArtifact.deferredRoundTrips - written);
+				resolved.add(pendingArtifact.artifact);
+			}
+		} finally {
+			conn.getMetrics().record("DSBatch.flush", System.nanoTime() - start, roundTrips);
+			conn.getMetrics().add(SAVED_ROUND_TRIPS, savedRoundTrips);
+		}
+		return resolved;
+	}
+
+	/**
+	 * Flushes the pending write operations and ends the batch mode for the current thread.
+	 */
+	@Override
+	public void close() {
+		if(closed) {
+			return;
+		}
+		closed = true;
+		try {
+			flush();
+		} finally {
+			conn.endBatch(this);
+		}
+	}
+
+	private PendingArtifact pending(Artifact artifact) {
+		if(closed) {
+			throw new IllegalStateException("The batch has already been closed!");
+		}
+		return pendingArtifacts.computeIfAbsent(artifact.getId(), id -> new PendingArtifact(artifact));
+	}
+
+	/**
+	 * Counts buffered writes of the artifact and the round trips that they would have taken without the batch.
+	 */
+	private void written(PendingArtifact pendingArtifact, int writes, int roundTrips) {
+		pendingArtifact.writes += writes;
+		pendingArtifact.deferredRoundTrips += roundTrips;
+		pendingWrites += writes;
+		if(pendingWrites >= maxPendingWrites) {
+			flush();
+		}
+	}
+
+	private static class PropertyWrite {
+
+		private final boolean create;
+		private final Object value;
+
+		private PropertyWrite(boolean create, Object value) {
+			this.create = create;
+			this.value = value;
+		}
+	}
+
+	private static class PendingArtifact {
+
+		private final Artifact artifact;
+		private final Map<String, PropertyWrite> properties = new LinkedHashMap<>();
+		private final List<Object> elements = new ArrayList<>();
+		private Package pkg;
+		private int writes;
+		private int deferredRoundTrips;
+
+		private PendingArtifact(Artifact artifact) {
+			this.artifact = artifact;
+		}
+
+		/**
+		 * Writes the pending writes of the artifact.
+		 * @return the number of round trips to the Design Space
+		 */
+		private int write(Workspace ws) {
+			int roundTrips = 0;
+			if(pkg != null) {
+				artifact.setPackage(ws, pkg);
+				roundTrips++;
+			}
+			for(Map.Entry<String, PropertyWrite> property : properties.entrySet()) {
+				if(property.getValue().create) {
+					artifact.createProperty(ws, property.getKey()).setValue(ws, property.getValue().value);
+					roundTrips += 2;
+				} else {
+					artifact.setPropertyValue(ws, property.getKey(), property.getValue().value);
+					roundTrips++;
+				}
+			}
+			if(!elements.isEmpty()) {
+				((CollectionArtifact) artifact).addElements(ws, elements);
+				roundTrips++;
+			}
+			return roundTrips;
+		}
+	}
+}
@@ -74,7 +74,8 @@ public class DSClass {
 	 * @return the DSClass object
 	 */
 	public DSClass withFeatures(String... sFeatures) {
-		List<Artifact> featureArtifacts = Arrays.stream(sFeatures).map(conn::createFeature).collect(Collectors.toList());
+		// The features are independent, so they are created concurrently
+		List<Artifact> featureArtifacts = DSConnection.joinAll(Arrays.stream(sFeatures).map(conn::createFeatureAsync).collect(Collectors.toList()));
     	featureArtifacts.forEach(feature -> conn.addFeatureToComplexType(artifact, feature));
     	return this;
     }
@@ -85,7 +86,8 @@ public class DSClass {
 	 * @return the DSClass object
 	 */
 	public DSClass withOperations(String... operationNames) {
-		List<Artifact> operationArtifacts = Arrays.stream(operationNames).map(conn::createOperation).collect(Collectors.toList());
+		List<Artifact> operationArtifacts = DSConnection.joinAll(Arrays.stream(operationNames).map(conn::createOperationAsync)
+				.collect(Collectors.toList()));
 		operationArtifacts.forEach(operation -> conn.addOperationToComplexType(artifact, operation));
         return this;
     }
@@ -144,4 +146,12 @@ public class DSClass {
 	public void addToProject(Project project) {
 		conn.addArtifactToProject(this.artifact, project);
 	}
+	
+	/**
+	 * Returns the model artifact.
+	 * @return the model artifact
+	 */
+	public Artifact getArtifact() {
+		return artifact;
+	}
 }
\ No newline at end of file
@@ -1,45 +1,90 @@
 package at.jku.isse.cloud.artifact;
 
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.NoSuchElementException;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import at.jku.isse.cloud.util.MetricsRegistry;
 import at.jku.sea.cloud.Artifact;
-import at.jku.sea.cloud.Cloud;
 import at.jku.sea.cloud.CollectionArtifact;
+import at.jku.sea.cloud.Container.Filter;
 import at.jku.sea.cloud.Package;
 import at.jku.sea.cloud.Project;
 import at.jku.sea.cloud.Property;
-import at.jku.sea.cloud.Tool;
-import at.jku.sea.cloud.User;
 import at.jku.sea.cloud.Workspace;
-import at.jku.sea.cloud.exceptions.ArtifactDoesNotExistException;
-import at.jku.sea.cloud.exceptions.CredentialsException;
-import at.jku.sea.cloud.mmm.MMMTypeProperties;
-import at.jku.sea.cloud.mmm.MMMTypesFactory;
-import at.jku.sea.cloud.rest.client.RestCloud;
-import at.jku.sea.cloud.stream.Context.Path;
-import at.jku.sea.cloud.stream.Contexts;
-import at.jku.sea.cloud.stream.QueryFactory;
-import at.jku.sea.cloud.stream.predicate.Predicate;
-import at.jku.sea.cloud.stream.predicate.PredicateProvider;
 
 /**
  * Represents a connection to the Design Space and provides methods for creating and modifying artifacts in the workspace.
+ * Every call to the Design Space is recorded as an operation "DSConnection.&ltmethod&gt" in the metrics of the connection,
+ * see {@link #getMetrics()}.
+ * <p>
+ * Independent calls can overlap their latency with the asynchronous methods "&ltmethod&gtAsync", which run the blocking methods
+ * on an executor and return a {@link CompletableFuture}. By default, every request runs on a virtual thread, where the Java runtime
+ * provides them, or on a cached pool of daemon threads. At most 64 requests are in flight at once; further requests are queued
+ * by the connection and run by the executor threads that hold the slots, so submitting a request never blocks and at most 64
+ * executor threads are busy, even with the cached pool. Requests that wait for a slot are counted as "DSConnection.inFlightWaits".
+ * Writes that are issued while the current thread has a batch are buffered by the batch and their futures are already completed,
+ * see {@link DSBatch}.
+ * <p>
+ * The state of the connection itself, like its caches and metrics, is thread-safe. Whether several threads may work in its
+ * workspace at the same time depends on the provider, see {@link DSProvider#isThreadSafe()}.
  * @author Gabriel Schoerghuber
  * @author Dominik Steinbinder
  */
 public class DSConnection {
 	
-	private static final String PATH = "";
+	private static final int DEFAULT_MAX_PENDING_WRITES = 10000;
+	private static final int DEFAULT_MAX_IN_FLIGHT = 64;
+	// Key of the packages without a parent package in the package cache
+	private static final long NO_PARENT = -1;
 	
-	private final Cloud cloud;
+	private final DSProvider provider;
 	private final Workspace ws;
-	private final QueryFactory queryFactory;
 	
-	private final Predicate<Artifact> isRevLinkArtifact;
+	private volatile DSRevLink revLinkClass;
+	
+	private final ThreadLocal<DSBatch> batch = new ThreadLocal<>();
+	
+	private final MetricsRegistry metrics = new MetricsRegistry();
+	
+	private final WarmCache warmCache;
 	
-	private DSRevLink revLinkClass;
+	private final List<Runnable> commitListeners = new CopyOnWriteArrayList<>();
+	
+	// Package name -> parent package id -> package
+	private final Map<String, Map<Long, Package>> packageCache = new HashMap<>();
+	// Listed packages whose names haven't been read yet, in the order of the workspace
+	private final Deque<Package> unnamedPackages = new ArrayDeque<>();
+	// Package name -> listed packages with the name whose parents haven't been read yet
+	private final Map<String, List<Package>> unparentedPackages = new HashMap<>();
+	private boolean packagesListed;
+	private boolean useWarmPackages = true;
+	
+	private Executor asyncExecutor;
+	private volatile DSConnectionPool pool;
+	private Semaphore inFlight = new Semaphore(DEFAULT_MAX_IN_FLIGHT);
+	// The asynchronous requests that wait for a slot, in the order of their submission
+	private final Queue<AsyncRequest<?>> waitingRequests = new ConcurrentLinkedQueue<>();
 	
 	/**
 	 * Creates a new DSConnection object, a user (if it doesn't exist) and a workspace with the given tool.
@@ -49,16 +94,7 @@ public class DSConnection {
 	 * @param workspace the identifier for the workspace
 	 */
 	public DSConnection(String username, String pwd, int toolId, String workspace) {
-		this.cloud = RestCloud.getInstance();
-        User user = getOrCreateUser(cloud, username, username, pwd);
-        Tool tool = cloud.getTool(toolId);
-        this.ws = cloud.createWorkspace(user.getOwner(), tool, workspace);
-        
-        queryFactory = cloud.queryFactory();
-		Path path = Contexts.of(PATH);
-		PredicateProvider predicates = queryFactory.predicateProvider();
-		isRevLinkArtifact = predicates.hasProperty(path, MMMTypeProperties.NAME)
-				.and(predicates.hasPropertyValue(path, MMMTypeProperties.NAME, DSRevLink.REV_LINK_NAME));
+		this(new RestDSProvider(username, pwd, toolId, workspace));
 	}
 	
 	/**
@@ -68,15 +104,186 @@ public class DSConnection {
 	 * @param workspace the identifier for the workspace
 	 */
 	public DSConnection(String username, String pwd, String workspace) {
-		this.cloud = RestCloud.getInstance();
-        User user = getOrCreateUser(cloud, username, username, pwd);
-        Tool tool = getOrCreateTool(cloud, "RevLinks", "0.1");
-        this.ws = cloud.createWorkspace(user.getOwner(), tool, workspace);
-        
-        queryFactory = cloud.queryFactory();
-		Path path = Contexts.of(PATH);
-		isRevLinkArtifact = queryFactory.predicateProvider().hasProperty(path, MMMTypeProperties.NAME)
-				.and(queryFactory.predicateProvider().hasPropertyValue(path, MMMTypeProperties.NAME, DSRevLink.REV_LINK_NAME));
+		this(new RestDSProvider(username, pwd, workspace));
+	}
+	
+	/**
+	 * Creates a new DSConnection object that works in the workspace of the provider, 
+	 * e.g. an {@link InMemoryDSProvider} to work without a Design Space server.
+	 * @param provider the provider of the Design Space
+	 */
+	public DSConnection(DSProvider provider) {
+		this(provider, null);
+	}
+	
+	/**
+	 * Creates a new DSConnection object that works in the workspace of the provider and starts with the packages and the
+	 * reverse link model artifact of the warm cache. Only the packages that are not in the warm cache are read.
+	 * @param provider the provider of the Design Space
+	 * @param warmCache the persistent cache of the workspace, or null
+	 */
+	public DSConnection(DSProvider provider, WarmCache warmCache) {
+		this.provider = requireNonNull(provider);
+		this.ws = provider.getWorkspace();
+		this.warmCache = warmCache;
+	}
+	
+	/**
+	 * Returns the provider of the Design Space of this connection.
+	 * @return the provider
+	 */
+	public DSProvider getProvider() {
+		return provider;
+	}
+	
+	/**
+	 * Returns the metrics of the calls to the Design Space of this connection.
+	 * @return the metrics registry
+	 */
+	public MetricsRegistry getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Returns the persistent cache of the workspace of this connection.
+	 * @return the warm cache or an empty optional instance, if the connection doesn't use one
+	 */
+	public Optional<WarmCache> getWarmCache() {
+		return Optional.ofNullable(warmCache);
+	}
+	
+	/**
+	 * Sets the executor of the asynchronous requests. It should be set before the first asynchronous request.
+	 * @param executor the executor
+	 * @return this connection
+	 */
+	public synchronized DSConnection withAsyncExecutor(Executor executor) {
+		this.asyncExecutor = requireNonNull(executor);
+		return this;
+	}
+	
+	/**
+	 * Sets the maximum number of asynchronous requests that are in flight at once. It should be set before the first asynchronous request.
+	 * @param maxInFlight the maximum number of requests, at least 1
+	 * @return this connection
+	 */
+	public synchronized DSConnection withMaxInFlight(int maxInFlight) {
+		if(maxInFlight < 1) {
+			throw new IllegalArgumentException("The maximum number of requests in flight must be positive: " + maxInFlight);
+		}
+		this.inFlight = new Semaphore(maxInFlight);
+		return this;
+	}
+	
+	private synchronized Executor getAsyncExecutor() {
+		if(asyncExecutor == null) {
+			asyncExecutor = createDefaultExecutor();
+		}
+		return asyncExecutor;
+	}
+	
+	private static Executor createDefaultExecutor() {
+		try {
+			// Virtual threads are only available on Java 21+, which this project doesn't require
+			return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch(ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, "DSConnection async");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+	
+	/**
+	 * Runs a request asynchronously, e.g. a sequence of calls on an artifact like reading its properties. The request occupies
+	 * one of the slots of the requests in flight while it runs, so it must not wait for other asynchronous requests.
+	 * @param request the request, which calls the Design Space
+	 * @return the result of the request
+	 */
+	public <T> CompletableFuture<T> async(Supplier<T> request) {
+		return submit(request, false);
+	}
+	
+	private CompletableFuture<Void> submitWrite(Runnable request) {
+		return submit(() -> {
+			request.run();
+			return null;
+		}, true);
+	}
+	
+	private <T> CompletableFuture<T> submit(Supplier<T> request, boolean write) {
+		if(write && batch.get() != null) {
+			// The write is only buffered by the batch of the current thread, so there's no latency to overlap
+			CompletableFuture<T> buffered = new CompletableFuture<>();
+			try {
+				buffered.complete(request.get());
+			} catch(RuntimeException e) {
+				buffered.completeExceptionally(e);
+			}
+			return buffered;
+		}
+		Semaphore permits;
+		synchronized(this) {
+			permits = inFlight;
+		}
+		AsyncRequest<T> call = new AsyncRequest<>(request);
+		if(permits.tryAcquire()) {
+			execute(call, permits);
+		} else {
+			metrics.increment("DSConnection.inFlightWaits");
+			waitingRequests.add(call);
+			// A slot may have been freed after the permit was requested
+			startWaitingRequests(permits);
+		}
+		return call.future;
+	}
+	
+	/**
+	 * Runs the request with a permit on the executor. The executor thread goes on with the waiting requests, so it keeps
+	 * the permit until there are none and no thread is started per waiting request.
+	 */
+	private void execute(AsyncRequest<?> call, Semaphore permits) {
+		try {
+			getAsyncExecutor().execute(() -> {
+				for(AsyncRequest<?> next = call; next != null; next = waitingRequests.poll()) {
+					next.run();
+				}
+				permits.release();
+				startWaitingRequests(permits);
+			});
+		} catch(RuntimeException e) {
+			// The executor has rejected the request
+			permits.release();
+			call.future.completeExceptionally(e);
+		}
+	}
+	
+	private void startWaitingRequests(Semaphore permits) {
+		while(!waitingRequests.isEmpty() && permits.tryAcquire()) {
+			AsyncRequest<?> next = waitingRequests.poll();
+			if(next == null) {
+				permits.release();
+				return;
+			}
+			execute(next, permits);
+		}
+	}
+	
+	/**
+	 * Waits for all futures and returns their results in the same order. If a request has failed, then its exception is thrown.
+	 * @param futures the futures of the requests
+	 * @return the results
+	 */
+	public static <T> List<T> joinAll(Collection<CompletableFuture<T>> futures) {
+		try {
+			return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+		} catch(CompletionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
 	}
 	
 	/**
@@ -85,7 +292,7 @@ public class DSConnection {
 	 * @return the newly created project
 	 */
 	public Project createProject(String name) {
-		return ws.createProject(name);
+		return metrics.time("DSConnection.createProject", () -> ws.createProject(name));
 	}
 	
 	/**
@@ -93,7 +300,7 @@ public class DSConnection {
 	 * @return the collection of packages
 	 */
 	public Collection<Package> getPackages() {
-		return ws.getPackages();
+		return metrics.time("DSConnection.getPackages", () -> ws.getPackages());
 	}
 	
 	/**
@@ -107,31 +314,195 @@ public class DSConnection {
 	
 	/**
 	 * Returns the package with the specified name. If it doesn't exist, then a new package is created and returned. 
-	 * The parent package can also be specified. 
+	 * The parent package can also be specified. The package is looked up in the package cache of this connection,
+	 * see {@link #invalidatePackageCache()}. If the connection is a session of a {@link DSConnectionPool}, then a package
+	 * that is not cached is looked up or created and committed by the pool, see {@link DSConnectionPool#getOrCreatePackage(String, Package)}.
+	 * @param pkg the name of the package
+	 * @param parent the parent package
+	 * @return the found or newly created package
+	 */
+	public synchronized Package getOrCreatePackage(String pkg, Package parent) {
+		DSConnectionPool currentPool = pool;
+		if(currentPool == null) {
+			return findPackage(pkg, parent).orElseGet(() -> createPackage(pkg, parent));
+		}
+		// The pool looks the package up, so the sessions don't read the packages of the workspace each
+		return getOrCreateSharedPackage(pkg, parent, currentPool);
+	}
+	
+	/**
+	 * Returns the package with the specified name like {@link #getOrCreatePackage(String, Package)}, but a package that is not
+	 * cached is looked up or created and committed by the pool, so the sessions of the pool can use it right away.
 	 * @param pkg the name of the package
 	 * @param parent the parent package
+	 * @param pool the pool whose sessions use the package
 	 * @return the found or newly created package
 	 */
-	public Package getOrCreatePackage(String pkg, Package parent) {
-		return ws.getPackages().stream()
-				.filter(p -> pkg.equals(queryFactory.navigatorProvider().from(p).toString("name").get()))
-				.filter(p -> p.getPackage() == null || parent == null || p.getPackage().getId() == parent.getId())
-				.findAny()
-				.orElseGet(() -> createPackage(pkg, parent));
+	public synchronized Package getOrCreateSharedPackage(String pkg, Package parent, DSConnectionPool pool) {
+		Optional<Package> cached = findCachedPackage(pkg, parent);
+		if(cached.isPresent()) {
+			return cached.get();
+		}
+		Package shared = pool.getOrCreatePackage(pkg, parent);
+		cachePackage(pkg, parent == null ? NO_PARENT : parent.getId(), shared);
+		return shared;
+	}
+	
+	/**
+	 * Returns the cached package or creates a package for the sessions of a pool and commits it right away, so the sessions
+	 * can use it. Only called on the package session of the pool, which has no other changes to commit.
+	 */
+	synchronized Package getOrCreateCommittedPackage(String pkg, Package parent) {
+		Optional<Package> cached = findPackage(pkg, parent);
+		if(cached.isPresent()) {
+			return cached.get();
+		}
+		Package created = createPackage(pkg, parent);
+		commit("Created package " + pkg);
+		return created;
+	}
+	
+	void joinPool(DSConnectionPool pool) {
+		this.pool = pool;
 	}
 	
 	private Package createPackage(String pkg, Package parent) {
+		Package created;
 		if(parent == null) {
-			return ws.createPackage(pkg);
+			created = metrics.time("DSConnection.createPackage", () -> ws.createPackage(pkg));
 		} else {
-			return ws.createPackage(parent, pkg);	
+			created = metrics.time("DSConnection.createPackage", () -> ws.createPackage(parent, pkg));
 		}
+		long parentId = parent == null ? NO_PARENT : parent.getId();
+		cachePackage(pkg, parentId, created);
+		if(warmCache != null) {
+			warmCache.putPackage(created.getId(), pkg, parentId);
+		}
+		return created;
+	}
+	
+	/**
+	 * Discards the cached packages, so the names and parents of the packages are read again when they are looked up next.
+	 * The cache is filled lazily: the packages of the workspace are listed on the first lookup that misses the cache, and then
+	 * the names of the listed packages are read one by one until the package is found. The parent of a package is only read
+	 * if its name matches. The cache is updated by the packages created through this connection, so this is only necessary
+	 * if packages have been created or renamed elsewhere. The warm cache is updated as well.
+	 */
+	public synchronized void invalidatePackageCache() {
+		packageCache.clear();
+		unnamedPackages.clear();
+		unparentedPackages.clear();
+		packagesListed = false;
+		useWarmPackages = false;
 	}
 	
-	private Tool getOrCreateTool(Cloud cloud, String name, String toolVersion) {
-		return cloud.getTools().stream()
-				.filter(t -> t.getName().equals(name) && t.getToolVersion().equals(toolVersion))
-				.findAny().orElseGet(() -> cloud.createTool(name, toolVersion));
+	/**
+	 * Lists the packages of the workspace. The names and parents of the packages in the warm cache are taken from there,
+	 * the other packages are read on demand.
+	 */
+	private void listPackages() {
+		Collection<Package> packages = metrics.time("DSConnection.getPackages", () -> ws.getPackages());
+		List<Long> ids = new ArrayList<>(packages.size());
+		// Packages that have been created through this connection before the first lookup
+		Set<Long> cachedIds = packageCache.values().stream()
+				.flatMap(byParent -> byParent.values().stream())
+				.map(Package::getId)
+				.collect(Collectors.toSet());
+		for(Package p : packages) {
+			ids.add(p.getId());
+			Optional<WarmCache.PackageEntry> cached = useWarmPackages && warmCache != null ? warmCache.getPackage(p.getId()) : Optional.empty();
+			if(cached.isPresent()) {
+				cachePackage(cached.get().getName(), cached.get().getParentId(), p);
+			} else if(!cachedIds.contains(p.getId())) {
+				unnamedPackages.add(p);
+			}
+		}
+		if(warmCache != null) {
+			warmCache.retainPackages(ids);
+		}
+		packagesListed = true;
+	}
+	
+	/**
+	 * Looks the package up in the cache and reads the names of the listed packages until it's found.
+	 */
+	private Optional<Package> findPackage(String name, Package parent) {
+		Optional<Package> cached = findCachedPackage(name, parent);
+		if(cached.isPresent()) {
+			return cached;
+		}
+		if(!packagesListed) {
+			listPackages();
+		}
+		readParents(name);
+		cached = findCachedPackage(name, parent);
+		while(!cached.isPresent() && !unnamedPackages.isEmpty()) {
+			readName(unnamedPackages.poll());
+			readParents(name);
+			cached = findCachedPackage(name, parent);
+		}
+		return cached;
+	}
+	
+	private void readName(Package pkg) {
+		String name = metrics.time("DSConnection.getPackageName", () -> provider.getName(pkg));
+		unparentedPackages.computeIfAbsent(name, n -> new ArrayList<>()).add(pkg);
+	}
+	
+	private void readParents(String name) {
+		List<Package> packages = unparentedPackages.remove(name);
+		if(packages == null) {
+			return;
+		}
+		for(Package pkg : packages) {
+			Package parent = metrics.time("DSConnection.getPackageParent", () -> pkg.getPackage());
+			long parentId = parent == null ? NO_PARENT : parent.getId();
+			cachePackage(name, parentId, pkg);
+			if(warmCache != null) {
+				warmCache.putPackage(pkg.getId(), name, parentId);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the packages whose names start with the given prefix. The names of all packages that haven't been read yet
+	 * are read, see {@link #invalidatePackageCache()}.
+	 * @param prefix the prefix of the names
+	 * @return the packages with the prefix
+	 */
+	public synchronized List<Package> getPackagesWithPrefix(String prefix) {
+		if(!packagesListed) {
+			listPackages();
+		}
+		while(!unnamedPackages.isEmpty()) {
+			readName(unnamedPackages.poll());
+		}
+		List<String> names = unparentedPackages.keySet().stream().filter(name -> name.startsWith(prefix)).collect(Collectors.toList());
+		names.forEach(this::readParents);
+		List<Package> packages = new ArrayList<>();
+		packageCache.forEach((name, byParent) -> {
+			if(name.startsWith(prefix)) {
+				packages.addAll(byParent.values());
+			}
+		});
+		return packages;
+	}
+	
+	private void cachePackage(String name, long parentId, Package pkg) {
+		packageCache.computeIfAbsent(name, n -> new HashMap<>()).putIfAbsent(parentId, pkg);
+	}
+	
+	private Optional<Package> findCachedPackage(String name, Package parent) {
+		Map<Long, Package> byParent = packageCache.get(name);
+		if(byParent == null || byParent.isEmpty()) {
+			return Optional.empty();
+		}
+		if(parent == null) {
+			return Optional.of(byParent.values().iterator().next());
+		}
+		// Packages without a parent match any requested parent
+		Package pkg = byParent.get(parent.getId());
+		return Optional.ofNullable(pkg != null ? pkg : byParent.get(NO_PARENT));
 	}
 	
 	/**
@@ -139,7 +510,7 @@ public class DSConnection {
 	 * @return the projects of the workspace
 	 */
 	public Collection<Project> getProjects() {
-		return ws.getProjects();
+		return metrics.time("DSConnection.getProjects", () -> ws.getProjects());
 	}
     
 	/**
@@ -149,7 +520,7 @@ public class DSConnection {
 	 * @return the newly created artifact
 	 */
 	public Artifact createNamedArtifact(String name, Package pkg) {
-    	Artifact a = MMMTypesFactory.createComplexType(ws, pkg, name, false, false);
+    	Artifact a = metrics.time("DSConnection.createNamedArtifact", () -> provider.createComplexType(pkg, name));
         return a;
     }
 	
@@ -161,18 +532,45 @@ public class DSConnection {
 	 * @return the newly created instance artifact
 	 */
 	public Artifact createInstance(Artifact model, String name, Package pkg) {
-		Artifact a = MMMTypesFactory.createComplexTypeInstance(ws, name, model);
-		a.setPackage(ws, pkg);
+		long start = System.nanoTime();
+		Artifact a = provider.createComplexTypeInstance(name, model);
+		DSBatch currentBatch = batch.get();
+		if(currentBatch != null) {
+			currentBatch.setPackage(a, pkg);
+		} else {
+			a.setPackage(ws, pkg);
+		}
+		metrics.record("DSConnection.createInstance", System.nanoTime() - start, currentBatch != null ? 1 : 2);
 		return a;
 	}
 	
+	/**
+	 * Creates an instance artifact asynchronously, see {@link #createInstance(Artifact, String, Package)}.
+	 * @param model the model artifact, which is a ComplexType
+	 * @param name the name of the instance artifact
+	 * @param pkg the package that contains the instance artifact
+	 * @return the newly created instance artifact
+	 */
+	public CompletableFuture<Artifact> createInstanceAsync(Artifact model, String name, Package pkg) {
+		return submit(() -> createInstance(model, name, pkg), true);
+	}
+	
 	/**
 	 * Creates a feature artifact with the specified name.
 	 * @param name the name of the feature artifact
 	 * @return the newly created feature artifact
 	 */
 	public Artifact createFeature(String name) {
-		return MMMTypesFactory.createFeature(ws, name, null, false, false, false);
+		return metrics.time("DSConnection.createFeature", () -> provider.createFeature(name));
+	}
+	
+	/**
+	 * Creates a feature artifact asynchronously, see {@link #createFeature(String)}.
+	 * @param name the name of the feature artifact
+	 * @return the newly created feature artifact
+	 */
+	public CompletableFuture<Artifact> createFeatureAsync(String name) {
+		return async(() -> createFeature(name));
 	}
 	
 	/**
@@ -181,7 +579,16 @@ public class DSConnection {
 	 * @return the newly created operation artifact
 	 */
 	public Artifact createOperation(String name) {
-		return MMMTypesFactory.createOperation(ws, name, null, null, false, false, false);
+		return metrics.time("DSConnection.createOperation", () -> provider.createOperation(name));
+	}
+	
+	/**
+	 * Creates an operation artifact asynchronously, see {@link #createOperation(String)}.
+	 * @param name the name of the operation artifact
+	 * @return the newly created operation artifact
+	 */
+	public CompletableFuture<Artifact> createOperationAsync(String name) {
+		return async(() -> createOperation(name));
 	}
     
 	/**
@@ -192,9 +599,14 @@ public class DSConnection {
 	 * @return the newly created collection artifact
 	 */
 	public <T> CollectionArtifact createCollectionArtifact(String name, Collection<T> vals, Package pkg) {
-    	CollectionArtifact a = ws.createCollection(false, pkg);
+    	CollectionArtifact a = metrics.time("DSConnection.createCollectionArtifact", () -> ws.createCollection(false, pkg));
     	addProperty(a, "name", name);
-    	a.addElements(ws, vals);
+    	DSBatch currentBatch = batch.get();
+    	if(currentBatch != null) {
+    		currentBatch.addElements(a, vals);
+    	} else {
+    		metrics.run("DSConnection.addElements", () -> a.addElements(ws, vals));
+    	}
     	return a;
     }
 	
@@ -205,8 +617,26 @@ public class DSConnection {
 	 * @param val the value of the property
 	 */
 	public void addProperty(Artifact artifact, String name, Object val) {
+		DSBatch currentBatch = batch.get();
+		if(currentBatch != null) {
+			currentBatch.createProperty(artifact, name, val);
+			return;
+		}
+		long start = System.nanoTime();
 		Property prop = artifact.createProperty(ws, name);
         prop.setValue(ws, val);
+        metrics.record("DSConnection.addProperty", System.nanoTime() - start, 2);
+	}
+	
+	/**
+	 * Adds a property to the artifact asynchronously, see {@link #addProperty(Artifact, String, Object)}.
+	 * @param artifact the artifact to which the property is added
+	 * @param name the name of the property
+	 * @param val the value of the property
+	 * @return the completion of the request
+	 */
+	public CompletableFuture<Void> addPropertyAsync(Artifact artifact, String name, Object val) {
+		return submitWrite(() -> addProperty(artifact, name, val));
 	}
 	
 	/**
@@ -215,7 +645,7 @@ public class DSConnection {
 	 * @param feature the feature artifact
 	 */
 	public void addFeatureToComplexType(Artifact complexType, Artifact feature) {
-		MMMTypesFactory.addFeatureToComplexType(ws, complexType, feature);
+		metrics.run("DSConnection.addFeatureToComplexType", () -> provider.addFeatureToComplexType(complexType, feature));
 	}
 	
 	/**
@@ -224,7 +654,7 @@ public class DSConnection {
 	 * @param operation the operation artifact
 	 */
 	public void addOperationToComplexType(Artifact complexType, Artifact operation) {
-		MMMTypesFactory.addOperationToComplexType(ws, complexType, operation);
+		metrics.run("DSConnection.addOperationToComplexType", () -> provider.addOperationToComplexType(complexType, operation));
 	}
 	
 	/**
@@ -233,7 +663,7 @@ public class DSConnection {
 	 * @param superType the super type artifact
 	 */
 	public void addSuperTypeToComplexType(Artifact complexType, Artifact superType) {
-		MMMTypesFactory.addSuperTypeToComplexType(ws, complexType, superType);
+		metrics.run("DSConnection.addSuperTypeToComplexType", () -> provider.addSuperTypeToComplexType(complexType, superType));
 	}
 	
 	/**
@@ -243,7 +673,7 @@ public class DSConnection {
 	 * @param value the value of the property
 	 */
 	public void setArtifactProperty(Artifact artifact, String name, String value) {
-		artifact.setPropertyValue(ws, name, value);
+		setPropertyValue(artifact, name, value);
 	}
 	
 	/**
@@ -253,7 +683,7 @@ public class DSConnection {
 	 * @param value the value of the property, which is an artifact
 	 */
 	public void setArtifactProperty(Artifact artifact, String name, Artifact value) {
-		artifact.setPropertyValue(ws, name, value);
+		setPropertyValue(artifact, name, value);
 	}
 	
 	/**
@@ -263,19 +693,45 @@ public class DSConnection {
 	 * @return the artifact with the specified id or an empty optional instance, if no artifact with the specified id exists
 	 */
 	public Optional<Artifact> getArtifactById(long id) {
-		try {
-			return Optional.of(ws.getArtifact(id));
-		} catch(ArtifactDoesNotExistException e) {
-			return Optional.empty();
-		}
+		return metrics.time("DSConnection.getArtifactById", () -> provider.getArtifact(id));
 	}
 	
 	/**
-	 * Commits (and publishes) the contents of the workspace.
+	 * Returns the artifact with the specified id asynchronously, see {@link #getArtifactById(long)}.
+	 * @param id the specified id of the artifact
+	 * @return the artifact with the specified id or an empty optional instance, if no artifact with the specified id exists
+	 */
+	public CompletableFuture<Optional<Artifact>> getArtifactByIdAsync(long id) {
+		return async(() -> getArtifactById(id));
+	}
+	
+	/**
+	 * Commits (and publishes) the contents of the workspace. The pending writes of a batch of the current thread are flushed first.
 	 * @param msg the commit message, can be set to null
 	 */
 	public void commit(String msg) {
-		ws.commitAll(msg);
+		DSBatch currentBatch = batch.get();
+		if(currentBatch != null) {
+			currentBatch.flush();
+		}
+		metrics.run("DSConnection.commit", () -> ws.commitAll(msg));
+		commitListeners.forEach(Runnable::run);
+	}
+	
+	/**
+	 * Registers a listener that is called after each successful commit of this connection, e.g. to invalidate caches.
+	 * @param listener the listener
+	 */
+	public void addCommitListener(Runnable listener) {
+		commitListeners.add(requireNonNull(listener));
+	}
+	
+	/**
+	 * Removes a listener that has been registered by {@link #addCommitListener(Runnable)}.
+	 * @param listener the listener
+	 */
+	public void removeCommitListener(Runnable listener) {
+		commitListeners.remove(listener);
 	}
 	
 	/**
@@ -293,52 +749,98 @@ public class DSConnection {
 		}
 	}
     
-	private User getOrCreateUser(Cloud cloud, String name, String login, String pwd) {
-    	try {
-    		return cloud.getUserByCredentials(login, pwd);
-    	} catch(CredentialsException e) {
-    		try {
-    			return cloud.createUser(name, login, pwd);
-    		} catch(CredentialsException e2) {
-    			throw new RuntimeException("Failed to create User " + name + "! Wrong password?", e2);
-    		}
-    	}
-    }
-
 	public Collection<Artifact> getArtifactsOfType(DSClass type, Package parent) {
 		if(parent == null) {
 			return Collections.emptyList();
 		}
-		Predicate<Artifact> isOfCorrectType = queryFactory.predicateProvider().hasType(Contexts.of(PATH), type.artifact);
-		return queryFactory.streamProvider().of(parent.getArtifacts()).filter("", isOfCorrectType).toList();
+		// One round trip for the artifacts of the package and one for the query
+		return metrics.time("DSConnection.getArtifactsOfType", 2, () -> provider.filterByType(parent.getArtifacts(), type.artifact));
+	}
+	
+	/**
+	 * Returns the artifacts of the given type asynchronously, see {@link #getArtifactsOfType(DSClass, Package)}.
+	 * @param type the type of the artifacts
+	 * @param parent the package
+	 * @return the artifacts of the type
+	 */
+	public CompletableFuture<Collection<Artifact>> getArtifactsOfTypeAsync(DSClass type, Package parent) {
+		return async(() -> getArtifactsOfType(type, parent));
+	}
+	
+	/**
+	 * Returns the artifacts of the package in pages of the given size, see {@link ArtifactPages}. The package is listed when the
+	 * first page is requested.
+	 * @param pkg the package
+	 * @param pageSize the number of artifacts per page
+	 * @return the pages of the artifacts of the package
+	 */
+	public ArtifactPages getArtifactPages(Package pkg, int pageSize) {
+		return new ArtifactPages(() -> listArtifacts(pkg), UnaryOperator.identity(), pageSize);
+	}
+	
+	/**
+	 * Returns the artifacts of the given type in pages, like {@link #getArtifactsOfType(DSClass, Package)}. Instead of a single
+	 * query over the whole package, the type is queried for every page when it is iterated.
+	 * @param type the type of the artifacts
+	 * @param parent the package
+	 * @param pageSize the number of listed artifacts per page, before the type is queried
+	 * @return the pages of the artifacts of the type
+	 */
+	public ArtifactPages getArtifactPagesOfType(DSClass type, Package parent, int pageSize) {
+		return new ArtifactPages(() -> listArtifacts(parent), 
+				page -> new ArrayList<>(metrics.time("DSConnection.filterByType", () -> provider.filterByType(page, type.artifact))), 
+				pageSize);
+	}
+	
+	private Collection<Artifact> listArtifacts(Package pkg) {
+		if(pkg == null) {
+			return Collections.emptyList();
+		}
+		return metrics.time("DSConnection.listArtifacts", pkg::getArtifacts);
 	}
 	
 	/**
 	 * Gets the package for the reverse link model artifact with the name "RevLinks" and returns the reverse link model artifact. 
 	 * If the reverse link model artifact or/and the package don't exist, then they will be created first.
-	 * This method caches the class to speedup further calls.
+	 * This method caches the class to speedup further calls. The id of the class is kept in the warm cache, so a new connection
+	 * doesn't have to search the workspace for it. Concurrent callers get the same class, which is only created once.
 	 * @return the newly created or existing reverse link model artifact
 	 */
 	public DSRevLink getOrCreateReverseLinkClass() {
-		if(revLinkClass != null) {
-			return revLinkClass;
+		DSRevLink cached = revLinkClass;
+		if(cached != null) {
+			return cached;
 		}
-		Package pkg = getOrCreatePackage("RevLinks");
-		try {
-			revLinkClass = getReverseLinkClass(pkg);
+		synchronized(this) {
+			if(revLinkClass == null) {
+				Package pkg = getOrCreatePackage("RevLinks");
+				try {
+					revLinkClass = getReverseLinkClass(pkg);
+				} catch(IllegalStateException e) {
+					revLinkClass = new DSRevLink(this, pkg);
+					if(warmCache != null) {
+						warmCache.setRevLinkClassId(revLinkClass.artifact.getId());
+					}
+				}
+			}
 			return revLinkClass;
-		} catch(IllegalStateException e) {
-			return new DSRevLink(this, pkg);
 		}
 	}
 	
 	private DSRevLink getReverseLinkClass(Package pkg) {			
-		try {
-			Artifact artifact = queryFactory.streamProvider().of(ws.getArtifacts()).find(PATH, isRevLinkArtifact);
-			return new DSRevLink(this, artifact, pkg);
-		} catch(NoSuchElementException e) {
-			throw new IllegalStateException();
+		if(warmCache != null && warmCache.getRevLinkClassId().isPresent()) {
+			Optional<Artifact> cached = getArtifactById(warmCache.getRevLinkClassId().getAsLong())
+					.filter(artifact -> DSRevLink.REV_LINK_NAME.equals(metrics.time("DSConnection.getName", () -> provider.getName(artifact))));
+			if(cached.isPresent()) {
+				return new DSRevLink(this, cached.get(), pkg);
+			}
 		}
+		Artifact artifact = metrics.time("DSConnection.getReverseLinkClass", 2, () -> provider.findByName(ws.getArtifacts(), DSRevLink.REV_LINK_NAME))
+				.orElseThrow(IllegalStateException::new);
+		if(warmCache != null) {
+			warmCache.setRevLinkClassId(artifact.getId());
+		}
+		return new DSRevLink(this, artifact, pkg);
 	}
 
 	/**
@@ -347,22 +849,17 @@ public class DSConnection {
 	 * @param project the specified project
 	 */
 	public void addArtifactToProject(Artifact artifact, Project project) {
-		artifact.addToProject(ws, project);
+		metrics.run("DSConnection.addArtifactToProject", () -> artifact.addToProject(ws, project));
 	}
-
+
 	/**
 	 * Returns the package with the specified name from the workspace.
 	 * If there exists no package with the specified name, then an empty optional instance is returned.
 	 * @param targetPkg the specified name of the package
 	 * @return the package with the specified name or an empty optional instance, if no package with the specified name exists
 	 */
-	public Optional<Package> getPackageFromName(String targetPkg) {
-		for(Package pkg : ws.getPackages()) {
-			if(targetPkg.equals(queryFactory.navigatorProvider().from(pkg).toString("name").get())) {
-				return Optional.of(pkg);
-			}
-		}
-		return Optional.empty();
+	public synchronized Optional<Package> getPackageFromName(String targetPkg) {
+		return findPackage(targetPkg, null);
 	}
 
 	/**
@@ -372,7 +869,23 @@ public class DSConnection {
 	 * @param value the value that will be set to the property
 	 */
 	public <T> void setPropertyValue(Artifact artifact, String propertyKey, T value) {
-		artifact.setPropertyValue(ws, propertyKey, value);
+		DSBatch currentBatch = batch.get();
+		if(currentBatch != null) {
+			currentBatch.setProperty(artifact, propertyKey, value);
+		} else {
+			metrics.run("DSConnection.setPropertyValue", () -> artifact.setPropertyValue(ws, propertyKey, value));
+		}
+	}
+	
+	/**
+	 * Sets the value of a property of an artifact asynchronously, see {@link #setPropertyValue(Artifact, String, Object)}.
+	 * @param artifact the artifact that holds the property
+	 * @param propertyKey the name of the property
+	 * @param value the value that will be set to the property
+	 * @return the completion of the request
+	 */
+	public <T> CompletableFuture<Void> setPropertyValueAsync(Artifact artifact, String propertyKey, T value) {
+		return submitWrite(() -> setPropertyValue(artifact, propertyKey, value));
 	}
 
 	/**
@@ -381,6 +894,174 @@ public class DSConnection {
 	 * @param id the value to be added
 	 */
 	public void addValueToCollection(CollectionArtifact collArtifact, long id) {
-		collArtifact.addElement(ws, id);
-	}
+		DSBatch currentBatch = batch.get();
+		if(currentBatch != null) {
+			currentBatch.addElement(collArtifact, id);
+		} else {
+			metrics.run("DSConnection.addValueToCollection", () -> collArtifact.addElement(ws, id));
+		}
+	}
+	
+	/**
+	 * Adds an element to a collection artifact.
+	 * @param collArtifact the collection artifact to which the element is added to
+	 * @param element the element to be added
+	 */
+	public void addElementToCollection(CollectionArtifact collArtifact, Object element) {
+		DSBatch currentBatch = batch.get();
+		if(currentBatch != null) {
+			currentBatch.addElement(collArtifact, element);
+		} else {
+			metrics.run("DSConnection.addElementToCollection", () -> collArtifact.addElement(ws, element));
+		}
+	}
+	
+	/**
+	 * Adds an element to a collection artifact asynchronously, see {@link #addElementToCollection(CollectionArtifact, Object)}.
+	 * @param collArtifact the collection artifact to which the element is added to
+	 * @param element the element to be added
+	 * @return the completion of the request
+	 */
+	public CompletableFuture<Void> addElementToCollectionAsync(CollectionArtifact collArtifact, Object element) {
+		return submitWrite(() -> addElementToCollection(collArtifact, element));
+	}
+	
+	/**
+	 * Removes an element from a collection artifact. If the element has been added in the batch of the current thread 
+	 * and hasn't been written yet, then it is only removed from the batch.
+	 * @param collArtifact the collection artifact from which the element is removed
+	 * @param element the element to be removed
+	 */
+	public void removeElementFromCollection(CollectionArtifact collArtifact, Object element) {
+		DSBatch currentBatch = batch.get();
+		if(currentBatch == null || !currentBatch.discardElement(collArtifact, element)) {
+			metrics.run("DSConnection.removeElementFromCollection", () -> collArtifact.removeElement(ws, element));
+		}
+	}
+	
+	/**
+	 * Deletes the artifact from the workspace. Pending writes of the batch of the current thread for this artifact are discarded.
+	 * @param artifact the artifact to be deleted
+	 */
+	public void deleteArtifact(Artifact artifact) {
+		DSBatch currentBatch = batch.get();
+		if(currentBatch != null) {
+			currentBatch.discard(artifact);
+		}
+		metrics.run("DSConnection.deleteArtifact", () -> artifact.delete(ws));
+	}
+	
+	/**
+	 * Deletes the artifact asynchronously, see {@link #deleteArtifact(Artifact)}.
+	 * @param artifact the artifact to be deleted
+	 * @return the completion of the request
+	 */
+	public CompletableFuture<Void> deleteArtifactAsync(Artifact artifact) {
+		return submitWrite(() -> deleteArtifact(artifact));
+	}
+	
+	/**
+	 * Returns the alive artifacts of the package that have a property with the specified value. The artifacts are filtered by the Design Space.
+	 * @param pkg the package that contains the artifacts
+	 * @param name the name of the property
+	 * @param value the value of the property
+	 * @return the artifacts that have the property value
+	 */
+	public Collection<Artifact> getArtifactsWithProperty(Package pkg, String name, Object value) {
+		return metrics.time("DSConnection.getArtifactsWithProperty", () -> pkg.getArtifactsWithProperty(name, value, true, new Filter()));
+	}
+	
+	/**
+	 * Returns the alive artifacts of the package that have a property with the specified value asynchronously, 
+	 * see {@link #getArtifactsWithProperty(Package, String, Object)}.
+	 * @param pkg the package that contains the artifacts
+	 * @param name the name of the property
+	 * @param value the value of the property
+	 * @return the artifacts that have the property value
+	 */
+	public CompletableFuture<Collection<Artifact>> getArtifactsWithPropertyAsync(Package pkg, String name, Object value) {
+		return async(() -> getArtifactsWithProperty(pkg, name, value));
+	}
+	
+	/**
+	 * Starts a batch for the current thread using the default limit of pending writes.
+	 * @return the started batch
+	 * @see #beginBatch(int)
+	 */
+	public DSBatch beginBatch() {
+		return beginBatch(DEFAULT_MAX_PENDING_WRITES);
+	}
+	
+	/**
+	 * Starts a batch for the current thread. Until the batch is closed, the write operations of this connection that are
+	 * issued by the current thread are deferred by the batch and sent to the Design Space when it is flushed. The batch is flushed
+	 * automatically as soon as the specified number of writes are pending.
+	 * @param maxPendingWrites the maximum number of buffered write operations
+	 * @return the started batch, which should be closed after the writes have been issued
+	 * @throws IllegalStateException if a batch is already active for the current thread
+	 */
+	public DSBatch beginBatch(int maxPendingWrites) {
+		if(batch.get() != null) {
+			throw new IllegalStateException("A batch is already active for the current thread!");
+		}
+		DSBatch newBatch = new DSBatch(this, ws, maxPendingWrites);
+		batch.set(newBatch);
+		return newBatch;
+	}
+	
+	/**
+	 * Runs the work in a batch of the current thread, see {@link #beginBatch()}. The batch is flushed when the work is done.
+	 * @param work the work that issues the writes
+	 * @throws IllegalStateException if a batch is already active for the current thread
+	 */
+	public void runInBatch(Runnable work) {
+		DSBatch started = beginBatch();
+		try {
+			work.run();
+		} finally {
+			started.close();
+		}
+	}
+	
+	/**
+	 * Runs the work with a result in a batch of the current thread, see {@link #runInBatch(Runnable)}.
+	 * @param work the work that issues the writes
+	 * @return the result of the work
+	 * @throws IllegalStateException if a batch is already active for the current thread
+	 */
+	public <T> T callInBatch(Supplier<T> work) {
+		DSBatch started = beginBatch();
+		try {
+			return work.get();
+		} finally {
+			started.close();
+		}
+	}
+	
+	void endBatch(DSBatch endedBatch) {
+		if(batch.get() == endedBatch) {
+			batch.remove();
+		}
+	}
+	
+	/**
+	 * An asynchronous request and the future of its result.
+	 */
+	private static final class AsyncRequest<T> {
+		
+		private final Supplier<T> request;
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+		
+		private AsyncRequest(Supplier<T> request) {
+			this.request = request;
+		}
+		
+		private void run() {
+			try {
+				future.complete(request.get());
+			} catch(RuntimeException | Error e) {
+				future.completeExceptionally(e);
+			}
+		}
+	}
 }
@@ -0,0 +1,218 @@
+package at.jku.isse.cloud.artifact;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+import at.jku.isse.cloud.util.LoadingMap;
+import at.jku.sea.cloud.Package;
+
+/**
+ * A pool of sessions for threads that write to the same Design Space concurrently. Every session is a {@link DSConnection} with
+ * a workspace of its own, so its changes are committed independently of the other sessions and a session is only used by
+ * one thread at a time. Sessions are opened on demand, up to the maximum size of the pool, and handed out by {@link #acquire()}.
+ * <p>
+ * A session is only returned to the pool when it's released without uncommitted changes, i.e. when it has been committed after
+ * its connection was last requested. Otherwise, e.g. when the work of the session has failed, the session is discarded: the
+ * Design Space API has no rollback, so its workspace is abandoned with its changes and a new session is opened on demand.
+ * <p>
+ * The state that the sessions share is kept consistent by the pool:
+ * <li> The pool has a package session of its own, which is not handed out. It creates the reverse link model, if it doesn't
+ * exist yet, and every package that a session doesn't know, and commits them right away, so all sessions can use them. The
+ * package session has no other changes, so the pending changes of the sessions are never committed with a package.
+ * <li> All sessions use the same warm cache, if one is given, so a new session doesn't read the packages again.
+ * <p>
+ * The shared collection artifacts of the names of reverse links are created per session, so two sessions may create one for
+ * the same names; readers don't depend on the sharing. This class is thread-safe.
+ * <pre>
+ * try(DSConnectionPool.Session session = pool.acquire()) {
+ *     RevLinkCreation.createRevLinksAndSetOpposites(session.getConnection(), pkg, session.getConnection().getOrCreateReverseLinkClass());
+ *     session.commit("Reverse links of " + pkg.getId());
+ * }
+ * </pre>
+ */
+public class DSConnectionPool {
+
+	private static final long NO_PARENT = -1;
+
+	private final Supplier<DSProvider> sessionFactory;
+	private final DSConnection packageSession;
+	private final WarmCache warmCache;
+	private final int maxSize;
+
+	private final BlockingQueue<DSConnection> idle = new LinkedBlockingQueue<>();
+	private final List<DSConnection> sessions = new ArrayList<>();
+
+	// The packages that have been requested through the pool, by name and parent package id
+	private final LoadingMap<List<Object>, Package> packages = new LoadingMap<>();
+
+	/**
+	 * Creates a pool whose sessions are opened by the factory.
+	 * @param sessionFactory opens the workspace of a new session, e.g. a {@link RestDSProvider} for the same user and tool
+	 * @param maxSize the maximum number of sessions
+	 */
+	public DSConnectionPool(Supplier<DSProvider> sessionFactory, int maxSize) {
+		this(sessionFactory, maxSize, null);
+	}
+
+	/**
+	 * Creates a pool whose sessions are opened by the factory and share a warm cache. The package session is opened immediately
+	 * and creates the reverse link model, if it doesn't exist yet. Note that the pool has one workspace more than its maximum
+	 * number of sessions: the one of the package session.
+	 * @param sessionFactory opens the workspace of a new session, e.g. a {@link RestDSProvider} for the same user and tool
+	 * @param maxSize the maximum number of sessions
+	 * @param warmCache the persistent cache of the workspace, or null
+	 */
+	public DSConnectionPool(Supplier<DSProvider> sessionFactory, int maxSize, WarmCache warmCache) {
+		if(maxSize < 1) {
+			throw new IllegalArgumentException("The size of the pool must be positive: " + maxSize);
+		}
+		this.sessionFactory = requireNonNull(sessionFactory);
+		this.maxSize = maxSize;
+		this.warmCache = warmCache;
+		this.packageSession = new DSConnection(sessionFactory.get(), warmCache);
+		packageSession.getOrCreateReverseLinkClass();
+		packageSession.commit("Created reverse link model");
+	}
+
+	/**
+	 * Creates a pool of sessions of a Design Space server. Every session creates a workspace with the given identifier for the
+	 * user and the tool "RevLinks", like {@link DSConnection#DSConnection(String, String, String)}.
+	 * @param username the name of the user
+	 * @param pwd the password of the user
+	 * @param workspace the identifier for the workspaces
+	 * @param maxSize the maximum number of sessions
+	 * @return the pool
+	 */
+	public static DSConnectionPool rest(String username, String pwd, String workspace, int maxSize) {
+		return new DSConnectionPool(() -> new RestDSProvider(username, pwd, workspace), maxSize);
+	}
+
+	private DSConnection open() {
+		DSConnection session = new DSConnection(sessionFactory.get(), warmCache);
+		session.joinPool(this);
+		synchronized(sessions) {
+			sessions.add(session);
+		}
+		return session;
+	}
+
+	/**
+	 * Returns an idle session. If all sessions are in use, then a new session is opened, or, if the pool is full, the current
+	 * thread waits until a session is released.
+	 * @return the session, which must be closed to release it
+	 */
+	public Session acquire() {
+		DSConnection session = idle.poll();
+		if(session == null) {
+			synchronized(sessions) {
+				if(sessions.size() < maxSize) {
+					return new Session(open());
+				}
+			}
+			try {
+				session = idle.take();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while waiting for a session!", e);
+			}
+		}
+		return new Session(session);
+	}
+
+	/**
+	 * Returns the maximum number of sessions.
+	 * @return the maximum size of the pool
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Returns the number of open sessions, without the package session and the discarded sessions.
+	 * @return the number of sessions
+	 */
+	public int size() {
+		synchronized(sessions) {
+			return sessions.size();
+		}
+	}
+
+	/**
+	 * Returns the package with the given name, or creates and commits it with the package session, so all sessions can use it.
+	 * Every package is looked up once; concurrent requests for the same package wait for each other, requests for other packages don't.
+	 * @param name the name of the package
+	 * @param parent the parent package, or null
+	 * @return the found or newly created package
+	 */
+	public Package getOrCreatePackage(String name, Package parent) {
+		List<Object> key = Arrays.asList(name, parent == null ? NO_PARENT : parent.getId());
+		return packages.get(key, k -> packageSession.getOrCreateCommittedPackage(name, parent));
+	}
+
+	private void discard(DSConnection session) {
+		synchronized(sessions) {
+			sessions.remove(session);
+		}
+		System.err.println("Discarded a session with uncommitted changes");
+	}
+
+	/**
+	 * A session that has been acquired from the pool. The session is released when it's closed. If its connection has been
+	 * requested since the last commit of the session, then it may have uncommitted changes, which must not be committed by the
+	 * next user of the session, so it's discarded instead. A batch of the session must be closed before.
+	 */
+	public final class Session implements AutoCloseable {
+
+		private final DSConnection connection;
+		private boolean released;
+		private boolean committed = true;
+
+		private Session(DSConnection connection) {
+			this.connection = connection;
+		}
+
+		/**
+		 * Returns the connection of this session, which must only be used until the session is closed.
+		 * @return the connection
+		 */
+		public DSConnection getConnection() {
+			if(released) {
+				throw new IllegalStateException("The session has already been released!");
+			}
+			committed = false;
+			return connection;
+		}
+
+		/**
+		 * Commits the changes of this session.
+		 * @param msg the commit message
+		 */
+		public void commit(String msg) {
+			getConnection().commit(msg);
+			committed = true;
+		}
+
+		/**
+		 * Releases this session. It's returned to the pool, if it has been committed since its connection was last requested,
+		 * and discarded otherwise.
+		 */
+		@Override
+		public void close() {
+			if(released) {
+				return;
+			}
+			released = true;
+			if(committed) {
+				idle.add(connection);
+			} else {
+				discard(connection);
+			}
+		}
+	}
+}
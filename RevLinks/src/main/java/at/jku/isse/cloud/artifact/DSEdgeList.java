@@ -0,0 +1,278 @@
+package at.jku.isse.cloud.artifact;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+import at.jku.isse.cloud.util.MetricsRegistry;
+import at.jku.sea.cloud.Artifact;
+import at.jku.sea.cloud.CollectionArtifact;
+import at.jku.sea.cloud.Package;
+
+/**
+ * A chunk of reverse links that are stored as an edge list instead of {@link DSRevLink} instances. A chunk is a single collection
+ * artifact in the reverse link package, whose elements are the columns of the reverse links: the ids of the sources, targets,
+ * source types and target types and the ids of the collection artifacts with the names of the links. Every column is packed
+ * into a single element, so a whole chunk is read with a single round trip. The elements are tagged with the name of their
+ * column, so their order doesn't matter. A chunk holds at most {@value #MAX_CHUNK_SIZE} reverse links and is never modified;
+ * changed reverse links are written into new chunks that replace the old ones.
+ * <p>
+ * The chunks of a reverse link package are found by the property {@value #EDGES_PROPERTY}. The rows of a chunk have no artifact
+ * ids, so they are identified by negative ids that are derived from the id of the chunk, see {@link #getRowId(int)}.
+ */
+public class DSEdgeList {
+
+	/**
+	 * The property that marks the collection artifacts of edge lists. Its value is the version of the format.
+	 */
+	public static final String EDGES_PROPERTY = "revLinkEdges";
+	/**
+	 * The maximum number of reverse links per chunk.
+	 */
+	public static final int MAX_CHUNK_SIZE = 4096;
+
+	private static final String FORMAT = "v1";
+	private static final String CHUNK_NAME = "[RL] edges";
+	private static final String SIZE = "size";
+	private static final String SOURCE = "source";
+	private static final String TARGET = "target";
+	private static final String SOURCE_TYPE = "sourceType";
+	private static final String TARGET_TYPE = "targetType";
+	private static final String REL_NAMES = "relNames";
+
+	private final CollectionArtifact artifact;
+	private final int size;
+	private final long[] sources;
+	private final long[] targets;
+	private final long[] sourceTypes;
+	private final long[] targetTypes;
+	private final long[] relNames;
+
+	private DSEdgeList(CollectionArtifact artifact, int size, long[] sources, long[] targets, long[] sourceTypes, long[] targetTypes,
+			long[] relNames) {
+		this.artifact = artifact;
+		this.size = size;
+		this.sources = sources;
+		this.targets = targets;
+		this.sourceTypes = sourceTypes;
+		this.targetTypes = targetTypes;
+		this.relNames = relNames;
+	}
+
+	/**
+	 * Reads all chunks of the reverse link package: one round trip to find the chunks and one per chunk.
+	 * Chunks with an unknown format or with inconsistent columns are reported and skipped.
+	 * @param conn the Design Space connection
+	 * @param rlPkg the reverse link package
+	 * @return the chunks
+	 */
+	public static List<DSEdgeList> read(DSConnection conn, Package rlPkg) {
+		MetricsRegistry metrics = conn.getMetrics();
+		List<DSEdgeList> chunks = new ArrayList<>();
+		for(Artifact artifact : conn.getArtifactsWithProperty(rlPkg, EDGES_PROPERTY, FORMAT)) {
+			if(!(artifact instanceof CollectionArtifact)) {
+				continue;
+			}
+			CollectionArtifact collection = (CollectionArtifact) artifact;
+			DSEdgeList chunk = decode(collection, metrics.time("DSEdgeList.readChunk", collection::getElements));
+			if(chunk == null) {
+				System.err.println("Edge list with invalid columns found! Please review edge list " + collection.getId());
+				continue;
+			}
+			chunks.add(chunk);
+		}
+		return chunks;
+	}
+
+	private static DSEdgeList decode(CollectionArtifact artifact, Collection<?> elements) {
+		Map<String, String> columns = new HashMap<>();
+		for(Object element : elements) {
+			String value = String.valueOf(element);
+			int separator = value.indexOf(':');
+			if(separator > 0) {
+				columns.put(value.substring(0, separator), value.substring(separator + 1));
+			}
+		}
+		try {
+			int size = Integer.parseInt(columns.get(SIZE));
+			long[] sources = unpack(columns.get(SOURCE), size);
+			long[] targets = unpack(columns.get(TARGET), size);
+			long[] sourceTypes = unpack(columns.get(SOURCE_TYPE), size);
+			long[] targetTypes = unpack(columns.get(TARGET_TYPE), size);
+			long[] relNames = unpack(columns.get(REL_NAMES), size);
+			return new DSEdgeList(artifact, size, sources, targets, sourceTypes, targetTypes, relNames);
+		} catch(RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static String pack(long[] column, int size) {
+		ByteBuffer buffer = ByteBuffer.allocate(size * Long.BYTES);
+		for(int row = 0; row < size; row++) {
+			buffer.putLong(column[row]);
+		}
+		return Base64.getEncoder().encodeToString(buffer.array());
+	}
+
+	private static long[] unpack(String column, int size) {
+		ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(requireNonNull(column)));
+		if(buffer.remaining() != size * Long.BYTES) {
+			throw new IllegalArgumentException("Column with " + buffer.remaining() + " bytes for " + size + " rows");
+		}
+		long[] values = new long[size];
+		for(int row = 0; row < size; row++) {
+			values[row] = buffer.getLong();
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the id of the collection artifact of this chunk.
+	 * @return the id of the chunk
+	 */
+	public long getId() {
+		return artifact.getId();
+	}
+
+	/**
+	 * Returns the number of reverse links in this chunk.
+	 * @return the number of rows
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the id of a row, which is negative, so it doesn't collide with the ids of reverse link artifacts, and stays the same
+	 * as long as the chunk exists.
+	 * @param row the row
+	 * @return the id of the row
+	 */
+	public long getRowId(int row) {
+		return -(getId() * MAX_CHUNK_SIZE + check(row)) - 1;
+	}
+
+	public long getSourceId(int row) {
+		return sources[check(row)];
+	}
+
+	public long getTargetId(int row) {
+		return targets[check(row)];
+	}
+
+	public long getSourceTypeId(int row) {
+		return sourceTypes[check(row)];
+	}
+
+	public long getTargetTypeId(int row) {
+		return targetTypes[check(row)];
+	}
+
+	/**
+	 * Returns the id of the collection artifact with the names of the links of a row, see {@link DSRevLink#REL_NAMES_NAME}.
+	 * @param row the row
+	 * @return the id of the collection artifact
+	 */
+	public long getRelNamesId(int row) {
+		return relNames[check(row)];
+	}
+
+	private int check(int row) {
+		if(row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+		}
+		return row;
+	}
+
+	/**
+	 * Replaces this chunk by a chunk with the rows that match the predicate. If all rows match, then nothing is written;
+	 * if none match, then the chunk is only deleted.
+	 * @param conn the Design Space connection
+	 * @param rlPkg the reverse link package of the chunk
+	 * @param keep tests a row
+	 * @return the number of removed rows
+	 */
+	int retain(DSConnection conn, Package rlPkg, IntPredicate keep) {
+		Builder retained = new Builder();
+		for(int row = 0; row < size; row++) {
+			if(keep.test(row)) {
+				retained.add(sources[row], targets[row], sourceTypes[row], targetTypes[row], relNames[row]);
+			}
+		}
+		if(retained.size() == size) {
+			return 0;
+		}
+		if(retained.size() > 0) {
+			retained.write(conn, rlPkg);
+		}
+		conn.deleteArtifact(artifact);
+		return size - retained.size();
+	}
+
+	/**
+	 * Collects the rows of a chunk until they are written.
+	 */
+	static final class Builder {
+
+		private int size;
+		private long[] sources = new long[64];
+		private long[] targets = new long[64];
+		private long[] sourceTypes = new long[64];
+		private long[] targetTypes = new long[64];
+		private long[] relNames = new long[64];
+
+		void add(long source, long target, long sourceType, long targetType, long relNamesId) {
+			if(size == sources.length) {
+				int capacity = Math.min(size * 2, MAX_CHUNK_SIZE);
+				sources = Arrays.copyOf(sources, capacity);
+				targets = Arrays.copyOf(targets, capacity);
+				sourceTypes = Arrays.copyOf(sourceTypes, capacity);
+				targetTypes = Arrays.copyOf(targetTypes, capacity);
+				relNames = Arrays.copyOf(relNames, capacity);
+			}
+			size++;
+			set(size - 1, source, target, sourceType, targetType, relNamesId);
+		}
+
+		void set(int row, long source, long target, long sourceType, long targetType, long relNamesId) {
+			if(row < 0 || row >= size) {
+				throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+			}
+			sources[row] = source;
+			targets[row] = target;
+			sourceTypes[row] = sourceType;
+			targetTypes[row] = targetType;
+			relNames[row] = relNamesId;
+		}
+
+		int size() {
+			return size;
+		}
+
+		boolean isFull() {
+			return size == MAX_CHUNK_SIZE;
+		}
+
+		/**
+		 * Writes the rows as a new chunk into the reverse link package.
+		 */
+		void write(DSConnection conn, Package rlPkg) {
+			List<String> columns = Arrays.asList(SIZE + ":" + size,
+					SOURCE + ":" + pack(sources, size),
+					TARGET + ":" + pack(targets, size),
+					SOURCE_TYPE + ":" + pack(sourceTypes, size),
+					TARGET_TYPE + ":" + pack(targetTypes, size),
+					REL_NAMES + ":" + pack(relNames, size));
+			CollectionArtifact chunk = conn.createCollectionArtifact(CHUNK_NAME, columns, rlPkg);
+			conn.addProperty(chunk, EDGES_PROPERTY, FORMAT);
+		}
+	}
+}
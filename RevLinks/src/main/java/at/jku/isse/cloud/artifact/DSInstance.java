@@ -67,4 +67,12 @@ public class DSInstance {
 	public void setProperty(String key, Artifact target) {
 		conn.setArtifactProperty(artifact, key, target);
 	}
+	
+	/**
+	 * Returns the instance artifact.
+	 * @return the instance artifact
+	 */
+	public Artifact getArtifact() {
+		return artifact;
+	}
 }
@@ -0,0 +1,118 @@
+package at.jku.isse.cloud.artifact;
+
+import java.util.Collection;
+import java.util.Optional;
+
+import at.jku.sea.cloud.Artifact;
+import at.jku.sea.cloud.Package;
+import at.jku.sea.cloud.Workspace;
+
+/**
+ * Provides the Design Space to a {@link DSConnection}: the workspace, in which the connection works, and the operations that
+ * are not offered by the workspace or the artifacts themselves, like the meta model factory and the queries.
+ * {@link RestDSProvider} connects to a Design Space server, {@link InMemoryDSProvider} keeps the Design Space in memory.
+ */
+public interface DSProvider {
+
+	/**
+	 * Returns the workspace of the connection.
+	 * @return the workspace
+	 */
+	Workspace getWorkspace();
+
+	/**
+	 * Returns whether the workspace and the artifacts of this provider may be used by several threads at the same time.
+	 * Otherwise, only one thread at a time may use them; threads that write in parallel need a workspace each, see
+	 * {@link DSConnectionPool}.
+	 * @return true, if the provider is thread-safe
+	 */
+	boolean isThreadSafe();
+
+	/**
+	 * Opens a provider with a workspace of its own in the same Design Space, e.g. for a session of a {@link DSConnectionPool}.
+	 * A thread-safe provider may return itself.
+	 * @return the provider of the new workspace
+	 */
+	DSProvider openSession();
+
+	/**
+	 * Returns the artifact with the specified id from the workspace.
+	 * @param id the id of the artifact
+	 * @return the artifact or an empty optional instance, if no artifact with the specified id exists
+	 */
+	Optional<Artifact> getArtifact(long id);
+
+	/**
+	 * Creates an artifact with the specified name in the specified package. The type of the artifact is ComplexType.
+	 * @param pkg the package that contains the artifact
+	 * @param name the name of the artifact
+	 * @return the newly created artifact
+	 */
+	Artifact createComplexType(Package pkg, String name);
+
+	/**
+	 * Creates an instance artifact of a ComplexType.
+	 * @param name the name of the instance artifact
+	 * @param complexType the ComplexType artifact
+	 * @return the newly created instance artifact
+	 */
+	Artifact createComplexTypeInstance(String name, Artifact complexType);
+
+	/**
+	 * Creates a feature artifact with the specified name.
+	 * @param name the name of the feature artifact
+	 * @return the newly created feature artifact
+	 */
+	Artifact createFeature(String name);
+
+	/**
+	 * Creates an operation artifact with the specified name.
+	 * @param name the name of the operation artifact
+	 * @return the newly created operation artifact
+	 */
+	Artifact createOperation(String name);
+
+	/**
+	 * Adds a feature artifact to a ComplexType.
+	 * @param complexType the ComplexType artifact
+	 * @param feature the feature artifact
+	 */
+	void addFeatureToComplexType(Artifact complexType, Artifact feature);
+
+	/**
+	 * Adds an operation artifact to a ComplexType.
+	 * @param complexType the ComplexType artifact
+	 * @param operation the operation artifact
+	 */
+	void addOperationToComplexType(Artifact complexType, Artifact operation);
+
+	/**
+	 * Adds an artifact as a super type of a ComplexType.
+	 * @param complexType the ComplexType artifact
+	 * @param superType the super type artifact
+	 */
+	void addSuperTypeToComplexType(Artifact complexType, Artifact superType);
+
+	/**
+	 * Returns the value of the "name" property of the artifact.
+	 * @param artifact the artifact
+	 * @return the name of the artifact
+	 */
+	String getName(Artifact artifact);
+
+	/**
+	 * Returns the artifacts that are instances of the specified type.
+	 * @param artifacts the artifacts to be filtered
+	 * @param type the type artifact
+	 * @return the artifacts of the type
+	 */
+	Collection<Artifact> filterByType(Collection<Artifact> artifacts, Artifact type);
+
+	/**
+	 * Returns any of the artifacts that has the specified name.
+	 * @param artifacts the artifacts to be searched
+	 * @param name the name
+	 * @return an artifact with the name or an empty optional instance, if none of the artifacts has the name
+	 */
+	Optional<Artifact> findByName(Collection<Artifact> artifacts, String name);
+}
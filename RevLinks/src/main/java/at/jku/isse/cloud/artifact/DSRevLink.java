@@ -1,11 +1,25 @@
 package at.jku.isse.cloud.artifact;
 
-import static java.util.Objects.hash;
+import static java.util.Objects.requireNonNull;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
 
+import at.jku.isse.cloud.util.LoadingMap;
+import at.jku.isse.cloud.util.LongMultimap;
 import at.jku.sea.cloud.Artifact;
 import at.jku.sea.cloud.CollectionArtifact;
 import at.jku.sea.cloud.Container.Filter;
@@ -20,6 +34,23 @@ import at.jku.sea.cloud.Package;
  * <li> target: the target artifact
  * <li> target model: the model artifact of the target
  * <li> relNames: a collection artifact that contains the name of the links
+ * <p>
+ * By default, the reverse links of a reverse link package that have the same names of links, in any order, share a single collection
+ * artifact "[RL] relNames [name, ...]" with the sorted names, which is looked up once per reverse link package and then kept in a
+ * local dictionary. With
+ * {@link #withSharedRelNames(boolean)}, every reverse link gets its own collection artifact "&ltname of the reverse link&gt.types"
+ * instead. Readers don't have to distinguish the two, as both are referenced by the property relNames.
+ * <p>
+ * Instead of an instance per reverse link, the reverse links can be stored as compact edge lists with {@link StorageMode#EDGE_LIST},
+ * see {@link DSEdgeList}. The storage mode is set by the system property {@value #STORAGE_PROPERTY} or by 
+ * {@link #withStorageMode(StorageMode)}; readers read both representations. The storage mode of an analyzed package should not be
+ * changed without creating its reverse links again, as an update only replaces reverse links in the current storage mode.
+ * <p>
+ * A reverse link is identified by its source and target. The sources and targets of the reverse links of a reverse link package
+ * are loaded once, when the first reverse link is created in the package, and kept in a local index together with the names of
+ * their links. {@link #createRevLink(DSClass, DSClass, DSInstance, DSInstance, Package, String...)}
+ * is an upsert on this index, so creating the reverse links of a package again doesn't duplicate them. The index contains the
+ * reverse links that have been read or written by this model; it doesn't see reverse links that other clients create afterwards.
  * @author Gabriel Schoerghuber
  * @author Dominik Steinbinder
  */
@@ -34,7 +65,44 @@ public class DSRevLink extends DSClass {
 	public static final String TARGET_TYPE_NAME = "targetType";
 	public static final String REL_NAMES_NAME = "relNames";
 	
+	/**
+	 * System property that sets the storage mode of the reverse links, either INSTANCES (default) or EDGE_LIST.
+	 */
+	public static final String STORAGE_PROPERTY = "revlinks.storage";
+	
+	private static final String REV_LINK_PACKAGES_SUFFIX = ".revLinkPackages";
+	private static final String REL_NAME_SET_PREFIX = "[RL] relNames ";
+	private static final String REV_LINK_PREFIX = "[RL] ";
+	
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	
 	private final CollectionArtifact linkedPackagesArtifact;
+	
+	private volatile boolean sharedRelNames = true;
+	// The shared collection artifacts by reverse link package id and sorted names of the links
+	private final LoadingMap<List<Object>, CollectionArtifact> relNameSets = new LoadingMap<>();
+	private final Set<Long> relNameSetIds = ConcurrentHashMap.newKeySet();
+	
+	private volatile StorageMode storageMode = StorageMode.valueOf(System.getProperty(STORAGE_PROPERTY, StorageMode.INSTANCES.name()));
+	// The reverse links of the edge lists that haven't been written yet, by reverse link package id
+	private final ConcurrentMap<Long, EdgeBuffer> edgeBuffers = new ConcurrentHashMap<>();
+	// The existing reverse links by source and target, by reverse link package id
+	private final LoadingMap<Long, KeyIndex> keyIndexes = new LoadingMap<>();
+	
+	/**
+	 * The representations of reverse links in the Design Space.
+	 */
+	public enum StorageMode {
+		/**
+		 * Every reverse link is an instance of the reverse link model.
+		 */
+		INSTANCES,
+		/**
+		 * The reverse links of a reverse link package are stored in chunks of an edge list, see {@link DSEdgeList}.
+		 */
+		EDGE_LIST
+	}
 
 	/**
 	 * Creates a DSRevLink object and the reverse link model artifact in the Design Space.
@@ -63,29 +131,328 @@ public class DSRevLink extends DSClass {
 	}
 	
 	/**
-	 * Creates instances (reverse links) from the reverse link model artifact. 
-	 * The name of the reverse links are a combination of the prefix "[RL]" and
-	 * the hash of the target and the source DSInstance objects.
+	 * Sets whether reverse links with the same names of links share a collection artifact for the names. 
+	 * Shared collections are the default.
+	 * @param shared true, to share the collection artifacts, or false, to create a collection artifact per reverse link
+	 * @return this reverse link model
+	 */
+	public DSRevLink withSharedRelNames(boolean shared) {
+		this.sharedRelNames = shared;
+		return this;
+	}
+	
+	/**
+	 * Sets how new reverse links are stored.
+	 * @param storageMode the storage mode
+	 * @return this reverse link model
+	 */
+	public DSRevLink withStorageMode(StorageMode storageMode) {
+		this.storageMode = requireNonNull(storageMode);
+		return this;
+	}
+	
+	/**
+	 * Returns how new reverse links are stored.
+	 * @return the storage mode
+	 */
+	public StorageMode getStorageMode() {
+		return storageMode;
+	}
+	
+	/**
+	 * Returns true, if reverse links with the same names of links share a collection artifact for the names.
+	 * @return true, if the collection artifacts are shared
+	 */
+	public boolean isSharedRelNames() {
+		return sharedRelNames;
+	}
+	
+	/**
+	 * Returns the key of the reverse link with the given source and target: the 64-bit FNV-1a hash of the two ids. The key
+	 * only depends on the ids, so it's the same in every run. It names the reverse link, but doesn't identify it, as two pairs
+	 * of ids may have the same key.
+	 * @param sourceId the id of the source artifact
+	 * @param targetId the id of the target artifact
+	 * @return the key
+	 */
+	public static long revLinkKey(long sourceId, long targetId) {
+		long hash = FNV_OFFSET_BASIS;
+		for(long id : new long[] {sourceId, targetId}) {
+			for(int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+				hash = (hash ^ ((id >>> shift) & 0xff)) * FNV_PRIME;
+			}
+		}
+		return hash;
+	}
+	
+	/**
+	 * Creates a reverse link, unless the reverse link package already contains a reverse link with the same source and target
+	 * (an upsert). An existing reverse link with the same names of links is kept; one with other names is replaced.
+	 * The reverse link is an instance of the reverse link model artifact, whose name is a combination of the prefix "[RL]" and
+	 * the key of its source and target in hex, see {@link #revLinkKey(long, long)}.
 	 * The collection artifact, that contains the names of the links, is put into the same package
-	 * as the reverse link. The name of the collection artifact results from the name of 
+	 * as the reverse link. If the collection artifacts are shared, then the existing collection artifact with the same names is used,
+	 * or one named "[RL] relNames [name, ...]" is created. Otherwise, the name of the collection artifact results from the name of 
 	 * the reverse link and the extension ".types".
+	 * <p>
+	 * In the storage mode {@link StorageMode#EDGE_LIST}, the reverse link is appended to the edge list of the package instead,
+	 * which is written when a chunk is full or when {@link #flushEdges()} is called. A replaced row of the edge list is removed
+	 * at the same time, so every chunk is rewritten at most once per write, however many of its rows are replaced. The collection
+	 * artifacts with the names of the links are always shared in this mode.
 	 * @param targetType the type artifact of the target
 	 * @param sourceType the type artifact of the source
 	 * @param target the target artifact
 	 * @param source the source artifact
 	 * @param instPkg the package that contains the newly created reverse link
 	 * @param types the name of the links
+	 * @return true, if the reverse link has been created or replaced, or false, if it already exists
 	 */
-	public void createRevLink(DSClass targetType, DSClass sourceType, DSInstance target, DSInstance source, Package instPkg, String... types) {
-		String rlName = "[RL] " + hash(target, source);
+	public boolean createRevLink(DSClass targetType, DSClass sourceType, DSInstance target, DSInstance source, Package instPkg, String... types) {
+		RevLinkEnds ends = new RevLinkEnds(source.getArtifact().getId(), target.getArtifact().getId());
+		Set<String> relNames = new HashSet<>(Arrays.asList(types));
+		KeyIndex index = keyIndexes.get(instPkg.getId(), id -> loadKeyIndex(instPkg));
+		Optional<IndexedRevLink> existing = index.get(ends);
+		boolean replacesEdge = false;
+		if(existing.isPresent()) {
+			if(existing.get().relNames.equals(relNames)) {
+				conn.getMetrics().increment("DSRevLink.upsert.unchanged");
+				return false;
+			}
+			if(existing.get().revLinkId == IndexedRevLink.EDGE) {
+				replacesEdge = true;
+			} else {
+				conn.getArtifactById(existing.get().revLinkId).ifPresent(this::deleteRevLink);
+			}
+			conn.getMetrics().increment("DSRevLink.upsert.replaced");
+		}
+		if(storageMode == StorageMode.EDGE_LIST) {
+			long relNamesId = getOrCreateRelNameSet(instPkg, types).getId();
+			getEdgeBuffer(instPkg).add(ends, sourceType.getArtifact().getId(), targetType.getArtifact().getId(), relNamesId, replacesEdge);
+			index.put(new IndexedRevLink(IndexedRevLink.EDGE, ends, relNames));
+			return true;
+		}
+		if(replacesEdge) {
+			// The storage mode has changed, the row is removed when the edge list is written
+			getEdgeBuffer(instPkg).remove(ends);
+		}
+		String rlName = REV_LINK_PREFIX + String.format("%016x", revLinkKey(ends.sourceId, ends.targetId));
 		DSInstance revLink = createInstance(rlName, instPkg);
 		revLink.setProperty(SOURCE_NAME, source);
 		revLink.setProperty(SOURCE_TYPE_NAME, sourceType);
 		revLink.setProperty(TARGET_NAME, target);
 		revLink.setProperty(TARGET_TYPE_NAME, targetType);
-		CollectionArtifact typeCollectionArtifact = 
+		CollectionArtifact typeCollectionArtifact = sharedRelNames ? getOrCreateRelNameSet(instPkg, types) :
 				conn.createCollectionArtifact(rlName + ".types", Arrays.asList(types), instPkg);
 		revLink.setProperty(REL_NAMES_NAME, typeCollectionArtifact);
+		index.put(new IndexedRevLink(revLink.getArtifact().getId(), ends, relNames));
+		return true;
+	}
+	
+	private EdgeBuffer getEdgeBuffer(Package instPkg) {
+		return edgeBuffers.computeIfAbsent(instPkg.getId(), id -> new EdgeBuffer(instPkg));
+	}
+	
+	/**
+	 * Reads the keys and the names of the links of the existing reverse links of the package, both instances and edge lists.
+	 */
+	private KeyIndex loadKeyIndex(Package instPkg) {
+		return conn.getMetrics().time("DSRevLink.loadKeyIndex", () -> {
+			KeyIndex index = new KeyIndex();
+			Map<Long, Set<String>> relNameSets = new HashMap<>();
+			for(List<Artifact> page : conn.getArtifactPagesOfType(this, instPkg, ArtifactPages.DEFAULT_PAGE_SIZE)) {
+				for(Artifact revLink : page) {
+					Map<String, Object> props = revLink.getAlivePropertiesMap();
+					Object source = props.get(SOURCE_NAME);
+					Object target = props.get(TARGET_NAME);
+					Object relNames = props.get(REL_NAMES_NAME);
+					if(!(source instanceof Artifact) || !(target instanceof Artifact) || !(relNames instanceof CollectionArtifact)) {
+						continue;
+					}
+					RevLinkEnds ends = new RevLinkEnds(((Artifact) source).getId(), ((Artifact) target).getId());
+					index.put(new IndexedRevLink(revLink.getId(), ends, 
+							relNameSets.computeIfAbsent(((Artifact) relNames).getId(), id -> readRelNames(Optional.of((Artifact) relNames)))));
+				}
+			}
+			for(DSEdgeList chunk : DSEdgeList.read(conn, instPkg)) {
+				for(int row = 0; row < chunk.size(); row++) {
+					RevLinkEnds ends = new RevLinkEnds(chunk.getSourceId(row), chunk.getTargetId(row));
+					index.put(new IndexedRevLink(IndexedRevLink.EDGE, ends,
+							relNameSets.computeIfAbsent(chunk.getRelNamesId(row), id -> readRelNames(conn.getArtifactById(id)))));
+				}
+			}
+			return index;
+		});
+	}
+	
+	private static Set<String> readRelNames(Optional<Artifact> relNames) {
+		Set<String> names = new HashSet<>();
+		if(relNames.isPresent() && relNames.get() instanceof CollectionArtifact) {
+			((CollectionArtifact) relNames.get()).getElements().forEach(name -> names.add(String.valueOf(name)));
+		}
+		return names;
+	}
+	
+	private CollectionArtifact getOrCreateRelNameSet(Package instPkg, String... types) {
+		// The names are sorted, so the same names in another order share the collection artifact
+		List<String> relNames = Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(Arrays.asList(types))));
+		return relNameSets.get(Arrays.asList(instPkg.getId(), relNames), key -> findOrCreateRelNameSet(instPkg, relNames));
+	}
+	
+	private CollectionArtifact findOrCreateRelNameSet(Package instPkg, List<String> relNames) {
+		String name = REL_NAME_SET_PREFIX + relNames;
+		CollectionArtifact relNameSet = conn.getArtifactsWithProperty(instPkg, "name", name).stream()
+				.filter(artifact -> artifact instanceof CollectionArtifact)
+				.map(artifact -> (CollectionArtifact) artifact)
+				.findAny()
+				.orElseGet(() -> conn.createCollectionArtifact(name, relNames, instPkg));
+		relNameSetIds.add(relNameSet.getId());
+		return relNameSet;
+	}
+	
+	/**
+	 * Deletes a reverse link together with the collection artifact that contains the names of its links, 
+	 * unless the collection artifact is shared with other reverse links.
+	 * @param revLink the reverse link artifact
+	 */
+	public void deleteRevLink(Artifact revLink) {
+		Map<String, Object> props = revLink.getAlivePropertiesMap();
+		Object source = props.get(SOURCE_NAME);
+		Object target = props.get(TARGET_NAME);
+		if(source instanceof Artifact && target instanceof Artifact) {
+			RevLinkEnds ends = new RevLinkEnds(((Artifact) source).getId(), ((Artifact) target).getId());
+			keyIndexes.loadedValues().forEach(index -> index.remove(ends, revLink.getId()));
+		}
+		Object relNames = props.get(REL_NAMES_NAME);
+		if(relNames instanceof CollectionArtifact && !isRelNameSet((CollectionArtifact) relNames)) {
+			conn.deleteArtifact((Artifact) relNames);
+		}
+		conn.deleteArtifact(revLink);
+	}
+	
+	/**
+	 * Writes the reverse links of the edge lists that haven't been written yet. Must be called after the reverse links
+	 * have been created in the storage mode {@link StorageMode#EDGE_LIST}, before they are read.
+	 */
+	public void flushEdges() {
+		edgeBuffers.values().forEach(EdgeBuffer::flush);
+	}
+	
+	/**
+	 * Removes the reverse links with the given targets from the edge list of the reverse link package. Every chunk that contains
+	 * such a reverse link is replaced by a chunk without them.
+	 * @param rlPkg the reverse link package
+	 * @param targetIds the ids of the targets
+	 * @return the ids of the sources of the removed reverse links by the id of their target
+	 */
+	public LongMultimap removeEdges(Package rlPkg, Set<Long> targetIds) {
+		LongMultimap removed = new LongMultimap();
+		Optional<KeyIndex> index = keyIndexes.getIfLoaded(rlPkg.getId());
+		for(DSEdgeList chunk : DSEdgeList.read(conn, rlPkg)) {
+			chunk.retain(conn, rlPkg, row -> {
+				if(!targetIds.contains(chunk.getTargetId(row))) {
+					return true;
+				}
+				removed.put(chunk.getTargetId(row), chunk.getSourceId(row));
+				index.ifPresent(keys -> keys.remove(new RevLinkEnds(chunk.getSourceId(row), chunk.getTargetId(row)), IndexedRevLink.EDGE));
+				return false;
+			});
+		}
+		return removed;
+	}
+	
+	/**
+	 * Removes the reverse links of the reverse link package whose source or target has been deleted, both instances and rows of
+	 * the edge list. A reverse link instance that doesn't reference its source or target anymore is removed as well.
+	 * @param rlPkg the reverse link package
+	 * @param exists tests whether the artifact with the given id still exists
+	 * @return the ids of the sources of the removed reverse links by the id of their target
+	 */
+	public LongMultimap removeOrphans(Package rlPkg, LongPredicate exists) {
+		LongMultimap removed = new LongMultimap();
+		List<Artifact> orphans = new ArrayList<>();
+		for(List<Artifact> page : conn.getArtifactPagesOfType(this, rlPkg, ArtifactPages.DEFAULT_PAGE_SIZE)) {
+			for(Artifact revLink : page) {
+				Map<String, Object> props = revLink.getAlivePropertiesMap();
+				Object source = props.get(SOURCE_NAME);
+				Object target = props.get(TARGET_NAME);
+				if(source instanceof Artifact && target instanceof Artifact) {
+					long sourceId = ((Artifact) source).getId();
+					long targetId = ((Artifact) target).getId();
+					if(exists.test(sourceId) && exists.test(targetId)) {
+						continue;
+					}
+					removed.put(targetId, sourceId);
+				}
+				orphans.add(revLink);
+			}
+		}
+		orphans.forEach(this::deleteRevLink);
+		Optional<KeyIndex> index = keyIndexes.getIfLoaded(rlPkg.getId());
+		for(DSEdgeList chunk : DSEdgeList.read(conn, rlPkg)) {
+			chunk.retain(conn, rlPkg, row -> {
+				if(exists.test(chunk.getSourceId(row)) && exists.test(chunk.getTargetId(row))) {
+					return true;
+				}
+				removed.put(chunk.getTargetId(row), chunk.getSourceId(row));
+				index.ifPresent(keys -> keys.remove(new RevLinkEnds(chunk.getSourceId(row), chunk.getTargetId(row)), IndexedRevLink.EDGE));
+				return false;
+			});
+		}
+		return removed;
+	}
+	
+	private boolean isRelNameSet(CollectionArtifact collection) {
+		if(relNameSetIds.contains(collection.getId())) {
+			return true;
+		}
+		Object name = conn.getMetrics().time("DSRevLink.loadName", () -> collection.getPropertyValueOrNull("name"));
+		if(name != null && name.toString().startsWith(REL_NAME_SET_PREFIX)) {
+			relNameSetIds.add(collection.getId());
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Records the reverse link packages that contain reverse links for the artifacts of the specified package.
+	 * Packages that have already been recorded are skipped.
+	 * @param analyzedPkg the package for whose artifacts the reverse links have been created
+	 * @param rlPkgs the reverse link packages that contain the reverse links
+	 */
+	public void addTargetRevLinkPackages(Package analyzedPkg, Collection<Package> rlPkgs) {
+		Optional<CollectionArtifact> recorded = getTargetRevLinkPackagesArtifact(analyzedPkg);
+		if(!recorded.isPresent()) {
+			List<Long> ids = rlPkgs.stream().map(Package::getId).distinct().collect(Collectors.toList());
+			conn.createCollectionArtifact(analyzedPkg.getId() + REV_LINK_PACKAGES_SUFFIX, ids, pkg);
+			return;
+		}
+		rlPkgs.stream()
+				.map(Package::getId)
+				.distinct()
+				.filter(id -> !recorded.get().existsElement(id))
+				.forEach(id -> conn.addValueToCollection(recorded.get(), id));
+	}
+	
+	/**
+	 * Returns the ids of the reverse link packages that have been recorded for the specified package. Packages whose reverse
+	 * links have been created before the reverse link packages were recorded have no record.
+	 * @param analyzedPkg the package for whose artifacts the reverse links have been created
+	 * @return the ids of the recorded reverse link packages, or an empty optional instance if the package has no record
+	 * @see #addTargetRevLinkPackages(Package, Collection)
+	 */
+	public Optional<Set<Long>> getTargetRevLinkPackageIds(Package analyzedPkg) {
+		return getTargetRevLinkPackagesArtifact(analyzedPkg)
+				.map(coll -> coll.getElements().stream()
+						.filter(id -> id instanceof Number)
+						.map(id -> ((Number) id).longValue())
+						.collect(Collectors.toSet()));
+	}
+	
+	private Optional<CollectionArtifact> getTargetRevLinkPackagesArtifact(Package analyzedPkg) {
+		return conn.getArtifactsWithProperty(pkg, "name", analyzedPkg.getId() + REV_LINK_PACKAGES_SUFFIX).stream()
+				.filter(artifact -> artifact instanceof CollectionArtifact)
+				.map(artifact -> (CollectionArtifact) artifact)
+				.findAny();
 	}
 	
 	/**
@@ -106,4 +473,128 @@ public class DSRevLink extends DSClass {
 	public boolean containsPackage(Package selectedPkg) {
 		return linkedPackagesArtifact.existsElement(selectedPkg.getId());
 	}
+	
+	/**
+	 * The source and target of a reverse link, which identify it within its reverse link package.
+	 */
+	private static final class RevLinkEnds {
+		
+		private final long sourceId;
+		private final long targetId;
+		
+		private RevLinkEnds(long sourceId, long targetId) {
+			this.sourceId = sourceId;
+			this.targetId = targetId;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof RevLinkEnds)) {
+				return false;
+			}
+			RevLinkEnds other = (RevLinkEnds) obj;
+			return sourceId == other.sourceId && targetId == other.targetId;
+		}
+		
+		@Override
+		public int hashCode() {
+			return Long.hashCode(revLinkKey(sourceId, targetId));
+		}
+	}
+	
+	/**
+	 * The existing reverse links of a reverse link package by their source and target.
+	 */
+	private static class KeyIndex {
+		
+		private final Map<RevLinkEnds, IndexedRevLink> revLinks = new HashMap<>();
+		
+		private synchronized Optional<IndexedRevLink> get(RevLinkEnds ends) {
+			return Optional.ofNullable(revLinks.get(ends));
+		}
+		
+		private synchronized void put(IndexedRevLink revLink) {
+			revLinks.put(revLink.ends, revLink);
+		}
+		
+		private synchronized void remove(RevLinkEnds ends, long revLinkId) {
+			IndexedRevLink existing = revLinks.get(ends);
+			if(existing != null && existing.revLinkId == revLinkId) {
+				revLinks.remove(ends);
+			}
+		}
+	}
+	
+	/**
+	 * An existing reverse link: either the id of its instance or {@link #EDGE} for a row of an edge list.
+	 */
+	private static class IndexedRevLink {
+		
+		private static final long EDGE = -1;
+		
+		private final long revLinkId;
+		private final RevLinkEnds ends;
+		private final Set<String> relNames;
+		
+		private IndexedRevLink(long revLinkId, RevLinkEnds ends, Set<String> relNames) {
+			this.revLinkId = revLinkId;
+			this.ends = ends;
+			this.relNames = relNames;
+		}
+	}
+	
+	/**
+	 * The reverse links of a reverse link package that haven't been written into its edge list yet, and the written rows
+	 * that they replace. A row that replaces a buffered row overwrites it in the buffer.
+	 */
+	private class EdgeBuffer {
+		
+		private final Package rlPkg;
+		private DSEdgeList.Builder rows = new DSEdgeList.Builder();
+		private final Map<RevLinkEnds, Integer> bufferedRows = new HashMap<>();
+		private final Set<RevLinkEnds> replacedRows = new HashSet<>();
+		
+		private EdgeBuffer(Package rlPkg) {
+			this.rlPkg = rlPkg;
+		}
+		
+		private synchronized void add(RevLinkEnds ends, long sourceType, long targetType, long relNamesId, boolean replacesRow) {
+			Integer buffered = bufferedRows.get(ends);
+			if(buffered != null) {
+				rows.set(buffered, ends.sourceId, ends.targetId, sourceType, targetType, relNamesId);
+				return;
+			}
+			if(replacesRow) {
+				replacedRows.add(ends);
+			}
+			bufferedRows.put(ends, rows.size());
+			rows.add(ends.sourceId, ends.targetId, sourceType, targetType, relNamesId);
+			if(rows.isFull()) {
+				flush();
+			}
+		}
+		
+		private synchronized void remove(RevLinkEnds ends) {
+			if(bufferedRows.containsKey(ends)) {
+				// Rows can't be removed from the buffer, it's rare enough to write it first
+				flush();
+			}
+			replacedRows.add(ends);
+		}
+		
+		private synchronized void flush() {
+			if(!replacedRows.isEmpty()) {
+				// The replaced rows are removed before the rows that replace them are written
+				for(DSEdgeList chunk : DSEdgeList.read(conn, rlPkg)) {
+					chunk.retain(conn, rlPkg, row -> !replacedRows.contains(new RevLinkEnds(chunk.getSourceId(row), chunk.getTargetId(row))));
+				}
+				replacedRows.clear();
+			}
+			if(rows.size() > 0) {
+				rows.write(conn, rlPkg);
+				rows = new DSEdgeList.Builder();
+				bufferedRows.clear();
+			}
+		}
+	}
 }
@@ -0,0 +1,539 @@
+package at.jku.isse.cloud.artifact;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import at.jku.sea.cloud.Artifact;
+import at.jku.sea.cloud.CollectionArtifact;
+import at.jku.sea.cloud.Package;
+import at.jku.sea.cloud.Project;
+import at.jku.sea.cloud.Property;
+import at.jku.sea.cloud.Workspace;
+
+/**
+ * Keeps a Design Space in memory, so connections can be used without a Design Space server, e.g. in benchmarks.
+ * All artifacts belong to a single workspace and commits don't have an effect. The provider is thread-safe.
+ * <p>
+ * The provider implements the subset of the Design Space API that is used by RevLinks, i.e. by the connections, the creation
+ * engine, the updater and the link queries:
+ * <ul>
+ * <li>{@link Workspace}: getId, getArtifact, getArtifacts, getPackages, getProjects, createProject, createPackage (with and
+ * without parent), createCollection and commitAll</li>
+ * <li>{@link Artifact}: getId, getType, getPackage, getAlivePropertiesMap, getAliveProperties, getPropertyValue,
+ * getPropertyValueOrNull, setPropertyValue, createProperty, setPackage, addToProject and delete</li>
+ * <li>{@link Package}: getArtifacts and getArtifactsWithProperty for alive artifacts</li>
+ * <li>{@link CollectionArtifact}: addElement, addElements, removeElement, existsElement and getElements</li>
+ * <li>{@link Property}: getName, getValue and setValue</li>
+ * <li>the queries of {@link DSProvider}: getName, filterByType and findByName, and the creation of complex types, features
+ * and operations</li>
+ * </ul>
+ * Every other operation throws an {@link UnsupportedOperationException} that names the operation, so a new call in RevLinks
+ * fails fast instead of silently returning a wrong result.
+ * <p>
+ * To reproduce the costs of a remote Design Space, every operation can be delayed by a fixed latency plus a random jitter
+ * (see {@link #withLatency(long, long, TimeUnit)}). The operations are counted by their name, e.g. "Artifact.getAlivePropertiesMap"
+ * or "Workspace.createPackage". Accessing the values of {@link Property} objects that have been read is local and not counted.
+ */
+public class InMemoryDSProvider implements DSProvider {
+
+	static final String FEATURES_PROPERTY = "features";
+	static final String OPERATIONS_PROPERTY = "operations";
+	static final String SUPER_TYPES_PROPERTY = "superTypes";
+
+	private final Map<Long, MemoryArtifact> artifacts = new HashMap<>();
+	// Package id -> alive artifacts of the package
+	private final Map<Long, Set<MemoryArtifact>> packageContents = new HashMap<>();
+	private final Map<String, LongAdder> callCounts = new ConcurrentHashMap<>();
+	private long nextId = 1;
+
+	private volatile long latencyNanos;
+	private volatile long jitterNanos;
+	private final Random random;
+
+	private final Workspace workspace;
+	private final Artifact packageType;
+	private final Artifact collectionType;
+	private final Artifact projectType;
+	private final Artifact complexTypeType;
+	private final Artifact featureType;
+	private final Artifact operationType;
+
+	/**
+	 * Creates an empty in-memory Design Space without latency.
+	 */
+	public InMemoryDSProvider() {
+		this(0);
+	}
+
+	/**
+	 * Creates an empty in-memory Design Space without latency.
+	 * @param seed the seed of the random jitter, so runs with the same operations are delayed identically
+	 */
+	public InMemoryDSProvider(long seed) {
+		this.random = new Random(seed);
+		this.workspace = (Workspace) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Workspace.class}, this::invokeWorkspace);
+		this.packageType = createMetaType("Package");
+		this.collectionType = createMetaType("Collection");
+		this.projectType = createMetaType("Project");
+		this.complexTypeType = createMetaType("ComplexType");
+		this.featureType = createMetaType("Feature");
+		this.operationType = createMetaType("Operation");
+	}
+
+	/**
+	 * Delays every operation by the latency plus a uniformly distributed random jitter.
+	 * @param latency the latency of every operation
+	 * @param jitter the maximum additional delay
+	 * @param unit the unit of the latency and of the jitter
+	 * @return this provider
+	 */
+	public InMemoryDSProvider withLatency(long latency, long jitter, TimeUnit unit) {
+		if(latency < 0 || jitter < 0) {
+			throw new IllegalArgumentException("Latency and jitter must not be negative!");
+		}
+		this.latencyNanos = unit.toNanos(latency);
+		this.jitterNanos = unit.toNanos(jitter);
+		return this;
+	}
+
+	/**
+	 * Returns the number of calls of every operation since the provider was created or the counters were reset.
+	 * @return the number of calls by operation name, sorted by name
+	 */
+	public Map<String, Long> getCallCounts() {
+		Map<String, Long> counts = new TreeMap<>();
+		callCounts.forEach((operation, count) -> counts.put(operation, count.sum()));
+		return counts;
+	}
+
+	/**
+	 * Returns the total number of calls of all operations.
+	 * @return the number of calls
+	 */
+	public long getTotalCalls() {
+		return callCounts.values().stream().mapToLong(LongAdder::sum).sum();
+	}
+
+	/**
+	 * Resets the call counters.
+	 */
+	public void resetCallCounts() {
+		callCounts.clear();
+	}
+
+	/**
+	 * Returns the number of alive artifacts.
+	 * @return the number of alive artifacts
+	 */
+	public synchronized int size() {
+		return (int) artifacts.values().stream().filter(artifact -> artifact.alive).count();
+	}
+
+	@Override
+	public Workspace getWorkspace() {
+		return workspace;
+	}
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	@Override
+	public DSProvider openSession() {
+		// The workspaces of the in-memory Design Space are a single workspace, which is thread-safe
+		return this;
+	}
+
+	@Override
+	public Optional<Artifact> getArtifact(long id) {
+		call("Workspace.getArtifact");
+		synchronized(this) {
+			MemoryArtifact artifact = artifacts.get(id);
+			return artifact != null && artifact.alive ? Optional.of(artifact.proxy) : Optional.empty();
+		}
+	}
+
+	@Override
+	public Artifact createComplexType(Package pkg, String name) {
+		call("DSProvider.createComplexType");
+		synchronized(this) {
+			MemoryArtifact complexType = create(Kind.ARTIFACT, complexTypeType, pkg);
+			complexType.properties.put("name", name);
+			complexType.properties.put(FEATURES_PROPERTY, new ArrayList<Artifact>());
+			complexType.properties.put(OPERATIONS_PROPERTY, new ArrayList<Artifact>());
+			complexType.properties.put(SUPER_TYPES_PROPERTY, new ArrayList<Artifact>());
+			return complexType.proxy;
+		}
+	}
+
+	@Override
+	public Artifact createComplexTypeInstance(String name, Artifact complexType) {
+		call("DSProvider.createComplexTypeInstance");
+		synchronized(this) {
+			MemoryArtifact instance = create(Kind.ARTIFACT, complexType, null);
+			// Instances have a property for every feature of their type and its super types
+			for(Artifact feature : getFeatures(complexType, new LinkedHashSet<>())) {
+				instance.properties.put(String.valueOf(memory(feature).properties.get("name")), null);
+			}
+			instance.properties.put("name", name);
+			return instance.proxy;
+		}
+	}
+
+	private Set<Artifact> getFeatures(Artifact complexType, Set<Artifact> features) {
+		MemoryArtifact type = memory(complexType);
+		features.addAll(artifactList(type, FEATURES_PROPERTY));
+		for(Artifact superType : artifactList(type, SUPER_TYPES_PROPERTY)) {
+			getFeatures(superType, features);
+		}
+		return features;
+	}
+
+	@Override
+	public Artifact createFeature(String name) {
+		call("DSProvider.createFeature");
+		synchronized(this) {
+			MemoryArtifact feature = create(Kind.ARTIFACT, featureType, null);
+			feature.properties.put("name", name);
+			return feature.proxy;
+		}
+	}
+
+	@Override
+	public Artifact createOperation(String name) {
+		call("DSProvider.createOperation");
+		synchronized(this) {
+			MemoryArtifact operation = create(Kind.ARTIFACT, operationType, null);
+			operation.properties.put("name", name);
+			return operation.proxy;
+		}
+	}
+
+	@Override
+	public void addFeatureToComplexType(Artifact complexType, Artifact feature) {
+		call("DSProvider.addFeatureToComplexType");
+		synchronized(this) {
+			artifactList(memory(complexType), FEATURES_PROPERTY).add(feature);
+		}
+	}
+
+	@Override
+	public void addOperationToComplexType(Artifact complexType, Artifact operation) {
+		call("DSProvider.addOperationToComplexType");
+		synchronized(this) {
+			artifactList(memory(complexType), OPERATIONS_PROPERTY).add(operation);
+		}
+	}
+
+	@Override
+	public void addSuperTypeToComplexType(Artifact complexType, Artifact superType) {
+		call("DSProvider.addSuperTypeToComplexType");
+		synchronized(this) {
+			artifactList(memory(complexType), SUPER_TYPES_PROPERTY).add(superType);
+		}
+	}
+
+	@Override
+	public String getName(Artifact artifact) {
+		call("DSProvider.getName");
+		synchronized(this) {
+			Object name = memory(artifact).properties.get("name");
+			return name == null ? null : name.toString();
+		}
+	}
+
+	@Override
+	public Collection<Artifact> filterByType(Collection<Artifact> artifacts, Artifact type) {
+		call("DSProvider.filterByType");
+		synchronized(this) {
+			return artifacts.stream()
+					.filter(artifact -> memory(artifact).type == type)
+					.collect(Collectors.toList());
+		}
+	}
+
+	@Override
+	public Optional<Artifact> findByName(Collection<Artifact> artifacts, String name) {
+		call("DSProvider.findByName");
+		synchronized(this) {
+			return artifacts.stream()
+					.filter(artifact -> name.equals(memory(artifact).properties.get("name")))
+					.findAny();
+		}
+	}
+
+	/**
+	 * Counts the operation and waits for the latency. The lock of the provider must not be held.
+	 */
+	private void call(String operation) {
+		callCounts.computeIfAbsent(operation, key -> new LongAdder()).increment();
+		long delay = latencyNanos;
+		if(jitterNanos > 0) {
+			delay += (long) (random.nextDouble() * jitterNanos);
+		}
+		if(delay > 0) {
+			long deadline = System.nanoTime() + delay;
+			for(long remaining = delay; remaining > 0; remaining = deadline - System.nanoTime()) {
+				LockSupport.parkNanos(remaining);
+			}
+		}
+	}
+
+	private Object invokeWorkspace(Object proxy, Method method, Object[] args) {
+		switch(method.getName()) {
+		case "hashCode":
+			return System.identityHashCode(proxy);
+		case "equals":
+			return proxy == args[0];
+		case "toString":
+			return "InMemoryWorkspace";
+		}
+		call("Workspace." + method.getName());
+		synchronized(this) {
+			switch(method.getName()) {
+			case "getId":
+				return 0L;
+			case "createProject": {
+				MemoryArtifact project = create(Kind.PROJECT, projectType, null);
+				project.properties.put("name", args[0]);
+				return project.proxy;
+			}
+			case "createPackage": {
+				Package parent = args.length == 2 ? (Package) args[0] : null;
+				MemoryArtifact pkg = create(Kind.PACKAGE, packageType, parent);
+				pkg.properties.put("name", args[args.length - 1]);
+				return pkg.proxy;
+			}
+			case "createCollection":
+				return create(Kind.COLLECTION, collectionType, (Package) args[1]).proxy;
+			case "getArtifact": {
+				MemoryArtifact artifact = artifacts.get((Long) args[0]);
+				if(artifact == null || !artifact.alive) {
+					throw new IllegalArgumentException("Artifact " + args[0] + " does not exist!");
+				}
+				return artifact.proxy;
+			}
+			case "getArtifacts":
+				return aliveProxies(artifact -> true);
+			case "getPackages":
+				return aliveProxies(artifact -> artifact.kind == Kind.PACKAGE);
+			case "getProjects":
+				return aliveProxies(artifact -> artifact.kind == Kind.PROJECT);
+			case "commitAll":
+				return null;
+			default:
+				throw unsupported(method);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> List<T> aliveProxies(Predicate<MemoryArtifact> filter) {
+		return artifacts.values().stream()
+				.filter(artifact -> artifact.alive && filter.test(artifact))
+				.map(artifact -> (T) artifact.proxy)
+				.collect(Collectors.toList());
+	}
+
+	private Artifact createMetaType(String name) {
+		MemoryArtifact type = create(Kind.ARTIFACT, null, null);
+		type.properties.put("name", name);
+		return type.proxy;
+	}
+
+	private MemoryArtifact create(Kind kind, Artifact type, Package pkg) {
+		MemoryArtifact artifact = new MemoryArtifact(nextId++, kind, type);
+		artifacts.put(artifact.id, artifact);
+		setPackage(artifact, pkg);
+		return artifact;
+	}
+
+	private void setPackage(MemoryArtifact artifact, Package pkg) {
+		if(artifact.pkg != null) {
+			packageContents.get(artifact.pkg.getId()).remove(artifact);
+		}
+		artifact.pkg = pkg;
+		if(pkg != null) {
+			packageContents.computeIfAbsent(memory(pkg).id, id -> new LinkedHashSet<>()).add(artifact);
+		}
+	}
+
+	private MemoryArtifact memory(Artifact artifact) {
+		if(artifact == null || !Proxy.isProxyClass(artifact.getClass())
+				|| !(Proxy.getInvocationHandler(artifact) instanceof MemoryArtifact)) {
+			throw new IllegalArgumentException("Not an artifact of the in-memory Design Space: " + artifact);
+		}
+		return (MemoryArtifact) Proxy.getInvocationHandler(artifact);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Artifact> artifactList(MemoryArtifact artifact, String property) {
+		return (List<Artifact>) artifact.properties.computeIfAbsent(property, key -> new ArrayList<Artifact>());
+	}
+
+	private static UnsupportedOperationException unsupported(Method method) {
+		return new UnsupportedOperationException(method.getDeclaringClass().getSimpleName() + "." + method.getName()
+				+ " is not supported by the in-memory Design Space!");
+	}
+
+	private enum Kind {
+		ARTIFACT(Artifact.class), PACKAGE(Package.class), COLLECTION(CollectionArtifact.class), PROJECT(Project.class);
+
+		private final Class<?> type;
+
+		private Kind(Class<?> type) {
+			this.type = type;
+		}
+	}
+
+	/**
+	 * The state of an artifact. The artifact itself is a proxy of the interface of its kind that is backed by this handler.
+	 */
+	private class MemoryArtifact implements InvocationHandler {
+
+		private final long id;
+		private final Kind kind;
+		private final Artifact type;
+		private final Artifact proxy;
+		private final Map<String, Object> properties = new LinkedHashMap<>();
+		private final List<Object> elements = new ArrayList<>();
+		private final Set<Project> projects = new LinkedHashSet<>();
+		private Package pkg;
+		private boolean alive = true;
+
+		private MemoryArtifact(long id, Kind kind, Artifact type) {
+			this.id = id;
+			this.kind = kind;
+			this.type = type;
+			this.proxy = (Artifact) Proxy.newProxyInstance(InMemoryDSProvider.class.getClassLoader(), new Class<?>[] {kind.type}, this);
+		}
+
+		@Override
+		public Object invoke(Object self, Method method, Object[] args) {
+			switch(method.getName()) {
+			case "hashCode":
+				return Long.hashCode(id);
+			case "equals":
+				return self == args[0];
+			case "toString":
+				return kind + "[id=" + id + ", name=" + properties.get("name") + "]";
+			case "getId":
+				// Ids are immutable and known locally
+				return id;
+			}
+			call(method.getDeclaringClass().getSimpleName() + "." + method.getName());
+			synchronized(InMemoryDSProvider.this) {
+				switch(method.getName()) {
+				case "getType":
+					return type;
+				case "getPackage":
+					return pkg;
+				case "getAlivePropertiesMap":
+					return new LinkedHashMap<>(properties);
+				case "getAliveProperties":
+					return properties.keySet().stream().map(this::property).collect(Collectors.toList());
+				case "getPropertyValueOrNull":
+					return properties.get(args[0]);
+				case "getPropertyValue":
+					if(!properties.containsKey(args[0])) {
+						throw new IllegalArgumentException("Property " + args[0] + " does not exist for artifact " + id + "!");
+					}
+					return properties.get(args[0]);
+				case "setPropertyValue":
+					properties.put((String) args[1], args[2]);
+					return null;
+				case "createProperty":
+					properties.putIfAbsent((String) args[1], null);
+					return property((String) args[1]);
+				case "setPackage":
+					InMemoryDSProvider.this.setPackage(this, (Package) args[1]);
+					return null;
+				case "addToProject":
+					projects.add((Project) args[1]);
+					return null;
+				case "delete":
+					alive = false;
+					InMemoryDSProvider.this.setPackage(this, null);
+					return null;
+				case "getArtifacts":
+					return packageContents.getOrDefault(id, Collections.emptySet()).stream()
+							.map(artifact -> artifact.proxy)
+							.collect(Collectors.toList());
+				case "getArtifactsWithProperty":
+					// Deleted artifacts are not kept in the contents of their package
+					if(!Boolean.TRUE.equals(args[2])) {
+						throw unsupported(method);
+					}
+					return packageContents.getOrDefault(id, Collections.emptySet()).stream()
+							.filter(artifact -> artifact.properties.containsKey(args[0]) && Objects.equals(artifact.properties.get(args[0]), args[1]))
+							.map(artifact -> artifact.proxy)
+							.collect(Collectors.toList());
+				case "addElements":
+					elements.addAll((Collection<?>) args[1]);
+					return null;
+				case "addElement":
+					elements.add(args[1]);
+					return null;
+				case "removeElement":
+					elements.remove(args[1]);
+					return null;
+				case "existsElement":
+					return elements.contains(args[0]);
+				case "getElements":
+					return new ArrayList<>(elements);
+				default:
+					throw unsupported(method);
+				}
+			}
+		}
+
+		private Property property(String name) {
+			return (Property) Proxy.newProxyInstance(InMemoryDSProvider.class.getClassLoader(), new Class<?>[] {Property.class},
+					(self, method, args) -> {
+						switch(method.getName()) {
+						case "getName":
+							return name;
+						case "getValue":
+							synchronized(InMemoryDSProvider.this) {
+								return properties.get(name);
+							}
+						case "setValue":
+							call("Property.setValue");
+							synchronized(InMemoryDSProvider.this) {
+								properties.put(name, args[1]);
+							}
+							return null;
+						case "hashCode":
+							return System.identityHashCode(self);
+						case "equals":
+							return self == args[0];
+						case "toString":
+							return name;
+						default:
+							throw unsupported(method);
+						}
+					});
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package at.jku.isse.cloud.artifact;
+
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import at.jku.sea.cloud.Artifact;
+import at.jku.sea.cloud.Cloud;
+import at.jku.sea.cloud.Package;
+import at.jku.sea.cloud.Tool;
+import at.jku.sea.cloud.User;
+import at.jku.sea.cloud.Workspace;
+import at.jku.sea.cloud.exceptions.ArtifactDoesNotExistException;
+import at.jku.sea.cloud.exceptions.CredentialsException;
+import at.jku.sea.cloud.mmm.MMMTypeProperties;
+import at.jku.sea.cloud.mmm.MMMTypesFactory;
+import at.jku.sea.cloud.rest.client.RestCloud;
+import at.jku.sea.cloud.stream.Context.Path;
+import at.jku.sea.cloud.stream.Contexts;
+import at.jku.sea.cloud.stream.QueryFactory;
+import at.jku.sea.cloud.stream.predicate.Predicate;
+import at.jku.sea.cloud.stream.predicate.PredicateProvider;
+
+/**
+ * Provides the Design Space of the server that is accessed through {@link RestCloud}.
+ * A user (if it doesn't exist) and a workspace are created for the connection.
+ */
+public class RestDSProvider implements DSProvider {
+
+	private static final String PATH = "";
+
+	private final Cloud cloud;
+	private final Workspace ws;
+	private final QueryFactory queryFactory;
+	// Opens another workspace for the same user and tool
+	private final Supplier<DSProvider> sessionFactory;
+
+	/**
+	 * Creates a user (if it doesn't exist) and a workspace with the given tool.
+	 * @param username the name of the user
+	 * @param pwd the password of the user
+	 * @param toolId Artifact ID of the tool.
+	 * @param workspace the identifier for the workspace
+	 */
+	public RestDSProvider(String username, String pwd, int toolId, String workspace) {
+		this.cloud = RestCloud.getInstance();
+		User user = getOrCreateUser(cloud, username, username, pwd);
+		Tool tool = cloud.getTool(toolId);
+		this.ws = cloud.createWorkspace(user.getOwner(), tool, workspace);
+		this.queryFactory = cloud.queryFactory();
+		this.sessionFactory = () -> new RestDSProvider(username, pwd, toolId, workspace);
+	}
+
+	/**
+	 * Creates a user (if it doesn't exist), a tool with the name "RevLinks" in the version 0.1 and a workspace.
+	 * @param username the name of the user
+	 * @param pwd the password of the user
+	 * @param workspace the identifier for the workspace
+	 */
+	public RestDSProvider(String username, String pwd, String workspace) {
+		this.cloud = RestCloud.getInstance();
+		User user = getOrCreateUser(cloud, username, username, pwd);
+		Tool tool = getOrCreateTool(cloud, "RevLinks", "0.1");
+		this.ws = cloud.createWorkspace(user.getOwner(), tool, workspace);
+		this.queryFactory = cloud.queryFactory();
+		this.sessionFactory = () -> new RestDSProvider(username, pwd, workspace);
+	}
+
+	private Tool getOrCreateTool(Cloud cloud, String name, String toolVersion) {
+		return cloud.getTools().stream()
+				.filter(t -> t.getName().equals(name) && t.getToolVersion().equals(toolVersion))
+				.findAny().orElseGet(() -> cloud.createTool(name, toolVersion));
+	}
+
+	private User getOrCreateUser(Cloud cloud, String name, String login, String pwd) {
+		try {
+			return cloud.getUserByCredentials(login, pwd);
+		} catch(CredentialsException e) {
+			try {
+				return cloud.createUser(name, login, pwd);
+			} catch(CredentialsException e2) {
+				throw new RuntimeException("Failed to create User " + name + "! Wrong password?", e2);
+			}
+		}
+	}
+
+	@Override
+	public Workspace getWorkspace() {
+		return ws;
+	}
+
+	@Override
+	public boolean isThreadSafe() {
+		// The workspace of the REST client doesn't guarantee that concurrent requests are safe
+		return false;
+	}
+
+	@Override
+	public DSProvider openSession() {
+		return sessionFactory.get();
+	}
+
+	@Override
+	public Optional<Artifact> getArtifact(long id) {
+		try {
+			return Optional.of(ws.getArtifact(id));
+		} catch(ArtifactDoesNotExistException e) {
+			return Optional.empty();
+		}
+	}
+
+	@Override
+	public Artifact createComplexType(Package pkg, String name) {
+		return MMMTypesFactory.createComplexType(ws, pkg, name, false, false);
+	}
+
+	@Override
+	public Artifact createComplexTypeInstance(String name, Artifact complexType) {
+		return MMMTypesFactory.createComplexTypeInstance(ws, name, complexType);
+	}
+
+	@Override
+	public Artifact createFeature(String name) {
+		return MMMTypesFactory.createFeature(ws, name, null, false, false, false);
+	}
+
+	@Override
+	public Artifact createOperation(String name) {
+		return MMMTypesFactory.createOperation(ws, name, null, null, false, false, false);
+	}
+
+	@Override
+	public void addFeatureToComplexType(Artifact complexType, Artifact feature) {
+		MMMTypesFactory.addFeatureToComplexType(ws, complexType, feature);
+	}
+
+	@Override
+	public void addOperationToComplexType(Artifact complexType, Artifact operation) {
+		MMMTypesFactory.addOperationToComplexType(ws, complexType, operation);
+	}
+
+	@Override
+	public void addSuperTypeToComplexType(Artifact complexType, Artifact superType) {
+		MMMTypesFactory.addSuperTypeToComplexType(ws, complexType, superType);
+	}
+
+	@Override
+	public String getName(Artifact artifact) {
+		return queryFactory.navigatorProvider().from(artifact).toString("name").get();
+	}
+
+	@Override
+	public Collection<Artifact> filterByType(Collection<Artifact> artifacts, Artifact type) {
+		Predicate<Artifact> isOfCorrectType = queryFactory.predicateProvider().hasType(Contexts.of(PATH), type);
+		return queryFactory.streamProvider().of(artifacts).filter(PATH, isOfCorrectType).toList();
+	}
+
+	@Override
+	public Optional<Artifact> findByName(Collection<Artifact> artifacts, String name) {
+		Path path = Contexts.of(PATH);
+		PredicateProvider predicates = queryFactory.predicateProvider();
+		Predicate<Artifact> hasName = predicates.hasProperty(path, MMMTypeProperties.NAME)
+				.and(predicates.hasPropertyValue(path, MMMTypeProperties.NAME, name));
+		try {
+			return Optional.of(queryFactory.streamProvider().of(artifacts).find(PATH, hasName));
+		} catch(NoSuchElementException e) {
+			return Optional.empty();
+		}
+	}
+}
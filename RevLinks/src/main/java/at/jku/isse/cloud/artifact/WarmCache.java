@@ -0,0 +1,481 @@
+package at.jku.isse.cloud.artifact;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import at.jku.isse.cloud.revlinks.RelNameSets;
+import at.jku.isse.cloud.revlinks.RevLinkTable;
+
+/**
+ * A persistent cache of what a connection reads on startup, so a restarted tool doesn't have to read it again:
+ * <li> the names and parents of the packages of the workspace
+ * <li> the id of the reverse link model artifact
+ * <li> the names of artifacts
+ * <li> the reverse link tables of reverse link packages
+ * <p>
+ * The cache of a workspace is kept in a directory of its own, with a file for the packages, a file for the names and a file
+ * per reverse link package. The cached data is validated by its users against the Design Space: the packages and the
+ * reverse links are listed by id and only the packages and reverse links that are not cached are read (reverse links are never
+ * modified, only created and deleted). The names of artifacts can't be validated this way and are read again after a
+ * maximum age. Modified data is written by {@link #save()}. Unreadable files are ignored and replaced on the next save.
+ * This class is thread-safe.
+ */
+public class WarmCache {
+
+	/**
+	 * System property that sets the root directory of the caches, by default ".revlinks/cache" in the user's home directory.
+	 */
+	public static final String DIRECTORY_PROPERTY = "revlinks.cache.dir";
+
+	/**
+	 * The parent id of packages without a parent package.
+	 */
+	public static final long NO_PARENT = -1;
+
+	private static final int MAGIC = 0x524C4331;
+	private static final String PACKAGES_FILE = "packages.bin";
+	private static final String NAMES_FILE = "names.bin";
+	private static final String TABLE_FILE_PREFIX = "rl-";
+	private static final String TABLE_FILE_SUFFIX = ".bin";
+	private static final long NO_REV_LINK_CLASS = -1;
+
+	private final Path dir;
+	private long maxNameAgeMillis = TimeUnit.DAYS.toMillis(1);
+
+	private final Map<Long, PackageEntry> packages = new HashMap<>();
+	private long revLinkClassId = NO_REV_LINK_CLASS;
+	private final Map<Long, NameEntry> names = new HashMap<>();
+	private final Map<Long, RevLinkTable> tables = new HashMap<>();
+	private final Set<Long> dirtyTables = new HashSet<>();
+	private boolean packagesDirty;
+	private boolean namesDirty;
+
+	private WarmCache(Path dir) {
+		this.dir = dir;
+	}
+
+	/**
+	 * Opens the cache of the workspace in the root directory given by the system property {@value #DIRECTORY_PROPERTY}.
+	 * @param workspace identifies the workspace, e.g. the name of the user and the workspace
+	 * @return the cache
+	 */
+	public static WarmCache open(String workspace) {
+		String root = System.getProperty(DIRECTORY_PROPERTY);
+		return open(root != null ? Paths.get(root) : Paths.get(System.getProperty("user.home"), ".revlinks", "cache"), workspace);
+	}
+
+	/**
+	 * Opens the cache of the workspace in the root directory. The packages and names are read immediately, the reverse link
+	 * tables when they are first requested.
+	 * @param root the root directory of the caches
+	 * @param workspace identifies the workspace, e.g. the name of the user and the workspace
+	 * @return the cache
+	 */
+	public static WarmCache open(Path root, String workspace) {
+		WarmCache cache = new WarmCache(root.resolve(workspace.replaceAll("[^A-Za-z0-9._-]", "_")));
+		cache.readPackages();
+		cache.readNames();
+		return cache;
+	}
+
+	/**
+	 * Sets the maximum age of cached names, after which they are read again. The default is one day.
+	 * @param maxAge the maximum age
+	 * @param unit the unit of the maximum age
+	 * @return the cache
+	 */
+	public synchronized WarmCache withMaxNameAge(long maxAge, TimeUnit unit) {
+		this.maxNameAgeMillis = unit.toMillis(maxAge);
+		return this;
+	}
+
+	/**
+	 * Returns the directory of this cache.
+	 * @return the directory
+	 */
+	public Path getDirectory() {
+		return dir;
+	}
+
+	/**
+	 * Returns the cached name and parent of a package.
+	 * @param id the id of the package
+	 * @return the cached package or an empty optional instance, if the package isn't cached
+	 */
+	public synchronized Optional<PackageEntry> getPackage(long id) {
+		return Optional.ofNullable(packages.get(id));
+	}
+
+	/**
+	 * Caches the name and parent of a package.
+	 * @param id the id of the package
+	 * @param name the name of the package
+	 * @param parentId the id of the parent package or {@link #NO_PARENT}
+	 */
+	public synchronized void putPackage(long id, String name, long parentId) {
+		PackageEntry entry = new PackageEntry(requireNonNull(name), parentId);
+		if(!entry.equals(packages.put(id, entry))) {
+			packagesDirty = true;
+		}
+	}
+
+	/**
+	 * Removes the packages that don't exist anymore from the cache.
+	 * @param ids the ids of all existing packages
+	 */
+	public synchronized void retainPackages(Collection<Long> ids) {
+		if(packages.keySet().retainAll(new HashSet<>(ids))) {
+			packagesDirty = true;
+		}
+	}
+
+	/**
+	 * Returns the cached id of the reverse link model artifact.
+	 * @return the id or an empty optional instance, if it isn't cached
+	 */
+	public synchronized OptionalLong getRevLinkClassId() {
+		return revLinkClassId == NO_REV_LINK_CLASS ? OptionalLong.empty() : OptionalLong.of(revLinkClassId);
+	}
+
+	/**
+	 * Caches the id of the reverse link model artifact.
+	 * @param id the id
+	 */
+	public synchronized void setRevLinkClassId(long id) {
+		if(revLinkClassId != id) {
+			revLinkClassId = id;
+			packagesDirty = true;
+		}
+	}
+
+	/**
+	 * Returns the cached name of an artifact, unless it is older than the maximum age.
+	 * @param id the id of the artifact
+	 * @return the name or an empty optional instance, if it isn't cached or too old
+	 */
+	public synchronized Optional<String> getName(long id) {
+		NameEntry entry = names.get(id);
+		if(entry == null || System.currentTimeMillis() - entry.readMillis > maxNameAgeMillis) {
+			return Optional.empty();
+		}
+		return Optional.of(entry.name);
+	}
+
+	/**
+	 * Caches the name of an artifact.
+	 * @param id the id of the artifact
+	 * @param name the name
+	 */
+	public synchronized void putName(long id, String name) {
+		names.put(id, new NameEntry(requireNonNull(name), System.currentTimeMillis()));
+		namesDirty = true;
+	}
+
+	/**
+	 * Returns the cached reverse links of a reverse link package. The table is read from disk on first access.
+	 * @param rlPkgId the id of the reverse link package
+	 * @return the reverse links or an empty optional instance, if they aren't cached
+	 */
+	public synchronized Optional<RevLinkTable> getTable(long rlPkgId) {
+		if(!tables.containsKey(rlPkgId)) {
+			tables.put(rlPkgId, readTable(rlPkgId));
+		}
+		return Optional.ofNullable(tables.get(rlPkgId));
+	}
+
+	/**
+	 * Caches the reverse links of a reverse link package.
+	 * @param rlPkgId the id of the reverse link package
+	 * @param table the reverse links
+	 */
+	public synchronized void putTable(long rlPkgId, RevLinkTable table) {
+		tables.put(rlPkgId, requireNonNull(table));
+		dirtyTables.add(rlPkgId);
+	}
+
+	/**
+	 * Writes the modified parts of the cache to disk. Every file is written next to its target first and then moved,
+	 * so an interrupted save never leaves a partially written file.
+	 */
+	public synchronized void save() {
+		try {
+			Files.createDirectories(dir);
+			if(packagesDirty) {
+				write(PACKAGES_FILE, this::writePackages);
+				packagesDirty = false;
+			}
+			if(namesDirty) {
+				write(NAMES_FILE, this::writeNames);
+				namesDirty = false;
+			}
+			for(long rlPkgId : dirtyTables) {
+				RevLinkTable table = tables.get(rlPkgId);
+				write(TABLE_FILE_PREFIX + rlPkgId + TABLE_FILE_SUFFIX, out -> writeTable(out, table));
+			}
+			dirtyTables.clear();
+		} catch(IOException e) {
+			throw new RuntimeException("Failed to save the cache in " + dir + "!", e);
+		}
+	}
+
+	/**
+	 * Removes all cached data from memory and from disk.
+	 */
+	public synchronized void clear() {
+		packages.clear();
+		revLinkClassId = NO_REV_LINK_CLASS;
+		names.clear();
+		tables.clear();
+		dirtyTables.clear();
+		packagesDirty = false;
+		namesDirty = false;
+		if(!Files.isDirectory(dir)) {
+			return;
+		}
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+			for(Path file : files) {
+				Files.delete(file);
+			}
+		} catch(IOException e) {
+			throw new RuntimeException("Failed to clear the cache in " + dir + "!", e);
+		}
+	}
+
+	private void readPackages() {
+		ByteBuffer in = read(PACKAGES_FILE);
+		if(in == null) {
+			return;
+		}
+		try {
+			revLinkClassId = in.getLong();
+			int count = in.getInt();
+			for(int i = 0; i < count; i++) {
+				long id = in.getLong();
+				long parentId = in.getLong();
+				packages.put(id, new PackageEntry(readString(in), parentId));
+			}
+		} catch(RuntimeException e) {
+			corrupt(PACKAGES_FILE, e);
+			packages.clear();
+			revLinkClassId = NO_REV_LINK_CLASS;
+		}
+	}
+
+	private void writePackages(DataOutputStream out) throws IOException {
+		out.writeLong(revLinkClassId);
+		out.writeInt(packages.size());
+		for(Map.Entry<Long, PackageEntry> entry : packages.entrySet()) {
+			out.writeLong(entry.getKey());
+			out.writeLong(entry.getValue().parentId);
+			writeString(out, entry.getValue().name);
+		}
+	}
+
+	private void readNames() {
+		ByteBuffer in = read(NAMES_FILE);
+		if(in == null) {
+			return;
+		}
+		try {
+			int count = in.getInt();
+			for(int i = 0; i < count; i++) {
+				long id = in.getLong();
+				long readMillis = in.getLong();
+				names.put(id, new NameEntry(readString(in), readMillis));
+			}
+		} catch(RuntimeException e) {
+			corrupt(NAMES_FILE, e);
+			names.clear();
+		}
+	}
+
+	private void writeNames(DataOutputStream out) throws IOException {
+		out.writeInt(names.size());
+		for(Map.Entry<Long, NameEntry> entry : names.entrySet()) {
+			out.writeLong(entry.getKey());
+			out.writeLong(entry.getValue().readMillis);
+			writeString(out, entry.getValue().name);
+		}
+	}
+
+	private RevLinkTable readTable(long rlPkgId) {
+		String file = TABLE_FILE_PREFIX + rlPkgId + TABLE_FILE_SUFFIX;
+		ByteBuffer in = read(file);
+		if(in == null) {
+			return null;
+		}
+		try {
+			RelNameSets relNameSets = new RelNameSets();
+			int setCount = in.getInt();
+			int[] setIds = new int[setCount];
+			for(int i = 0; i < setCount; i++) {
+				String[] relNames = new String[in.getInt()];
+				for(int k = 0; k < relNames.length; k++) {
+					relNames[k] = readString(in);
+				}
+				setIds[i] = relNameSets.intern(relNames);
+			}
+			int rows = in.getInt();
+			RevLinkTable.Builder table = RevLinkTable.builder(relNameSets);
+			for(int row = 0; row < rows; row++) {
+				table.add(in.getLong(), in.getLong(), in.getLong(), in.getLong(), in.getLong(), setIds[in.getInt()]);
+			}
+			return table.build();
+		} catch(RuntimeException e) {
+			corrupt(file, e);
+			return null;
+		}
+	}
+
+	private static void writeTable(DataOutputStream out, RevLinkTable table) throws IOException {
+		RelNameSets relNameSets = table.getRelNameSets();
+		int setCount = relNameSets.size();
+		out.writeInt(setCount);
+		for(int i = 0; i < setCount; i++) {
+			String[] relNames = relNameSets.get(i);
+			out.writeInt(relNames.length);
+			for(String relName : relNames) {
+				writeString(out, relName);
+			}
+		}
+		out.writeInt(table.size());
+		for(int row = 0; row < table.size(); row++) {
+			out.writeLong(table.getId(row));
+			out.writeLong(table.getSourceId(row));
+			out.writeLong(table.getTargetId(row));
+			out.writeLong(table.getSourceTypeId(row));
+			out.writeLong(table.getTargetTypeId(row));
+			out.writeInt(table.getRelNameSetId(row));
+		}
+	}
+
+	/**
+	 * Reads a file of the cache with a single bulk read. The file is not mapped, because a mapped file can't be replaced
+	 * on all platforms until the mapping has been garbage collected.
+	 */
+	private ByteBuffer read(String file) {
+		Path path = dir.resolve(file);
+		if(!Files.isRegularFile(path)) {
+			return null;
+		}
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+			while(buffer.hasRemaining()) {
+				if(channel.read(buffer) < 0) {
+					break;
+				}
+			}
+			buffer.flip();
+			if(buffer.remaining() < Integer.BYTES || buffer.getInt() != MAGIC) {
+				System.err.println("Ignoring cache file " + path + " of an unknown format");
+				return null;
+			}
+			return buffer;
+		} catch(IOException e) {
+			System.err.println("Failed to read cache file " + path + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	private void write(String file, Writer writer) throws IOException {
+		Path path = dir.resolve(file);
+		Path tmp = dir.resolve(file + ".tmp");
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			writer.write(out);
+		}
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private void corrupt(String file, RuntimeException e) {
+		System.err.println("Ignoring corrupt cache file " + dir.resolve(file) + ": " + e);
+	}
+
+	private static String readString(ByteBuffer in) {
+		byte[] bytes = new byte[in.getInt()];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private interface Writer {
+
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	/**
+	 * The cached name and parent of a package.
+	 */
+	public static final class PackageEntry {
+
+		private final String name;
+		private final long parentId;
+
+		private PackageEntry(String name, long parentId) {
+			this.name = name;
+			this.parentId = parentId;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the id of the parent package.
+		 * @return the id of the parent package or {@link WarmCache#NO_PARENT}
+		 */
+		public long getParentId() {
+			return parentId;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof PackageEntry)) {
+				return false;
+			}
+			PackageEntry other = (PackageEntry) obj;
+			return parentId == other.parentId && name.equals(other.name);
+		}
+
+		@Override
+		public int hashCode() {
+			return name.hashCode() * 31 + Long.hashCode(parentId);
+		}
+	}
+
+	private static final class NameEntry {
+
+		private final String name;
+		private final long readMillis;
+
+		private NameEntry(String name, long readMillis) {
+			this.name = name;
+			this.readMillis = readMillis;
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package at.jku.isse.cloud.revlinks;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when a long reverse link run commits its work. Without a policy, a run commits once at the end, so a failure loses
+ * all of its work and the uncommitted workspace keeps growing. With chunked commits, a run commits as soon as the given number of
+ * reverse links has been created or the given time has passed since the last commit, whatever happens first, and records a
+ * checkpoint with each commit, from which an interrupted run is resumed.
+ * The criteria are checked after every page of artifacts, so a chunk always contains complete pages.
+ */
+public final class CommitPolicy {
+
+	/**
+	 * System property that sets the number of reverse links after which a run commits, or 0 to not commit by count.
+	 */
+	public static final String LINKS_PROPERTY = "revlinks.commitEvery";
+	/**
+	 * System property that sets the number of seconds after which a run commits, or 0 to not commit by time.
+	 */
+	public static final String SECONDS_PROPERTY = "revlinks.commitIntervalSeconds";
+
+	private static final CommitPolicy NONE = new CommitPolicy(0, 0);
+
+	private final int maxLinks;
+	private final long maxNanos;
+
+	private CommitPolicy(int maxLinks, long maxNanos) {
+		this.maxLinks = maxLinks;
+		this.maxNanos = maxNanos;
+	}
+
+	/**
+	 * Returns the policy that commits once at the end of a run.
+	 * @return the policy without chunked commits
+	 */
+	public static CommitPolicy none() {
+		return NONE;
+	}
+
+	/**
+	 * Returns a policy that commits after the given number of reverse links or the given time, whatever happens first.
+	 * @param maxLinks the number of reverse links per commit, or 0 to not commit by count
+	 * @param maxSeconds the number of seconds between commits, or 0 to not commit by time
+	 * @return the policy
+	 */
+	public static CommitPolicy every(int maxLinks, long maxSeconds) {
+		if(maxLinks < 0 || maxSeconds < 0) {
+			throw new IllegalArgumentException("The number of links and seconds between commits must not be negative!");
+		}
+		return maxLinks == 0 && maxSeconds == 0 ? NONE : new CommitPolicy(maxLinks, TimeUnit.SECONDS.toNanos(maxSeconds));
+	}
+
+	/**
+	 * Returns the policy of the system properties {@value #LINKS_PROPERTY} and {@value #SECONDS_PROPERTY}.
+	 * @return the policy, or {@link #none()} if neither property is set
+	 */
+	public static CommitPolicy fromSystemProperties() {
+		return every(Integer.getInteger(LINKS_PROPERTY, 0), Long.getLong(SECONDS_PROPERTY, 0L));
+	}
+
+	/**
+	 * Returns true, if this policy commits in chunks.
+	 * @return true for chunked commits
+	 */
+	public boolean isChunked() {
+		return this != NONE;
+	}
+
+	/**
+	 * Returns true, if a commit is due.
+	 * @param links the number of reverse links that have been created since the last commit
+	 * @param nanos the time in nanoseconds since the last commit
+	 * @return true, if the run should commit
+	 */
+	boolean isDue(long links, long nanos) {
+		return (maxLinks > 0 && links >= maxLinks) || (maxNanos > 0 && nanos >= maxNanos);
+	}
+}
@@ -0,0 +1,88 @@
+package at.jku.isse.cloud.revlinks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+
+import at.jku.sea.cloud.Artifact;
+
+/**
+ * Reads the forward links of an artifact, i.e. the properties that reference other artifacts, and computes
+ * a fingerprint of them. The fingerprint is stored in the artifact when its reverse links are created, so later
+ * runs can detect whether the links of the artifact have been changed since.
+ */
+final class ForwardLinks {
+
+	/**
+	 * The property that holds the fingerprint of the forward links for which reverse links have been created.
+	 */
+	static final String STAMP_PROPERTY_KEY = "@revLinkStamp";
+
+	/**
+	 * The fingerprint of an artifact without forward links. Artifacts without a stamp are treated as having this fingerprint.
+	 */
+	static final long EMPTY_FINGERPRINT = 0xcbf29ce484222325L;
+
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private ForwardLinks() {
+	}
+
+	/**
+	 * Returns the relation names of the properties that reference an artifact, grouped by the referenced artifact.
+	 * The properties maintained by the reverse link creation itself are skipped.
+	 * @param props the alive properties of the artifact
+	 * @return the relation names grouped by the referenced artifact
+	 */
+	static Multimap<Artifact, String> of(Map<String, Object> props) {
+		Multimap<Artifact, String> revLinkRelationNames = Multimaps.newListMultimap(new HashMap<>(), ArrayList::new);
+		for(String key : props.keySet()) {
+			if(RevLinkCreation.OPPOSITE_PROPERTY_KEY.equals(key)) {
+				continue;
+			}
+			Object val = props.get(key);
+			if(val instanceof Artifact) {
+				revLinkRelationNames.put((Artifact) val, key);
+			}
+		}
+		return revLinkRelationNames;
+	}
+
+	/**
+	 * Computes a 64-bit fingerprint of the forward links that doesn't depend on the order of the properties.
+	 * @param links the relation names grouped by the referenced artifact
+	 * @return the fingerprint
+	 */
+	static long fingerprint(Multimap<Artifact, String> links) {
+		List<String> entries = new ArrayList<>(links.size());
+		for(Map.Entry<Artifact, Collection<String>> entry : links.asMap().entrySet()) {
+			for(String relName : entry.getValue()) {
+				entries.add(entry.getKey().getId() + ":" + relName);
+			}
+		}
+		entries.sort(null);
+		long hash = EMPTY_FINGERPRINT;
+		for(String entry : entries) {
+			for(int i = 0; i < entry.length(); i++) {
+				hash = (hash ^ entry.charAt(i)) * FNV_PRIME;
+			}
+			hash = (hash ^ '\n') * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns the fingerprint stored in the artifact by the last reverse link creation.
+	 * @param props the alive properties of the artifact
+	 * @return the stored fingerprint, or {@link #EMPTY_FINGERPRINT} if the artifact has none
+	 */
+	static long storedFingerprint(Map<String, Object> props) {
+		Object stamp = props.get(STAMP_PROPERTY_KEY);
+		return stamp instanceof Number ? ((Number) stamp).longValue() : EMPTY_FINGERPRINT;
+	}
+}
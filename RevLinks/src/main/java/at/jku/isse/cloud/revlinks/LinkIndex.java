@@ -0,0 +1,276 @@
+package at.jku.isse.cloud.revlinks;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * An immutable, triple-store style index of links, which answers the six link query patterns of {@link RevLinkCreation#main(String[])}
+ * without scanning the reverse links. Every link is a triple of the artifact that holds the link (S), the name of the relation (L) and
+ * the linked artifact (D), e.g. (my black Honda, has_color, black). Note that S is the target of the reverse link and D its source.
+ * A reverse link with several relation names is indexed as one triple per name.
+ * <p>
+ * The triples are kept in primitive columns and sorted in three permutations: SLD, LDS and DSL. Each pattern binds a prefix of one
+ * of them, so its triples are a contiguous range that is found by binary search in O(log n) and streamed lazily from there:
+ * <li> --L {@link #byRelName(String)} LDS
+ * <li> -D- {@link #byTarget(long)} DSL
+ * <li> -DL {@link #byTargetAndRelName(long, String)} LDS
+ * <li> S-- {@link #bySource(long)} SLD
+ * <li> S-L {@link #bySourceAndRelName(long, String)} SLD
+ * <li> SD- {@link #bySourceAndTarget(long, long)} DSL
+ * <p>
+ * A triple takes 40 bytes: the two artifact ids, the id of the reverse link, the interned relation name and its position in the
+ * three permutations. The index is thread-safe.
+ */
+public final class LinkIndex {
+
+	private final int size;
+	private final long[] sources;
+	private final int[] relations;
+	private final long[] targets;
+	private final long[] revLinkIds;
+	private final String[] relNames;
+	private final Map<String, Integer> relationIds;
+
+	private final int[] sld;
+	private final int[] lds;
+	private final int[] dsl;
+
+	private LinkIndex(int size, long[] sources, int[] relations, long[] targets, long[] revLinkIds, String[] relNames,
+			Map<String, Integer> relationIds) {
+		this.size = size;
+		this.sources = sources;
+		this.relations = relations;
+		this.targets = targets;
+		this.revLinkIds = revLinkIds;
+		this.relNames = relNames;
+		this.relationIds = relationIds;
+		this.sld = sort(Comparator.<Integer>comparingLong(i -> sources[i]).thenComparingInt(i -> relations[i]).thenComparingLong(i -> targets[i]));
+		this.lds = sort(Comparator.<Integer>comparingInt(i -> relations[i]).thenComparingLong(i -> targets[i]).thenComparingLong(i -> sources[i]));
+		this.dsl = sort(Comparator.<Integer>comparingLong(i -> targets[i]).thenComparingLong(i -> sources[i]).thenComparingInt(i -> relations[i]));
+	}
+
+	/**
+	 * Indexes the reverse links of the tables, e.g. of all packages whose links are queried together.
+	 * @param tables the reverse links
+	 * @return the index
+	 */
+	public static LinkIndex of(RevLinkTable... tables) {
+		int size = 0;
+		for(RevLinkTable table : tables) {
+			for(int row = 0; row < table.size(); row++) {
+				size += table.getRelNames(row).length;
+			}
+		}
+		long[] sources = new long[size];
+		int[] relations = new int[size];
+		long[] targets = new long[size];
+		long[] revLinkIds = new long[size];
+		Map<String, Integer> relationIds = new HashMap<>();
+		int triple = 0;
+		for(RevLinkTable table : tables) {
+			for(int row = 0; row < table.size(); row++) {
+				for(String relName : table.getRelNames(row)) {
+					// The holder of the link is the target of the reverse link
+					sources[triple] = table.getTargetId(row);
+					relations[triple] = relationIds.computeIfAbsent(relName, name -> relationIds.size());
+					targets[triple] = table.getSourceId(row);
+					revLinkIds[triple] = table.getId(row);
+					triple++;
+				}
+			}
+		}
+		String[] relNames = new String[relationIds.size()];
+		relationIds.forEach((name, id) -> relNames[id] = name);
+		return new LinkIndex(size, sources, relations, targets, revLinkIds, relNames, relationIds);
+	}
+
+	private int[] sort(Comparator<Integer> order) {
+		Integer[] permutation = new Integer[size];
+		for(int i = 0; i < size; i++) {
+			permutation[i] = i;
+		}
+		Arrays.sort(permutation, order);
+		return Arrays.stream(permutation).mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Returns the number of triples.
+	 * @return the number of links
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the distinct relation names, in the order in which they first occur.
+	 * @return the relation names
+	 */
+	public String[] getRelNames() {
+		return relNames.clone();
+	}
+
+	/**
+	 * --L: Returns the links with the relation name, e.g. which car has which color.
+	 * @param relName the relation name
+	 * @return the links, ordered by target and source
+	 */
+	public Stream<Triple> byRelName(String relName) {
+		Integer relation = relationIds.get(relName);
+		if(relation == null) {
+			return Stream.empty();
+		}
+		return range(lds, i -> Integer.compare(relations[i], relation));
+	}
+
+	/**
+	 * -D-: Returns the links to the target, e.g. which artifacts are linked to a color.
+	 * @param targetId the id of the linked artifact
+	 * @return the links, ordered by source and relation
+	 */
+	public Stream<Triple> byTarget(long targetId) {
+		return range(dsl, i -> Long.compare(targets[i], targetId));
+	}
+
+	/**
+	 * -DL: Returns the links with the relation name to the target, e.g. which car has the color black.
+	 * @param targetId the id of the linked artifact
+	 * @param relName the relation name
+	 * @return the links, ordered by source
+	 */
+	public Stream<Triple> byTargetAndRelName(long targetId, String relName) {
+		Integer relation = relationIds.get(relName);
+		if(relation == null) {
+			return Stream.empty();
+		}
+		return range(lds, i -> {
+			int cmp = Integer.compare(relations[i], relation);
+			return cmp != 0 ? cmp : Long.compare(targets[i], targetId);
+		});
+	}
+
+	/**
+	 * S--: Returns the links of the source, e.g. which artifacts are linked to a car.
+	 * @param sourceId the id of the artifact that holds the links
+	 * @return the links, ordered by relation and target
+	 */
+	public Stream<Triple> bySource(long sourceId) {
+		return range(sld, i -> Long.compare(sources[i], sourceId));
+	}
+
+	/**
+	 * S-L: Returns the links of the source with the relation name, e.g. which color a car has.
+	 * @param sourceId the id of the artifact that holds the links
+	 * @param relName the relation name
+	 * @return the links, ordered by target
+	 */
+	public Stream<Triple> bySourceAndRelName(long sourceId, String relName) {
+		Integer relation = relationIds.get(relName);
+		if(relation == null) {
+			return Stream.empty();
+		}
+		return range(sld, i -> {
+			int cmp = Long.compare(sources[i], sourceId);
+			return cmp != 0 ? cmp : Integer.compare(relations[i], relation);
+		});
+	}
+
+	/**
+	 * SD-: Returns the links between the source and the target, e.g. the relations between a car and a color.
+	 * @param sourceId the id of the artifact that holds the links
+	 * @param targetId the id of the linked artifact
+	 * @return the links, ordered by relation
+	 */
+	public Stream<Triple> bySourceAndTarget(long sourceId, long targetId) {
+		return range(dsl, i -> {
+			int cmp = Long.compare(targets[i], targetId);
+			return cmp != 0 ? cmp : Long.compare(sources[i], sourceId);
+		});
+	}
+
+	/**
+	 * Streams the triples of the permutation whose prefix matches. The comparator compares the triple to the bound prefix.
+	 */
+	private Stream<Triple> range(int[] permutation, IntUnaryOperator compareToPrefix) {
+		int from = bound(permutation, compareToPrefix, false);
+		int to = bound(permutation, compareToPrefix, true);
+		return IntStream.range(from, to).mapToObj(position -> toTriple(permutation[position]));
+	}
+
+	/**
+	 * Returns the first position whose triple is not less than the prefix, or greater than the prefix, if upper is true.
+	 */
+	private static int bound(int[] permutation, IntUnaryOperator compareToPrefix, boolean upper) {
+		int low = 0;
+		int high = permutation.length;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			int cmp = compareToPrefix.applyAsInt(permutation[mid]);
+			if(cmp < 0 || (upper && cmp == 0)) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private Triple toTriple(int triple) {
+		return new Triple(sources[triple], relNames[relations[triple]], targets[triple], revLinkIds[triple]);
+	}
+
+	/**
+	 * A link of the index.
+	 */
+	public static final class Triple {
+
+		private final long sourceId;
+		private final String relName;
+		private final long targetId;
+		private final long revLinkId;
+
+		private Triple(long sourceId, String relName, long targetId, long revLinkId) {
+			this.sourceId = sourceId;
+			this.relName = relName;
+			this.targetId = targetId;
+			this.revLinkId = revLinkId;
+		}
+
+		/**
+		 * Returns the id of the artifact that holds the link.
+		 * @return the id of the source
+		 */
+		public long getSourceId() {
+			return sourceId;
+		}
+
+		public String getRelName() {
+			return relName;
+		}
+
+		/**
+		 * Returns the id of the linked artifact.
+		 * @return the id of the target
+		 */
+		public long getTargetId() {
+			return targetId;
+		}
+
+		/**
+		 * Returns the id of the reverse link that represents the link.
+		 * @return the id of the reverse link
+		 */
+		public long getRevLinkId() {
+			return revLinkId;
+		}
+
+		@Override
+		public String toString() {
+			return sourceId + " -" + relName + "-> " + targetId;
+		}
+	}
+}
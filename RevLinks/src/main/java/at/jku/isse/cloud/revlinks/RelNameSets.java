@@ -0,0 +1,53 @@
+package at.jku.isse.cloud.revlinks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns the sets of relation names of reverse links. Most reverse links share a few sets like ["has_color"] or ["brand"],
+ * so every distinct set is stored once and referenced by a small id. The ids are assigned in the order in which the sets
+ * are first interned, starting with 0. The set and its order are compared, i.e. ["a", "b"] and ["b", "a"] are distinct sets.
+ * This class is thread-safe.
+ */
+public class RelNameSets {
+
+	private final Map<List<String>, Integer> ids = new HashMap<>();
+	private final List<String[]> sets = new ArrayList<>();
+
+	/**
+	 * Returns the id of the set of relation names. The set is added, if it hasn't been interned yet.
+	 * @param relNames the relation names
+	 * @return the id of the set
+	 */
+	public synchronized int intern(String... relNames) {
+		Integer id = ids.get(Arrays.asList(relNames));
+		if(id == null) {
+			String[] set = relNames.clone();
+			id = sets.size();
+			sets.add(set);
+			ids.put(Arrays.asList(set), id);
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the relation names of the set. The returned array is shared by all users of the set and must not be modified.
+	 * @param id the id of the set
+	 * @return the relation names
+	 * @throws IndexOutOfBoundsException if no set has this id
+	 */
+	public synchronized String[] get(int id) {
+		return sets.get(id);
+	}
+
+	/**
+	 * Returns the number of distinct sets.
+	 * @return the number of sets
+	 */
+	public synchronized int size() {
+		return sets.size();
+	}
+}
@@ -0,0 +1,85 @@
+package at.jku.isse.cloud.revlinks;
+
+import java.util.Optional;
+
+import at.jku.isse.cloud.artifact.DSConnection;
+import at.jku.sea.cloud.Package;
+
+/**
+ * The progress of a run with chunked commits (see {@link CommitPolicy}), which is stored in the property {@value #PROPERTY_KEY}
+ * of the analyzed package and committed with every chunk. The artifacts of the package are processed in ascending order of
+ * their ids, so the progress is the phase of the run and the id of the last artifact whose work has been committed.
+ * The value of the property is "&ltphase&gt:&ltid&gt", e.g. "LINKS:4711"; it's empty when no run is in progress.
+ */
+final class RevLinkCheckpoint {
+
+	static final String PROPERTY_KEY = "@revLinkCheckpoint";
+
+	/**
+	 * The phases of a run: first the reverse links of all artifacts are created, then their "@opposite" collections are set.
+	 */
+	enum Phase {
+		LINKS, OPPOSITES
+	}
+
+	/**
+	 * The checkpoint of a run that hasn't processed any artifact yet.
+	 */
+	static final RevLinkCheckpoint START = new RevLinkCheckpoint(Phase.LINKS, Long.MIN_VALUE);
+
+	private final Phase phase;
+	private final long lastArtifactId;
+
+	RevLinkCheckpoint(Phase phase, long lastArtifactId) {
+		this.phase = phase;
+		this.lastArtifactId = lastArtifactId;
+	}
+
+	/**
+	 * Reads the checkpoint of the package. A value that can't be parsed is reported and ignored, so the run starts over.
+	 * @param conn the Design Space connection
+	 * @param pkg the analyzed package
+	 * @return the checkpoint, or an empty optional instance if no run is in progress
+	 */
+	static Optional<RevLinkCheckpoint> read(DSConnection conn, Package pkg) {
+		Object value = conn.getMetrics().time("RevLinkCheckpoint.read", () -> pkg.getPropertyValueOrNull(PROPERTY_KEY));
+		if(value == null || value.toString().isEmpty()) {
+			return Optional.empty();
+		}
+		String checkpoint = value.toString();
+		try {
+			int separator = checkpoint.indexOf(':');
+			return Optional.of(new RevLinkCheckpoint(Phase.valueOf(checkpoint.substring(0, separator)),
+					Long.parseLong(checkpoint.substring(separator + 1))));
+		} catch(RuntimeException e) {
+			System.err.println("Invalid checkpoint found! Starting over for package " + pkg.getId() + ": " + checkpoint);
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Writes this checkpoint into the package. It's committed with the next commit of the connection.
+	 * @param conn the Design Space connection
+	 * @param pkg the analyzed package
+	 */
+	void write(DSConnection conn, Package pkg) {
+		conn.setPropertyValue(pkg, PROPERTY_KEY, phase + ":" + lastArtifactId);
+	}
+
+	/**
+	 * Removes the checkpoint of the package when the run is complete.
+	 * @param conn the Design Space connection
+	 * @param pkg the analyzed package
+	 */
+	static void clear(DSConnection conn, Package pkg) {
+		conn.setPropertyValue(pkg, PROPERTY_KEY, "");
+	}
+
+	Phase getPhase() {
+		return phase;
+	}
+
+	long getLastArtifactId() {
+		return lastArtifactId;
+	}
+}
@@ -2,18 +2,17 @@ package at.jku.isse.cloud.revlinks;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.LinkedHashSet;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
-
-import at.jku.isse.cloud.artifact.DSClass;
+import at.jku.isse.cloud.artifact.ArtifactPages;
 import at.jku.isse.cloud.artifact.DSConnection;
-import at.jku.isse.cloud.artifact.DSInstance;
+import at.jku.isse.cloud.artifact.DSConnectionPool;
+import at.jku.isse.cloud.artifact.DSEdgeList;
 import at.jku.isse.cloud.artifact.DSRevLink;
 import at.jku.sea.cloud.Artifact;
 import at.jku.sea.cloud.Package;
@@ -27,7 +26,17 @@ public class RevLinkCreation {
 	
 	public static final String RL_PREFIX = "RL_";
 	
-	private static final String OPPOSITE_PROPERTY_KEY = "@opposite";
+	static final String OPPOSITE_PROPERTY_KEY = "@opposite";
+	
+	/**
+	 * System property that sets the number of workers used for creating reverse links.
+	 */
+	public static final String CONCURRENCY_PROPERTY = "revlinks.concurrency";
+	
+	/**
+	 * System property that sets the number of artifacts per page, in which the artifacts of a package are processed.
+	 */
+	public static final String PAGE_SIZE_PROPERTY = "revlinks.pageSize";
 	
 	private static DSConnection conn;
 	private static DSRevLink revLink;
@@ -35,18 +44,20 @@ public class RevLinkCreation {
 	public static void main(String[] args) {
 		conn = new DSConnection("RL_user", "RL_pwd", "RL_workspace");
 		revLink = conn.getOrCreateReverseLinkClass();
+		conn.getMetrics().startReporting(System.out::println);
 		
 		Set<String> pkgNames = new PackageSelector().select(name -> conn.getPackageFromName(name) != null);
+		RevLinkCreationEngine engine = new RevLinkCreationEngine(conn, revLink, 
+				Integer.getInteger(CONCURRENCY_PROPERTY, RevLinkCreationEngine.DEFAULT_CONCURRENCY));
 		pkgNames.stream()
 				.map(conn::getPackageFromName)
 				.filter(p -> p.isPresent())
 				.map(pkgOpt -> pkgOpt.get())
-				.flatMap(pkg -> pkg.getArtifacts().stream())
-				.forEach(RevLinkCreation::createRevLinksForArtifact);
+				.forEach(pkg -> engine.createRevLinks(conn.getArtifactPages(pkg, getPageSize())));
 		
 		System.out.println("Finished.");
 		
-		/* Queries for the six methodologies:
+		/* Queries for the six methodologies, answered by LinkIndex:
 		 * (2) --L Which car and color correspond to the given link?
 		 * (3) -D- Which artifacts are directly linked to a specific color?
 		 * (4) -DL Which car is linked to color black?
@@ -56,10 +67,8 @@ public class RevLinkCreation {
 		 */
 		
 		conn.tryCommit("");
-	}
-	
-	private static void createRevLinksForArtifact(Artifact artifact) {
-		createRevLinksForArtifact(conn, artifact, revLink);
+		conn.getMetrics().stopReporting();
+		System.out.println(conn.getMetrics().toJson());
 	}
 	
 	/**
@@ -67,74 +76,160 @@ public class RevLinkCreation {
 	 * The reverse link package is only created, if it doesn't exist. The ids of the target artifacts of a reverse link are added to
 	 * the collection artifact of the "@opposite" property of the source artifact. 
 	 * The id of the given package is added to the ids of packages, for which the reverse links have already been created.
+	 * The artifacts are processed in pages of {@value #PAGE_SIZE_PROPERTY} artifacts (default {@value ArtifactPages#DEFAULT_PAGE_SIZE}).
 	 * @param connection the Design Space connection
 	 * @param pkg the given package that holds the artifacts for which the reverse links will be created
 	 * @param revLink the reverse link model
 	 */
 	public static void createRevLinksAndSetOpposites(DSConnection connection, Package pkg, DSRevLink revLink) {
-		Collection<Artifact> artifacts = pkg.getArtifacts();
-		if(!artifacts.isEmpty()) {
-			createRevLinks(connection, artifacts, revLink);
-			setOppositeProperties(connection, artifacts);
-		}
-		revLink.addRevLinkPackage(pkg);
+		createRevLinksAndSetOpposites(connection, pkg, revLink, Integer.getInteger(CONCURRENCY_PROPERTY, RevLinkCreationEngine.DEFAULT_CONCURRENCY));
 	}
 	
-	private static void createRevLinks(DSConnection connection, Collection<Artifact> artifacts, DSRevLink revLink) {
-		artifacts.forEach(artifact -> createRevLinksForArtifact(connection, artifact, revLink));
+	/**
+	 * Creates the reverse link package and the reverse link artifacts for the corresponding artifacts of a given package
+	 * like {@link #createRevLinksAndSetOpposites(DSConnection, Package, DSRevLink)}, using the given number of workers.
+	 * @param connection the Design Space connection
+	 * @param pkg the given package that holds the artifacts for which the reverse links will be created
+	 * @param revLink the reverse link model
+	 * @param concurrency the maximum number of workers that create reverse links at the same time
+	 */
+	public static void createRevLinksAndSetOpposites(DSConnection connection, Package pkg, DSRevLink revLink, int concurrency) {
+		createRevLinksAndSetOpposites(connection, pkg, revLink, concurrency, CommitPolicy.fromSystemProperties());
 	}
 	
-	private static void setOppositeProperties(DSConnection connection, Collection<Artifact> artifacts) {
-		DSRevLink revLinkType = connection.getOrCreateReverseLinkClass();
-		// Just get the first package; as rev links are created for a single package at a time, this doesn't matter
-		Package parent = artifacts.iterator().next().getPackage();
-		Package pkg = getReverseLinkPackage(connection, parent);
-		Collection<Artifact> revLinks = connection.getArtifactsOfType(revLinkType, pkg);
-		artifacts.forEach(artifact -> setOppositePropertyForArtifact(artifact, connection, revLinks));
+	/**
+	 * Creates the reverse link package and the reverse link artifacts for the corresponding artifacts of a given package
+	 * like {@link #createRevLinksAndSetOpposites(DSConnection, Package, DSRevLink, int)}. If the policy commits in chunks, then
+	 * the artifacts are processed in ascending order of their ids and every chunk is committed together with a checkpoint in
+	 * the package, see {@link RevLinkCheckpoint}. A run that finds a checkpoint resumes after it, so an interrupted run doesn't
+	 * start over. The checkpoint is removed by the last commit of the run.
+	 * @param connection the Design Space connection
+	 * @param pkg the given package that holds the artifacts for which the reverse links will be created
+	 * @param revLink the reverse link model
+	 * @param concurrency the maximum number of workers that create reverse links at the same time
+	 * @param commits the policy that decides when to commit
+	 */
+	public static void createRevLinksAndSetOpposites(DSConnection connection, Package pkg, DSRevLink revLink, int concurrency, 
+			CommitPolicy commits) {
+		ArtifactPages pages = connection.getArtifactPages(pkg, getPageSize());
+		if(commits.isChunked()) {
+			createRevLinksInChunks(connection, pkg, revLink, concurrency, commits, pages);
+		} else if(!pages.isEmpty()) {
+			// The engine has created all reverse links before the opposites are computed, as they read the created reverse links
+			Collection<Package> rlPkgs = new RevLinkCreationEngine(connection, revLink, concurrency).createRevLinks(pages);
+			setOppositeProperties(connection, pkg, pages, CommitPolicy.none());
+			revLink.addTargetRevLinkPackages(pkg, rlPkgs);
+		}
+		revLink.addRevLinkPackage(pkg);
 	}
 	
-	private static void createRevLinksForArtifact(DSConnection connection, Artifact artifact, DSRevLink revLink) {
-		DSClass sourceType = new DSClass(connection, artifact.getType(), artifact.getPackage());
-		Map<String, Object> props = artifact.getAlivePropertiesMap();
-		Multimap<Artifact, String> revLinkRelationNames = Multimaps.newListMultimap(new HashMap<>(), ArrayList::new);
-		for(String key : props.keySet()) {
-			Object val = props.get(key);
-			if(val instanceof Artifact) {
-				revLinkRelationNames.put((Artifact) val, key);
-			}
+	private static void createRevLinksInChunks(DSConnection connection, Package pkg, DSRevLink revLink, int concurrency, 
+			CommitPolicy commits, ArtifactPages pages) {
+		RevLinkCheckpoint checkpoint = RevLinkCheckpoint.read(connection, pkg).orElse(RevLinkCheckpoint.START);
+		if(checkpoint != RevLinkCheckpoint.START) {
+			System.out.println("Resuming package " + pkg.getId() + " after checkpoint " + checkpoint.getPhase() + ":" + checkpoint.getLastArtifactId());
 		}
-		for(Map.Entry<Artifact, Collection<String>> entry : revLinkRelationNames.asMap().entrySet()) {
-			Artifact target = entry.getKey();
-			Package targetPkg = target.getPackage();
-			if(targetPkg == null) {
-				// Target artifact doesn't have a package. Skip reverse link creation!
-				continue;
-			}
-			DSClass targetType = new DSClass(connection, target.getType(), targetPkg);
-			Package rlPkg = getReverseLinkPackage(connection, targetPkg);
-			revLink.createRevLink(sourceType, targetType, new DSInstance(connection, artifact), new DSInstance(connection, target), rlPkg,
-					entry.getValue().toArray(new String[entry.getValue().size()]));
-			System.out.println("Created RLink: " + artifact.getId() + " -> " + target.getId() + " [" + entry.getValue().stream().collect(Collectors.joining(",")) + "]");
+		if(checkpoint.getPhase() == RevLinkCheckpoint.Phase.LINKS) {
+			// The reverse link packages are recorded with every chunk, as a resumed run only knows the packages of its own chunks
+			Collection<Package> rlPkgs = new RevLinkCreationEngine(connection, revLink, concurrency).createRevLinks(
+					pages.startingAfter(checkpoint.getLastArtifactId()), commits, (lastArtifactId, chunkRlPkgs) -> {
+						revLink.addTargetRevLinkPackages(pkg, chunkRlPkgs);
+						new RevLinkCheckpoint(RevLinkCheckpoint.Phase.LINKS, lastArtifactId).write(connection, pkg);
+					});
+			revLink.addTargetRevLinkPackages(pkg, rlPkgs);
+			checkpoint = new RevLinkCheckpoint(RevLinkCheckpoint.Phase.OPPOSITES, Long.MIN_VALUE);
+			checkpoint.write(connection, pkg);
+			connection.commit("Created reverse links of package " + pkg.getId());
 		}
+		setOppositeProperties(connection, pkg, pages.startingAfter(checkpoint.getLastArtifactId()), commits);
+		revLink.addRevLinkPackage(pkg);
+		RevLinkCheckpoint.clear(connection, pkg);
+		connection.commit("Set opposites of package " + pkg.getId());
 	}
 	
-	private static void setOppositePropertyForArtifact(Artifact artifact, DSConnection connection, Collection<Artifact> revLinks) {
-		Set<Artifact> linkedArtifacts = new LinkedHashSet<>();
-		for(Artifact revLink : revLinks) {
-			Object sourceVal = revLink.getPropertyValueOrNull(DSRevLink.SOURCE_NAME);
-			if(sourceVal instanceof Artifact) {
-				if(((Artifact) sourceVal).getId() == artifact.getId()) {
-					// Found a valid reverse link
-					Object target = revLink.getPropertyValueOrNull(DSRevLink.TARGET_NAME);
-					if(target instanceof Artifact) {
-						linkedArtifacts.add((Artifact)target);
-					} else {
-						System.err.println("Reverse link with invalid target artifact found! Please review reverse link " + revLink.getId());
+	/**
+	 * Creates the reverse links of several packages in parallel, like {@link #createRevLinksAndSetOpposites(DSConnection, Package, DSRevLink)}.
+	 * Every package is processed by a session of the pool, which commits the changes of the package when it's done, so the packages
+	 * don't wait for each other. At most as many packages as the pool has sessions are processed at the same time. If a package
+	 * fails, then its session is discarded with the uncommitted changes, so they're not committed with another package.
+	 * The default number of workers is divided among the sessions, so the pool doesn't multiply the threads of a single engine.
+	 * @param pool the sessions
+	 * @param pkgs the packages that hold the artifacts for which the reverse links will be created
+	 */
+	public static void createRevLinksAndSetOpposites(DSConnectionPool pool, Collection<Package> pkgs) {
+		int concurrency = Math.max(1, Integer.getInteger(CONCURRENCY_PROPERTY, RevLinkCreationEngine.DEFAULT_CONCURRENCY) / pool.getMaxSize());
+		ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, Math.min(pool.getMaxSize(), pkgs.size())));
+		List<Future<?>> created = new ArrayList<>(pkgs.size());
+		try {
+			for(Package pkg : pkgs) {
+				created.add(workers.submit(() -> {
+					try(DSConnectionPool.Session session = pool.acquire()) {
+						DSConnection connection = session.getConnection();
+						createRevLinksAndSetOpposites(connection, pkg, connection.getOrCreateReverseLinkClass(), concurrency);
+						session.commit("Created reverse links of package " + pkg.getId());
 					}
-				}
+				}));
+			}
+			for(Future<?> future : created) {
+				future.get();
 			}
+		} catch(InterruptedException e) {
+			created.forEach(future -> future.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while creating reverse links!", e);
+		} catch(ExecutionException e) {
+			created.forEach(future -> future.cancel(true));
+			throw new RuntimeException("Failed to create reverse links!", e.getCause());
+		} finally {
+			workers.shutdown();
 		}
-		
+	}
+	
+	static int getPageSize() {
+		return Integer.getInteger(PAGE_SIZE_PROPERTY, ArtifactPages.DEFAULT_PAGE_SIZE);
+	}
+	
+	/**
+	 * Brings the reverse links of the given package up to date. If no reverse links have been created for the package yet,
+	 * then they are created by {@link #createRevLinksAndSetOpposites(DSConnection, Package, DSRevLink)}. Otherwise only the 
+	 * reverse links and "@opposite" collections of the artifacts whose links have been changed since are updated, see {@link RevLinkUpdater}.
+	 * @param connection the Design Space connection
+	 * @param pkg the given package that holds the artifacts for which the reverse links will be updated
+	 * @param revLink the reverse link model
+	 */
+	public static void updateRevLinksAndOpposites(DSConnection connection, Package pkg, DSRevLink revLink) {
+		if(revLink.containsPackage(pkg)) {
+			new RevLinkUpdater(connection, revLink).update(pkg);
+		} else {
+			createRevLinksAndSetOpposites(connection, pkg, revLink);
+		}
+	}
+	
+	private static void setOppositeProperties(DSConnection connection, Package parent, ArtifactPages pages, CommitPolicy commits) {
+		DSRevLink revLinkType = connection.getOrCreateReverseLinkClass();
+		Package pkg = getReverseLinkPackage(connection, parent);
+		// Read every reverse link once, so the opposites can be emitted in a single pass over the artifacts
+		RevLinkIndex index = RevLinkIndex.of(connection.getArtifactPagesOfType(revLinkType, pkg, pages.getPageSize()),
+				DSEdgeList.read(connection, pkg), connection::getArtifactById);
+		long artifactsSinceCommit = 0;
+		long lastCommit = System.nanoTime();
+		for(List<Artifact> page : pages) {
+			// Written per page, so the pending writes don't grow with the size of the package
+			connection.runInBatch(() -> page.forEach(artifact -> setOppositePropertyForArtifact(artifact, connection, index)));
+			// An artifact counts as one link here, as it gets one opposites collection
+			artifactsSinceCommit += page.size();
+			if(!page.isEmpty() && commits.isDue(artifactsSinceCommit, System.nanoTime() - lastCommit)) {
+				long lastArtifactId = page.get(page.size() - 1).getId();
+				new RevLinkCheckpoint(RevLinkCheckpoint.Phase.OPPOSITES, lastArtifactId).write(connection, parent);
+				connection.commit("Set opposites up to artifact " + lastArtifactId);
+				artifactsSinceCommit = 0;
+				lastCommit = System.nanoTime();
+			}
+		}
+	}
+	
+	private static void setOppositePropertyForArtifact(Artifact artifact, DSConnection connection, RevLinkIndex index) {
+		Set<Artifact> linkedArtifacts = index.getTargets(artifact.getId());
 		Artifact oppositeCollection = connection.createCollectionArtifact(artifact.getId() + ".opposites", linkedArtifacts, artifact.getPackage());
 		connection.setPropertyValue(artifact, OPPOSITE_PROPERTY_KEY, oppositeCollection);
 		System.out.println("Set Opposite for " + artifact.getId() + " referencing " + linkedArtifacts.size() + " artifacts");
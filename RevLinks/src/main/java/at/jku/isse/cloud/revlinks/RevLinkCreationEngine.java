@@ -0,0 +1,590 @@
+package at.jku.isse.cloud.revlinks;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.Multimap;
+
+import at.jku.isse.cloud.artifact.DSClass;
+import at.jku.isse.cloud.artifact.DSConnection;
+import at.jku.isse.cloud.artifact.DSConnectionPool;
+import at.jku.isse.cloud.artifact.DSInstance;
+import at.jku.isse.cloud.artifact.DSProvider;
+import at.jku.isse.cloud.artifact.DSRevLink;
+import at.jku.isse.cloud.util.LoadingMap;
+import at.jku.isse.cloud.util.MetricsRegistry;
+import at.jku.sea.cloud.Artifact;
+import at.jku.sea.cloud.Package;
+
+/**
+ * Creates reverse links with a bounded pool of worker threads. The creation is done in two phases:
+ * <li> the forward links of the artifacts are read in parallel and grouped by the reverse link package of their target
+ * <li> every reverse link package is assigned to a single worker, which creates all reverse links of this package in a batch
+ * <p>
+ * As the work is partitioned by reverse link package, two workers never write into the same package. The progress and the
+ * throughput of every package is reported periodically while the reverse links are created.
+ * <p>
+ * If the provider of the connection is thread-safe (see {@link DSProvider#isThreadSafe()}), then all workers use the workspace
+ * of the connection. Otherwise, every worker creates its reverse links in a session of a {@link DSConnectionPool} of its own,
+ * which is opened by {@link DSProvider#openSession()}, and the reverse link packages are partitioned among the workers, so
+ * the reverse links of a package are always created by the same session. The reverse link packages are created and committed
+ * by the pool, the sessions commit their reverse links and the fingerprints of their artifacts at the end of the run and with
+ * every chunk. Only the reader uses the workspace of the connection, and it reads the forward links of a page one artifact
+ * after the other. The sessions record their calls in the metrics of their own connections.
+ * <p>
+ * The artifacts can be passed in pages, see {@link #createRevLinks(Iterable)}. Then the two phases run as a pipeline: the forward
+ * links of the next pages are read while the reverse links of the current page are created.
+ * <p>
+ * Every run is recorded as the action {@value #ACTION} in the metrics of the connection and the created reverse links are
+ * counted by the counter {@value #CREATED_COUNTER}, which results in the derived metric {@value #ROUND_TRIPS_PER_REV_LINK}.
+ */
+public class RevLinkCreationEngine {
+
+	/**
+	 * The default number of workers. The creation is dominated by waiting for the Design Space, so more workers than cores are used.
+	 * With a provider that isn't thread-safe, every worker uses a session of its own.
+	 */
+	public static final int DEFAULT_CONCURRENCY = Runtime.getRuntime().availableProcessors() * 4;
+
+	public static final String ACTION = "RevLinkCreationEngine.createRevLinks";
+	public static final String CREATED_COUNTER = "revLinks.created";
+	public static final String ROUND_TRIPS_PER_REV_LINK = "roundTripsPerRevLink";
+
+	/**
+	 * The maximum number of pages whose forward links have been read, but whose reverse links haven't been created yet.
+	 */
+	public static final int MAX_PAGES_AHEAD = 2;
+
+	private static final long DEFAULT_REPORT_INTERVAL_SECONDS = 10;
+
+	private final DSConnection conn;
+	private final DSRevLink revLink;
+	private final int concurrency;
+	private final long reportIntervalSeconds;
+	private final boolean threadSafe;
+	// Held by the reader and the main thread while they use the workspace of the connection, if it isn't thread-safe
+	private final Lock connectionLock;
+	// The pool of the current run, if the provider isn't thread-safe
+	private volatile DSConnectionPool pool;
+
+	private final LoadingMap<Long, Package> revLinkPackages = new LoadingMap<>();
+
+	/**
+	 * Creates a new engine using {@link #DEFAULT_CONCURRENCY} workers.
+	 * @param conn the Design Space connection
+	 * @param revLink the reverse link model
+	 */
+	public RevLinkCreationEngine(DSConnection conn, DSRevLink revLink) {
+		this(conn, revLink, DEFAULT_CONCURRENCY);
+	}
+
+	/**
+	 * Creates a new engine that reports the progress every ten seconds.
+	 * @param conn the Design Space connection
+	 * @param revLink the reverse link model
+	 * @param concurrency the maximum number of workers that create reverse links at the same time
+	 */
+	public RevLinkCreationEngine(DSConnection conn, DSRevLink revLink, int concurrency) {
+		this(conn, revLink, concurrency, DEFAULT_REPORT_INTERVAL_SECONDS);
+	}
+
+	/**
+	 * Creates a new engine.
+	 * @param conn the Design Space connection
+	 * @param revLink the reverse link model
+	 * @param concurrency the maximum number of workers that create reverse links at the same time
+	 * @param reportIntervalSeconds the interval in seconds in which the progress is reported, or 0 to disable the reports
+	 */
+	public RevLinkCreationEngine(DSConnection conn, DSRevLink revLink, int concurrency, long reportIntervalSeconds) {
+		if(concurrency < 1) {
+			throw new IllegalArgumentException("The concurrency must be positive: " + concurrency);
+		}
+		this.conn = requireNonNull(conn);
+		this.revLink = requireNonNull(revLink);
+		this.threadSafe = conn.getProvider().isThreadSafe();
+		this.concurrency = concurrency;
+		this.connectionLock = threadSafe ? null : new ReentrantLock();
+		this.reportIntervalSeconds = reportIntervalSeconds;
+	}
+
+	/**
+	 * Creates the reverse links for the forward links of all given artifacts and blocks until all of them have been created.
+	 * Afterwards, the fingerprint of the forward links is stored in every artifact that has links, see {@link RevLinkUpdater}.
+	 * @param artifacts the artifacts for whose links reverse links are created
+	 * @return the reverse link packages that contain the created reverse links
+	 */
+	public Collection<Package> createRevLinks(Collection<Artifact> artifacts) {
+		return createRevLinks(Collections.singletonList(artifacts));
+	}
+
+	/**
+	 * Creates the reverse links for the forward links of the artifacts page by page and blocks until all of them have been created.
+	 * While the reverse links of a page are created, the forward links of the following pages are read. The reader stays at most
+	 * {@value #MAX_PAGES_AHEAD} pages ahead and waits for the creation otherwise, so the memory that is needed doesn't depend on
+	 * the number of artifacts, but on the page size. The fingerprints of the forward links are stored after the reverse links
+	 * of each page have been created.
+	 * @param pages the pages of artifacts for whose links reverse links are created, e.g. {@link DSConnection#getArtifactPages(Package, int)}
+	 * @return the reverse link packages that contain the created reverse links
+	 */
+	public Collection<Package> createRevLinks(Iterable<? extends Collection<Artifact>> pages) {
+		return createRevLinks(pages, CommitPolicy.none(), null);
+	}
+
+	/**
+	 * Creates the reverse links like {@link #createRevLinks(Iterable)}, but commits in chunks: after every page, the policy
+	 * decides whether the work so far is committed. Before such a commit, the pending edge lists are written and the checkpoint
+	 * is called with the id of the last artifact of the page, so the progress can be recorded in the same commit. The pages must
+	 * be ordered by the ids of their artifacts, see {@link at.jku.isse.cloud.artifact.ArtifactPages#startingAfter(long)}.
+	 * @param pages the pages of artifacts for whose links reverse links are created, in ascending order of ids
+	 * @param commits the policy that decides when to commit
+	 * @param checkpoint records the progress before a commit, or null
+	 * @return the reverse link packages that contain the created reverse links
+	 */
+	public Collection<Package> createRevLinks(Iterable<? extends Collection<Artifact>> pages, CommitPolicy commits,
+			Checkpoint checkpoint) {
+		requireNonNull(commits);
+		MetricsRegistry metrics = conn.getMetrics();
+		metrics.defineRatio(ROUND_TRIPS_PER_REV_LINK, ACTION, CREATED_COUNTER);
+		metrics.runAction(ACTION, () -> createPages(pages, commits, checkpoint));
+		return revLinkPackages.loadedValues();
+	}
+
+	private void createPages(Iterable<? extends Collection<Artifact>> pages, CommitPolicy commits, Checkpoint checkpoint) {
+		ConcurrentMap<Long, PackageWork> progress = new ConcurrentHashMap<>();
+		// Without a thread-safe provider, the workers of the sessions create the reverse links
+		ExecutorService workers = threadSafe ? Executors.newFixedThreadPool(concurrency) : null;
+		ExecutorService reader = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "RevLink reader"));
+		ScheduledExecutorService reporter = startReporter(progress.values());
+		List<SessionWorker> sessions = openSessions();
+		try {
+			BlockingQueue<PageWork> readPages = new ArrayBlockingQueue<>(MAX_PAGES_AHEAD);
+			Future<Void> reading = reader.submit(() -> {
+				try {
+					Iterator<? extends Collection<Artifact>> unread = pages.iterator();
+					for(PageWork page = readNext(workers, unread); page != PageWork.END; page = readNext(workers, unread)) {
+						readPages.put(page);
+					}
+				} finally {
+					readPages.put(PageWork.END);
+				}
+				return null;
+			});
+			long linksSinceCommit = 0;
+			long lastCommit = System.nanoTime();
+			for(PageWork page = take(readPages); page != PageWork.END; page = take(readPages)) {
+				createRevLinks(workers, sessions, page, progress);
+				linksSinceCommit += page.size();
+				if(page.lastArtifactId != PageWork.NO_ARTIFACT && commits.isDue(linksSinceCommit, System.nanoTime() - lastCommit)) {
+					commitChunk(sessions, page.lastArtifactId, checkpoint);
+					linksSinceCommit = 0;
+					lastCommit = System.nanoTime();
+				}
+			}
+			await(reading);
+			// Edge lists are written in chunks, the last chunk of every package is written here
+			revLink.flushEdges();
+			commitSessions(sessions, "Created reverse links");
+		} finally {
+			reader.shutdownNow();
+			if(workers != null) {
+				workers.shutdownNow();
+			}
+			// Sessions that haven't been committed, because the run has failed, are discarded by the pool
+			sessions.forEach(SessionWorker::close);
+			pool = null;
+			if(reporter != null) {
+				reporter.shutdownNow();
+			}
+		}
+		progress.values().forEach(PackageWork::report);
+	}
+
+	/**
+	 * Opens the workers with a session each, if the provider isn't thread-safe.
+	 */
+	private List<SessionWorker> openSessions() {
+		if(threadSafe) {
+			return Collections.emptyList();
+		}
+		DSConnectionPool sessionPool = new DSConnectionPool(conn.getProvider()::openSession, concurrency, conn.getWarmCache().orElse(null));
+		pool = sessionPool;
+		List<SessionWorker> sessions = new ArrayList<>(concurrency);
+		for(int i = 0; i < concurrency; i++) {
+			sessions.add(new SessionWorker(sessionPool, i));
+		}
+		return sessions;
+	}
+
+	private PageWork readNext(ExecutorService workers, Iterator<? extends Collection<Artifact>> pages) {
+		// Getting the next page may read from the workspace as well
+		lockConnection();
+		try {
+			return pages.hasNext() ? collectWork(workers, pages.next()) : PageWork.END;
+		} finally {
+			unlockConnection();
+		}
+	}
+
+	private void lockConnection() {
+		if(!threadSafe) {
+			connectionLock.lock();
+		}
+	}
+
+	private void unlockConnection() {
+		if(!threadSafe) {
+			connectionLock.unlock();
+		}
+	}
+
+	private PageWork collectWork(ExecutorService workers, Collection<Artifact> artifacts) {
+		PageWork page = new PageWork();
+		if(threadSafe) {
+			List<Callable<Void>> tasks = artifacts.stream()
+					.map(artifact -> (Callable<Void>) () -> {
+						collectWork(artifact, page);
+						return null;
+					})
+					.collect(Collectors.toList());
+			runAll(workers, tasks);
+		} else {
+			// The workspace of the connection is only used by the reader
+			artifacts.forEach(artifact -> collectWork(artifact, page));
+		}
+		page.lastArtifactId = artifacts.stream().mapToLong(Artifact::getId).max().orElse(PageWork.NO_ARTIFACT);
+		return page;
+	}
+
+	private void collectWork(Artifact artifact, PageWork page) {
+		MetricsRegistry metrics = conn.getMetrics();
+		Map<String, Object> props = metrics.time("RevLinkCreationEngine.readForwardLinks", artifact::getAlivePropertiesMap);
+		Multimap<Artifact, String> revLinkRelationNames = ForwardLinks.of(props);
+		if(revLinkRelationNames.isEmpty()) {
+			return;
+		}
+		long stamp = ForwardLinks.fingerprint(revLinkRelationNames);
+		if(ForwardLinks.storedFingerprint(props) != stamp) {
+			// An unchanged stamp isn't written again, so creating the reverse links of a package again only writes what has changed
+			page.stamps.put(artifact, stamp);
+		}
+		DSClass sourceType = new DSClass(conn, metrics.time("RevLinkCreationEngine.loadType", artifact::getType),
+				metrics.time("RevLinkCreationEngine.loadPackage", artifact::getPackage));
+		for(Map.Entry<Artifact, Collection<String>> entry : revLinkRelationNames.asMap().entrySet()) {
+			Artifact target = entry.getKey();
+			Package targetPkg = metrics.time("RevLinkCreationEngine.loadPackage", target::getPackage);
+			if(targetPkg == null) {
+				// Target artifact doesn't have a package. Skip reverse link creation!
+				continue;
+			}
+			Package rlPkg = getReverseLinkPackage(targetPkg);
+			DSClass targetType = new DSClass(conn, metrics.time("RevLinkCreationEngine.loadType", target::getType), targetPkg);
+			page.revLinks.computeIfAbsent(rlPkg.getId(), id -> new ConcurrentLinkedQueue<>())
+					.add(new PendingRevLink(artifact, sourceType, target, targetType, entry.getValue(), rlPkg));
+		}
+	}
+
+	private Package getReverseLinkPackage(Package targetPkg) {
+		// Loaded once per package, so concurrent workers don't create the same package twice
+		return revLinkPackages.get(targetPkg.getId(), id -> {
+			DSConnectionPool sessionPool = pool;
+			if(sessionPool == null) {
+				return RevLinkCreation.getReverseLinkPackage(conn, targetPkg);
+			}
+			// Committed right away, so the sessions can use it
+			return conn.getOrCreateSharedPackage(RevLinkCreation.getReverseLinkPackageName(targetPkg), targetPkg.getPackage(), sessionPool);
+		});
+	}
+
+	private void createRevLinks(ExecutorService workers, List<SessionWorker> sessions, PageWork page, ConcurrentMap<Long, PackageWork> progress) {
+		// The pages are created one after the other, so two workers never write into the same package
+		if(sessions.isEmpty()) {
+			List<Callable<Void>> tasks = page.revLinks.entrySet().stream()
+					.map(entry -> (Callable<Void>) () -> {
+						getPackageWork(progress, entry.getKey(), entry.getValue()).createRevLinks(conn, revLink, entry.getValue());
+						return null;
+					})
+					.collect(Collectors.toList());
+			runAll(workers, tasks);
+			conn.runInBatch(() -> page.stamps.forEach((artifact, stamp) -> conn.setPropertyValue(artifact, ForwardLinks.STAMP_PROPERTY_KEY, stamp)));
+			return;
+		}
+		// Every reverse link package is created by the same session in every page, which knows its existing reverse links
+		List<List<Map.Entry<Long, Collection<PendingRevLink>>>> partitions = new ArrayList<>(sessions.size());
+		sessions.forEach(session -> partitions.add(new ArrayList<>()));
+		page.revLinks.entrySet().forEach(entry -> partitions.get(Math.floorMod(Long.hashCode(entry.getKey()), sessions.size())).add(entry));
+		List<Future<Void>> created = new ArrayList<>(sessions.size());
+		for(int i = 0; i < sessions.size(); i++) {
+			List<Map.Entry<Long, Collection<PendingRevLink>>> partition = partitions.get(i);
+			if(!partition.isEmpty()) {
+				created.add(sessions.get(i).submit(session -> partition.forEach(entry -> 
+						getPackageWork(progress, entry.getKey(), entry.getValue()).createRevLinks(session, session.getOrCreateReverseLinkClass(), entry.getValue()))));
+			}
+		}
+		created.forEach(RevLinkCreationEngine::await);
+		// The fingerprints are committed by a session as well, together with the reverse links
+		List<Map.Entry<Artifact, Long>> stamps = new ArrayList<>(page.stamps.entrySet());
+		if(!stamps.isEmpty()) {
+			await(sessions.get(Math.floorMod(Long.hashCode(page.lastArtifactId), sessions.size())).submit(session -> session.runInBatch(() -> 
+					stamps.forEach(stamp -> session.setPropertyValue(stamp.getKey(), ForwardLinks.STAMP_PROPERTY_KEY, stamp.getValue())))));
+		}
+	}
+
+	private PackageWork getPackageWork(ConcurrentMap<Long, PackageWork> progress, long rlPkgId, Collection<PendingRevLink> revLinks) {
+		return progress.computeIfAbsent(rlPkgId, id -> new PackageWork(revLinks.iterator().next().rlPkg));
+	}
+
+	private void commitChunk(List<SessionWorker> sessions, long lastArtifactId, Checkpoint checkpoint) {
+		// The edge lists of the chunk have to be written before its checkpoint, otherwise a resumed run would lose them
+		revLink.flushEdges();
+		commitSessions(sessions, "Reverse links up to artifact " + lastArtifactId);
+		lockConnection();
+		try {
+			if(checkpoint != null) {
+				checkpoint.save(lastArtifactId, revLinkPackages.loadedValues());
+			}
+			conn.commit("Reverse links up to artifact " + lastArtifactId);
+		} finally {
+			unlockConnection();
+		}
+		conn.getMetrics().increment("RevLinkCreationEngine.chunks");
+	}
+
+	/**
+	 * Writes the pending edge lists of the sessions and commits them, each on the thread of its worker.
+	 */
+	private static void commitSessions(List<SessionWorker> sessions, String msg) {
+		List<Future<Void>> committed = new ArrayList<>(sessions.size());
+		sessions.forEach(session -> committed.add(session.commit(msg)));
+		committed.forEach(RevLinkCreationEngine::await);
+	}
+
+	private ScheduledExecutorService startReporter(Collection<PackageWork> work) {
+		if(reportIntervalSeconds <= 0) {
+			return null;
+		}
+		ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "RevLink progress");
+			thread.setDaemon(true);
+			return thread;
+		});
+		reporter.scheduleAtFixedRate(() -> work.stream().filter(PackageWork::isRunning).forEach(PackageWork::report),
+				reportIntervalSeconds, reportIntervalSeconds, TimeUnit.SECONDS);
+		return reporter;
+	}
+
+	private static PageWork take(BlockingQueue<PageWork> pages) {
+		try {
+			return pages.take();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while creating reverse links!", e);
+		}
+	}
+
+	private static void await(Future<Void> future) {
+		try {
+			future.get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while creating reverse links!", e);
+		} catch(ExecutionException e) {
+			throw new RuntimeException("Failed to create reverse links!", e.getCause());
+		}
+	}
+
+	private static void runAll(ExecutorService workers, List<Callable<Void>> tasks) {
+		try {
+			for(Future<Void> future : workers.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while creating reverse links!", e);
+		} catch(ExecutionException e) {
+			throw new RuntimeException("Failed to create reverse links!", e.getCause());
+		}
+	}
+
+	/**
+	 * A worker that creates reverse links in a session of its own on a single thread. The session is acquired from the pool by
+	 * the first task of the worker and released when the worker is closed.
+	 */
+	private class SessionWorker {
+
+		private final DSConnectionPool sessionPool;
+		private final ExecutorService thread;
+		private DSConnectionPool.Session session;
+
+		private SessionWorker(DSConnectionPool sessionPool, int index) {
+			this.sessionPool = sessionPool;
+			this.thread = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "RevLink session " + index));
+		}
+
+		/**
+		 * Runs the work with the connection of the session on the thread of this worker.
+		 */
+		private Future<Void> submit(Consumer<DSConnection> work) {
+			return thread.submit(() -> {
+				if(session == null) {
+					session = sessionPool.acquire();
+					// The reverse links are created like by the model of the engine
+					session.getConnection().getOrCreateReverseLinkClass()
+							.withStorageMode(revLink.getStorageMode())
+							.withSharedRelNames(revLink.isSharedRelNames());
+				}
+				work.accept(session.getConnection());
+				return null;
+			});
+		}
+
+		private Future<Void> commit(String msg) {
+			return thread.submit(() -> {
+				if(session != null) {
+					session.getConnection().getOrCreateReverseLinkClass().flushEdges();
+					session.commit(msg);
+				}
+				return null;
+			});
+		}
+
+		private void close() {
+			thread.submit(() -> {
+				if(session != null) {
+					session.close();
+				}
+			});
+			thread.shutdown();
+		}
+	}
+
+	/**
+	 * Records the progress of a run with chunked commits, see {@link RevLinkCreationEngine#createRevLinks(Iterable, CommitPolicy, Checkpoint)}.
+	 */
+	@FunctionalInterface
+	public interface Checkpoint {
+
+		/**
+		 * Called before a chunk is committed, after the reverse links of all artifacts up to the given id have been created.
+		 * @param lastArtifactId the id of the last artifact of the chunk
+		 * @param revLinkPackages the reverse link packages that contain the reverse links created so far
+		 */
+		void save(long lastArtifactId, Collection<Package> revLinkPackages);
+	}
+
+	private static class PendingRevLink {
+
+		private final Artifact source;
+		private final DSClass sourceType;
+		private final Artifact target;
+		private final DSClass targetType;
+		private final String[] relNames;
+		private final Package rlPkg;
+
+		private PendingRevLink(Artifact source, DSClass sourceType, Artifact target, DSClass targetType, Collection<String> relNames,
+				Package rlPkg) {
+			this.source = source;
+			this.sourceType = sourceType;
+			this.target = target;
+			this.targetType = targetType;
+			this.relNames = relNames.toArray(new String[relNames.size()]);
+			this.rlPkg = rlPkg;
+		}
+	}
+
+	/**
+	 * The reverse links of a page that have yet to be created, grouped by the id of their reverse link package, and the
+	 * fingerprints of the artifacts of the page.
+	 */
+	private static class PageWork {
+
+		private static final PageWork END = new PageWork();
+		private static final long NO_ARTIFACT = Long.MIN_VALUE;
+
+		private final ConcurrentMap<Long, Collection<PendingRevLink>> revLinks = new ConcurrentHashMap<>();
+		private final ConcurrentMap<Artifact, Long> stamps = new ConcurrentHashMap<>();
+		private long lastArtifactId = NO_ARTIFACT;
+
+		private int size() {
+			return revLinks.values().stream().mapToInt(Collection::size).sum();
+		}
+	}
+
+	/**
+	 * The progress of the creation of the reverse links of a single reverse link package over all pages.
+	 */
+	private class PackageWork {
+
+		private final Package rlPkg;
+		private final AtomicInteger pending = new AtomicInteger();
+		private final AtomicInteger created = new AtomicInteger();
+		private volatile boolean running;
+		private volatile long startNanos;
+		private volatile long endNanos;
+
+		private PackageWork(Package rlPkg) {
+			this.rlPkg = rlPkg;
+		}
+
+		/**
+		 * Creates the reverse links with the connection and the reverse link model of the worker.
+		 */
+		private void createRevLinks(DSConnection connection, DSRevLink model, Collection<PendingRevLink> revLinks) {
+			pending.addAndGet(revLinks.size());
+			if(startNanos == 0) {
+				startNanos = System.nanoTime();
+			}
+			running = true;
+			try {
+				connection.runInBatch(() -> {
+					for(PendingRevLink rl : revLinks) {
+						// The reverse link points from the referenced artifact back to the artifact holding the link
+						if(model.createRevLink(rl.sourceType, rl.targetType, new DSInstance(connection, rl.source), 
+								new DSInstance(connection, rl.target), rlPkg, rl.relNames)) {
+							conn.getMetrics().increment(CREATED_COUNTER);
+						}
+						created.incrementAndGet();
+					}
+				});
+			} finally {
+				running = false;
+				endNanos = System.nanoTime();
+			}
+		}
+
+		private boolean isRunning() {
+			return running;
+		}
+
+		private void report() {
+			int done = created.get();
+			long elapsedNanos = (running ? System.nanoTime() : endNanos) - startNanos;
+			double seconds = startNanos == 0 ? 0 : elapsedNanos / 1e9;
+			double throughput = seconds > 0 ? done / seconds : 0;
+			System.out.println(String.format("Package %d: %d/%d reverse links created (%.1f links/s)",
+					rlPkg.getId(), done, pending.get(), throughput));
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package at.jku.isse.cloud.revlinks;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+import at.jku.isse.cloud.artifact.ArtifactPages;
+import at.jku.isse.cloud.artifact.DSEdgeList;
+import at.jku.isse.cloud.artifact.DSRevLink;
+import at.jku.isse.cloud.util.LongMultimap;
+import at.jku.sea.cloud.Artifact;
+
+/**
+ * Groups the targets of reverse links by their source. Every reverse link artifact is read exactly once when the index
+ * is built, afterwards the targets of a source can be looked up without contacting the Design Space.
+ */
+public class RevLinkIndex {
+
+	private final LongMultimap targetsBySource;
+	private final Map<Long, Artifact> targets;
+
+	private RevLinkIndex(LongMultimap targetsBySource, Map<Long, Artifact> targets) {
+		this.targetsBySource = targetsBySource;
+		this.targets = targets;
+	}
+
+	/**
+	 * Builds the index by reading the properties of each reverse link artifact once.
+	 * Reverse links without a valid source or target artifact are reported and skipped.
+	 * @param revLinks the reverse link artifacts
+	 * @return the index of the reverse links
+	 */
+	public static RevLinkIndex of(Collection<Artifact> revLinks) {
+		return of(Collections.singletonList(revLinks), revLinks.size(), Collections.emptyList(), id -> Optional.empty());
+	}
+
+	/**
+	 * Builds the index page by page, like {@link #of(Collection)}.
+	 * @param pages the pages of reverse link artifacts
+	 * @return the index of the reverse links
+	 */
+	public static RevLinkIndex of(ArtifactPages pages) {
+		return of(pages, Collections.emptyList(), id -> Optional.empty());
+	}
+
+	/**
+	 * Builds the index from the reverse link artifacts and the chunks of the edge lists (see {@link DSEdgeList}) of a package.
+	 * The rows of the edge lists only contain ids, so their targets are resolved by the resolver, once per distinct target.
+	 * @param pages the pages of reverse link artifacts
+	 * @param edges the chunks of the edge lists
+	 * @param resolver returns the artifact of an id
+	 * @return the index of the reverse links
+	 */
+	public static RevLinkIndex of(ArtifactPages pages, Collection<DSEdgeList> edges, LongFunction<Optional<Artifact>> resolver) {
+		return of(pages, pages.getListedCount(), edges, resolver);
+	}
+
+	private static RevLinkIndex of(Iterable<? extends Collection<Artifact>> pages, int expectedSize, Collection<DSEdgeList> edges,
+			LongFunction<Optional<Artifact>> resolver) {
+		LongMultimap targetsBySource = new LongMultimap(expectedSize);
+		Map<Long, Artifact> targets = new HashMap<>();
+		for(Collection<Artifact> page : pages) {
+			addAll(page, targetsBySource, targets);
+		}
+		Map<Long, Optional<Artifact>> resolved = new HashMap<>();
+		for(DSEdgeList chunk : edges) {
+			for(int row = 0; row < chunk.size(); row++) {
+				long targetId = chunk.getTargetId(row);
+				Optional<Artifact> target = resolved.computeIfAbsent(targetId, resolver::apply);
+				if(!target.isPresent()) {
+					System.err.println("Edge with invalid target artifact found! Please review edge list " + chunk.getId());
+					continue;
+				}
+				targetsBySource.put(chunk.getSourceId(row), targetId);
+				targets.putIfAbsent(targetId, target.get());
+			}
+		}
+		return new RevLinkIndex(targetsBySource, targets);
+	}
+
+	private static void addAll(Collection<Artifact> revLinks, LongMultimap targetsBySource, Map<Long, Artifact> targets) {
+		for(Artifact revLink : revLinks) {
+			Map<String, Object> props = revLink.getAlivePropertiesMap();
+			Object source = props.get(DSRevLink.SOURCE_NAME);
+			if(!(source instanceof Artifact)) {
+				continue;
+			}
+			Object target = props.get(DSRevLink.TARGET_NAME);
+			if(!(target instanceof Artifact)) {
+				System.err.println("Reverse link with invalid target artifact found! Please review reverse link " + revLink.getId());
+				continue;
+			}
+			long targetId = ((Artifact) target).getId();
+			targetsBySource.put(((Artifact) source).getId(), targetId);
+			targets.putIfAbsent(targetId, (Artifact) target);
+		}
+	}
+
+	/**
+	 * Returns the distinct target artifacts of the reverse links with the given source, in the order in which the reverse links were read.
+	 * @param sourceId the id of the source artifact
+	 * @return the target artifacts
+	 */
+	public Set<Artifact> getTargets(long sourceId) {
+		Set<Artifact> linkedArtifacts = new LinkedHashSet<>();
+		targetsBySource.forEach(sourceId, targetId -> linkedArtifacts.add(targets.get(targetId)));
+		return linkedArtifacts;
+	}
+
+	/**
+	 * Returns the ids of the targets of the reverse links with the given source. The ids may contain duplicates.
+	 * @param sourceId the id of the source artifact
+	 * @return the ids of the target artifacts
+	 */
+	public long[] getTargetIds(long sourceId) {
+		return targetsBySource.get(sourceId);
+	}
+
+	/**
+	 * Returns the number of reverse links in the index.
+	 * @return the number of reverse links
+	 */
+	public int size() {
+		return targetsBySource.valueSize();
+	}
+}
@@ -0,0 +1,260 @@
+package at.jku.isse.cloud.revlinks;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.function.LongFunction;
+
+import at.jku.sea.cloud.Artifact;
+
+/**
+ * A compact, immutable table of reverse links. Instead of a {@link RevLink} with four artifacts per reverse link, every
+ * reverse link is a row of primitive columns: the ids of the reverse link, of its source, target, source type and target type
+ * and the id of its interned set of relation names (see {@link RelNameSets}). A row takes 44 bytes, no matter how many
+ * artifacts are referenced, and artifacts are only resolved when a row is converted with {@link #toRevLink(int, LongFunction)}.
+ */
+public final class RevLinkTable {
+
+	private final RelNameSets relNameSets;
+	private final int size;
+	private final long[] ids;
+	private final long[] sources;
+	private final long[] targets;
+	private final long[] sourceTypes;
+	private final long[] targetTypes;
+	private final int[] relNames;
+
+	private RevLinkTable(Builder builder) {
+		this.relNameSets = builder.relNameSets;
+		this.size = builder.size;
+		this.ids = Arrays.copyOf(builder.ids, size);
+		this.sources = Arrays.copyOf(builder.sources, size);
+		this.targets = Arrays.copyOf(builder.targets, size);
+		this.sourceTypes = Arrays.copyOf(builder.sourceTypes, size);
+		this.targetTypes = Arrays.copyOf(builder.targetTypes, size);
+		this.relNames = Arrays.copyOf(builder.relNames, size);
+	}
+
+	/**
+	 * Creates a builder for a table whose sets of relation names are interned in the given sets.
+	 * @param relNameSets the interned sets of relation names
+	 * @return the builder
+	 */
+	public static Builder builder(RelNameSets relNameSets) {
+		return new Builder(relNameSets);
+	}
+
+	/**
+	 * Returns an empty table.
+	 * @return the empty table
+	 */
+	public static RevLinkTable empty() {
+		return builder(new RelNameSets()).build();
+	}
+
+	/**
+	 * Returns the number of reverse links.
+	 * @return the number of rows
+	 */
+	public int size() {
+		return size;
+	}
+
+	public long getId(int row) {
+		return ids[check(row)];
+	}
+
+	public long getSourceId(int row) {
+		return sources[check(row)];
+	}
+
+	public long getTargetId(int row) {
+		return targets[check(row)];
+	}
+
+	public long getSourceTypeId(int row) {
+		return sourceTypes[check(row)];
+	}
+
+	public long getTargetTypeId(int row) {
+		return targetTypes[check(row)];
+	}
+
+	public int getRelNameSetId(int row) {
+		return relNames[check(row)];
+	}
+
+	/**
+	 * Returns the relation names of the reverse link. The array is shared by all reverse links with the same set of
+	 * relation names and must not be modified.
+	 * @param row the row of the reverse link
+	 * @return the relation names
+	 */
+	public String[] getRelNames(int row) {
+		return relNameSets.get(relNames[check(row)]);
+	}
+
+	/**
+	 * Returns the interned sets of relation names of this table.
+	 * @return the sets of relation names
+	 */
+	public RelNameSets getRelNameSets() {
+		return relNameSets;
+	}
+
+	/**
+	 * Returns the distinct ids of the source types, in the order in which they first occur.
+	 * @return the ids of the source types
+	 */
+	public long[] getSourceTypeIds() {
+		Set<Long> typeIds = new LinkedHashSet<>();
+		for(int row = 0; row < size; row++) {
+			typeIds.add(sourceTypes[row]);
+		}
+		return typeIds.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	/**
+	 * Returns the distinct ids of the sources and targets of all reverse links, in the order in which they first occur.
+	 * @return the ids of the linked artifacts
+	 */
+	public long[] getLinkedIds() {
+		Set<Long> linkedIds = new LinkedHashSet<>();
+		for(int row = 0; row < size; row++) {
+			linkedIds.add(sources[row]);
+			linkedIds.add(targets[row]);
+		}
+		return linkedIds.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	/**
+	 * Returns the rows that match the predicate, in ascending order.
+	 * @param predicate tests a row
+	 * @return the matching rows
+	 */
+	public int[] rows(IntPredicate predicate) {
+		int[] matching = new int[size];
+		int count = 0;
+		for(int row = 0; row < size; row++) {
+			if(predicate.test(row)) {
+				matching[count++] = row;
+			}
+		}
+		return Arrays.copyOf(matching, count);
+	}
+
+	/**
+	 * Resolves the artifacts of a row and returns it as a reverse link.
+	 * @param row the row of the reverse link
+	 * @param resolver returns the artifact of an id
+	 * @return the reverse link
+	 */
+	public RevLink toRevLink(int row, LongFunction<Artifact> resolver) {
+		check(row);
+		return new RevLink(ids[row], resolver.apply(sources[row]), resolver.apply(targets[row]),
+				resolver.apply(sourceTypes[row]), resolver.apply(targetTypes[row]), relNameSets.get(relNames[row]));
+	}
+
+	private int check(int row) {
+		if(row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+		}
+		return row;
+	}
+
+	/**
+	 * Collects the rows of a table. The arrays grow as rows are added and are trimmed when the table is built.
+	 * A builder is not thread-safe.
+	 */
+	public static final class Builder {
+
+		private static final int INITIAL_CAPACITY = 64;
+
+		private final RelNameSets relNameSets;
+		private int size;
+		private long[] ids = new long[INITIAL_CAPACITY];
+		private long[] sources = new long[INITIAL_CAPACITY];
+		private long[] targets = new long[INITIAL_CAPACITY];
+		private long[] sourceTypes = new long[INITIAL_CAPACITY];
+		private long[] targetTypes = new long[INITIAL_CAPACITY];
+		private int[] relNames = new int[INITIAL_CAPACITY];
+
+		private Builder(RelNameSets relNameSets) {
+			this.relNameSets = requireNonNull(relNameSets);
+		}
+
+		/**
+		 * Adds a reverse link.
+		 * @param id the id of the reverse link
+		 * @param source the id of the source
+		 * @param target the id of the target
+		 * @param sourceType the id of the source type
+		 * @param targetType the id of the target type
+		 * @param relNameSetId the id of the set of relation names in the sets of this builder
+		 * @return the builder
+		 */
+		public Builder add(long id, long source, long target, long sourceType, long targetType, int relNameSetId) {
+			if(size == ids.length) {
+				int capacity = size * 2;
+				ids = Arrays.copyOf(ids, capacity);
+				sources = Arrays.copyOf(sources, capacity);
+				targets = Arrays.copyOf(targets, capacity);
+				sourceTypes = Arrays.copyOf(sourceTypes, capacity);
+				targetTypes = Arrays.copyOf(targetTypes, capacity);
+				relNames = Arrays.copyOf(relNames, capacity);
+			}
+			ids[size] = id;
+			sources[size] = source;
+			targets[size] = target;
+			sourceTypes[size] = sourceType;
+			targetTypes[size] = targetType;
+			relNames[size] = relNameSetId;
+			size++;
+			return this;
+		}
+
+		/**
+		 * Adds all rows of a table.
+		 * @param table the table
+		 * @return the builder
+		 */
+		public Builder addAll(RevLinkTable table) {
+			return addAll(table, row -> true);
+		}
+
+		/**
+		 * Adds the rows of a table that match the predicate. If the table uses other sets of relation names than this builder,
+		 * then its sets are interned in the sets of this builder.
+		 * @param table the table
+		 * @param predicate tests a row of the table
+		 * @return the builder
+		 */
+		public Builder addAll(RevLinkTable table, IntPredicate predicate) {
+			Map<Integer, Integer> setIds = new HashMap<>();
+			for(int row = 0; row < table.size; row++) {
+				if(!predicate.test(row)) {
+					continue;
+				}
+				int setId = table.relNames[row];
+				if(table.relNameSets != relNameSets) {
+					setId = setIds.computeIfAbsent(setId, id -> relNameSets.intern(table.relNameSets.get(id)));
+				}
+				add(table.ids[row], table.sources[row], table.targets[row], table.sourceTypes[row], table.targetTypes[row], setId);
+			}
+			return this;
+		}
+
+		/**
+		 * Builds the table.
+		 * @return the table
+		 */
+		public RevLinkTable build() {
+			return new RevLinkTable(this);
+		}
+	}
+}
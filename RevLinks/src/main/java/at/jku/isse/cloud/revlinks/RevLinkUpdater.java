@@ -0,0 +1,355 @@
+package at.jku.isse.cloud.revlinks;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+import com.google.common.collect.Multimap;
+
+import at.jku.isse.cloud.artifact.DSBatch;
+import at.jku.isse.cloud.artifact.DSClass;
+import at.jku.isse.cloud.artifact.DSConnection;
+import at.jku.isse.cloud.artifact.DSInstance;
+import at.jku.isse.cloud.artifact.DSRevLink;
+import at.jku.isse.cloud.util.LongMultimap;
+import at.jku.isse.cloud.util.MetricsRegistry;
+import at.jku.sea.cloud.Artifact;
+import at.jku.sea.cloud.CollectionArtifact;
+import at.jku.sea.cloud.Package;
+
+/**
+ * Brings the reverse links of an already analyzed package up to date. When reverse links are created, every artifact with
+ * forward links is stamped with a fingerprint of these links (see {@link RevLinkCreationEngine}). An update reads the
+ * artifacts of the package once and only processes those whose current fingerprint differs from their stamp:
+ * <li> reverse links that no longer correspond to a forward link are deleted and the artifact is removed from the "@opposite" collection of the linked artifact
+ * <li> missing reverse links are created and the artifact is added to the "@opposite" collection of the linked artifact
+ * <li> the stamp of the artifact is updated
+ * <p>
+ * Unchanged artifacts cause no further reads or writes. In the storage mode {@link DSRevLink.StorageMode#EDGE_LIST}, the reverse links
+ * of the changed artifacts are collected first and every chunk of an edge list that contains one of their reverse links is rewritten once.
+ * <p>
+ * The reverse links of a changed artifact are searched in the reverse link packages that have been recorded for the package
+ * (see {@link DSRevLink#getTargetRevLinkPackageIds(Package)}). A package that has been analyzed before the packages were recorded
+ * has no record, so all reverse link packages that the connection knows are searched instead and recorded for the package.
+ * <p>
+ * A deleted artifact has no fingerprint that could change, so the update also keeps a fingerprint of the ids of the artifacts
+ * of the package in its property {@value #MEMBERS_PROPERTY_KEY}. If it differs from the recorded one, or there is none yet,
+ * the reverse links whose source or target doesn't exist anymore are removed from the searched reverse link packages and
+ * the reverse link package of the package itself, and deleted artifacts are removed from the "@opposite" collections.
+ */
+public class RevLinkUpdater {
+
+	/**
+	 * The property of the analyzed package that holds the fingerprint of the ids of its artifacts at the last update.
+	 */
+	static final String MEMBERS_PROPERTY_KEY = "@revLinkMembers";
+
+	private final DSConnection conn;
+	private final DSRevLink revLink;
+
+	// Opposite collections created in the current update, which can't be read from their artifacts before the batch is flushed
+	private final Map<Long, CollectionArtifact> createdOpposites = new HashMap<>();
+
+	// The forward links of the changed artifacts, whose reverse links are stored in edge lists
+	private final Map<Artifact, Multimap<Artifact, String>> changedEdges = new LinkedHashMap<>();
+
+	private int changedArtifacts;
+	private int createdRevLinks;
+	private int deletedRevLinks;
+
+	/**
+	 * Creates a new updater.
+	 * @param conn the Design Space connection
+	 * @param revLink the reverse link model
+	 */
+	public RevLinkUpdater(DSConnection conn, DSRevLink revLink) {
+		this.conn = requireNonNull(conn);
+		this.revLink = requireNonNull(revLink);
+	}
+
+	/**
+	 * Updates the reverse links and the "@opposite" collections for the artifacts of the package that have been changed
+	 * since the reverse links were created or last updated.
+	 * @param pkg the analyzed package
+	 * @return the number of artifacts whose forward links have been changed
+	 */
+	public int update(Package pkg) {
+		try {
+			return conn.getMetrics().timeAction("RevLinkUpdater.update", () -> updatePackage(pkg));
+		} finally {
+			conn.getMetrics().add("RevLinkUpdater.created", createdRevLinks);
+			conn.getMetrics().add("RevLinkUpdater.deleted", deletedRevLinks);
+		}
+	}
+
+	private int updatePackage(Package pkg) {
+		MetricsRegistry metrics = conn.getMetrics();
+		changedArtifacts = 0;
+		createdRevLinks = 0;
+		deletedRevLinks = 0;
+		createdOpposites.clear();
+		changedEdges.clear();
+		Optional<Set<Long>> recorded = revLink.getTargetRevLinkPackageIds(pkg);
+		Set<Long> rlPkgIds = recorded.orElse(Collections.emptySet());
+		Map<Long, Package> rlPkgs = new HashMap<>();
+		for(long rlPkgId : rlPkgIds) {
+			conn.getArtifactById(rlPkgId)
+					.filter(artifact -> artifact instanceof Package)
+					.ifPresent(rlPkg -> rlPkgs.put(rlPkgId, (Package) rlPkg));
+		}
+		if(!recorded.isPresent()) {
+			// Without a record, the reverse links of removed links can be in any reverse link package
+			System.out.println("No reverse link packages recorded for package " + pkg.getId() + ", searching all reverse link packages");
+			conn.getPackagesWithPrefix(RevLinkCreation.RL_PREFIX).forEach(rlPkg -> rlPkgs.put(rlPkg.getId(), rlPkg));
+		}
+		Set<Long> memberIds = new HashSet<>();
+		long members = 0;
+		try(DSBatch batch = conn.beginBatch()) {
+			for(List<Artifact> page : conn.getArtifactPages(pkg, RevLinkCreation.getPageSize())) {
+				for(Artifact artifact : page) {
+					memberIds.add(artifact.getId());
+					members += mix(artifact.getId());
+					Map<String, Object> props = metrics.time("RevLinkUpdater.readForwardLinks", artifact::getAlivePropertiesMap);
+					Multimap<Artifact, String> links = ForwardLinks.of(props);
+					long fingerprint = ForwardLinks.fingerprint(links);
+					if(fingerprint == ForwardLinks.storedFingerprint(props)) {
+						continue;
+					}
+					changedArtifacts++;
+					if(revLink.getStorageMode() == DSRevLink.StorageMode.EDGE_LIST) {
+						addReverseLinkPackages(links, rlPkgs);
+						changedEdges.put(artifact, links);
+					} else {
+						updateArtifact(pkg, artifact, links, rlPkgs);
+					}
+					conn.setPropertyValue(artifact, ForwardLinks.STAMP_PROPERTY_KEY, fingerprint);
+				}
+				// Written per page, so the pending writes don't grow with the size of the package
+				batch.flush();
+			}
+		}
+		if(!changedEdges.isEmpty()) {
+			updateEdges(pkg, rlPkgs);
+		}
+		Object recordedMembers = metrics.time("RevLinkUpdater.readMembers", () -> pkg.getPropertyValueOrNull(MEMBERS_PROPERTY_KEY));
+		if(!(recordedMembers instanceof Number) || ((Number) recordedMembers).longValue() != members) {
+			removeOrphans(pkg, rlPkgs, memberIds);
+			conn.setPropertyValue(pkg, MEMBERS_PROPERTY_KEY, members);
+		}
+		Set<Long> added = new HashSet<>(rlPkgs.keySet());
+		added.removeAll(rlPkgIds);
+		if(!added.isEmpty()) {
+			List<Package> addedPkgs = new ArrayList<>();
+			added.forEach(id -> addedPkgs.add(rlPkgs.get(id)));
+			revLink.addTargetRevLinkPackages(pkg, addedPkgs);
+		}
+		System.out.println("Updated " + changedArtifacts + " changed artifacts: created " + createdRevLinks +
+				" and deleted " + deletedRevLinks + " reverse links");
+		return changedArtifacts;
+	}
+
+	private void updateArtifact(Package pkg, Artifact artifact, Multimap<Artifact, String> links, Map<Long, Package> rlPkgs) {
+		Map<Long, Artifact> missing = new HashMap<>();
+		for(Artifact target : addReverseLinkPackages(links, rlPkgs)) {
+			missing.put(target.getId(), target);
+		}
+
+		// The reverse links of the artifact have the artifact as their target
+		for(Package rlPkg : rlPkgs.values()) {
+			for(Artifact existing : conn.getArtifactsWithProperty(rlPkg, DSRevLink.TARGET_NAME, artifact)) {
+				Map<String, Object> rlProps = existing.getAlivePropertiesMap();
+				Object source = rlProps.get(DSRevLink.SOURCE_NAME);
+				if(source instanceof Artifact) {
+					Artifact linked = missing.get(((Artifact) source).getId());
+					if(linked != null && getRelNames(rlProps).equals(new HashSet<>(links.get(linked)))) {
+						// The reverse link is still valid
+						missing.remove(linked.getId());
+						continue;
+					}
+				}
+				revLink.deleteRevLink(existing);
+				deletedRevLinks++;
+				if(source instanceof Artifact) {
+					getOpposites((Artifact) source).ifPresent(opposites -> conn.removeElementFromCollection(opposites, artifact));
+				}
+			}
+		}
+
+		if(missing.isEmpty()) {
+			return;
+		}
+		DSClass sourceType = new DSClass(conn, artifact.getType(), pkg);
+		for(Artifact target : missing.values()) {
+			Package targetPkg = target.getPackage();
+			DSClass targetType = new DSClass(conn, target.getType(), targetPkg);
+			Collection<String> relNames = links.get(target);
+			if(revLink.createRevLink(sourceType, targetType, new DSInstance(conn, artifact), new DSInstance(conn, target),
+					RevLinkCreation.getReverseLinkPackage(conn, targetPkg), relNames.toArray(new String[relNames.size()]))) {
+				createdRevLinks++;
+			}
+			addOpposite(pkg, target, targetPkg, artifact);
+		}
+	}
+
+	/**
+	 * Removes the reverse links of deleted artifacts from the reverse link packages and the deleted artifacts from the
+	 * "@opposite" collections of the artifacts that they have linked.
+	 */
+	private void removeOrphans(Package pkg, Map<Long, Package> rlPkgs, Set<Long> memberIds) {
+		Map<Long, Package> searched = new LinkedHashMap<>(rlPkgs);
+		// The reverse links of links to the artifacts of the package are stored in the reverse link package of the package
+		conn.getPackageFromName(RevLinkCreation.getReverseLinkPackageName(pkg)).ifPresent(rlPkg -> searched.put(rlPkg.getId(), rlPkg));
+		Map<Long, Boolean> exists = new HashMap<>();
+		LongPredicate alive = id -> memberIds.contains(id) || exists.computeIfAbsent(id, key -> conn.getArtifactById(key).isPresent());
+		LongMultimap deletedBySource = new LongMultimap();
+		for(Package rlPkg : searched.values()) {
+			LongMultimap removed = revLink.removeOrphans(rlPkg, alive);
+			for(long targetId : removed.keys()) {
+				removed.forEach(targetId, sourceId -> {
+					deletedRevLinks++;
+					if(!alive.test(targetId) && alive.test(sourceId)) {
+						deletedBySource.put(sourceId, targetId);
+					}
+				});
+			}
+		}
+		conn.runInBatch(() -> {
+			for(long sourceId : deletedBySource.keys()) {
+				Set<Long> deleted = new HashSet<>();
+				deletedBySource.forEach(sourceId, deleted::add);
+				conn.getArtifactById(sourceId).flatMap(this::getOpposites).ifPresent(opposites -> removeFromOpposites(opposites, deleted));
+			}
+		});
+	}
+
+	private void removeFromOpposites(CollectionArtifact opposites, Set<Long> deleted) {
+		for(Object element : opposites.getElements()) {
+			if(element instanceof Artifact && deleted.contains(((Artifact) element).getId())) {
+				conn.removeElementFromCollection(opposites, element);
+			}
+		}
+	}
+
+	/**
+	 * Records the reverse link packages of the targets of the links.
+	 * @return the targets that have a package
+	 */
+	private List<Artifact> addReverseLinkPackages(Multimap<Artifact, String> links, Map<Long, Package> rlPkgs) {
+		List<Artifact> targets = new ArrayList<>();
+		for(Artifact target : links.keySet()) {
+			Package targetPkg = target.getPackage();
+			if(targetPkg == null) {
+				// Target artifact doesn't have a package. Skip reverse link creation!
+				continue;
+			}
+			Package rlPkg = RevLinkCreation.getReverseLinkPackage(conn, targetPkg);
+			rlPkgs.putIfAbsent(rlPkg.getId(), rlPkg);
+			targets.add(target);
+		}
+		return targets;
+	}
+
+	/**
+	 * Replaces the reverse links of the changed artifacts in the edge lists: the reverse links of all changed artifacts are removed
+	 * from every reverse link package with a single rewrite of the affected chunks, then their current reverse links are appended.
+	 * The "@opposite" collections are only changed for links that have been added or removed.
+	 */
+	private void updateEdges(Package pkg, Map<Long, Package> rlPkgs) {
+		Set<Long> changedIds = new HashSet<>();
+		changedEdges.keySet().forEach(artifact -> changedIds.add(artifact.getId()));
+		LongMultimap removed = new LongMultimap();
+		for(Package rlPkg : rlPkgs.values()) {
+			LongMultimap removedFromPkg = revLink.removeEdges(rlPkg, changedIds);
+			for(long targetId : removedFromPkg.keys()) {
+				removedFromPkg.forEach(targetId, sourceId -> removed.put(targetId, sourceId));
+			}
+		}
+		conn.runInBatch(() -> {
+			for(Map.Entry<Artifact, Multimap<Artifact, String>> change : changedEdges.entrySet()) {
+				Artifact artifact = change.getKey();
+				Set<Long> previous = new HashSet<>();
+				removed.forEach(artifact.getId(), previous::add);
+				Set<Long> current = new HashSet<>();
+				DSClass sourceType = new DSClass(conn, artifact.getType(), pkg);
+				for(Artifact target : addReverseLinkPackages(change.getValue(), rlPkgs)) {
+					Package targetPkg = target.getPackage();
+					Collection<String> relNames = change.getValue().get(target);
+					boolean created = revLink.createRevLink(sourceType, new DSClass(conn, target.getType(), targetPkg), 
+							new DSInstance(conn, artifact), new DSInstance(conn, target), RevLinkCreation.getReverseLinkPackage(conn, targetPkg), 
+							relNames.toArray(new String[relNames.size()]));
+					current.add(target.getId());
+					if(!previous.contains(target.getId())) {
+						if(created) {
+							createdRevLinks++;
+						}
+						addOpposite(pkg, target, targetPkg, artifact);
+					}
+				}
+				for(long sourceId : previous) {
+					if(!current.contains(sourceId)) {
+						deletedRevLinks++;
+						conn.getArtifactById(sourceId).flatMap(this::getOpposites)
+								.ifPresent(opposites -> conn.removeElementFromCollection(opposites, artifact));
+					}
+				}
+			}
+			revLink.flushEdges();
+		});
+	}
+
+	/**
+	 * Adds the artifact to the "@opposite" collection of the target of its link.
+	 */
+	private void addOpposite(Package pkg, Artifact target, Package targetPkg, Artifact artifact) {
+		Optional<CollectionArtifact> opposites = getOpposites(target);
+		if(opposites.isPresent()) {
+			conn.addElementToCollection(opposites.get(), artifact);
+		} else if(targetPkg.getId() == pkg.getId()) {
+			// Opposites are maintained for the artifacts of the analyzed package
+			CollectionArtifact oppositeCollection = conn.createCollectionArtifact(target.getId() + ".opposites",
+					Collections.singletonList(artifact), targetPkg);
+			conn.setPropertyValue(target, RevLinkCreation.OPPOSITE_PROPERTY_KEY, oppositeCollection);
+			createdOpposites.put(target.getId(), oppositeCollection);
+		}
+	}
+
+	/**
+	 * Spreads the bits of an id, so the sum of the mixed ids of the artifacts is a fingerprint of the set of their ids.
+	 */
+	private static long mix(long id) {
+		long z = id * 0x9e3779b97f4a7c15L;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	private static Set<String> getRelNames(Map<String, Object> rlProps) {
+		Set<String> relNames = new LinkedHashSet<>();
+		Object collection = rlProps.get(DSRevLink.REL_NAMES_NAME);
+		if(collection instanceof CollectionArtifact) {
+			((CollectionArtifact) collection).getElements().forEach(relName -> relNames.add(String.valueOf(relName)));
+		}
+		return relNames;
+	}
+
+	private Optional<CollectionArtifact> getOpposites(Artifact artifact) {
+		CollectionArtifact created = createdOpposites.get(artifact.getId());
+		if(created != null) {
+			return Optional.of(created);
+		}
+		Object opposites = artifact.getPropertyValueOrNull(RevLinkCreation.OPPOSITE_PROPERTY_KEY);
+		return opposites instanceof CollectionArtifact
+				? Optional.of((CollectionArtifact) opposites) : Optional.empty();
+	}
+}
@@ -0,0 +1,196 @@
+package at.jku.isse.cloud.revlinks.visualize;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker.State;
+
+/**
+ * Runs the queries of the {@link FxController} on a shared pool of background threads, so the JavaFX application thread
+ * never waits for the Design Space. Every load belongs to a {@link Slot}: starting a new load in a slot cancels the load
+ * that is still running in this slot, and results of cancelled loads are never delivered.
+ * <p>
+ * All methods must be called on the JavaFX application thread; all callbacks are invoked on it.
+ */
+class BackgroundLoader {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BackgroundLoader.class);
+
+	/**
+	 * The number of results that are collected before they are handed to the JavaFX application thread.
+	 */
+	static final int CHUNK_SIZE = 200;
+
+	/**
+	 * The parts of the interface that are filled by loads.
+	 */
+	enum Slot {
+		PACKAGES, PACKAGE, SEARCH_INDEX, LINK_LIST, OUTGOING_LINKS, INCOMING_LINKS
+	}
+
+	/**
+	 * Produces the results of a load one by one.
+	 * @param <T> the type of the results
+	 */
+	interface Producer<T> {
+		/**
+		 * Produces the results and passes each of them to the publisher.
+		 * The publisher throws a {@link CancellationException} once the load has been cancelled.
+		 * @param publish the publisher of the results
+		 * @throws Exception if the results can't be produced
+		 */
+		void produce(Consumer<T> publish) throws Exception;
+	}
+
+	private final ExecutorService executor;
+	private final Consumer<Boolean> busyListener;
+	private final Map<Slot, Task<?>> running = new EnumMap<>(Slot.class);
+	private int activeTasks;
+
+	/**
+	 * Creates a new loader.
+	 * @param threads the number of background threads
+	 * @param busyListener called with true when the first task starts and with false when the last task has finished
+	 */
+	BackgroundLoader(int threads, Consumer<Boolean> busyListener) {
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "Visualizer loader");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.busyListener = busyListener;
+	}
+
+	/**
+	 * Computes a single result in the background.
+	 * @param slot the slot of the load
+	 * @param loader computes the result
+	 * @param onLoaded receives the result, unless the load has been cancelled
+	 */
+	<R> void load(Slot slot, Callable<R> loader, Consumer<R> onLoaded) {
+		Task<R> task = new Task<R>() {
+			@Override
+			protected R call() throws Exception {
+				return loader.call();
+			}
+		};
+		task.setOnSucceeded(e -> onLoaded.accept(task.getValue()));
+		start(slot, task);
+	}
+
+	/**
+	 * Produces results in the background and delivers them in chunks of {@link #CHUNK_SIZE}.
+	 * @param slot the slot of the load
+	 * @param producer produces the results
+	 * @param onChunk receives the chunks, unless the load has been cancelled
+	 * @param onDone called after the last chunk, unless the load has been cancelled
+	 */
+	<T> void stream(Slot slot, Producer<T> producer, Consumer<List<T>> onChunk, Runnable onDone) {
+		Task<Void> task = new Task<Void>() {
+			@Override
+			protected Void call() throws Exception {
+				List<T> buffer = new ArrayList<>(CHUNK_SIZE);
+				producer.produce(item -> {
+					if(isCancelled()) {
+						throw new CancellationException();
+					}
+					buffer.add(item);
+					if(buffer.size() == CHUNK_SIZE) {
+						publish(new ArrayList<>(buffer));
+						buffer.clear();
+					}
+				});
+				if(!buffer.isEmpty()) {
+					publish(buffer);
+				}
+				return null;
+			}
+
+			private void publish(List<T> chunk) {
+				// Chunks are delivered in order and before the task succeeds
+				Platform.runLater(() -> {
+					if(!isCancelled()) {
+						onChunk.accept(chunk);
+					}
+				});
+			}
+		};
+		task.setOnSucceeded(e -> onDone.run());
+		start(slot, task);
+	}
+
+	/**
+	 * Runs work in the background that can't be cancelled, e.g. because it writes to the Design Space.
+	 * @param work the work
+	 * @param onDone called after the work has been done
+	 */
+	void submit(Runnable work, Runnable onDone) {
+		Task<Void> task = new Task<Void>() {
+			@Override
+			protected Void call() {
+				work.run();
+				return null;
+			}
+		};
+		task.setOnSucceeded(e -> onDone.run());
+		start(null, task);
+	}
+
+	/**
+	 * Cancels the loads of the slots.
+	 * @param slots the slots
+	 */
+	void cancel(Slot... slots) {
+		for(Slot slot : slots) {
+			Task<?> task = running.remove(slot);
+			if(task != null) {
+				task.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Cancels the loads of all slots.
+	 */
+	void cancelAll() {
+		cancel(Slot.values());
+	}
+
+	private void start(Slot slot, Task<?> task) {
+		if(slot != null) {
+			cancel(slot);
+			running.put(slot, task);
+		}
+		task.setOnFailed(e -> LOGGER.error("Loading from the Design Space failed!", task.getException()));
+		task.stateProperty().addListener((observable, oldState, state) -> {
+			if(state == State.SUCCEEDED || state == State.FAILED || state == State.CANCELLED) {
+				finished(slot, task);
+			}
+		});
+		if(activeTasks++ == 0) {
+			busyListener.accept(true);
+		}
+		executor.execute(task);
+	}
+
+	private void finished(Slot slot, Task<?> task) {
+		if(slot != null) {
+			running.remove(slot, task);
+		}
+		if(--activeTasks == 0) {
+			busyListener.accept(false);
+		}
+	}
+}
@@ -3,23 +3,31 @@ package at.jku.isse.cloud.revlinks.visualize;
 import static java.util.Objects.requireNonNull;
 
 import java.net.URL;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.ResourceBundle;
-import java.util.function.Predicate;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntPredicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import at.jku.isse.cloud.artifact.DSConnection;
 import at.jku.isse.cloud.artifact.DSRevLink;
 import at.jku.isse.cloud.revlinks.RevLink;
 import at.jku.isse.cloud.revlinks.RevLinkCreation;
+import at.jku.isse.cloud.revlinks.RevLinkTable;
+import at.jku.isse.cloud.revlinks.visualize.BackgroundLoader.Slot;
+import at.jku.isse.cloud.util.MetricsRegistry;
 import at.jku.sea.cloud.Artifact;
 import at.jku.sea.cloud.Package;
-import at.jku.sea.cloud.Property;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -42,8 +50,16 @@ import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.AnchorPane;
 
+/**
+ * Controls the link visualizer. Every UI action that loads from the Design Space is recorded as an action "ui.&ltaction&gt"
+ * in the metrics of the connection, from the user input until the results have been shown. Cancelled actions are not recorded.
+ * @author Gabriel Schoerghuber
+ * @author Dominik Steinbinder
+ */
 public class FxController implements Initializable {
 	
+	private static final Logger LOGGER = LoggerFactory.getLogger(FxController.class);
+	
 	@FXML private AnchorPane packagePane;
 	@FXML private AnchorPane linkPane;
 	@FXML private AnchorPane artifactPane;
@@ -77,13 +93,28 @@ public class FxController implements Initializable {
 	private DSRevLink revLink;
 	private LinkQuery linkQuery;
 	
-	private Collection<Package> packages;
-	private Map<Artifact, List<RevLink>> rlArtifacts;
+	private BackgroundLoader loader;
+	
+	// The packages by their displayed name
+	private Map<String, Package> packagesByName = Collections.emptyMap();
+	private RevLinkTable rlTable = RevLinkTable.empty();
+	private LinkType selectedLinkType;
+	private SearchIndex searchIndex = new SearchIndex();
+	private long searchIndexPkgId = -1;
 	
 	private ObservableList<LinkRow> outgoingRows;
 	private ObservableList<LinkRow> incomingRows;
 	
 	private static final Pattern LINK_PATTERN = Pattern.compile("[^\\n\\r]*\\((\\d*)\\) --> [^\\n\\r]*\\((\\d*)\\)");
+	
+	private static final int LOADER_THREADS = 4;
+	
+	/**
+	 * The state of a selected package, which decides whether its links can be shown or created.
+	 */
+	private enum PackageState {
+		ANALYZED, NOT_ANALYZED, REV_LINK_PACKAGE
+	}
 
 	@Override
 	public void initialize(URL url, ResourceBundle bundle) {
@@ -105,6 +136,7 @@ public class FxController implements Initializable {
 		incomingView.setItems(incomingRows);
 		
 		progressIndicator.setVisible(false);
+		loader = new BackgroundLoader(LOADER_THREADS, progressIndicator::setVisible);
 		
 		Platform.runLater(() -> linkSearchField.requestFocus());
 	}
@@ -119,13 +151,27 @@ public class FxController implements Initializable {
 		this.connection = requireNonNull(conn);
 		this.revLink = connection.getOrCreateReverseLinkClass();
 		
-		this.packages = connection.getPackages();
-		
-		fillPackagesList();
 		setLinkPaneDisable(true);
 		this.artifactPane.setDisable(true);
 		this.radioSource.setSelected(true);
 		this.createLinksButton.setDisable(true);
+		loadPackages();
+	}
+	
+	/**
+	 * Reads the packages and their names in the background, so the package list and the selection don't read from the Design Space.
+	 */
+	private void loadPackages() {
+		loader.load(Slot.PACKAGES, () -> {
+			Map<String, Package> names = new LinkedHashMap<>();
+			for(Package pkg : connection.getPackages()) {
+				names.put(getPropertyName(pkg), pkg);
+			}
+			return names;
+		}, names -> {
+			packagesByName = names;
+			fillPackagesList();
+		});
 	}
 	
 	private void setLinkPaneDisable(boolean disable) {
@@ -139,8 +185,7 @@ public class FxController implements Initializable {
 	
 	private void fillPackagesList() {
 		this.packagesView.getItems().clear();
-		this.packagesView.getItems().addAll(packages.stream()
-				.map(this::getPropertyName)
+		this.packagesView.getItems().addAll(packagesByName.keySet().stream()
 				.filter(name -> name.toLowerCase().contains(this.pkgSearchField.getText().toLowerCase()))
 				.filter(name -> !name.startsWith(RevLinkCreation.RL_PREFIX))
 				.collect(Collectors.toList()));
@@ -158,39 +203,49 @@ public class FxController implements Initializable {
 	/**
 	 * Called when an element in the package ListView gets selected
 	 */
-	public void packageSelectionChanged() {		
+	public void packageSelectionChanged() {
+		// Loads of the previously selected package are obsolete
+		cancelPackageLoads();
 		this.artifactPane.setDisable(true);
 		this.incomingRows.clear();
 		this.outgoingRows.clear();
+		this.createLinksButton.setDisable(true);
+		setLinkPaneDisable(true);
 		
 		Package currentlySelected = getCurrentlySelectedPackage();
 		if(currentlySelected == null) {
-			this.createLinksButton.setDisable(true);
-			setLinkPaneDisable(true);
 			return;
 		}
 		
-		if(reverseLinksExist()) {
-			this.createLinksButton.setDisable(true);
-			enableLinkPane();
-		} else if (linkQuery.getArtifactName(getCurrentlySelectedPackage()).startsWith(RevLinkCreation.RL_PREFIX)) { 
-			// selected package is a reverse link package
-			this.createLinksButton.setDisable(true);
-		} else {
-			this.createLinksButton.setDisable(false);
-			setLinkPaneDisable(true);
-		}
+		MetricsRegistry.Action action = startAction("selectPackage");
+		loader.load(Slot.PACKAGE, () -> getPackageState(currentlySelected), state -> {
+			if(state == PackageState.ANALYZED) {
+				enableLinkPane(currentlySelected, action);
+				return;
+			} else if(state == PackageState.NOT_ANALYZED) {
+				// reverse links can't be created for reverse link packages
+				this.createLinksButton.setDisable(false);
+			}
+			action.end();
+		});
 	}
 	
-	private boolean reverseLinksExist() {
-		Package selectedPkg = getCurrentlySelectedPackage();
-		return revLink.containsPackage(selectedPkg);
+	/**
+	 * Reads the state of the package from the Design Space, must be called in the background.
+	 */
+	private PackageState getPackageState(Package pkg) {
+		if(revLink.containsPackage(pkg)) {
+			return PackageState.ANALYZED;
+		}
+		return linkQuery.getArtifactName(pkg).startsWith(RevLinkCreation.RL_PREFIX) ? PackageState.REV_LINK_PACKAGE : PackageState.NOT_ANALYZED;
 	}
 	
 	/**
 	 * Called when either the reverse links have been created or if a package was selected that had its links already created.
+	 * The reverse links and the link types are loaded in the background.
+	 * @param action the UI action, which ends when the link pane has been filled
 	 */
-	private void enableLinkPane() {		
+	private void enableLinkPane(Package pkg, MetricsRegistry.Action action) {		
 		this.linkTypeButton.getItems().clear();
 		this.linkTypeButton.setText("show all");
 		
@@ -204,138 +259,138 @@ public class FxController implements Initializable {
         });
 		this.linkTypeButton.getItems().add(itemAll);
 		
-		rlArtifacts = linkQuery.getRevLinks(getCurrentlySelectedPackage());
-		for(Entry<Artifact, List<RevLink>> rlArtifactGroup: rlArtifacts.entrySet()) {
-	
-			String sourceTypeName = linkQuery.getName(rlArtifactGroup.getKey().getId());
-			
-			for(RevLink rl : rlArtifactGroup.getValue()) {
-				for(String relation : rl.getRelNames()) {
-					String itemText = relation + ": " + sourceTypeName + " (" + rlArtifactGroup.getKey().getId() + ")" + 
-							" --> " + linkQuery.getName(rl.getTargetType().getId()) + " (" + rl.getTargetType().getId() + ")";
-					if(this.linkTypeButton.getItems().stream().filter(item -> item.getText().equals(itemText)).findAny().isPresent()) {
-						// This link is already in the list
-						continue;
-					}
-					MenuItem item = new MenuItem(itemText);
-					item.setMnemonicParsing(false);
-					item.setOnAction(new EventHandler<ActionEvent>() {
-						public void handle(ActionEvent t) {
-							fillLinkList(item.getText());
-							linkTypeButton.setText(item.getText());
-						}
-					});
-					this.linkTypeButton.getItems().add(item);
-				}
-			}
+		if(pkg.getId() != searchIndexPkgId) {
+			// Indexed artifacts are kept while the package stays selected, e.g. after the reverse links have been created
+			searchIndex = new SearchIndex();
+			searchIndexPkgId = pkg.getId();
 		}
 		
-		fillLinkListNoFilter();
-		setLinkPaneDisable(false);
+		rlTable = RevLinkTable.empty();
+		AtomicReference<RevLinkTable> loaded = new AtomicReference<>();
+		loader.<LinkType>stream(Slot.PACKAGE, publish -> {
+			loaded.set(linkQuery.getRevLinkTable(pkg));
+			linkQuery.getLinkTypes(loaded.get()).forEach(publish);
+		}, chunk -> chunk.forEach(this::addLinkTypeItem), () -> {
+			rlTable = loaded.get();
+			fillLinkListNoFilter();
+			setLinkPaneDisable(false);
+			buildSearchIndex();
+			action.end();
+			saveWarmCache();
+		});
+	}
+	
+	/**
+	 * Writes the names and reverse links that have been read so far to the warm cache of the connection, so they don't have
+	 * to be read again after a restart.
+	 */
+	private void saveWarmCache() {
+		connection.getWarmCache().ifPresent(cache -> loader.submit(cache::save, () -> {}));
+	}
+	
+	private void buildSearchIndex() {
+		SearchIndex index = searchIndex;
+		long[] ids = rlTable.getLinkedIds();
+		loader.load(Slot.SEARCH_INDEX, () -> index.index(ids, connection::getArtifactById), 
+				added -> LOGGER.info("Indexed {} artifacts for the link search", added));
+	}
+	
+	private void addLinkTypeItem(LinkType linkType) {
+		MenuItem item = new MenuItem(linkType.getRelName() + ": " + 
+				linkType.getSourceTypeName() + " (" + linkType.getSourceTypeId() + ") --> " + 
+				linkType.getTargetTypeName() + " (" + linkType.getTargetTypeId() + ") [" + linkType.getCount() + "]");
+		item.setMnemonicParsing(false);
+		item.setOnAction(new EventHandler<ActionEvent>() {
+			public void handle(ActionEvent t) {
+				fillLinkList(linkType);
+				linkTypeButton.setText(item.getText());
+			}
+		});
+		this.linkTypeButton.getItems().add(item);
 	}
 	
 	private void fillLinkList() {
-		if(this.linkTypeButton.getText().equals("show all")) {
+		if(this.selectedLinkType == null) {
 			fillLinkListNoFilter();
 		} else {
-			fillLinkList(this.linkTypeButton.getText());
+			fillLinkList(this.selectedLinkType);
 		}
 	}
 	
 	private void fillLinkListNoFilter() {
-		fillLinkList(s -> true, rl -> true);
+		this.selectedLinkType = null;
+		showLinkList(null);
 	}
 	
-	private void fillLinkList(String linkType) {
-		Matcher m = LINK_PATTERN.matcher(linkType);
-		m.matches();
-		long sourceTypeId = Long.parseLong(m.group(1));
-		long targetTypeId = Long.parseLong(m.group(2));
-		fillLinkList(source -> source.getId() == sourceTypeId, rl -> rl.getTargetType().getId() == targetTypeId);
+	private void fillLinkList(LinkType linkType) {
+		this.selectedLinkType = linkType;
+		showLinkList(linkType);
  	}
 	
-	private void fillLinkList(Predicate<Artifact> sourcePredicate, Predicate<RevLink> linkPredicate) {
+	/**
+	 * Shows the reverse links of the type, or all reverse links if the type is null, that match the search text.
+	 * Only the names of the shown reverse links are read.
+	 */
+	private void showLinkList(LinkType linkType) {
 		this.linkView.getItems().clear();
 		
-		for(Entry<Artifact, List<RevLink>> rlGroup : rlArtifacts.entrySet()) {
-			String sourceTypeName = linkQuery.getName(rlGroup.getKey().getId());
-			if(sourcePredicate.test(rlGroup.getKey())) {
-				rlGroup.getValue().stream()
-						.filter(linkPredicate)
-						.forEach(rl -> addRevLinkToLinkView(rl, sourceTypeName, linkQuery.getName(rl.getTargetType().getId())));
+		RevLinkTable table = rlTable;
+		SearchIndex index = searchIndex;
+		String searchText = this.linkSearchField.getText();
+		MetricsRegistry.Action action = startAction("fillLinkList");
+		loader.<String>stream(Slot.LINK_LIST, publish -> {
+			IntPredicate predicate = row -> linkType == null || linkType.matches(table, row);
+			if(searchText != null && !searchText.isEmpty()) {
+				// Completes the index, if the search was started before the index has been built
+				index.index(table.getLinkedIds(), connection::getArtifactById);
+				Set<Long> matching = index.search(searchText);
+				predicate = predicate.and(row -> matching.contains(table.getSourceId(row)) || matching.contains(table.getTargetId(row)));
 			}
-			
-		}
+			IntPredicate shown = predicate;
+			for(long sourceTypeId : table.getSourceTypeIds()) {
+				if(linkType != null && linkType.getSourceTypeId() != sourceTypeId) {
+					continue;
+				}
+				String sourceTypeName = linkQuery.getName(sourceTypeId);
+				for(int row : table.rows(row -> table.getSourceTypeId(row) == sourceTypeId && shown.test(row))) {
+					publish.accept(getRevLinkText(table, row, sourceTypeName, linkQuery.getName(table.getTargetTypeId(row))));
+				}
+			}
+		}, chunk -> this.linkView.getItems().addAll(chunk), action::end);
 	}
 	
-	private void addRevLinkToLinkView(RevLink rl, String sourceTypeName, String targetTypeName) {
-		if(!matchesSearchText(rl)) {
-			return;
-		}
-		this.linkView.getItems().add(sourceTypeName + ": " + 
-				linkQuery.getArtifactName(rl.getSource()) + 
-				" ("+rl.getSource().getId() + ") --> " +
+	private String getRevLinkText(RevLinkTable table, int row, String sourceTypeName, String targetTypeName) {
+		return sourceTypeName + ": " + 
+				linkQuery.getName(table.getSourceId(row)) + 
+				" ("+table.getSourceId(row) + ") --> " +
 				targetTypeName + ": " +
-				linkQuery.getArtifactName(rl.getTarget()) +
-				" ("+rl.getTarget().getId() + ")");
+				linkQuery.getName(table.getTargetId(row)) +
+				" ("+table.getTargetId(row) + ")";
 	}
 	
-	private boolean matchesSearchText(RevLink rl) {
-		return hasAttributeMatching(rl.getSource(), this.linkSearchField.getText()) || 
-				hasAttributeMatching(rl.getTarget(), this.linkSearchField.getText());
-	}
-
-	private boolean hasAttributeMatching(Artifact target, String text) {
-		if(text == null || text.equals("")) {
-			return true;
-		}
-		text = text.toLowerCase();
-		boolean isNumber = text.matches("\\d+");
-		if(isNumber && target.getId() == Integer.parseInt(text)) {
-			return true;
-		}
-		for(Property property : target.getAliveProperties()) {
-			Object value = property.getValue();
-			if(value instanceof String) {
-				if(((String)value).toLowerCase().contains(text)) {
-					return true;
-				}
-			}
-			if(isNumber) {
-				if(value instanceof Number) {
-					if(text.equals(String.valueOf(value))) {
-						return true;
-					}
-				}
-			}
-		}
-		return false;
-	}
-
 	/**
 	 * Called when the according button was clicked.
 	 */
 	public void createRevLinks() {
-		this.createLinksButton.setDisable(true);
-		this.progressIndicator.setVisible(true);
-		progressIndicator.setDisable(false);
-
+		String selectedName = this.packagesView.getSelectionModel().getSelectedItem();
 		Package selectedPkg = getCurrentlySelectedPackage();
 		if(selectedPkg == null) {
 			return;
 		}
-		new Thread(() -> {
+		this.createLinksButton.setDisable(true);
+		cancelPackageLoads();
+		
+		MetricsRegistry.Action action = startAction("createRevLinks");
+		// The creation writes to the Design Space and is therefore not cancelled by a new selection
+		loader.submit(() -> {
 			RevLinkCreation.createRevLinksAndSetOpposites(this.connection, selectedPkg, this.revLink);
 			connection.tryCommit("");
+		}, () -> {
+			this.packagesView.getSelectionModel().select(selectedName);
 			
-			Platform.runLater(() -> {
-				progressIndicator.setVisible(false);
-				this.packagesView.getSelectionModel().select(getPropertyName(selectedPkg));
-				
-				enableLinkPane();
-				this.linkSearchField.requestFocus();
-			});
-		}).start();
+			enableLinkPane(selectedPkg, action);
+			this.linkSearchField.requestFocus();
+		});
 	}
 	
 	/**
@@ -396,17 +451,40 @@ public class FxController implements Initializable {
 		outgoingRows.clear();
 		incomingRows.clear();
 		
-		List<Entry<String, Object>> links = linkQuery.visualizeLinks(id);
-		for(Entry<String, Object> link : links) {
-			outgoingRows.add(new LinkRow("this (id=" + id + ")", getPropertyName((Artifact)link.getValue()), link.getKey(), ""));
-		}
+		// The action ends when both the outgoing and the incoming links have been shown
+		MetricsRegistry.Action action = startAction("fillLinks");
+		int[] pendingLoads = {2};
+		Runnable loadDone = () -> {
+			if(--pendingLoads[0] == 0) {
+				action.end();
+			}
+		};
+		loader.<LinkRow>stream(Slot.OUTGOING_LINKS, publish -> {
+			List<Entry<String, Object>> links = linkQuery.visualizeLinks(id);
+			for(Entry<String, Object> link : links) {
+				publish.accept(new LinkRow("this (id=" + id + ")", getPropertyName((Artifact)link.getValue()), link.getKey(), ""));
+			}
+		}, outgoingRows::addAll, loadDone);
 		
-		List<RevLink> revLinks = linkQuery.visualizeRevLinks(id);
-		for(RevLink link : revLinks) {
-			for(String relName : link.getRelNames()) {
-				incomingRows.add(new LinkRow(getPropertyName(link.getTarget()) + " - " + getPropertyName(link.getTargetType()), "this (id=" + id + ")", relName, "id=" + link.getId()));
+		loader.<LinkRow>stream(Slot.INCOMING_LINKS, publish -> {
+			List<RevLink> revLinks = linkQuery.visualizeRevLinks(id);
+			for(RevLink link : revLinks) {
+				for(String relName : link.getRelNames()) {
+					publish.accept(new LinkRow(getPropertyName(link.getTarget()) + " - " + getPropertyName(link.getTargetType()), "this (id=" + id + ")", relName, "id=" + link.getId()));
+				}
 			}
-		}
+		}, incomingRows::addAll, loadDone);
+	}
+	
+	/**
+	 * Cancels the loads for the selected package. The list of packages keeps loading, as it doesn't depend on the selection.
+	 */
+	private void cancelPackageLoads() {
+		loader.cancel(Slot.PACKAGE, Slot.SEARCH_INDEX, Slot.LINK_LIST, Slot.OUTGOING_LINKS, Slot.INCOMING_LINKS);
+	}
+	
+	private MetricsRegistry.Action startAction(String name) {
+		return connection.getMetrics().startAction("ui." + name);
 	}
 	
 	private Package getCurrentlySelectedPackage() {
@@ -415,10 +493,11 @@ public class FxController implements Initializable {
 		if(pkgName == null || pkgName.equals("")) {
 			return null;
 		}
-		return this.packages.stream()
-				.filter(p -> pkgName.equals(getPropertyName(p)))
-				.findAny()
-				.orElseThrow(() -> new IllegalStateException("Selected a package that doesn't exist!"));
+		Package pkg = this.packagesByName.get(pkgName);
+		if(pkg == null) {
+			throw new IllegalStateException("Selected a package that doesn't exist!");
+		}
+		return pkg;
 	}
 
 	private String getPropertyName(Artifact link) {		
@@ -5,6 +5,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.web.client.ResourceAccessException;
 
 import at.jku.isse.cloud.artifact.DSConnection;
+import at.jku.isse.cloud.artifact.RestDSProvider;
+import at.jku.isse.cloud.artifact.WarmCache;
+import at.jku.isse.cloud.util.MetricsRegistry;
 import at.jku.sea.cloud.exceptions.ToolDoesNotExistException;
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -24,6 +27,10 @@ public class FxVisualizer extends Application {
 
 	private static String[] arguments;
 	
+	private DSConnection conn;
+	private WarmCache warmCache;
+	private LinkQuery linkQuery;
+	
     public static void main(String[] args) {
     	arguments = args;
         launch(args);
@@ -31,13 +38,16 @@ public class FxVisualizer extends Application {
     
 	@Override
     public void start(Stage primaryStage) {		
-		DSConnection conn = createConnection();
+		conn = createConnection();
 		if(conn == null) {
 			Platform.exit();
 			return;
 		}
+		if(conn.getMetrics().startReporting(LOGGER::info)) {
+			LOGGER.info("Reporting the metrics every {} seconds", System.getProperty(MetricsRegistry.REPORT_INTERVAL_PROPERTY));
+		}
 		
-		LinkQuery linkQuery = new LinkQuery(conn);
+		linkQuery = new LinkQuery(conn);
 		try {
 			FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("JFxVisualizer.fxml"));
             Parent root = (Parent)fxmlLoader.load();
@@ -54,12 +64,45 @@ public class FxVisualizer extends Application {
         }
     }
 	
+	@Override
+	public void stop() {
+		if(linkQuery != null) {
+			linkQuery.close();
+		}
+		if(conn != null) {
+			conn.getMetrics().stopReporting();
+			LOGGER.info("Metrics: {}", conn.getMetrics().toJson());
+		}
+		if(warmCache != null) {
+			try {
+				warmCache.save();
+			} catch(RuntimeException e) {
+				LOGGER.warn("Failed to save the warm cache to {}", warmCache.getDirectory(), e);
+			}
+		}
+	}
+	
+	/**
+	 * Opens the warm cache of the workspace. Without a cache, the visualizer still works, but reads everything from the server.
+	 */
+	private void openWarmCache(String user, String workspace) {
+		try {
+			warmCache = WarmCache.open(user + "@" + workspace);
+			LOGGER.info("Using the warm cache in {}", warmCache.getDirectory());
+		} catch(RuntimeException e) {
+			LOGGER.warn("Failed to open the warm cache, starting without it", e);
+			warmCache = null;
+		}
+	}
+	
 	private DSConnection createConnection() {
 		if(arguments != null && arguments.length > 0) {
 			if(arguments.length == 4) {
 				try {
 					LOGGER.info("Using provided credentials: user=" + arguments[0] + ",tool id=" + arguments[2] + ",workspace=" + arguments[3]);
-					return new DSConnection(arguments[0], arguments[1], Integer.parseInt(arguments[2]), arguments[3]);
+					int toolId = Integer.parseInt(arguments[2]);
+					openWarmCache(arguments[0], arguments[3]);
+					return new DSConnection(new RestDSProvider(arguments[0], arguments[1], toolId, arguments[3]), warmCache);
 				} catch(ResourceAccessException e) {
 					LOGGER.error("Failed to connect to DesignSpace Server!", e);
 				} catch(ToolDoesNotExistException e) {
@@ -74,7 +117,8 @@ public class FxVisualizer extends Application {
 		} else {
 			LOGGER.info("No arguments passed. Using default credentials: user=" + DEFAULT_USER + ",workspace=" + DEFAULT_WORKSPACE);
 			try {
-				return new DSConnection(DEFAULT_USER, DEFAULT_PASSWORD, DEFAULT_WORKSPACE);
+				openWarmCache(DEFAULT_USER, DEFAULT_WORKSPACE);
+				return new DSConnection(new RestDSProvider(DEFAULT_USER, DEFAULT_PASSWORD, DEFAULT_WORKSPACE), warmCache);
 			} catch(ResourceAccessException e) {
 				LOGGER.error("Failed to connect to DesignSpace Server!", e);
 			}
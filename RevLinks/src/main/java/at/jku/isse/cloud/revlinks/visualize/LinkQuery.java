@@ -2,44 +2,159 @@ package at.jku.isse.cloud.revlinks.visualize;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiPredicate;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import at.jku.isse.cloud.artifact.DSClass;
 import at.jku.isse.cloud.artifact.DSConnection;
+import at.jku.isse.cloud.artifact.DSEdgeList;
 import at.jku.isse.cloud.artifact.DSRevLink;
+import at.jku.isse.cloud.artifact.WarmCache;
+import at.jku.isse.cloud.revlinks.LinkIndex;
+import at.jku.isse.cloud.revlinks.RelNameSets;
 import at.jku.isse.cloud.revlinks.RevLink;
 import at.jku.isse.cloud.revlinks.RevLinkCreation;
+import at.jku.isse.cloud.revlinks.RevLinkTable;
+import at.jku.isse.cloud.util.BoundedCache;
+import at.jku.isse.cloud.util.LongMultimap;
+import at.jku.isse.cloud.util.MetricsRegistry;
 import at.jku.sea.cloud.Artifact;
+import at.jku.sea.cloud.CollectionArtifact;
 import at.jku.sea.cloud.Package;
 import at.jku.sea.cloud.mmm.MMMTypeProperties;
-import at.jku.sea.cloud.navigator.NavigatorProvider;
-import at.jku.sea.cloud.rest.client.RestCloud;
 
 /**
  * This class contains the functionality to retrieve links and reverse links for a given source artifact. 
- * The reverse links of a specific package can be retrieved and grouped by the type of the source artifacts of the reverse links.
+ * The reverse links of a specific package can be retrieved and grouped by the type of the source artifacts of the reverse links,
+ * or, for large packages, as a compact {@link RevLinkTable}, which only keeps the ids of the linked artifacts. Both the reverse link
+ * instances and the edge lists of a package (see {@link DSEdgeList}) are read.
+ * The calls to the Design Space are recorded as operations "LinkQuery.&ltcall&gt" and the public queries as actions in the 
+ * metrics of the connection. If the connection has a {@link WarmCache}, then names and reverse link tables are taken from it
+ * and only the reverse links that have been created since the cache was saved are read.
+ * Links can also be followed over multiple hops with {@link #traverse(Traversal)}, and queried by any combination of source,
+ * relation name and target with a {@link LinkIndex} (see {@link #getLinkIndex(Package...)}).
+ * <p>
+ * A LinkQuery reads with a pool of prefetch threads and listens to the commits of its connection, so it must be closed when
+ * it's no longer needed.
  * @author Gabriel Schoerghuber
  * @author Dominik Steinbinder
  */
-public class LinkQuery {
+public class LinkQuery implements AutoCloseable {
+	
+	private static final int DEFAULT_CACHE_SIZE = 50_000;
+	private static final int PREFETCH_CHUNK_SIZE = 256;
+	private static final int PREFETCH_THREADS = 8;
+	private static final int TABLE_CACHE_SIZE = 16;
 	
 	private final DSConnection conn;
 	private final DSClass revLinkModel;
-	private final NavigatorProvider navigatorProvider;
+	private final MetricsRegistry metrics;
+	private final ExecutorService prefetchExecutor;
+	private final Runnable commitListener = this::invalidateCaches;
+	
+	private final BoundedCache<Long, String> nameCache;
+	private final BoundedCache<Long, Artifact> typeCache;
+	private final BoundedCache<Long, RevLink> revLinkCache;
+	private final BoundedCache<Long, RevLinkTable> tableCache;
+	private final BoundedCache<Long, Integer> relNameSetCache;
+	private final BoundedCache<Long, Package> packageCache;
+	private final BoundedCache<Long, Adjacency> adjacencyCache;
+	private final BoundedCache<List<Long>, LinkIndex> linkIndexCache;
+	
+	private final RelNameSets relNameSets = new RelNameSets();
+	private final WarmCache warmCache;
 
 	/**
-	 * Creates a LinkQuery object for the given Design Space connection.
+	 * Creates a LinkQuery object for the given Design Space connection. Each cache holds up to 50000 entries, which don't expire.
 	 * @param conn the Design Space connection
 	 */
 	public LinkQuery(DSConnection conn) {
+		this(conn, DEFAULT_CACHE_SIZE, 0);
+	}
+	
+	/**
+	 * Creates a LinkQuery object for the given Design Space connection. The names and types of artifacts as well as the 
+	 * resolved properties of reverse links are cached by artifact id. The tables of the 16 most recently read reverse link packages
+	 * are cached by package id. The caches are invalidated after each commit of the connection. The collection artifacts with
+	 * the names of the links of reverse links are never modified, so their contents stay cached by collection id across commits, 
+	 * and a collection that is shared by many reverse links is read once.
+	 * @param conn the Design Space connection
+	 * @param cacheSize the maximum number of entries of each cache
+	 * @param cacheTtlMillis the time in milliseconds after which a cached entry expires, or 0 if entries don't expire
+	 */
+	public LinkQuery(DSConnection conn, int cacheSize, long cacheTtlMillis) {
 		this.conn = requireNonNull(conn);
 		this.revLinkModel = conn.getOrCreateReverseLinkClass();
-		navigatorProvider = RestCloud.getInstance().queryFactory().navigatorProvider();
+		this.metrics = conn.getMetrics();
+		this.warmCache = conn.getWarmCache().orElse(null);
+		prefetchExecutor = Executors.newFixedThreadPool(PREFETCH_THREADS, runnable -> {
+			Thread thread = new Thread(runnable, "LinkQuery prefetch");
+			thread.setDaemon(true);
+			return thread;
+		});
+		nameCache = new BoundedCache<>("names", cacheSize, cacheTtlMillis);
+		typeCache = new BoundedCache<>("types", cacheSize, cacheTtlMillis);
+		revLinkCache = new BoundedCache<>("revLinks", cacheSize, cacheTtlMillis);
+		tableCache = new BoundedCache<>("revLinkTables", TABLE_CACHE_SIZE, cacheTtlMillis);
+		relNameSetCache = new BoundedCache<>("relNameSets", cacheSize, 0);
+		packageCache = new BoundedCache<>("packages", cacheSize, cacheTtlMillis);
+		adjacencyCache = new BoundedCache<>("adjacencies", TABLE_CACHE_SIZE, cacheTtlMillis);
+		linkIndexCache = new BoundedCache<>("linkIndexes", TABLE_CACHE_SIZE, cacheTtlMillis);
+		conn.addCommitListener(commitListener);
+	}
+	
+	/**
+	 * Stops the prefetch threads and no longer invalidates the caches after a commit of the connection. The queries of this
+	 * LinkQuery must not be used afterwards.
+	 */
+	@Override
+	public void close() {
+		conn.removeCommitListener(commitListener);
+		prefetchExecutor.shutdown();
+	}
+	
+	/**
+	 * Removes all cached names, types, packages, reverse links and reverse link tables.
+	 */
+	public void invalidateCaches() {
+		nameCache.invalidateAll();
+		typeCache.invalidateAll();
+		revLinkCache.invalidateAll();
+		tableCache.invalidateAll();
+		packageCache.invalidateAll();
+		adjacencyCache.invalidateAll();
+		linkIndexCache.invalidateAll();
+	}
+	
+	/**
+	 * Returns the caches of this query, which provide hit, miss and eviction counters.
+	 * @return the caches
+	 */
+	public List<BoundedCache<?, ?>> getCaches() {
+		return Arrays.asList(nameCache, typeCache, revLinkCache, tableCache, relNameSetCache, packageCache, adjacencyCache,
+				linkIndexCache);
 	}
 	
 	/**
@@ -50,8 +165,14 @@ public class LinkQuery {
 	 * otherwise "Artifact does not exist" is returned.
 	 */
 	public String getName(long id) {
-		Optional<Artifact> artifact = conn.getArtifactById(id);
-		return artifact.map(this::getArtifactName).orElse("Artifact does not exist");
+		return nameCache.get(id, key -> {
+			Optional<String> warmName = warmCache == null ? Optional.empty() : warmCache.getName(key);
+			if(warmName.isPresent()) {
+				return warmName.get();
+			}
+			Optional<Artifact> artifact = conn.getArtifactById(key);
+			return artifact.map(this::loadArtifactName).orElse("Artifact does not exist");
+		});
 	}
 	
 	/**
@@ -62,13 +183,27 @@ public class LinkQuery {
 	 * @return the name of the artifact, or "&ltUnknown&gt", if it doesn't have a name property
 	 */
 	public String getArtifactName(Artifact artifact) {
+		return nameCache.get(artifact.getId(), id -> {
+			Optional<String> warmName = warmCache == null ? Optional.empty() : warmCache.getName(id);
+			return warmName.orElseGet(() -> loadArtifactName(artifact));
+		});
+	}
+	
+	private String loadArtifactName(Artifact artifact) {
+		long start = System.nanoTime();
 		Object name = artifact.getPropertyValueOrNull(MMMTypeProperties.NAME);
+		int roundTrips = 1;
 		if(name == null) {
 			name = artifact.getPropertyValueOrNull("name");
+			roundTrips++;
 			if(name == null) {
 				name = "<Unknown>";
 			}
 		}
+		metrics.record("LinkQuery.loadName", System.nanoTime() - start, roundTrips);
+		if(warmCache != null) {
+			warmCache.putName(artifact.getId(), name.toString());
+		}
 		return name.toString();
 	}
 	
@@ -78,8 +213,10 @@ public class LinkQuery {
 	 * @return a list of links
 	 */
 	public List<Map.Entry<String, Object>> visualizeLinks(long id) {
-		Optional<Artifact> artifact = conn.getArtifactById(id);
-		return artifact.map(this::visualizeLinks).orElse(Collections.emptyList());
+		return metrics.timeAction("LinkQuery.visualizeLinks", () -> {
+			Optional<Artifact> artifact = conn.getArtifactById(id);
+			return artifact.map(this::visualizeLinks).orElse(Collections.emptyList());
+		});
 	}
 	
 	/**
@@ -88,25 +225,25 @@ public class LinkQuery {
 	 * @return a list of reverse links
 	 */
 	public List<RevLink> visualizeRevLinks(long id) {
-		Optional<Artifact> artifact = conn.getArtifactById(id);
-		return artifact.map(this::visualizeRevLinks).orElse(Collections.emptyList());
+		return metrics.timeAction("LinkQuery.visualizeRevLinks", () -> {
+			Optional<Artifact> artifact = conn.getArtifactById(id);
+			return artifact.map(this::visualizeRevLinks).orElse(Collections.emptyList());
+		});
 	}
 	
 	private List<Map.Entry<String, Object>> visualizeLinks(Artifact artifact) {
-		return artifact.getAlivePropertiesMap().entrySet().stream()
+		return metrics.time("LinkQuery.readProperties", artifact::getAlivePropertiesMap).entrySet().stream()
 				.filter(e -> e.getValue() instanceof Artifact)
 				.collect(Collectors.toList());
 	}
 	
 	private List<RevLink> visualizeRevLinks(Artifact artifact) {		
-		Artifact sourceType = artifact.getType();
-		Package rlPkg = RevLinkCreation.getReverseLinkPackage(conn, artifact.getPackage());
+		Artifact sourceType = typeCache.get(artifact.getId(), id -> metrics.time("LinkQuery.loadType", artifact::getType));
+		Package rlPkg = RevLinkCreation.getReverseLinkPackage(conn, metrics.time("LinkQuery.loadPackage", artifact::getPackage));
 		Collection<Artifact> revLinks = conn.getArtifactsOfType(revLinkModel, rlPkg);
-		return revLinks.stream()
-				.filter(revLink -> getSourceTypeIdOrZero(revLink) == sourceType.getId())
-				.filter(revLink -> getSourceIdOrZero(revLink) == artifact.getId())
-				.map(revLink -> new RevLink(revLink.getId(), getSource(revLink), getTarget(revLink), getSourceType(revLink), getTargetType(revLink), getRelNames(revLink)))
-				.collect(Collectors.toList());
+		List<RevLink> result = prefetchRevLinks(revLinks, (source, type) -> type.getId() == sourceType.getId() && source.getId() == artifact.getId());
+		result.addAll(resolveEdges(rlPkg, sourceId -> sourceId == artifact.getId()));
+		return result;
 	}
 	
 	/**
@@ -115,53 +252,526 @@ public class LinkQuery {
 	 * @return the reverse links, grouped by the type of the source artifacts
 	 */
 	public Map<Artifact, List<RevLink>> getRevLinks(Package pkg) {	
+		return metrics.timeAction("LinkQuery.getRevLinks", () -> {
+			Package rlPkg = RevLinkCreation.getReverseLinkPackage(conn, pkg);
+			Collection<Artifact> rlArtifacts = conn.getArtifactsOfType(revLinkModel, rlPkg);
+			List<RevLink> revLinks = prefetchRevLinks(rlArtifacts, (source, sourceType) -> true);
+			revLinks.addAll(resolveEdges(rlPkg, sourceId -> true));
+			return revLinks.stream().collect(Collectors.groupingBy(RevLink::getSourceType));
+		});
+	}
+	
+	/**
+	 * Returns the reverse links of the artifacts of a given package as a compact table. Unlike {@link #getRevLinks(Package)},
+	 * the table doesn't keep any artifacts, only their ids, so it also fits packages with hundreds of thousands of reverse links.
+	 * The artifacts of a row can be resolved with {@link #resolve(RevLinkTable, int)} when the row is shown.
+	 * @param pkg the given package
+	 * @return the reverse links of the package
+	 */
+	public RevLinkTable getRevLinkTable(Package pkg) {
+		return metrics.timeAction("LinkQuery.getRevLinkTable", () -> readRevLinkTable(RevLinkCreation.getReverseLinkPackage(conn, pkg)));
+	}
+	
+	/**
+	 * Returns an index of the links to the artifacts of the given packages, which answers the link query patterns of
+	 * {@link LinkIndex} in logarithmic time. The index is built from the {@link #getRevLinkTable(Package) tables} of the packages and
+	 * cached for the combination of packages like the tables. Links between packages are found in the package of the linked artifact,
+	 * so the packages of all linked artifacts must be given to find all links of a source.
+	 * @param pkgs the packages of the linked artifacts
+	 * @return the index
+	 */
+	public LinkIndex getLinkIndex(Package... pkgs) {
+		return metrics.timeAction("LinkQuery.getLinkIndex", () -> {
+			Map<Long, Package> rlPkgs = new TreeMap<>();
+			for(Package pkg : pkgs) {
+				Package rlPkg = RevLinkCreation.getReverseLinkPackage(conn, pkg);
+				rlPkgs.put(rlPkg.getId(), rlPkg);
+			}
+			return linkIndexCache.get(new ArrayList<>(rlPkgs.keySet()), 
+					ids -> LinkIndex.of(rlPkgs.values().stream().map(this::readRevLinkTable).toArray(RevLinkTable[]::new)));
+		});
+	}
+	
+	private RevLinkTable readRevLinkTable(Package rlPkg) {
+		return tableCache.get(rlPkg.getId(), id -> RevLinkTable.builder(relNameSets)
+				.addAll(loadRevLinkTable(id, conn.getArtifactsOfType(revLinkModel, rlPkg)))
+				.addAll(readEdgeTable(rlPkg))
+				.build());
+	}
+	
+	/**
+	 * Reads the chunks of the edge lists of the reverse link package (see {@link DSEdgeList}) into a table. Every chunk is read
+	 * with a single round trip and the names of the links once per distinct set.
+	 */
+	private RevLinkTable readEdgeTable(Package rlPkg) {
+		RevLinkTable.Builder rows = RevLinkTable.builder(relNameSets);
+		Map<Long, Integer> relNameSetsByCollection = new HashMap<>();
+		for(DSEdgeList chunk : DSEdgeList.read(conn, rlPkg)) {
+			for(int row = 0; row < chunk.size(); row++) {
+				long relNamesId = chunk.getRelNamesId(row);
+				int relNameSetId = getRelNameSetId(relNamesId, () -> conn.getArtifactById(relNamesId)
+						.filter(artifact -> artifact instanceof CollectionArtifact)
+						.map(artifact -> (CollectionArtifact) artifact), relNameSetsByCollection);
+				rows.add(chunk.getRowId(row), chunk.getSourceId(row), chunk.getTargetId(row), chunk.getSourceTypeId(row), 
+						chunk.getTargetTypeId(row), relNameSetId);
+			}
+		}
+		return rows.build();
+	}
+	
+	/**
+	 * Resolves the reverse links of the edge lists of the reverse link package whose sources match the filter.
+	 * Every distinct artifact is resolved once and the resolved reverse links are cached by the ids of their rows.
+	 */
+	private List<RevLink> resolveEdges(Package rlPkg, LongPredicate sourceFilter) {
+		RevLinkTable edges = readEdgeTable(rlPkg);
+		Map<Long, Optional<Artifact>> artifacts = new HashMap<>();
+		LongFunction<Artifact> resolver = id -> artifacts.computeIfAbsent(id, conn::getArtifactById).orElseThrow(IllegalStateException::new);
+		List<RevLink> revLinks = new ArrayList<>();
+		for(int row : edges.rows(row -> sourceFilter.test(edges.getSourceId(row)))) {
+			RevLink revLink = revLinkCache.get(edges.getId(row), id -> {
+				try {
+					return edges.toRevLink(row, resolver);
+				} catch(IllegalStateException e) {
+					System.err.println("Edge with missing artifacts found! Please review edge " + id);
+					return null;
+				}
+			});
+			if(revLink != null) {
+				revLinks.add(revLink);
+			}
+		}
+		return revLinks;
+	}
+	
+	/**
+	 * Reads the reverse links of a package, starting with the table of the warm cache. Reverse links are never modified,
+	 * only deleted and created again, so a cached row is valid as long as its reverse link artifact still exists. Only the
+	 * reverse link artifacts that are not in the cached table are read.
+	 */
+	private RevLinkTable loadRevLinkTable(long rlPkgId, Collection<Artifact> rlArtifacts) {
+		Optional<RevLinkTable> cached = warmCache == null ? Optional.empty() : warmCache.getTable(rlPkgId);
+		if(!cached.isPresent()) {
+			RevLinkTable table = prefetchRevLinkTable(rlArtifacts);
+			if(warmCache != null) {
+				warmCache.putTable(rlPkgId, table);
+			}
+			return table;
+		}
+		RevLinkTable stored = cached.get();
+		Set<Long> currentIds = new HashSet<>();
+		rlArtifacts.forEach(revLink -> currentIds.add(revLink.getId()));
+		Set<Long> storedIds = new HashSet<>();
+		RevLinkTable.Builder table = RevLinkTable.builder(relNameSets).addAll(stored, row -> {
+			long id = stored.getId(row);
+			return currentIds.contains(id) && storedIds.add(id);
+		});
+		List<Artifact> created = rlArtifacts.stream()
+				.filter(revLink -> !storedIds.contains(revLink.getId()))
+				.collect(Collectors.toList());
+		RevLinkTable result = table.addAll(prefetchRevLinkTable(created)).build();
+		metrics.add("LinkQuery.warmRows", storedIds.size());
+		metrics.add("LinkQuery.readRows", created.size());
+		if(created.size() > 0 || storedIds.size() < stored.size()) {
+			warmCache.putTable(rlPkgId, result);
+		}
+		return result;
+	}
+	
+	/**
+	 * Resolves the artifacts of a row of the table. Every artifact is read from the Design Space, so only the rows that
+	 * are shown should be resolved. The artifacts are independent, so they are read concurrently.
+	 * @param table the reverse links
+	 * @param row the row of the reverse link
+	 * @return the reverse link, or null if one of its artifacts doesn't exist anymore
+	 */
+	public RevLink resolve(RevLinkTable table, int row) {
+		Map<Long, CompletableFuture<Optional<Artifact>>> artifacts = new HashMap<>();
+		for(long id : new long[] {table.getSourceId(row), table.getTargetId(row), table.getSourceTypeId(row), table.getTargetTypeId(row)}) {
+			artifacts.computeIfAbsent(id, conn::getArtifactByIdAsync);
+		}
+		DSConnection.joinAll(artifacts.values());
+		try {
+			return table.toRevLink(row, id -> artifacts.get(id).join().orElseThrow(IllegalStateException::new));
+		} catch(IllegalStateException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Follows the links from a start artifact over multiple hops in breadth-first order, so every artifact is reached on a
+	 * shortest path. Incoming links are looked up in an adjacency index of the reverse links of a package, which is built from
+	 * its {@link #getRevLinkTable(Package) table} once and cached like the table; outgoing links are read from the properties of
+	 * the artifacts. The artifacts of a level are read in parallel on the prefetch threads, then the reverse link packages
+	 * that the level reaches are loaded, each once, and the level is expanded in memory.
+	 * @param traversal the start artifact, direction, relation names and limits of the traversal
+	 * @return the visited artifacts
+	 */
+	public TraversalResult traverse(Traversal traversal) {
+		return metrics.timeAction("LinkQuery.traverse", () -> breadthFirst(traversal));
+	}
+	
+	private TraversalResult breadthFirst(Traversal traversal) {
+		TraversalResult result = new TraversalResult();
+		result.add(new TraversalResult.Hop(traversal.getStartId(), traversal.getStartId(), 0, null, new String[0]));
+		List<Long> frontier = Collections.singletonList(traversal.getStartId());
+		for(int depth = 1; depth <= traversal.getMaxDepth() && !frontier.isEmpty() && !result.isTruncated(); depth++) {
+			List<Node> nodes = readNodes(frontier, traversal);
+			Map<Long, Adjacency> adjacencies = new HashMap<>();
+			if(traversal.follows(Traversal.Direction.INCOMING)) {
+				for(Node node : nodes) {
+					if(node.pkg != null) {
+						adjacencies.computeIfAbsent(node.pkg.getId(), id -> getAdjacency(node.pkg));
+					}
+				}
+			}
+			List<Long> next = new ArrayList<>();
+			for(Node node : nodes) {
+				List<TraversalResult.Hop> hops = new ArrayList<>();
+				if(node.pkg != null) {
+					addIncoming(hops, node, adjacencies.get(node.pkg.getId()), depth, traversal);
+				}
+				addOutgoing(hops, node, depth, traversal);
+				for(TraversalResult.Hop hop : hops) {
+					if(result.contains(hop.getId())) {
+						continue;
+					}
+					if(result.size() >= traversal.getMaxVisited()) {
+						result.truncate();
+						break;
+					}
+					result.add(hop);
+					next.add(hop.getId());
+				}
+				if(result.isTruncated()) {
+					break;
+				}
+			}
+			frontier = next;
+		}
+		metrics.add("LinkQuery.traversal.visited", result.size());
+		return result;
+	}
+	
+	/**
+	 * Reads the artifacts of the frontier in chunks on the prefetch threads: their packages, if incoming links are followed,
+	 * and their properties, if outgoing links are followed. Artifacts that don't exist anymore are skipped.
+	 */
+	private List<Node> readNodes(List<Long> frontier, Traversal traversal) {
+		boolean incoming = traversal.follows(Traversal.Direction.INCOMING);
+		boolean outgoing = traversal.follows(Traversal.Direction.OUTGOING);
+		int chunkSize = Math.max(1, Math.min(PREFETCH_CHUNK_SIZE, (frontier.size() + PREFETCH_THREADS - 1) / PREFETCH_THREADS));
+		List<Future<List<Node>>> chunks = new ArrayList<>();
+		for(int from = 0; from < frontier.size(); from += chunkSize) {
+			List<Long> chunk = frontier.subList(from, Math.min(from + chunkSize, frontier.size()));
+			chunks.add(prefetchExecutor.submit(() -> {
+				List<Node> nodes = new ArrayList<>(chunk.size());
+				for(long id : chunk) {
+					Optional<Artifact> artifact = metrics.time("LinkQuery.loadArtifact", () -> conn.getArtifactById(id));
+					if(!artifact.isPresent()) {
+						continue;
+					}
+					Package pkg = incoming ? packageCache.get(id, key -> metrics.time("LinkQuery.loadPackage", artifact.get()::getPackage)) : null;
+					Map<String, Object> props = outgoing ? metrics.time("LinkQuery.readProperties", artifact.get()::getAlivePropertiesMap)
+							: Collections.emptyMap();
+					nodes.add(new Node(id, pkg, props));
+				}
+				return nodes;
+			}));
+		}
+		List<Node> nodes = new ArrayList<>(frontier.size());
+		try {
+			for(Future<List<Node>> chunk : chunks) {
+				nodes.addAll(chunk.get());
+			}
+		} catch(InterruptedException e) {
+			chunks.forEach(chunk -> chunk.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while reading artifacts!", e);
+		} catch(ExecutionException e) {
+			chunks.forEach(chunk -> chunk.cancel(true));
+			throw new RuntimeException("Failed to read artifacts!", e.getCause());
+		}
+		return nodes;
+	}
+	
+	/**
+	 * Returns the adjacency index of the reverse links of the package. It's built on the calling thread, because the table
+	 * itself is read on the prefetch threads.
+	 */
+	private Adjacency getAdjacency(Package pkg) {
 		Package rlPkg = RevLinkCreation.getReverseLinkPackage(conn, pkg);
-		Collection<Artifact> rlArtifacts = conn.getArtifactsOfType(revLinkModel, rlPkg);
-		return rlArtifacts.stream()
-				.map(revLink -> new RevLink(revLink.getId(), getSource(revLink), getTarget(revLink), getSourceType(revLink), getTargetType(revLink), getRelNames(revLink)))
-				.collect(Collectors.groupingBy(RevLink::getSourceType));
-
+		return adjacencyCache.get(rlPkg.getId(), id -> new Adjacency(readRevLinkTable(rlPkg)));
+	}
+	
+	private static void addIncoming(List<TraversalResult.Hop> hops, Node node, Adjacency adjacency, int depth, Traversal traversal) {
+		RevLinkTable table = adjacency.table;
+		adjacency.rowsBySource.forEach(node.id, row -> {
+			String[] relNames = filter(table.getRelNames((int) row), traversal);
+			if(relNames.length > 0) {
+				hops.add(new TraversalResult.Hop(table.getTargetId((int) row), node.id, depth, Traversal.Direction.INCOMING, relNames));
+			}
+		});
+	}
+	
+	/**
+	 * Adds the artifacts that are referenced by the properties of the node. The properties of the reverse link bookkeeping, 
+	 * whose names start with "@", and collection artifacts are skipped.
+	 */
+	private static void addOutgoing(List<TraversalResult.Hop> hops, Node node, int depth, Traversal traversal) {
+		Map<Long, List<String>> targets = new LinkedHashMap<>();
+		node.props.forEach((relName, value) -> {
+			if(value instanceof Artifact && !(value instanceof CollectionArtifact) && !relName.startsWith("@") && traversal.matches(relName)) {
+				targets.computeIfAbsent(((Artifact) value).getId(), id -> new ArrayList<>()).add(relName);
+			}
+		});
+		targets.forEach((id, relNames) -> hops.add(new TraversalResult.Hop(id, node.id, depth, Traversal.Direction.OUTGOING,
+				relNames.toArray(new String[relNames.size()]))));
+	}
+	
+	private static String[] filter(String[] relNames, Traversal traversal) {
+		if(traversal.getRelNames().isEmpty()) {
+			return relNames;
+		}
+		return Arrays.stream(relNames).filter(traversal::matches).toArray(String[]::new);
+	}
+	
+	/**
+	 * Summarizes the reverse links by their types. Every distinct combination of source type, relation name and target type
+	 * is counted in a single pass over the reverse links and the names of the types are resolved once per type.
+	 * @param revLinks the reverse links, grouped by the type of the source artifacts (see {@link #getRevLinks(Package)})
+	 * @return the link types in the order in which they first occur in the reverse links
+	 */
+	public List<LinkType> getLinkTypes(Map<Artifact, List<RevLink>> revLinks) {
+		Map<LinkTypeKey, int[]> counts = new LinkedHashMap<>();
+		for(Map.Entry<Artifact, List<RevLink>> group : revLinks.entrySet()) {
+			for(RevLink rl : group.getValue()) {
+				count(counts, group.getKey().getId(), rl.getRelNames(), rl.getTargetType().getId());
+			}
+		}
+		return toLinkTypes(counts);
+	}
+	
+	/**
+	 * Summarizes the reverse links of the table by their types, like {@link #getLinkTypes(Map)}.
+	 * @param table the reverse links
+	 * @return the link types in the order in which they first occur in the table
+	 */
+	public List<LinkType> getLinkTypes(RevLinkTable table) {
+		Map<LinkTypeKey, int[]> counts = new LinkedHashMap<>();
+		for(int row = 0; row < table.size(); row++) {
+			count(counts, table.getSourceTypeId(row), table.getRelNames(row), table.getTargetTypeId(row));
+		}
+		return toLinkTypes(counts);
 	}
 	
-	private long getSourceIdOrZero(Artifact revLink) {
+	private static void count(Map<LinkTypeKey, int[]> counts, long sourceTypeId, String[] relNames, long targetTypeId) {
+		for(String relName : relNames) {
+			counts.computeIfAbsent(new LinkTypeKey(sourceTypeId, relName, targetTypeId), key -> new int[1])[0]++;
+		}
+	}
+	
+	private List<LinkType> toLinkTypes(Map<LinkTypeKey, int[]> counts) {
+		Map<Long, String> names = new HashMap<>();
+		counts.keySet().forEach(key -> {
+			names.computeIfAbsent(key.sourceTypeId, this::getName);
+			names.computeIfAbsent(key.targetTypeId, this::getName);
+		});
+		List<LinkType> linkTypes = new ArrayList<>(counts.size());
+		counts.forEach((key, count) -> linkTypes.add(new LinkType(key.sourceTypeId, names.get(key.sourceTypeId), key.relName,
+				key.targetTypeId, names.get(key.targetTypeId), count[0])));
+		return linkTypes;
+	}
+	
+	/**
+	 * Reads the properties of the reverse link artifacts in chunks on the prefetch threads. Every reverse link artifact that
+	 * is not cached yet is read once and the collection artifacts with the relation names are read once per distinct collection.
+	 * The Design Space API has no call that reads the properties of several artifacts, so every reverse link still costs one
+	 * round trip; the chunks only overlap their latency. Reverse links in edge lists are read a whole chunk per round trip.
+	 */
+	private List<RevLink> prefetchRevLinks(Collection<Artifact> rlArtifacts, BiPredicate<Artifact, Artifact> sourceFilter) {
+		List<Artifact> revLinks = new ArrayList<>(rlArtifacts);
+		Map<Long, Integer> relNamesByCollection = new ConcurrentHashMap<>();
+		List<Future<List<RevLink>>> chunks = new ArrayList<>();
+		for(int from = 0; from < revLinks.size(); from += PREFETCH_CHUNK_SIZE) {
+			List<Artifact> chunk = revLinks.subList(from, Math.min(from + PREFETCH_CHUNK_SIZE, revLinks.size()));
+			chunks.add(prefetchExecutor.submit(() -> chunk.stream()
+					.map(revLink -> revLinkCache.get(revLink.getId(), id -> resolveRevLink(revLink, relNamesByCollection)))
+					.filter(Objects::nonNull)
+					.filter(rl -> sourceFilter.test(rl.getSource(), rl.getSourceType()))
+					.collect(Collectors.toList())));
+		}
+		List<RevLink> result = new ArrayList<>(revLinks.size());
 		try {
-			return getSource(revLink).getId();
-		} catch(IllegalArgumentException e) {
-			return 0;
+			for(Future<List<RevLink>> chunk : chunks) {
+				result.addAll(chunk.get());
+			}
+		} catch(InterruptedException e) {
+			chunks.forEach(chunk -> chunk.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while reading reverse links!", e);
+		} catch(ExecutionException e) {
+			chunks.forEach(chunk -> chunk.cancel(true));
+			throw new RuntimeException("Failed to read reverse links!", e.getCause());
 		}
+		return result;
 	}
 	
-	private long getSourceTypeIdOrZero(Artifact revLink) {
+	/**
+	 * Reads the reverse link artifacts in chunks on the prefetch threads, like {@link #prefetchRevLinks(Collection, BiPredicate)},
+	 * but only keeps the ids of the linked artifacts.
+	 */
+	private RevLinkTable prefetchRevLinkTable(Collection<Artifact> rlArtifacts) {
+		List<Artifact> revLinks = new ArrayList<>(rlArtifacts);
+		Map<Long, Integer> relNameSetsByCollection = new ConcurrentHashMap<>();
+		List<Future<RevLinkTable>> chunks = new ArrayList<>();
+		for(int from = 0; from < revLinks.size(); from += PREFETCH_CHUNK_SIZE) {
+			List<Artifact> chunk = revLinks.subList(from, Math.min(from + PREFETCH_CHUNK_SIZE, revLinks.size()));
+			chunks.add(prefetchExecutor.submit(() -> {
+				RevLinkTable.Builder rows = RevLinkTable.builder(relNameSets);
+				chunk.forEach(revLink -> addRow(rows, revLink, relNameSetsByCollection));
+				return rows.build();
+			}));
+		}
+		RevLinkTable.Builder table = RevLinkTable.builder(relNameSets);
 		try {
-			return getSourceType(revLink).getId();
-		} catch(IllegalArgumentException e) {
-			return 0;
+			for(Future<RevLinkTable> chunk : chunks) {
+				table.addAll(chunk.get());
+			}
+		} catch(InterruptedException e) {
+			chunks.forEach(chunk -> chunk.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while reading reverse links!", e);
+		} catch(ExecutionException e) {
+			chunks.forEach(chunk -> chunk.cancel(true));
+			throw new RuntimeException("Failed to read reverse links!", e.getCause());
 		}
+		return table.build();
+	}
+	
+	private void addRow(RevLinkTable.Builder rows, Artifact revLink, Map<Long, Integer> relNameSetsByCollection) {
+		Map<String, Object> props = metrics.time("LinkQuery.readProperties", revLink::getAlivePropertiesMap);
+		Artifact source = getArtifactProperty(props, DSRevLink.SOURCE_NAME);
+		Artifact target = getArtifactProperty(props, DSRevLink.TARGET_NAME);
+		Artifact sourceType = getArtifactProperty(props, DSRevLink.SOURCE_TYPE_NAME);
+		Artifact targetType = getArtifactProperty(props, DSRevLink.TARGET_TYPE_NAME);
+		if(source == null || target == null || sourceType == null || targetType == null) {
+			System.err.println("Reverse link with missing properties found! Please review reverse link " + revLink.getId());
+			return;
+		}
+		int relNameSetId;
+		Object relNamesCollection = props.get(DSRevLink.REL_NAMES_NAME);
+		if(relNamesCollection instanceof CollectionArtifact) {
+			CollectionArtifact collection = (CollectionArtifact) relNamesCollection;
+			relNameSetId = getRelNameSetId(collection, relNameSetsByCollection);
+		} else {
+			relNameSetId = relNameSets.intern();
+		}
+		rows.add(revLink.getId(), source.getId(), target.getId(), sourceType.getId(), targetType.getId(), relNameSetId);
+	}
+	
+	/**
+	 * Returns the id of the interned set of names of the collection artifact. Every collection is read once per call, even
+	 * if it is requested by several prefetch threads at the same time, and at most once per LinkQuery while it stays cached.
+	 */
+	private int getRelNameSetId(CollectionArtifact collection, Map<Long, Integer> relNameSetsByCollection) {
+		return getRelNameSetId(collection.getId(), () -> Optional.of(collection), relNameSetsByCollection);
 	}
 	
-	private Artifact getSource(Artifact revLink) {
-		return getArtifactByProperty(revLink, DSRevLink.SOURCE_NAME);
+	private int getRelNameSetId(long collectionId, Supplier<Optional<CollectionArtifact>> collection, 
+			Map<Long, Integer> relNameSetsByCollection) {
+		return relNameSetsByCollection.computeIfAbsent(collectionId, id -> relNameSetCache.get(id, 
+				key -> relNameSets.intern(collection.get().map(this::readRelNames).orElse(new String[0]))));
 	}
 	
-	private Artifact getSourceType(Artifact revLink) {
-		return getArtifactByProperty(revLink, DSRevLink.SOURCE_TYPE_NAME);
+	private String[] readRelNames(CollectionArtifact collection) {
+		return metrics.time("LinkQuery.readRelNames", collection::getElements).stream()
+				.map(String::valueOf)
+				.toArray(String[]::new);
 	}
 	
-	private Artifact getTarget(Artifact revLink) {
-		return getArtifactByProperty(revLink, DSRevLink.TARGET_NAME);
+	private RevLink resolveRevLink(Artifact revLink, Map<Long, Integer> relNamesByCollection) {
+		Map<String, Object> props = metrics.time("LinkQuery.readProperties", revLink::getAlivePropertiesMap);
+		Artifact source = getArtifactProperty(props, DSRevLink.SOURCE_NAME);
+		Artifact target = getArtifactProperty(props, DSRevLink.TARGET_NAME);
+		Artifact sourceType = getArtifactProperty(props, DSRevLink.SOURCE_TYPE_NAME);
+		Artifact targetType = getArtifactProperty(props, DSRevLink.TARGET_TYPE_NAME);
+		if(source == null || target == null || sourceType == null || targetType == null) {
+			System.err.println("Reverse link with missing properties found! Please review reverse link " + revLink.getId());
+			return null;
+		}
+		String[] relNames = new String[0];
+		Object relNamesCollection = props.get(DSRevLink.REL_NAMES_NAME);
+		if(relNamesCollection instanceof CollectionArtifact) {
+			CollectionArtifact collection = (CollectionArtifact) relNamesCollection;
+			relNames = relNameSets.get(getRelNameSetId(collection, relNamesByCollection));
+		}
+		return new RevLink(revLink.getId(), source, target, sourceType, targetType, relNames);
 	}
 	
-	private Artifact getTargetType(Artifact revLink) {
-		return getArtifactByProperty(revLink, DSRevLink.TARGET_TYPE_NAME);
+	private static Artifact getArtifactProperty(Map<String, Object> props, String property) {
+		Object value = props.get(property);
+		return value instanceof Artifact ? (Artifact) value : null;
+	}
+	
+	/**
+	 * An artifact of the frontier of a traversal with its package and properties, as far as they are needed.
+	 */
+	private static final class Node {
+		
+		private final long id;
+		private final Package pkg;
+		private final Map<String, Object> props;
+		
+		private Node(long id, Package pkg, Map<String, Object> props) {
+			this.id = id;
+			this.pkg = pkg;
+			this.props = props;
+		}
 	}
 	
-	private String[] getRelNames(Artifact revLink) {
-		 Collection<String> relNames = (Collection<String>) navigatorProvider
-				 .from(revLink).toCollection(DSRevLink.REL_NAMES_NAME).get().getElements();
-		 return relNames.toArray(new String[relNames.size()]);
+	/**
+	 * The rows of a reverse link table by the id of their source, i.e. the incoming links of the artifacts of a package.
+	 * It's never modified after it has been built, so it's shared by concurrent traversals.
+	 */
+	private static final class Adjacency {
+		
+		private final RevLinkTable table;
+		private final LongMultimap rowsBySource;
+		
+		private Adjacency(RevLinkTable table) {
+			this.table = table;
+			this.rowsBySource = new LongMultimap(table.size());
+			for(int row = 0; row < table.size(); row++) {
+				rowsBySource.put(table.getSourceId(row), row);
+			}
+		}
 	}
 	
-	private Artifact getArtifactByProperty(Artifact artifact, String property) {
-		return navigatorProvider.from(artifact).to(property).get();
+	private static final class LinkTypeKey {
+		
+		private final long sourceTypeId;
+		private final String relName;
+		private final long targetTypeId;
+		
+		private LinkTypeKey(long sourceTypeId, String relName, long targetTypeId) {
+			this.sourceTypeId = sourceTypeId;
+			this.relName = relName;
+			this.targetTypeId = targetTypeId;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof LinkTypeKey)) {
+				return false;
+			}
+			LinkTypeKey other = (LinkTypeKey) obj;
+			return sourceTypeId == other.sourceTypeId && targetTypeId == other.targetTypeId && relName.equals(other.relName);
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hash(sourceTypeId, relName, targetTypeId);
+		}
 	}
 }
@@ -0,0 +1,89 @@
+package at.jku.isse.cloud.revlinks.visualize;
+
+import at.jku.isse.cloud.revlinks.RevLink;
+import at.jku.isse.cloud.revlinks.RevLinkTable;
+
+/**
+ * This class represents a type of reverse links, i.e. a distinct combination of source type, relation name and target type,
+ * together with the number of reverse links of this type. It contains the following fields:
+ * <li> source type id and its name
+ * <li> relation name
+ * <li> target type id and its name
+ * <li> number of reverse links
+ */
+public class LinkType {
+
+	private final long sourceTypeId;
+	private final String sourceTypeName;
+
+	private final String relName;
+
+	private final long targetTypeId;
+	private final String targetTypeName;
+
+	private final int count;
+
+	public LinkType(long sourceTypeId, String sourceTypeName, String relName, long targetTypeId, String targetTypeName, int count) {
+		this.sourceTypeId = sourceTypeId;
+		this.sourceTypeName = sourceTypeName;
+		this.relName = relName;
+		this.targetTypeId = targetTypeId;
+		this.targetTypeName = targetTypeName;
+		this.count = count;
+	}
+
+	public long getSourceTypeId() {
+		return sourceTypeId;
+	}
+
+	public String getSourceTypeName() {
+		return sourceTypeName;
+	}
+
+	public String getRelName() {
+		return relName;
+	}
+
+	public long getTargetTypeId() {
+		return targetTypeId;
+	}
+
+	public String getTargetTypeName() {
+		return targetTypeName;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns true, if the reverse link is of this type.
+	 * @param rl the reverse link
+	 * @return true, if the source type, the target type and one of the relation names of the reverse link match this type
+	 */
+	public boolean matches(RevLink rl) {
+		return matches(rl.getSourceType().getId(), rl.getTargetType().getId(), rl.getRelNames());
+	}
+
+	/**
+	 * Returns true, if the reverse link in the row of the table is of this type.
+	 * @param table the reverse links
+	 * @param row the row of the reverse link
+	 * @return true, if the source type, the target type and one of the relation names of the reverse link match this type
+	 */
+	public boolean matches(RevLinkTable table, int row) {
+		return matches(table.getSourceTypeId(row), table.getTargetTypeId(row), table.getRelNames(row));
+	}
+
+	private boolean matches(long sourceTypeId, long targetTypeId, String[] relNames) {
+		if(sourceTypeId != this.sourceTypeId || targetTypeId != this.targetTypeId) {
+			return false;
+		}
+		for(String name : relNames) {
+			if(relName.equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,228 @@
+package at.jku.isse.cloud.revlinks.visualize;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+import at.jku.sea.cloud.Artifact;
+
+/**
+ * An in-memory inverted index over the property values of artifacts, which answers the searches of the link list without
+ * reading the artifacts again. String values are indexed by their lower case trigrams, numeric values by their exact value.
+ * A search matches an artifact, if one of its string values contains the search text, or if the search text is a number
+ * that equals the id or one of the numeric values of the artifact.
+ * <p>
+ * The properties of an artifact are read once when it is added to the index. Artifacts that are already indexed are skipped,
+ * so the index can be extended incrementally. Changed artifacts can be indexed again with {@link #update(Artifact)}.
+ * The index is thread-safe.
+ */
+class SearchIndex {
+
+	static final int GRAM_LENGTH = 3;
+
+	private final Map<Long, Document> documents = new HashMap<>();
+	private final Map<String, Set<Long>> grams = new HashMap<>();
+	private final Map<String, Set<Long>> numbers = new HashMap<>();
+
+	/**
+	 * Adds the artifacts that are not indexed yet. The properties of these artifacts are read outside of the lock of the index.
+	 * If the current thread is interrupted, then the remaining artifacts are skipped.
+	 * @param artifacts the artifacts
+	 * @return the number of artifacts that have been added
+	 */
+	int index(Collection<Artifact> artifacts) {
+		int added = 0;
+		for(Artifact artifact : artifacts) {
+			if(Thread.currentThread().isInterrupted()) {
+				break;
+			}
+			if(!contains(artifact.getId()) && add(artifact)) {
+				added++;
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Adds the artifacts with the given ids that are not indexed yet, like {@link #index(Collection)}. Only the artifacts
+	 * that are not indexed yet are resolved, so the artifacts don't have to be kept in memory to extend the index.
+	 * @param ids the ids of the artifacts
+	 * @param resolver returns the artifact of an id, or an empty optional instance if it doesn't exist
+	 * @return the number of artifacts that have been added
+	 */
+	int index(long[] ids, LongFunction<Optional<Artifact>> resolver) {
+		int added = 0;
+		for(long id : ids) {
+			if(Thread.currentThread().isInterrupted()) {
+				break;
+			}
+			if(!contains(id)) {
+				Optional<Artifact> artifact = resolver.apply(id);
+				if(artifact.isPresent() && add(artifact.get())) {
+					added++;
+				}
+			}
+		}
+		return added;
+	}
+
+	private boolean add(Artifact artifact) {
+		Document document = read(artifact);
+		synchronized(this) {
+			if(documents.containsKey(artifact.getId())) {
+				return false;
+			}
+			add(artifact.getId(), document);
+			return true;
+		}
+	}
+
+	/**
+	 * Reads the properties of the artifact again and replaces its entries in the index.
+	 * @param artifact the changed artifact
+	 */
+	void update(Artifact artifact) {
+		Document document = read(artifact);
+		synchronized(this) {
+			remove(artifact.getId());
+			add(artifact.getId(), document);
+		}
+	}
+
+	/**
+	 * Removes the artifact from the index.
+	 * @param id the id of the artifact
+	 */
+	synchronized void remove(long id) {
+		Document document = documents.remove(id);
+		if(document == null) {
+			return;
+		}
+		for(String text : document.texts) {
+			for(String gram : grams(text)) {
+				removePosting(grams, gram, id);
+			}
+		}
+		for(String number : document.numbers) {
+			removePosting(numbers, number, id);
+		}
+	}
+
+	synchronized boolean contains(long id) {
+		return documents.containsKey(id);
+	}
+
+	synchronized int size() {
+		return documents.size();
+	}
+
+	/**
+	 * Returns the ids of the indexed artifacts that match the search text.
+	 * @param text the search text, which is compared case-insensitively
+	 * @return the ids of the matching artifacts
+	 */
+	synchronized Set<Long> search(String text) {
+		String query = text.toLowerCase();
+		Set<Long> result = new HashSet<>();
+		if(query.matches("\\d+")) {
+			result.addAll(numbers.getOrDefault(query, Collections.emptySet()));
+			if(query.length() < 19 && documents.containsKey(Long.parseLong(query))) {
+				result.add(Long.parseLong(query));
+			}
+		}
+		// The trigrams only select candidates, which are verified against their values
+		for(long id : candidates(query)) {
+			if(!result.contains(id) && documents.get(id).contains(query)) {
+				result.add(id);
+			}
+		}
+		return result;
+	}
+
+	private Collection<Long> candidates(String query) {
+		if(query.length() < GRAM_LENGTH) {
+			return documents.keySet();
+		}
+		List<Set<Long>> postings = new ArrayList<>();
+		for(String gram : grams(query)) {
+			Set<Long> posting = grams.get(gram);
+			if(posting == null) {
+				return Collections.emptySet();
+			}
+			postings.add(posting);
+		}
+		postings.sort((a, b) -> Integer.compare(a.size(), b.size()));
+		Set<Long> candidates = new HashSet<>(postings.get(0));
+		for(int i = 1; i < postings.size() && !candidates.isEmpty(); i++) {
+			candidates.retainAll(postings.get(i));
+		}
+		return candidates;
+	}
+
+	private void add(long id, Document document) {
+		documents.put(id, document);
+		for(String text : document.texts) {
+			for(String gram : grams(text)) {
+				grams.computeIfAbsent(gram, key -> new HashSet<>()).add(id);
+			}
+		}
+		for(String number : document.numbers) {
+			numbers.computeIfAbsent(number, key -> new HashSet<>()).add(id);
+		}
+	}
+
+	private static void removePosting(Map<String, Set<Long>> postings, String key, long id) {
+		Set<Long> posting = postings.get(key);
+		if(posting != null && posting.remove(id) && posting.isEmpty()) {
+			postings.remove(key);
+		}
+	}
+
+	private static Set<String> grams(String text) {
+		Set<String> result = new HashSet<>();
+		for(int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+			result.add(text.substring(i, i + GRAM_LENGTH));
+		}
+		return result;
+	}
+
+	private static Document read(Artifact artifact) {
+		List<String> texts = new ArrayList<>();
+		List<String> numbers = new ArrayList<>();
+		for(Object value : artifact.getAlivePropertiesMap().values()) {
+			if(value instanceof String) {
+				texts.add(((String) value).toLowerCase());
+			} else if(value instanceof Number) {
+				numbers.add(String.valueOf(value));
+			}
+		}
+		return new Document(texts.toArray(new String[texts.size()]), numbers.toArray(new String[numbers.size()]));
+	}
+
+	private static class Document {
+
+		private final String[] texts;
+		private final String[] numbers;
+
+		private Document(String[] texts, String[] numbers) {
+			this.texts = texts;
+			this.numbers = numbers;
+		}
+
+		private boolean contains(String query) {
+			for(String text : texts) {
+				if(text.contains(query)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
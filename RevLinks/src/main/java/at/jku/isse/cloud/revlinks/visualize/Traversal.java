@@ -0,0 +1,132 @@
+package at.jku.isse.cloud.revlinks.visualize;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The parameters of a multi-hop traversal of links, see {@link LinkQuery#traverse(Traversal)}. By default, a traversal follows the
+ * incoming links of any relation up to a depth of 3 and stops after 10000 artifacts have been visited.
+ * <pre>
+ * // Everything that transitively depends on the engine
+ * linkQuery.traverse(Traversal.from(engineId).withMaxDepth(Integer.MAX_VALUE).withRelNames("engine", "parts"));
+ * </pre>
+ */
+public class Traversal {
+
+	/**
+	 * The direction in which links are followed.
+	 */
+	public enum Direction {
+		/**
+		 * From the referenced artifact to the artifacts that hold a link to it, i.e. along the reverse links.
+		 */
+		INCOMING,
+		/**
+		 * From the artifact to the artifacts that it references, i.e. along the forward links.
+		 */
+		OUTGOING,
+		/**
+		 * Along both incoming and outgoing links.
+		 */
+		BOTH
+	}
+
+	private final long startId;
+	private int maxDepth = 3;
+	private Direction direction = Direction.INCOMING;
+	private Set<String> relNames = Collections.emptySet();
+	private int maxVisited = 10_000;
+
+	private Traversal(long startId) {
+		this.startId = startId;
+	}
+
+	/**
+	 * Creates a traversal that starts at the artifact with the given id.
+	 * @param startId the id of the start artifact
+	 * @return the traversal
+	 */
+	public static Traversal from(long startId) {
+		return new Traversal(startId);
+	}
+
+	/**
+	 * Sets the maximum number of hops from the start artifact.
+	 * @param maxDepth the maximum depth, at least 1
+	 * @return the traversal
+	 */
+	public Traversal withMaxDepth(int maxDepth) {
+		if(maxDepth < 1) {
+			throw new IllegalArgumentException("The maximum depth must be positive: " + maxDepth);
+		}
+		this.maxDepth = maxDepth;
+		return this;
+	}
+
+	/**
+	 * Sets the direction in which links are followed.
+	 * @param direction the direction
+	 * @return the traversal
+	 */
+	public Traversal withDirection(Direction direction) {
+		if(direction == null) {
+			throw new IllegalArgumentException("The direction must not be null");
+		}
+		this.direction = direction;
+		return this;
+	}
+
+	/**
+	 * Restricts the traversal to links with one of the given relation names. Without relation names, all links are followed.
+	 * @param relNames the relation names
+	 * @return the traversal
+	 */
+	public Traversal withRelNames(String... relNames) {
+		this.relNames = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(relNames)));
+		return this;
+	}
+
+	/**
+	 * Sets the maximum number of visited artifacts, including the start artifact. When the limit is reached, the traversal stops
+	 * and its result is marked as truncated.
+	 * @param maxVisited the maximum number of visited artifacts, at least 1
+	 * @return the traversal
+	 */
+	public Traversal withMaxVisited(int maxVisited) {
+		if(maxVisited < 1) {
+			throw new IllegalArgumentException("The maximum number of visited artifacts must be positive: " + maxVisited);
+		}
+		this.maxVisited = maxVisited;
+		return this;
+	}
+
+	public long getStartId() {
+		return startId;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	public Direction getDirection() {
+		return direction;
+	}
+
+	public Set<String> getRelNames() {
+		return relNames;
+	}
+
+	public int getMaxVisited() {
+		return maxVisited;
+	}
+
+	boolean follows(Direction hop) {
+		return direction == Direction.BOTH || direction == hop;
+	}
+
+	boolean matches(String relName) {
+		return relNames.isEmpty() || relNames.contains(relName);
+	}
+}
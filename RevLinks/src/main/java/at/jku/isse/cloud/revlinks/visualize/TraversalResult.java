@@ -0,0 +1,144 @@
+package at.jku.isse.cloud.revlinks.visualize;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The artifacts that have been visited by a traversal, see {@link LinkQuery#traverse(Traversal)}. Every artifact is visited once,
+ * on a shortest path from the start artifact, and remembers the hop through which it has been reached first, so the path to each
+ * artifact can be reconstructed.
+ */
+public class TraversalResult {
+
+	private final Map<Long, Hop> hops = new LinkedHashMap<>();
+	private boolean truncated;
+
+	TraversalResult() {
+	}
+
+	void add(Hop hop) {
+		hops.putIfAbsent(hop.getId(), hop);
+	}
+
+	boolean contains(long id) {
+		return hops.containsKey(id);
+	}
+
+	void truncate() {
+		truncated = true;
+	}
+
+	/**
+	 * Returns the visited artifacts in the order in which they have been visited, starting with the start artifact.
+	 * @return the hops to the visited artifacts
+	 */
+	public List<Hop> getHops() {
+		return Collections.unmodifiableList(new ArrayList<>(hops.values()));
+	}
+
+	/**
+	 * Returns the hop through which the artifact has been visited.
+	 * @param id the id of the artifact
+	 * @return the hop or an empty optional instance, if the artifact hasn't been visited
+	 */
+	public Optional<Hop> getHop(long id) {
+		return Optional.ofNullable(hops.get(id));
+	}
+
+	/**
+	 * Returns the hops on the path from the start artifact to the artifact.
+	 * @param id the id of the artifact
+	 * @return the hops, starting with the start artifact, or an empty list if the artifact hasn't been visited
+	 */
+	public List<Hop> getPath(long id) {
+		List<Hop> path = new ArrayList<>();
+		for(Hop hop = hops.get(id); hop != null; hop = hops.get(hop.getParentId())) {
+			path.add(hop);
+			if(hop.getDepth() == 0) {
+				break;
+			}
+		}
+		Collections.reverse(path);
+		return path;
+	}
+
+	/**
+	 * Returns the number of visited artifacts, including the start artifact.
+	 * @return the number of visited artifacts
+	 */
+	public int size() {
+		return hops.size();
+	}
+
+	/**
+	 * Returns true, if the traversal has been stopped by the limit of visited artifacts before all reachable artifacts have been visited.
+	 * @return true, if the result is incomplete
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/**
+	 * A hop of a traversal: the visited artifact, the artifact from which it has been reached and the link between them.
+	 */
+	public static final class Hop {
+
+		private final long id;
+		private final long parentId;
+		private final int depth;
+		private final Traversal.Direction direction;
+		private final String[] relNames;
+
+		Hop(long id, long parentId, int depth, Traversal.Direction direction, String[] relNames) {
+			this.id = id;
+			this.parentId = parentId;
+			this.depth = depth;
+			this.direction = direction;
+			this.relNames = relNames;
+		}
+
+		/**
+		 * Returns the id of the visited artifact.
+		 * @return the id
+		 */
+		public long getId() {
+			return id;
+		}
+
+		/**
+		 * Returns the id of the artifact from which this artifact has been reached. For the start artifact, this is its own id.
+		 * @return the id of the previous artifact
+		 */
+		public long getParentId() {
+			return parentId;
+		}
+
+		/**
+		 * Returns the number of hops from the start artifact.
+		 * @return the depth, 0 for the start artifact
+		 */
+		public int getDepth() {
+			return depth;
+		}
+
+		/**
+		 * Returns the direction of the link through which this artifact has been reached, or null for the start artifact.
+		 * @return the direction
+		 */
+		public Traversal.Direction getDirection() {
+			return direction;
+		}
+
+		/**
+		 * Returns the relation names of the link through which this artifact has been reached. The array must not be modified.
+		 * @return the relation names
+		 */
+		public String[] getRelNames() {
+			return relNames;
+		}
+	}
+}
@@ -0,0 +1,167 @@
+package at.jku.isse.cloud.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A thread-safe read-through cache with a maximum number of entries. When the cache is full, the least recently used
+ * entry is evicted. Optionally, entries expire after a fixed time to live. The cache counts hits, misses and evictions.
+ * @param <K> the type of the keys
+ * @param <V> the type of the cached values
+ */
+public class BoundedCache<K, V> {
+
+	private final String name;
+	private final int maxSize;
+	private final long ttlNanos;
+	private final LinkedHashMap<K, Entry<V>> entries;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long generation;
+
+	/**
+	 * Creates a new cache.
+	 * @param name the name of the cache, used when reporting the statistics
+	 * @param maxSize the maximum number of entries
+	 * @param ttlMillis the time to live of an entry in milliseconds, or 0 if entries don't expire
+	 */
+	public BoundedCache(String name, int maxSize, long ttlMillis) {
+		if(maxSize < 1) {
+			throw new IllegalArgumentException("The maximum size of the cache must be positive: " + maxSize);
+		}
+		this.name = name;
+		this.maxSize = maxSize;
+		this.ttlNanos = ttlMillis * 1_000_000;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Returns the cached value of the key. If the key is not cached or its entry has expired, then the value is
+	 * computed by the loader and cached. Exceptions of the loader are passed on and nothing is cached.
+	 * @param key the key
+	 * @param loader computes the value of the key on a miss
+	 * @return the cached or loaded value
+	 */
+	public V get(K key, Function<? super K, ? extends V> loader) {
+		long loadGeneration;
+		synchronized(this) {
+			Entry<V> entry = entries.get(key);
+			if(entry != null && !isExpired(entry)) {
+				hits++;
+				return entry.value;
+			}
+			misses++;
+			loadGeneration = generation;
+		}
+		// The value is loaded outside of the lock, so slow loads don't block other lookups
+		V value = loader.apply(key);
+		synchronized(this) {
+			// Values loaded before an invalidation may be stale and are not cached
+			if(loadGeneration == generation) {
+				put(key, value);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Caches the value of the key, replacing a previously cached value.
+	 * @param key the key
+	 * @param value the value
+	 */
+	public synchronized void put(K key, V value) {
+		entries.put(key, new Entry<>(value, System.nanoTime()));
+		if(entries.size() > maxSize) {
+			Iterator<K> eldest = entries.keySet().iterator();
+			eldest.next();
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Removes all entries from the cache. The statistics are kept.
+	 */
+	public synchronized void invalidateAll() {
+		entries.clear();
+		generation++;
+	}
+
+	/**
+	 * Returns the name of the cache.
+	 * @return the name of the cache
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the number of cached entries, including expired entries that haven't been removed yet.
+	 * @return the number of entries
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the number of lookups that have been answered from the cache.
+	 * @return the number of hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of lookups that had to load the value.
+	 * @return the number of misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of entries that have been removed because the cache was full.
+	 * @return the number of evictions
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns a snapshot of the cached entries that haven't expired.
+	 * @return the cached values by key
+	 */
+	public synchronized Map<K, V> asMap() {
+		Map<K, V> snapshot = new LinkedHashMap<>();
+		entries.forEach((key, entry) -> {
+			if(!isExpired(entry)) {
+				snapshot.put(key, entry.value);
+			}
+		});
+		return snapshot;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return name + "[size=" + entries.size() + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+	}
+
+	private boolean isExpired(Entry<V> entry) {
+		return ttlNanos > 0 && System.nanoTime() - entry.createdNanos > ttlNanos;
+	}
+
+	private static class Entry<V> {
+
+		private final V value;
+		private final long createdNanos;
+
+		private Entry(V value, long createdNanos) {
+			this.value = value;
+			this.createdNanos = createdNanos;
+		}
+	}
+}
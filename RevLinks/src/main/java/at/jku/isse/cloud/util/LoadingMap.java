@@ -0,0 +1,96 @@
+package at.jku.isse.cloud.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * A thread-safe map whose values are loaded once per key, e.g. by a call to the Design Space. Unlike
+ * {@link ConcurrentMap#computeIfAbsent(Object, Function)}, the loader runs outside of the locks of the map, so a slow load
+ * doesn't block the lookups of other keys and the loader may use the map itself. Threads that request a key while it is
+ * loaded wait for that load instead of loading the key again. If the loader fails, then nothing is stored and the exception
+ * is passed on to all waiting threads; the next request loads the key again.
+ * A loader must not request its own key, as it would wait for itself.
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class LoadingMap<K, V> {
+
+	private final ConcurrentMap<K, CompletableFuture<V>> values = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the value of the key, which is loaded by the loader if the key hasn't been loaded yet.
+	 * @param key the key
+	 * @param loader loads the value of the key, must not return null
+	 * @return the value
+	 */
+	public V get(K key, Function<? super K, ? extends V> loader) {
+		CompletableFuture<V> loaded = values.get(key);
+		if(loaded == null) {
+			CompletableFuture<V> loading = new CompletableFuture<>();
+			loaded = values.putIfAbsent(key, loading);
+			if(loaded == null) {
+				return load(key, loading, loader);
+			}
+		}
+		return join(loaded);
+	}
+
+	private V load(K key, CompletableFuture<V> loading, Function<? super K, ? extends V> loader) {
+		try {
+			V value = loader.apply(key);
+			if(value == null) {
+				throw new IllegalStateException("No value has been loaded for " + key);
+			}
+			loading.complete(value);
+			return value;
+		} catch(RuntimeException | Error e) {
+			values.remove(key, loading);
+			loading.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	private static <V> V join(CompletableFuture<V> future) {
+		try {
+			return future.join();
+		} catch(CompletionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the value of the key, if it has been loaded.
+	 * @param key the key
+	 * @return the value, or an empty optional instance if the key hasn't been loaded or is still loading
+	 */
+	public Optional<V> getIfLoaded(K key) {
+		CompletableFuture<V> loaded = values.get(key);
+		if(loaded == null || !loaded.isDone() || loaded.isCompletedExceptionally()) {
+			return Optional.empty();
+		}
+		return Optional.of(loaded.join());
+	}
+
+	/**
+	 * Returns the values that have been loaded so far.
+	 * @return the loaded values
+	 */
+	public List<V> loadedValues() {
+		List<V> loaded = new ArrayList<>(values.size());
+		for(CompletableFuture<V> value : values.values()) {
+			if(value.isDone() && !value.isCompletedExceptionally()) {
+				loaded.add(value.join());
+			}
+		}
+		return loaded;
+	}
+}
@@ -0,0 +1,172 @@
+package at.jku.isse.cloud.util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * A multimap from long keys to long values that stores its keys and values in primitive arrays.
+ * The keys are kept in an open addressing hash table with linear probing; the values of a key are appended to a growing array,
+ * in the order in which they were added. Duplicate values of the same key are kept.
+ * This class is not thread-safe.
+ */
+public class LongMultimap {
+
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final int INITIAL_VALUE_CAPACITY = 2;
+
+	private long[] keys;
+	// null marks an empty slot
+	private long[][] values;
+	private int[] valueCounts;
+	private int size;
+	private int valueSize;
+
+	/**
+	 * Creates an empty multimap.
+	 */
+	public LongMultimap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty multimap that can hold the given number of keys without rehashing.
+	 * @param expectedKeys the expected number of distinct keys
+	 */
+	public LongMultimap(int expectedKeys) {
+		int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, expectedKeys * 2 - 1)) << 1;
+		keys = new long[capacity];
+		values = new long[capacity][];
+		valueCounts = new int[capacity];
+	}
+
+	/**
+	 * Adds a value to the values of the key.
+	 * @param key the key
+	 * @param value the value that is added
+	 */
+	public void put(long key, long value) {
+		int slot = slot(key);
+		if(values[slot] == null) {
+			keys[slot] = key;
+			values[slot] = new long[INITIAL_VALUE_CAPACITY];
+			if(++size * 2 > keys.length) {
+				rehash();
+				slot = slot(key);
+			}
+		}
+		long[] slotValues = values[slot];
+		int count = valueCounts[slot];
+		if(count == slotValues.length) {
+			slotValues = values[slot] = Arrays.copyOf(slotValues, count * 2);
+		}
+		slotValues[count] = value;
+		valueCounts[slot] = count + 1;
+		valueSize++;
+	}
+
+	/**
+	 * Returns true, if at least one value has been added for the key.
+	 * @param key the key
+	 * @return true, if the key is contained
+	 */
+	public boolean containsKey(long key) {
+		return values[slot(key)] != null;
+	}
+
+	/**
+	 * Returns a copy of the values of the key.
+	 * @param key the key
+	 * @return the values of the key in insertion order, or an empty array if the key is not contained
+	 */
+	public long[] get(long key) {
+		int slot = slot(key);
+		if(values[slot] == null) {
+			return new long[0];
+		}
+		return Arrays.copyOf(values[slot], valueCounts[slot]);
+	}
+
+	/**
+	 * Passes the values of the key to the consumer, in insertion order.
+	 * @param key the key
+	 * @param consumer the consumer of the values
+	 */
+	public void forEach(long key, LongConsumer consumer) {
+		int slot = slot(key);
+		long[] slotValues = values[slot];
+		for(int i = 0; i < valueCounts[slot]; i++) {
+			consumer.accept(slotValues[i]);
+		}
+	}
+
+	/**
+	 * Returns the number of values of the key.
+	 * @param key the key
+	 * @return the number of values, or 0 if the key is not contained
+	 */
+	public int count(long key) {
+		return valueCounts[slot(key)];
+	}
+
+	/**
+	 * Returns the distinct keys of the multimap, in no particular order.
+	 * @return the keys
+	 */
+	public long[] keys() {
+		long[] result = new long[size];
+		int i = 0;
+		for(int slot = 0; slot < keys.length; slot++) {
+			if(values[slot] != null) {
+				result[i++] = keys[slot];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of distinct keys.
+	 * @return the number of keys
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of values of all keys.
+	 * @return the number of values
+	 */
+	public int valueSize() {
+		return valueSize;
+	}
+
+	private int slot(long key) {
+		int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+		while(values[slot] != null && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash() {
+		long[] oldKeys = keys;
+		long[][] oldValues = values;
+		int[] oldCounts = valueCounts;
+		keys = new long[oldKeys.length * 2];
+		values = new long[oldKeys.length * 2][];
+		valueCounts = new int[oldKeys.length * 2];
+		for(int i = 0; i < oldKeys.length; i++) {
+			if(oldValues[i] != null) {
+				int slot = slot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+				valueCounts[slot] = oldCounts[i];
+			}
+		}
+	}
+
+	private static int mix(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -0,0 +1,396 @@
+package at.jku.isse.cloud.util;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Collects the metrics of the remote calls to the Design Space. There are three kinds of metrics:
+ * <li> operations are single calls to the Design Space, e.g. "DSConnection.getArtifactById". Every operation knows how
+ * many round trips it takes, so the sum of the round trips of all operations is the load caused on the Design Space.
+ * <li> actions are units of work that consist of many operations, e.g. the creation of reverse links or a UI action.
+ * The round trips of an action are the round trips of all operations between its start and its end. If other work runs
+ * concurrently, then its round trips are attributed to the action as well.
+ * <li> counters count events, e.g. the number of created reverse links.
+ * <p>
+ * Derived metrics relate the round trips of an action to a counter, e.g. the round trips per reverse link.
+ * A snapshot of all metrics can be taken as JSON with {@link #toJson()} or be reported periodically.
+ * All methods are thread-safe.
+ */
+public class MetricsRegistry {
+
+	/**
+	 * System property that sets the interval in seconds in which the metrics are reported, see {@link #startReporting(Consumer)}.
+	 */
+	public static final String REPORT_INTERVAL_PROPERTY = "revlinks.metrics.intervalSeconds";
+	/**
+	 * System property that sets the file to which the reported metrics are written as JSON.
+	 */
+	public static final String REPORT_FILE_PROPERTY = "revlinks.metrics.file";
+
+	private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, OperationMetrics> actions = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Ratio> ratios = new ConcurrentHashMap<>();
+	private final LongAdder roundTrips = new LongAdder();
+
+	private ScheduledExecutorService reporter;
+
+	/**
+	 * Returns the metrics of the operation with the specified name. The metrics are created on first access.
+	 * @param name the name of the operation
+	 * @return the metrics of the operation
+	 */
+	public OperationMetrics getOperation(String name) {
+		return operations.computeIfAbsent(name, OperationMetrics::new);
+	}
+
+	/**
+	 * Returns the metrics of the action with the specified name. The metrics are created on first access.
+	 * @param name the name of the action
+	 * @return the metrics of the action
+	 */
+	public OperationMetrics getAction(String name) {
+		return actions.computeIfAbsent(name, OperationMetrics::new);
+	}
+
+	/**
+	 * Records an invocation of an operation.
+	 * @param name the name of the operation
+	 * @param nanos the latency of the invocation in nanoseconds
+	 * @param roundTrips the number of round trips to the Design Space of the invocation
+	 */
+	public void record(String name, long nanos, long roundTrips) {
+		getOperation(name).record(nanos, roundTrips);
+		this.roundTrips.add(roundTrips);
+	}
+
+	/**
+	 * Invokes an operation that takes a single round trip and records its latency, even if it fails.
+	 * @param name the name of the operation
+	 * @param operation the operation
+	 * @return the result of the operation
+	 */
+	public <T> T time(String name, Supplier<T> operation) {
+		return time(name, 1, operation);
+	}
+
+	/**
+	 * Invokes an operation and records its latency, even if it fails.
+	 * @param name the name of the operation
+	 * @param roundTrips the number of round trips to the Design Space of the operation
+	 * @param operation the operation
+	 * @return the result of the operation
+	 */
+	public <T> T time(String name, long roundTrips, Supplier<T> operation) {
+		long start = System.nanoTime();
+		try {
+			return operation.get();
+		} finally {
+			record(name, System.nanoTime() - start, roundTrips);
+		}
+	}
+
+	/**
+	 * Invokes an operation without a result that takes a single round trip and records its latency, even if it fails.
+	 * @param name the name of the operation
+	 * @param operation the operation
+	 */
+	public void run(String name, Runnable operation) {
+		run(name, 1, operation);
+	}
+
+	/**
+	 * Invokes an operation without a result and records its latency, even if it fails.
+	 * @param name the name of the operation
+	 * @param roundTrips the number of round trips to the Design Space of the operation
+	 * @param operation the operation
+	 */
+	public void run(String name, long roundTrips, Runnable operation) {
+		long start = System.nanoTime();
+		try {
+			operation.run();
+		} finally {
+			record(name, System.nanoTime() - start, roundTrips);
+		}
+	}
+
+	/**
+	 * Starts an action. The action is recorded when it is ended, which may happen on another thread.
+	 * @param name the name of the action
+	 * @return the started action
+	 */
+	public Action startAction(String name) {
+		return new Action(getAction(name));
+	}
+
+	/**
+	 * Runs an action and records it when it's done, even if it fails.
+	 * @param name the name of the action
+	 * @param action the action
+	 * @return the result of the action
+	 */
+	public <T> T timeAction(String name, Supplier<T> action) {
+		Action started = startAction(name);
+		try {
+			return action.get();
+		} finally {
+			started.end();
+		}
+	}
+
+	/**
+	 * Runs an action without a result and records it when it's done, even if it fails.
+	 * @param name the name of the action
+	 * @param action the action
+	 */
+	public void runAction(String name, Runnable action) {
+		Action started = startAction(name);
+		try {
+			action.run();
+		} finally {
+			started.end();
+		}
+	}
+
+	/**
+	 * Increments a counter by one.
+	 * @param name the name of the counter
+	 */
+	public void increment(String name) {
+		add(name, 1);
+	}
+
+	/**
+	 * Adds a value to a counter.
+	 * @param name the name of the counter
+	 * @param value the value to add
+	 */
+	public void add(String name, long value) {
+		counters.computeIfAbsent(name, n -> new LongAdder()).add(value);
+	}
+
+	/**
+	 * Returns the value of a counter.
+	 * @param name the name of the counter
+	 * @return the value of the counter, or 0 if it hasn't been incremented yet
+	 */
+	public long getCount(String name) {
+		LongAdder counter = counters.get(name);
+		return counter == null ? 0 : counter.sum();
+	}
+
+	/**
+	 * Returns the number of round trips to the Design Space of all recorded operations.
+	 * @return the number of round trips
+	 */
+	public long getRoundTrips() {
+		return roundTrips.sum();
+	}
+
+	/**
+	 * Defines a derived metric, which is the number of round trips of an action per increment of a counter.
+	 * @param name the name of the derived metric, e.g. "roundTripsPerRevLink"
+	 * @param action the name of the action
+	 * @param counter the name of the counter
+	 */
+	public void defineRatio(String name, String action, String counter) {
+		ratios.put(name, new Ratio(requireNonNull(action), requireNonNull(counter)));
+	}
+
+	/**
+	 * Returns the current values of the derived metrics.
+	 * @return the values of the derived metrics by name, sorted by name
+	 * @see #defineRatio(String, String, String)
+	 */
+	public Map<String, Double> getDerivedMetrics() {
+		Map<String, Double> derived = new TreeMap<>();
+		ratios.forEach((name, ratio) -> {
+			long count = getCount(ratio.counter);
+			derived.put(name, count == 0 ? 0 : (double) getAction(ratio.action).getRoundTrips() / count);
+		});
+		return derived;
+	}
+
+	/**
+	 * Resets all operations, actions and counters. The derived metrics stay defined.
+	 */
+	public void reset() {
+		operations.values().forEach(OperationMetrics::reset);
+		actions.values().forEach(OperationMetrics::reset);
+		counters.values().forEach(LongAdder::reset);
+		roundTrips.reset();
+	}
+
+	/**
+	 * Returns a snapshot of all metrics as a JSON object with the members "roundTrips", "operations", "actions",
+	 * "counters" and "derived". The operations, actions and counters are sorted by name.
+	 * @return the metrics as JSON
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder("{\"roundTrips\":").append(getRoundTrips());
+		json.append(",\"operations\":");
+		appendJson(json, operations);
+		json.append(",\"actions\":");
+		appendJson(json, actions);
+		json.append(",\"counters\":{");
+		String separator = "";
+		for(Map.Entry<String, LongAdder> counter : new TreeMap<>(counters).entrySet()) {
+			json.append(separator).append(quote(counter.getKey())).append(':').append(counter.getValue().sum());
+			separator = ",";
+		}
+		json.append("},\"derived\":{");
+		separator = "";
+		for(Map.Entry<String, Double> metric : getDerivedMetrics().entrySet()) {
+			json.append(separator).append(quote(metric.getKey())).append(':').append(OperationMetrics.format(metric.getValue()));
+			separator = ",";
+		}
+		return json.append("}}").toString();
+	}
+
+	private static void appendJson(StringBuilder json, Map<String, OperationMetrics> metrics) {
+		json.append('{');
+		String separator = "";
+		for(OperationMetrics operation : new TreeMap<>(metrics).values()) {
+			json.append(separator).append(quote(operation.getName())).append(':');
+			operation.appendJson(json);
+			separator = ",";
+		}
+		json.append('}');
+	}
+
+	private static String quote(String value) {
+		return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+	}
+
+	/**
+	 * Passes a JSON snapshot of the metrics to the sink in the specified interval, e.g. to log them or to write them
+	 * to a file. A previously started report is stopped.
+	 * @param period the interval between two reports
+	 * @param unit the time unit of the interval
+	 * @param sink receives the metrics as JSON, see {@link #toJson()}
+	 */
+	public synchronized void startReporting(long period, TimeUnit unit, Consumer<String> sink) {
+		if(period <= 0) {
+			throw new IllegalArgumentException("The period must be positive: " + period);
+		}
+		requireNonNull(sink);
+		stopReporting();
+		reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "Metrics report");
+			thread.setDaemon(true);
+			return thread;
+		});
+		reporter.scheduleAtFixedRate(() -> {
+			try {
+				sink.accept(toJson());
+			} catch(RuntimeException e) {
+				// A failing sink must not end the periodic report
+				e.printStackTrace();
+			}
+		}, period, period, unit);
+	}
+
+	/**
+	 * Starts the periodic report if the system property {@value #REPORT_INTERVAL_PROPERTY} is set. The metrics are passed
+	 * to the log and, if the system property {@value #REPORT_FILE_PROPERTY} is set, written to this file, which is replaced
+	 * by every report.
+	 * @param log receives the metrics as JSON
+	 * @return true, if the report has been started, otherwise false
+	 */
+	public boolean startReporting(Consumer<String> log) {
+		long interval = Long.getLong(REPORT_INTERVAL_PROPERTY, 0);
+		if(interval <= 0) {
+			return false;
+		}
+		String file = System.getProperty(REPORT_FILE_PROPERTY);
+		Consumer<String> sink = file == null ? log : log.andThen(json -> writeJson(Paths.get(file), json));
+		startReporting(interval, TimeUnit.SECONDS, sink);
+		return true;
+	}
+
+	/**
+	 * Writes a JSON snapshot of the metrics to the file. The file is written next to the target first and then moved,
+	 * so readers never see a partially written file.
+	 * @param file the file
+	 */
+	public void writeJson(Path file) {
+		writeJson(file, toJson());
+	}
+
+	private static void writeJson(Path file, String json) {
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			Files.write(tmp, json.getBytes(StandardCharsets.UTF_8));
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+		} catch(IOException e) {
+			throw new RuntimeException("Failed to write the metrics to " + file + "!", e);
+		}
+	}
+
+	/**
+	 * Stops the periodic report, if it has been started.
+	 */
+	public synchronized void stopReporting() {
+		if(reporter != null) {
+			reporter.shutdownNow();
+			reporter = null;
+		}
+	}
+
+	/**
+	 * A running action, which records its latency and the round trips of the registry while it runs when it is ended.
+	 */
+	public class Action implements AutoCloseable {
+
+		private final OperationMetrics metrics;
+		private final long startNanos = System.nanoTime();
+		private final long startRoundTrips = getRoundTrips();
+		private boolean ended;
+
+		private Action(OperationMetrics metrics) {
+			this.metrics = metrics;
+		}
+
+		/**
+		 * Ends the action and records it. Further calls have no effect.
+		 */
+		public synchronized void end() {
+			if(!ended) {
+				ended = true;
+				metrics.record(System.nanoTime() - startNanos, getRoundTrips() - startRoundTrips);
+			}
+		}
+
+		@Override
+		public void close() {
+			end();
+		}
+	}
+
+	private static class Ratio {
+
+		private final String action;
+		private final String counter;
+
+		private Ratio(String action, String counter) {
+			this.action = action;
+			this.counter = counter;
+		}
+	}
+}
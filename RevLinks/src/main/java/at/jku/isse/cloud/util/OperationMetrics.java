@@ -0,0 +1,165 @@
+package at.jku.isse.cloud.util;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of a single operation: the number of invocations, the number of round trips to the Design Space that the
+ * invocations caused and a histogram of their latencies. The histogram has a bucket per power of two microseconds, so the
+ * percentiles are upper bounds that are at most twice the exact value. All methods are thread-safe and don't block.
+ */
+public class OperationMetrics {
+
+	// Bucket 0 counts latencies below 1 microsecond, bucket i latencies from 2^(i-1) up to 2^i microseconds
+	private static final int BUCKETS = 40;
+
+	private final String name;
+	private final LongAdder invocations = new LongAdder();
+	private final LongAdder roundTrips = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final AtomicLong maxNanos = new AtomicLong();
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+	OperationMetrics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Records an invocation of the operation.
+	 * @param nanos the latency of the invocation in nanoseconds
+	 * @param roundTrips the number of round trips to the Design Space of the invocation
+	 */
+	public void record(long nanos, long roundTrips) {
+		invocations.increment();
+		this.roundTrips.add(roundTrips);
+		totalNanos.add(nanos);
+		maxNanos.accumulateAndGet(nanos, Math::max);
+		buckets.incrementAndGet(bucket(nanos));
+	}
+
+	/**
+	 * Returns the name of the operation.
+	 * @return the name of the operation
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the number of recorded invocations.
+	 * @return the number of invocations
+	 */
+	public long getInvocations() {
+		return invocations.sum();
+	}
+
+	/**
+	 * Returns the number of round trips to the Design Space of all recorded invocations.
+	 * @return the number of round trips
+	 */
+	public long getRoundTrips() {
+		return roundTrips.sum();
+	}
+
+	/**
+	 * Returns the average number of round trips per invocation.
+	 * @return the round trips per invocation, or 0 if nothing has been recorded
+	 */
+	public double getRoundTripsPerInvocation() {
+		long count = getInvocations();
+		return count == 0 ? 0 : (double) getRoundTrips() / count;
+	}
+
+	/**
+	 * Returns the sum of the latencies of all recorded invocations.
+	 * @return the total latency in nanoseconds
+	 */
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	/**
+	 * Returns the average latency of the recorded invocations.
+	 * @return the average latency in microseconds, or 0 if nothing has been recorded
+	 */
+	public double getMeanMicros() {
+		long count = getInvocations();
+		return count == 0 ? 0 : getTotalNanos() / 1000.0 / count;
+	}
+
+	/**
+	 * Returns the highest latency of the recorded invocations.
+	 * @return the maximum latency in microseconds
+	 */
+	public double getMaxMicros() {
+		return maxNanos.get() / 1000.0;
+	}
+
+	/**
+	 * Returns an upper bound of the latency that the given fraction of the recorded invocations didn't exceed.
+	 * @param percentile the fraction, e.g. 0.99 for the 99th percentile
+	 * @return the upper bound of the latency in microseconds, or 0 if nothing has been recorded
+	 */
+	public double getPercentileMicros(double percentile) {
+		if(percentile < 0 || percentile > 1) {
+			throw new IllegalArgumentException("The percentile must be between 0 and 1: " + percentile);
+		}
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		if(total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(percentile * total);
+		long seen = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if(seen >= rank) {
+				return Math.min(1L << i, getMaxMicros());
+			}
+		}
+		return getMaxMicros();
+	}
+
+	void reset() {
+		invocations.reset();
+		roundTrips.reset();
+		totalNanos.reset();
+		maxNanos.set(0);
+		for(int i = 0; i < BUCKETS; i++) {
+			buckets.set(i, 0);
+		}
+	}
+
+	void appendJson(StringBuilder json) {
+		json.append("{\"invocations\":").append(getInvocations())
+				.append(",\"roundTrips\":").append(getRoundTrips())
+				.append(",\"roundTripsPerInvocation\":").append(format(getRoundTripsPerInvocation()))
+				.append(",\"meanMicros\":").append(format(getMeanMicros()))
+				.append(",\"p50Micros\":").append(format(getPercentileMicros(0.5)))
+				.append(",\"p95Micros\":").append(format(getPercentileMicros(0.95)))
+				.append(",\"p99Micros\":").append(format(getPercentileMicros(0.99)))
+				.append(",\"maxMicros\":").append(format(getMaxMicros()))
+				.append('}');
+	}
+
+	static String format(double value) {
+		return String.format(Locale.ROOT, "%.2f", value);
+	}
+
+	private static int bucket(long nanos) {
+		long micros = nanos / 1000;
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "%s[invocations=%d, roundTrips=%d, mean=%.1fus, p99=%.1fus, max=%.1fus]",
+				name, getInvocations(), getRoundTrips(), getMeanMicros(), getPercentileMicros(0.99), getMaxMicros());
+	}
+}
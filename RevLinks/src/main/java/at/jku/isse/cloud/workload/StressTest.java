@@ -0,0 +1,198 @@
+package at.jku.isse.cloud.workload;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import at.jku.isse.cloud.artifact.DSConnection;
+import at.jku.isse.cloud.artifact.DSRevLink;
+import at.jku.isse.cloud.artifact.InMemoryDSProvider;
+import at.jku.isse.cloud.artifact.WarmCache;
+import at.jku.isse.cloud.revlinks.LinkIndex;
+import at.jku.isse.cloud.revlinks.RevLink;
+import at.jku.isse.cloud.revlinks.RevLinkCreation;
+import at.jku.isse.cloud.revlinks.RevLinkTable;
+import at.jku.isse.cloud.revlinks.visualize.LinkQuery;
+import at.jku.isse.cloud.revlinks.visualize.Traversal;
+import at.jku.isse.cloud.revlinks.visualize.TraversalResult;
+import at.jku.isse.cloud.workload.WorkloadGenerator.Distribution;
+import at.jku.sea.cloud.Artifact;
+
+/**
+ * Generates a workload and measures the creation and the queries of the reverse links on it. For every phase, the wall-clock time
+ * and the used heap after the phase and the round trips recorded in the metrics of the connection are reported; for the in-memory
+ * Design Space also the number of Design Space calls. For the in-memory Design Space, a restart of the visualizer with a
+ * {@link WarmCache} is measured as well. Finally, all metrics are printed as JSON.
+ * The workload is configured with the following system properties:
+ * <li> revlinks.workload.classes: the number of concrete classes (default 10)
+ * <li> revlinks.workload.instances: the number of instances (default 1000)
+ * <li> revlinks.workload.fanOut: the maximum number of links per instance (default 3)
+ * <li> revlinks.workload.depth: the depth of the super type chain (default 1)
+ * <li> revlinks.workload.distribution: UNIFORM or ZIPFIAN (default UNIFORM)
+ * <li> revlinks.workload.zipf: the exponent of the Zipfian distribution (default 1.0)
+ * <li> revlinks.workload.seed: the seed of the generator (default 42)
+ * <li> revlinks.workload.latencyMicros: the latency of every call to the in-memory Design Space (default 0)
+ * <li> revlinks.workload.server: if true, a Design Space server is used instead of the in-memory Design Space
+ */
+public class StressTest {
+
+	private static final String PREFIX = "revlinks.workload.";
+
+	private final DSConnection conn;
+	private final InMemoryDSProvider provider;
+
+	private StressTest(DSConnection conn, InMemoryDSProvider provider) {
+		this.conn = conn;
+		this.provider = provider;
+	}
+
+	public static void main(String[] args) {
+		WorkloadGenerator generator = new WorkloadGenerator()
+				.withClasses(Integer.getInteger(PREFIX + "classes", 10))
+				.withInstances(Integer.getInteger(PREFIX + "instances", 1000))
+				.withMaxFanOut(Integer.getInteger(PREFIX + "fanOut", 3))
+				.withSuperTypeDepth(Integer.getInteger(PREFIX + "depth", 1))
+				.withDistribution(Distribution.valueOf(System.getProperty(PREFIX + "distribution", Distribution.UNIFORM.name())),
+						Double.parseDouble(System.getProperty(PREFIX + "zipf", "1.0")))
+				.withSeed(Long.getLong(PREFIX + "seed", 42));
+		StressTest test;
+		if(Boolean.getBoolean(PREFIX + "server")) {
+			test = new StressTest(new DSConnection("Workload_user", "Workload_pwd", "workload_workspace"), null);
+		} else {
+			InMemoryDSProvider provider = new InMemoryDSProvider()
+					.withLatency(Long.getLong(PREFIX + "latencyMicros", 0), 0, TimeUnit.MICROSECONDS);
+			test = new StressTest(new DSConnection(provider), provider);
+		}
+		test.run(generator);
+	}
+
+	private void run(WorkloadGenerator generator) {
+		Workload workload = measure("generate", () -> generator.generate(conn, "Workload_" + System.currentTimeMillis()));
+		System.out.println("Generated " + workload.getInstances() + " instances with " + workload.getLinks() + " links");
+
+		DSRevLink revLink = conn.getOrCreateReverseLinkClass();
+		measure("createRevLinksAndSetOpposites", () -> {
+			RevLinkCreation.createRevLinksAndSetOpposites(conn, workload.getInstancePackage(), revLink);
+			conn.commit("");
+			return null;
+		});
+
+		LinkQuery linkQuery = new LinkQuery(conn);
+		Map<Artifact, List<RevLink>> revLinks = measure("getRevLinks", () -> linkQuery.getRevLinks(workload.getInstancePackage()));
+		System.out.println("Read " + revLinks.values().stream().mapToInt(List::size).sum() + " reverse links");
+		measure("getRevLinks (cached)", () -> linkQuery.getRevLinks(workload.getInstancePackage()));
+		measure("getLinkTypes", () -> linkQuery.getLinkTypes(revLinks));
+		linkQuery.invalidateCaches();
+		RevLinkTable table = measure("getRevLinkTable", () -> linkQuery.getRevLinkTable(workload.getInstancePackage()));
+		System.out.println("Read " + table.size() + " reverse links with " + table.getRelNameSets().size() + " distinct relation name sets");
+		LinkIndex index = measure("getLinkIndex", () -> linkQuery.getLinkIndex(workload.getInstancePackage()));
+		long found = measure("LinkIndex queries (6 patterns per link)", () -> {
+			long links = 0;
+			for(int row = 0; row < table.size(); row++) {
+				long source = table.getTargetId(row);
+				long target = table.getSourceId(row);
+				String relName = table.getRelNames(row)[0];
+				links += index.byRelName(relName).count() + index.byTarget(target).count() + index.byTargetAndRelName(target, relName).count()
+						+ index.bySource(source).count() + index.bySourceAndRelName(source, relName).count() 
+						+ index.bySourceAndTarget(source, target).count();
+			}
+			return links;
+		});
+		System.out.println("Indexed " + index.size() + " links, " + 6 * table.size() + " queries found " + found + " links");
+
+		// The artifact with the most incoming links
+		revLinks.values().stream()
+				.flatMap(List::stream)
+				.collect(Collectors.groupingBy(rl -> rl.getSource().getId(), Collectors.counting()))
+				.entrySet().stream()
+				.max(Comparator.comparing(Map.Entry::getValue))
+				.ifPresent(hottest -> {
+					linkQuery.invalidateCaches();
+					List<RevLink> incoming = measure("visualizeRevLinks", () -> linkQuery.visualizeRevLinks(hottest.getKey()));
+					System.out.println("Artifact " + hottest.getKey() + " has " + incoming.size() + " incoming reverse links");
+					TraversalResult reached = measure("traverse (incoming, depth 3)", () -> linkQuery.traverse(Traversal.from(hottest.getKey())));
+					System.out.println("Traversal visited " + reached.size() + " artifacts" + (reached.isTruncated() ? " (truncated)" : ""));
+				});
+		linkQuery.close();
+
+		if(provider != null) {
+			warmRestart(workload);
+		}
+
+		measure("updateRevLinksAndOpposites (unchanged)", () -> {
+			RevLinkCreation.updateRevLinksAndOpposites(conn, workload.getInstancePackage(), revLink);
+			return null;
+		});
+		System.out.println(conn.getMetrics().toJson());
+	}
+
+	/**
+	 * Connects twice with a warm cache in a temporary directory: the first connection fills the cache, the second one starts
+	 * with the saved cache, like the visualizer after a restart. The round trips are those of the new connection.
+	 */
+	private void warmRestart(Workload workload) {
+		Path root;
+		try {
+			root = Files.createTempDirectory("revlinks-cache");
+		} catch(IOException e) {
+			throw new RuntimeException("Failed to create the directory of the warm cache!", e);
+		}
+		try {
+			for(String phase : new String[] {"restart with cold cache", "restart with warm cache"}) {
+				long calls = provider.getTotalCalls();
+				long start = System.nanoTime();
+				DSConnection restarted = new DSConnection(provider, WarmCache.open(root, "workload"));
+				try(LinkQuery query = new LinkQuery(restarted)) {
+					query.getLinkTypes(query.getRevLinkTable(workload.getInstancePackage()));
+				}
+				long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+				System.out.println(String.format("%-40s %8d ms %8d MB heap %10d round trips %10d calls", phase, millis, usedHeapMegabytes(),
+						restarted.getMetrics().getRoundTrips(), provider.getTotalCalls() - calls));
+				restarted.getWarmCache().ifPresent(WarmCache::save);
+				if(phase.endsWith("warm cache")) {
+					restarted.getWarmCache().ifPresent(WarmCache::clear);
+				}
+			}
+		} finally {
+			deleteDirectory(root);
+		}
+	}
+
+	private static void deleteDirectory(Path root) {
+		try(Stream<Path> paths = Files.walk(root)) {
+			for(Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+				Files.delete(path);
+			}
+		} catch(IOException e) {
+			System.err.println("Failed to delete the directory of the warm cache " + root + ": " + e.getMessage());
+		}
+	}
+
+	private <T> T measure(String phase, Supplier<T> action) {
+		long calls = provider == null ? 0 : provider.getTotalCalls();
+		long roundTrips = conn.getMetrics().getRoundTrips();
+		long start = System.nanoTime();
+		T result = action.get();
+		long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		StringBuilder report = new StringBuilder(String.format("%-40s %8d ms %8d MB heap %10d round trips", phase, millis, usedHeapMegabytes(),
+				conn.getMetrics().getRoundTrips() - roundTrips));
+		if(provider != null) {
+			report.append(String.format(" %10d calls", provider.getTotalCalls() - calls));
+		}
+		System.out.println(report);
+		return result;
+	}
+
+	private static long usedHeapMegabytes() {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		return (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+	}
+}
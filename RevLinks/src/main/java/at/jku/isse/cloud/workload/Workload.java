@@ -0,0 +1,49 @@
+package at.jku.isse.cloud.workload;
+
+import at.jku.sea.cloud.Package;
+
+/**
+ * A model that has been generated by the {@link WorkloadGenerator}.
+ */
+public class Workload {
+
+	private final String name;
+	private final Package metaPackage;
+	private final Package instancePackage;
+	private final int instances;
+	private final int links;
+	private final long generationNanos;
+
+	Workload(String name, Package metaPackage, Package instancePackage, int instances, int links, long generationNanos) {
+		this.name = name;
+		this.metaPackage = metaPackage;
+		this.instancePackage = instancePackage;
+		this.instances = instances;
+		this.links = links;
+		this.generationNanos = generationNanos;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Package getMetaPackage() {
+		return metaPackage;
+	}
+
+	public Package getInstancePackage() {
+		return instancePackage;
+	}
+
+	public int getInstances() {
+		return instances;
+	}
+
+	public int getLinks() {
+		return links;
+	}
+
+	public long getGenerationNanos() {
+		return generationNanos;
+	}
+}
@@ -0,0 +1,246 @@
+package at.jku.isse.cloud.workload;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import at.jku.isse.cloud.artifact.DSClass;
+import at.jku.isse.cloud.artifact.DSConnection;
+import at.jku.isse.cloud.artifact.DSInstance;
+import at.jku.isse.cloud.artifact.DSLink;
+import at.jku.sea.cloud.Package;
+
+/**
+ * Generates large synthetic models with the {@link DSClass}, {@link DSLink} and {@link DSInstance} builders.
+ * The meta model consists of a chain of abstract super types and a number of concrete classes, which all extend the most
+ * specific super type. Every concrete class has as many links as the maximum fan-out, each link targets another concrete class.
+ * The instances are spread evenly over the concrete classes. For every instance, the number of links that are set and the
+ * target instances of the links are drawn from the fan-out distribution. A Zipfian distribution prefers the first targets,
+ * which results in a heavy fan-in on few shared targets like colors or brands.
+ * <p>
+ * The generator is deterministic for a given seed.
+ */
+public class WorkloadGenerator {
+
+	/**
+	 * The distribution of the number of links per instance and of the targets of the links.
+	 */
+	public enum Distribution {
+		UNIFORM, ZIPFIAN
+	}
+
+	private int classCount = 10;
+	private int instanceCount = 1000;
+	private int maxFanOut = 3;
+	private int superTypeDepth = 1;
+	private int featureCount = 2;
+	private Distribution distribution = Distribution.UNIFORM;
+	private double zipfExponent = 1.0;
+	private long seed = 42;
+
+	public WorkloadGenerator withClasses(int classCount) {
+		this.classCount = requirePositive(classCount, "classes");
+		return this;
+	}
+
+	public WorkloadGenerator withInstances(int instanceCount) {
+		this.instanceCount = requirePositive(instanceCount, "instances");
+		return this;
+	}
+
+	public WorkloadGenerator withMaxFanOut(int maxFanOut) {
+		this.maxFanOut = requirePositive(maxFanOut, "max fan-out");
+		return this;
+	}
+
+	public WorkloadGenerator withSuperTypeDepth(int superTypeDepth) {
+		if(superTypeDepth < 0) {
+			throw new IllegalArgumentException("The super type depth must not be negative: " + superTypeDepth);
+		}
+		this.superTypeDepth = superTypeDepth;
+		return this;
+	}
+
+	public WorkloadGenerator withFeatures(int featureCount) {
+		if(featureCount < 0) {
+			throw new IllegalArgumentException("The number of features must not be negative: " + featureCount);
+		}
+		this.featureCount = featureCount;
+		return this;
+	}
+
+	/**
+	 * Sets the distribution of the number of links per instance and of the targets of the links.
+	 * @param distribution the distribution
+	 * @param zipfExponent the exponent of the Zipfian distribution, which is ignored for the uniform distribution
+	 * @return the generator
+	 */
+	public WorkloadGenerator withDistribution(Distribution distribution, double zipfExponent) {
+		this.distribution = requireNonNull(distribution);
+		this.zipfExponent = zipfExponent;
+		return this;
+	}
+
+	public WorkloadGenerator withSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * Generates the meta model in the package "&ltname&gt_UML" and the instances in the package "&ltname&gt" and commits them.
+	 * @param conn the Design Space connection
+	 * @param name the name of the workload
+	 * @return the generated workload
+	 */
+	public Workload generate(DSConnection conn, String name) {
+		Random random = new Random(seed);
+		Package metaPkg = conn.getOrCreatePackage(name + "_UML");
+		Package pkg = conn.getOrCreatePackage(name);
+		long start = System.nanoTime();
+		int links = conn.callInBatch(() -> createInstances(conn, metaPkg, pkg, random));
+		conn.commit("generate workload " + name);
+		return new Workload(name, metaPkg, pkg, instanceCount, links, System.nanoTime() - start);
+	}
+
+	/**
+	 * Creates the meta model and the linked instances.
+	 * @return the number of created links
+	 */
+	private int createInstances(DSConnection conn, Package metaPkg, Package pkg, Random random) {
+		int links = 0;
+		List<DSClass> classes = createMetaModel(conn, metaPkg);
+		List<DSLink[]> classLinks = new ArrayList<>(classCount);
+		for(int i = 0; i < classCount; i++) {
+			DSLink[] linksOfClass = new DSLink[maxFanOut];
+			for(int k = 0; k < maxFanOut; k++) {
+				linksOfClass[k] = new DSLink("link" + k, classes.get(targetClass(i, k)), 0, -1, 0, 1);
+			}
+			classes.get(i).withLinks(linksOfClass);
+			classLinks.add(linksOfClass);
+		}
+
+		List<List<DSInstance>> instances = new ArrayList<>(classCount);
+		for(int i = 0; i < classCount; i++) {
+			instances.add(new ArrayList<>());
+		}
+		for(int j = 0; j < instanceCount; j++) {
+			int type = j % classCount;
+			DSInstance instance = classes.get(type).createInstance("Instance " + j, pkg);
+			for(int f = 0; f < featureCount; f++) {
+				instance.setProperty("feature" + f, "value " + j + "." + f);
+			}
+			instances.get(type).add(instance);
+		}
+
+		Sampler fanOut = new Sampler(maxFanOut);
+		for(int i = 0; i < classCount; i++) {
+			for(DSInstance instance : instances.get(i)) {
+				int linkCount = fanOut.next(random) + 1;
+				for(int k = 0; k < linkCount; k++) {
+					List<DSInstance> targets = instances.get(targetClass(i, k));
+					if(!targets.isEmpty()) {
+						instance.setLinkProperty(classLinks.get(i)[k], targets.get(new Sampler(targets.size()).next(random)));
+						links++;
+					}
+				}
+			}
+		}
+		return links;
+	}
+
+	private List<DSClass> createMetaModel(DSConnection conn, Package metaPkg) {
+		String[] features = new String[featureCount];
+		for(int f = 0; f < featureCount; f++) {
+			features[f] = "feature" + f;
+		}
+		DSClass superType = null;
+		for(int d = 0; d < superTypeDepth; d++) {
+			DSClass base = new DSClass(conn, "Base" + d, metaPkg).withFeatures("@opposite");
+			if(superType != null) {
+				base.withSuperType(superType);
+			}
+			superType = base;
+		}
+		List<DSClass> classes = new ArrayList<>(classCount);
+		for(int i = 0; i < classCount; i++) {
+			DSClass type = new DSClass(conn, "Class" + i, metaPkg).withFeatures(features);
+			if(superType != null) {
+				type.withSuperType(superType);
+			}
+			classes.add(type);
+		}
+		return classes;
+	}
+
+	private int targetClass(int sourceClass, int link) {
+		return (sourceClass + link + 1) % classCount;
+	}
+
+	private static int requirePositive(int value, String name) {
+		if(value < 1) {
+			throw new IllegalArgumentException("The number of " + name + " must be positive: " + value);
+		}
+		return value;
+	}
+
+	/**
+	 * Draws values from 0 (inclusive) to n (exclusive) according to the distribution of the generator.
+	 */
+	private class Sampler {
+
+		private final int n;
+
+		private Sampler(int n) {
+			this.n = n;
+		}
+
+		private int next(Random random) {
+			if(distribution == Distribution.UNIFORM || n == 1) {
+				return random.nextInt(n);
+			}
+			return zipf(random);
+		}
+
+		/**
+		 * Draws a value by rejection-inversion sampling, which doesn't need a table of the probabilities of all n values.
+		 * See W. Hoermann and G. Derflinger, "Rejection-inversion to generate variates from monotone discrete distributions".
+		 */
+		private int zipf(Random random) {
+			double hIntegralX1 = hIntegral(1.5) - 1.0;
+			double hIntegralN = hIntegral(n + 0.5);
+			double s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+			while(true) {
+				double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+				double x = hIntegralInverse(u);
+				int k = (int) Math.max(1, Math.min(n, Math.round(x)));
+				if(k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+					return k - 1;
+				}
+			}
+		}
+
+		private double h(double x) {
+			return Math.exp(-zipfExponent * Math.log(x));
+		}
+
+		private double hIntegral(double x) {
+			double logX = Math.log(x);
+			return helper2((1.0 - zipfExponent) * logX) * logX;
+		}
+
+		private double hIntegralInverse(double x) {
+			double t = Math.max(-1.0, x * (1.0 - zipfExponent));
+			return Math.exp(helper1(t) * x);
+		}
+
+		private double helper1(double x) {
+			return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+		}
+
+		private double helper2(double x) {
+			return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1.0 + x * 0.5 * (1.0 + x * (1.0 / 3.0) * (1.0 + 0.25 * x));
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package at.jku.isse.cloud.artifact;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.jku.sea.cloud.CollectionArtifact;
+
+public class DSBatchTest {
+
+	private DSConnection conn;
+
+	@Before
+	public void setUp() {
+		conn = new DSConnection(new InMemoryDSProvider());
+	}
+
+	@Test
+	public void elementsOfACollectionAreWrittenTogether() {
+		List<List<Object>> requests = new ArrayList<>();
+		CollectionArtifact collection = collection(1, requests, false);
+		try(DSBatch batch = conn.beginBatch()) {
+			conn.addElementToCollection(collection, "a");
+			conn.addElementToCollection(collection, "b");
+			assertEquals(2, batch.getPendingWrites());
+		}
+		assertEquals(Arrays.asList(Arrays.asList("a", "b")), requests);
+		assertEquals(1, conn.getMetrics().getCount(DSBatch.SAVED_ROUND_TRIPS));
+	}
+
+	@Test
+	public void discardedElementsAreNotPending() {
+		List<List<Object>> requests = new ArrayList<>();
+		CollectionArtifact collection = collection(1, requests, false);
+		try(DSBatch batch = conn.beginBatch()) {
+			conn.addElementToCollection(collection, "a");
+			conn.addElementToCollection(collection, "b");
+			conn.removeElementFromCollection(collection, "a");
+			assertEquals(1, batch.getPendingWrites());
+		}
+		assertEquals(Arrays.asList(Arrays.asList("b")), requests);
+	}
+
+	@Test
+	public void writtenArtifactsAreNotWrittenAgainAfterAFailedFlush() {
+		List<List<Object>> written = new ArrayList<>();
+		List<List<Object>> failed = new ArrayList<>();
+		CollectionArtifact first = collection(1, written, false);
+		CollectionArtifact second = collection(2, failed, true);
+		DSBatch batch = conn.beginBatch();
+		try {
+			conn.addElementToCollection(first, "a");
+			conn.addElementToCollection(second, "b");
+			try {
+				batch.flush();
+				fail();
+			} catch(IllegalStateException e) {
+				assertEquals("unavailable", e.getMessage());
+			}
+			assertEquals(1, batch.getPendingWrites());
+
+			batch.flush();
+			assertEquals(0, batch.getPendingWrites());
+			assertEquals(Arrays.asList(Arrays.asList("a")), written);
+			assertEquals(Arrays.asList(Arrays.asList("b"), Arrays.asList("b")), failed);
+		} finally {
+			batch.close();
+		}
+	}
+
+	/**
+	 * Returns a collection artifact that records the elements of every addElements request. If it fails, then only its first request fails.
+	 */
+	private static CollectionArtifact collection(long id, List<List<Object>> requests, boolean fails) {
+		return (CollectionArtifact) Proxy.newProxyInstance(DSBatchTest.class.getClassLoader(), new Class<?>[] {CollectionArtifact.class},
+				(self, method, args) -> {
+					switch(method.getName()) {
+					case "getId":
+						return id;
+					case "addElements":
+						requests.add(new ArrayList<>((Collection<?>) args[1]));
+						if(fails && requests.size() == 1) {
+							throw new IllegalStateException("unavailable");
+						}
+						return null;
+					case "hashCode":
+						return Long.hashCode(id);
+					case "equals":
+						return self == args[0];
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+}
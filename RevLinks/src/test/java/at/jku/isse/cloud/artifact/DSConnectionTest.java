@@ -0,0 +1,85 @@
+package at.jku.isse.cloud.artifact;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.jku.sea.cloud.Package;
+
+public class DSConnectionTest {
+
+	private InMemoryDSProvider provider;
+	private List<Package> packages;
+
+	@Before
+	public void setUp() {
+		provider = new InMemoryDSProvider();
+		DSConnection creator = new DSConnection(provider);
+		packages = new ArrayList<>();
+		Package parent = creator.getOrCreatePackage("parent");
+		for(int i = 0; i < 10; i++) {
+			packages.add(creator.getOrCreatePackage("p" + i, i % 2 == 0 ? null : parent));
+		}
+		provider.resetCallCounts();
+	}
+
+	@Test
+	public void packagesAreReadOnDemand() {
+		DSConnection conn = new DSConnection(provider);
+		assertEquals(0, provider.getTotalCalls());
+
+		// Lists the packages and reads the names up to the package, but only the parent of the package itself
+		assertEquals(packages.get(2), conn.getPackageFromName("p2").get());
+		assertEquals(1, count("Workspace.getPackages"));
+		assertEquals(1, count("Artifact.getPackage"));
+		long names = count("DSProvider.getName");
+		assertTrue(names < packages.size());
+
+		// Cached, and the names that have been read are not read again
+		assertEquals(packages.get(2), conn.getPackageFromName("p2").get());
+		assertEquals(packages.get(1), conn.getOrCreatePackage("p1", packages.get(1).getPackage()));
+		assertEquals(names, count("DSProvider.getName"));
+		assertEquals(1, count("Workspace.getPackages"));
+	}
+
+	@Test
+	public void missingPackagesAreCreatedOnce() {
+		DSConnection conn = new DSConnection(provider);
+		int size = provider.size();
+		assertFalse(conn.getPackageFromName("missing").isPresent());
+		Package created = conn.getOrCreatePackage("missing");
+		assertEquals(size + 1, provider.size());
+		assertEquals(created, conn.getOrCreatePackage("missing"));
+		assertEquals(created, new DSConnection(provider).getOrCreatePackage("missing"));
+		assertEquals(size + 1, provider.size());
+	}
+
+	@Test
+	public void packagesWithPrefixReadAllNames() {
+		DSConnection conn = new DSConnection(provider);
+		List<Package> found = conn.getPackagesWithPrefix("p");
+		// "parent" has the prefix as well
+		assertEquals(packages.size() + 1, found.size());
+		assertTrue(found.containsAll(packages));
+	}
+
+	@Test
+	public void invalidatedCacheSeesNewPackages() {
+		DSConnection conn = new DSConnection(provider);
+		assertFalse(conn.getPackageFromName("other").isPresent());
+		Package other = new DSConnection(provider).getOrCreatePackage("other");
+		assertFalse(conn.getPackageFromName("other").isPresent());
+		conn.invalidatePackageCache();
+		assertEquals(other, conn.getPackageFromName("other").get());
+	}
+
+	private long count(String operation) {
+		return provider.getCallCounts().getOrDefault(operation, 0L);
+	}
+}
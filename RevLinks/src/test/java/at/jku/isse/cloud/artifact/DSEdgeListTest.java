@@ -0,0 +1,93 @@
+package at.jku.isse.cloud.artifact;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.jku.sea.cloud.Package;
+
+public class DSEdgeListTest {
+
+	private DSConnection conn;
+	private Package rlPkg;
+
+	@Before
+	public void setUp() {
+		conn = new DSConnection(new InMemoryDSProvider());
+		rlPkg = conn.getOrCreatePackage("RL");
+	}
+
+	@Test
+	public void rowsAreReadAsWritten() {
+		DSEdgeList.Builder rows = new DSEdgeList.Builder();
+		// More rows than the initial capacity of the builder and ids that use all bytes of a long
+		for(long row = 0; row < 100; row++) {
+			rows.add(row, Long.MAX_VALUE - row, -row, Long.MIN_VALUE + row, row * 31);
+		}
+		rows.write(conn, rlPkg);
+
+		List<DSEdgeList> chunks = DSEdgeList.read(conn, rlPkg);
+		assertEquals(1, chunks.size());
+		DSEdgeList chunk = chunks.get(0);
+		assertEquals(100, chunk.size());
+		for(int row = 0; row < 100; row++) {
+			assertEquals(row, chunk.getSourceId(row));
+			assertEquals(Long.MAX_VALUE - row, chunk.getTargetId(row));
+			assertEquals(-row, chunk.getSourceTypeId(row));
+			assertEquals(Long.MIN_VALUE + row, chunk.getTargetTypeId(row));
+			assertEquals(row * 31, chunk.getRelNamesId(row));
+		}
+	}
+
+	@Test
+	public void rowIdsAreNegativeAndDistinct() {
+		DSEdgeList.Builder rows = new DSEdgeList.Builder();
+		rows.add(1, 2, 3, 4, 5);
+		rows.add(6, 7, 8, 9, 10);
+		rows.write(conn, rlPkg);
+
+		DSEdgeList chunk = DSEdgeList.read(conn, rlPkg).get(0);
+		assertTrue(chunk.getRowId(0) < 0);
+		assertTrue(chunk.getRowId(1) < 0);
+		assertNotEquals(chunk.getRowId(0), chunk.getRowId(1));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void rowsOutsideOfTheChunkAreRejected() {
+		DSEdgeList.Builder rows = new DSEdgeList.Builder();
+		rows.add(1, 2, 3, 4, 5);
+		rows.write(conn, rlPkg);
+
+		DSEdgeList.read(conn, rlPkg).get(0).getSourceId(1);
+	}
+
+	@Test
+	public void retainReplacesTheChunk() {
+		DSEdgeList.Builder rows = new DSEdgeList.Builder();
+		for(long row = 0; row < 10; row++) {
+			rows.add(row, row + 100, 0, 0, 0);
+		}
+		rows.write(conn, rlPkg);
+
+		DSEdgeList chunk = DSEdgeList.read(conn, rlPkg).get(0);
+		assertEquals(0, chunk.retain(conn, rlPkg, row -> true));
+		assertEquals(chunk.getId(), DSEdgeList.read(conn, rlPkg).get(0).getId());
+
+		assertEquals(5, chunk.retain(conn, rlPkg, row -> chunk.getSourceId(row) % 2 == 0));
+		List<DSEdgeList> chunks = DSEdgeList.read(conn, rlPkg);
+		assertEquals(1, chunks.size());
+		assertEquals(5, chunks.get(0).size());
+		for(int row = 0; row < 5; row++) {
+			assertEquals(row * 2, chunks.get(0).getSourceId(row));
+			assertEquals(row * 2 + 100, chunks.get(0).getTargetId(row));
+		}
+
+		assertEquals(5, chunks.get(0).retain(conn, rlPkg, row -> false));
+		assertTrue(DSEdgeList.read(conn, rlPkg).isEmpty());
+	}
+}
@@ -0,0 +1,103 @@
+package at.jku.isse.cloud.artifact;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.jku.sea.cloud.Package;
+
+public class DSRevLinkTest {
+
+	private DSConnection conn;
+	private DSRevLink revLink;
+	private DSClass type;
+	private Package pkg;
+	private Package rlPkg;
+	private List<DSInstance> instances;
+
+	@Before
+	public void setUp() {
+		conn = new DSConnection(new InMemoryDSProvider());
+		revLink = conn.getOrCreateReverseLinkClass();
+		type = new DSClass(conn, "T", conn.getOrCreatePackage("model"));
+		pkg = conn.getOrCreatePackage("p");
+		rlPkg = conn.getOrCreatePackage("RL_p");
+		instances = new ArrayList<>();
+		for(int i = 0; i < 3; i++) {
+			instances.add(type.createInstance("x" + i, pkg));
+		}
+	}
+
+	@Test
+	public void revLinkKeyIsStable() {
+		// The key is part of the names of existing reverse links, so it must not change
+		assertEquals(0x7717980363c8e066L, DSRevLink.revLinkKey(1, 2));
+		assertEquals(DSRevLink.revLinkKey(1, 2), DSRevLink.revLinkKey(1, 2));
+		assertNotEquals(DSRevLink.revLinkKey(1, 2), DSRevLink.revLinkKey(2, 1));
+	}
+
+	@Test
+	public void createRevLinkIsAnUpsert() {
+		assertTrue(create(0, 1, "next"));
+		assertFalse(create(0, 1, "next"));
+		assertEquals(1, conn.getArtifactsOfType(revLink, rlPkg).size());
+
+		assertTrue(create(0, 1, "next", "also"));
+		assertFalse(create(0, 1, "also", "next"));
+		assertEquals(1, conn.getArtifactsOfType(revLink, rlPkg).size());
+
+		assertTrue(create(1, 0, "next"));
+		assertEquals(2, conn.getArtifactsOfType(revLink, rlPkg).size());
+	}
+
+	@Test
+	public void createRevLinkReadsExistingRevLinks() {
+		assertTrue(create(0, 1, "next"));
+		DSRevLink other = new DSConnection(conn.getProvider()).getOrCreateReverseLinkClass();
+		assertFalse(other.createRevLink(type, type, instances.get(0), instances.get(1), rlPkg, "next"));
+	}
+
+	@Test
+	public void replacedEdgesAreRemovedWhenTheEdgeListIsWritten() {
+		revLink.withStorageMode(DSRevLink.StorageMode.EDGE_LIST);
+		assertTrue(create(0, 1, "next"));
+		assertTrue(create(0, 2, "next"));
+		assertTrue(create(1, 2, "next"));
+		revLink.flushEdges();
+
+		assertTrue(create(0, 1, "next", "also"));
+		assertTrue(create(0, 2, "also"));
+		// Replaces the buffered row
+		assertTrue(create(0, 2, "other"));
+		assertEquals(1, DSEdgeList.read(conn, rlPkg).size());
+		revLink.flushEdges();
+
+		// The old chunk is rewritten once without the two replaced rows, the new rows are written into a new chunk
+		List<DSEdgeList> chunks = DSEdgeList.read(conn, rlPkg);
+		assertEquals(2, chunks.size());
+		Set<List<Long>> rows = new HashSet<>();
+		for(DSEdgeList chunk : chunks) {
+			for(int row = 0; row < chunk.size(); row++) {
+				assertTrue(rows.add(Arrays.asList(chunk.getSourceId(row), chunk.getTargetId(row))));
+			}
+		}
+		assertEquals(3, rows.size());
+		assertFalse(create(0, 1, "also", "next"));
+		assertFalse(create(0, 2, "other"));
+		assertFalse(create(1, 2, "next"));
+	}
+
+	private boolean create(int target, int source, String... relNames) {
+		return revLink.createRevLink(type, type, instances.get(target), instances.get(source), rlPkg, relNames);
+	}
+}
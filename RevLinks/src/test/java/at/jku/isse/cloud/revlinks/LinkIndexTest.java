@@ -0,0 +1,96 @@
+package at.jku.isse.cloud.revlinks;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.jku.isse.cloud.revlinks.LinkIndex.Triple;
+
+public class LinkIndexTest {
+
+	private static final long CAR = 1;
+	private static final long TRUCK = 2;
+	private static final long BLACK = 10;
+	private static final long RED = 11;
+	private static final long ENGINE = 20;
+
+	private LinkIndex index;
+
+	@Before
+	public void setUp() {
+		RelNameSets relNameSets = new RelNameSets();
+		// The source of a reverse link is the linked artifact, its target the artifact that holds the link
+		RevLinkTable first = RevLinkTable.builder(relNameSets)
+				.add(100, BLACK, CAR, 0, 0, relNameSets.intern("has_color"))
+				.add(101, ENGINE, CAR, 0, 0, relNameSets.intern("has_part", "requires"))
+				.build();
+		RevLinkTable second = RevLinkTable.builder(relNameSets)
+				.add(102, RED, TRUCK, 0, 0, relNameSets.intern("has_color"))
+				.add(103, ENGINE, TRUCK, 0, 0, relNameSets.intern("has_part"))
+				.add(104, BLACK, TRUCK, 0, 0, relNameSets.intern("has_color"))
+				.build();
+		index = LinkIndex.of(first, second);
+	}
+
+	@Test
+	public void everyRelationNameIsATriple() {
+		assertEquals(6, index.size());
+		assertArrayEquals(new String[] {"has_color", "has_part", "requires"}, index.getRelNames());
+		assertEquals(Arrays.asList("1 -requires-> 20"), links(index.byRelName("requires")));
+		assertEquals(101, index.byRelName("requires").findFirst().get().getRevLinkId());
+	}
+
+	@Test
+	public void byRelNameIsOrderedByTargetAndSource() {
+		assertEquals(Arrays.asList("1 -has_color-> 10", "2 -has_color-> 10", "2 -has_color-> 11"), links(index.byRelName("has_color")));
+	}
+
+	@Test
+	public void byTargetIsOrderedBySourceAndRelName() {
+		assertEquals(Arrays.asList("1 -has_part-> 20", "1 -requires-> 20", "2 -has_part-> 20"), links(index.byTarget(ENGINE)));
+	}
+
+	@Test
+	public void byTargetAndRelName() {
+		assertEquals(Arrays.asList("1 -has_color-> 10", "2 -has_color-> 10"), links(index.byTargetAndRelName(BLACK, "has_color")));
+		assertEquals(Arrays.asList(), links(index.byTargetAndRelName(RED, "has_part")));
+	}
+
+	@Test
+	public void bySourceIsOrderedByRelNameAndTarget() {
+		assertEquals(Arrays.asList("2 -has_color-> 10", "2 -has_color-> 11", "2 -has_part-> 20"), links(index.bySource(TRUCK)));
+	}
+
+	@Test
+	public void bySourceAndRelName() {
+		assertEquals(Arrays.asList("2 -has_color-> 10", "2 -has_color-> 11"), links(index.bySourceAndRelName(TRUCK, "has_color")));
+		assertEquals(Arrays.asList("1 -has_part-> 20"), links(index.bySourceAndRelName(CAR, "has_part")));
+	}
+
+	@Test
+	public void bySourceAndTarget() {
+		assertEquals(Arrays.asList("1 -has_part-> 20", "1 -requires-> 20"), links(index.bySourceAndTarget(CAR, ENGINE)));
+		assertEquals(Arrays.asList(), links(index.bySourceAndTarget(CAR, RED)));
+	}
+
+	@Test
+	public void unknownKeysHaveNoLinks() {
+		assertEquals(0, index.byRelName("unknown").count());
+		assertEquals(0, index.byTargetAndRelName(BLACK, "unknown").count());
+		assertEquals(0, index.bySourceAndRelName(CAR, "unknown").count());
+		assertEquals(0, index.bySource(BLACK).count());
+		assertEquals(0, index.byTarget(CAR).count());
+		assertEquals(0, LinkIndex.of().byTarget(BLACK).count());
+	}
+
+	private static List<String> links(Stream<Triple> triples) {
+		return triples.map(Triple::toString).collect(Collectors.toList());
+	}
+}
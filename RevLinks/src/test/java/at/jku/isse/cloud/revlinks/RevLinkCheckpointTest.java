@@ -0,0 +1,64 @@
+package at.jku.isse.cloud.revlinks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.jku.isse.cloud.artifact.DSConnection;
+import at.jku.isse.cloud.artifact.InMemoryDSProvider;
+import at.jku.isse.cloud.revlinks.RevLinkCheckpoint.Phase;
+import at.jku.sea.cloud.Package;
+
+public class RevLinkCheckpointTest {
+
+	private DSConnection conn;
+	private Package pkg;
+
+	@Before
+	public void setUp() {
+		conn = new DSConnection(new InMemoryDSProvider());
+		pkg = conn.getOrCreatePackage("analyzed");
+	}
+
+	@Test
+	public void packagesWithoutCheckpointHaveNoRunInProgress() {
+		assertFalse(RevLinkCheckpoint.read(conn, pkg).isPresent());
+	}
+
+	@Test
+	public void checkpointIsReadAsWritten() {
+		new RevLinkCheckpoint(Phase.OPPOSITES, 4711).write(conn, pkg);
+		assertEquals("OPPOSITES:4711", pkg.getPropertyValueOrNull(RevLinkCheckpoint.PROPERTY_KEY));
+
+		RevLinkCheckpoint checkpoint = RevLinkCheckpoint.read(conn, pkg).get();
+		assertEquals(Phase.OPPOSITES, checkpoint.getPhase());
+		assertEquals(4711, checkpoint.getLastArtifactId());
+	}
+
+	@Test
+	public void startIsReadAsWritten() {
+		RevLinkCheckpoint.START.write(conn, pkg);
+		RevLinkCheckpoint checkpoint = RevLinkCheckpoint.read(conn, pkg).get();
+		assertEquals(Phase.LINKS, checkpoint.getPhase());
+		assertEquals(Long.MIN_VALUE, checkpoint.getLastArtifactId());
+	}
+
+	@Test
+	public void clearedCheckpointIsNotRead() {
+		new RevLinkCheckpoint(Phase.LINKS, 1).write(conn, pkg);
+		RevLinkCheckpoint.clear(conn, pkg);
+		assertFalse(RevLinkCheckpoint.read(conn, pkg).isPresent());
+	}
+
+	@Test
+	public void invalidCheckpointsAreIgnored() {
+		for(String invalid : new String[] {"LINKS", "UNKNOWN:1", "LINKS:abc"}) {
+			conn.setPropertyValue(pkg, RevLinkCheckpoint.PROPERTY_KEY, invalid);
+			assertEquals(Optional.empty(), RevLinkCheckpoint.read(conn, pkg));
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package at.jku.isse.cloud.revlinks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.jku.isse.cloud.artifact.ArtifactPages;
+import at.jku.isse.cloud.artifact.DSClass;
+import at.jku.isse.cloud.artifact.DSConnection;
+import at.jku.isse.cloud.artifact.DSEdgeList;
+import at.jku.isse.cloud.artifact.DSInstance;
+import at.jku.isse.cloud.artifact.DSProvider;
+import at.jku.isse.cloud.artifact.DSRevLink;
+import at.jku.isse.cloud.artifact.InMemoryDSProvider;
+import at.jku.sea.cloud.Artifact;
+import at.jku.sea.cloud.Package;
+import at.jku.sea.cloud.Workspace;
+
+public class RevLinkCreationEngineTest {
+
+	private static final int TARGET_PACKAGES = 6;
+	private static final int HOLDERS = 40;
+
+	private InMemoryDSProvider memory;
+	private AtomicInteger sessions;
+	private AtomicBoolean concurrentUse;
+	private DSConnection conn;
+	private Package pkg;
+	private List<Package> targetPkgs;
+
+	@Before
+	public void setUp() {
+		memory = new InMemoryDSProvider();
+		sessions = new AtomicInteger();
+		concurrentUse = new AtomicBoolean();
+		conn = new DSConnection(singleThreaded());
+		DSClass type = new DSClass(conn, "T", conn.getOrCreatePackage("model"));
+		pkg = conn.getOrCreatePackage("holders");
+		targetPkgs = new ArrayList<>();
+		List<DSInstance> targets = new ArrayList<>();
+		for(int i = 0; i < TARGET_PACKAGES; i++) {
+			targetPkgs.add(conn.getOrCreatePackage("targets" + i));
+			targets.add(type.createInstance("target" + i, targetPkgs.get(i)));
+		}
+		// Every holder links two targets in different packages
+		for(int i = 0; i < HOLDERS; i++) {
+			DSInstance holder = type.createInstance("holder" + i, pkg);
+			holder.setProperty("first", targets.get(i % TARGET_PACKAGES));
+			holder.setProperty("second", targets.get((i + 1) % TARGET_PACKAGES));
+		}
+	}
+
+	@Test
+	public void workersUseSessionsOfTheirOwn() {
+		DSRevLink revLink = conn.getOrCreateReverseLinkClass();
+		new RevLinkCreationEngine(conn, revLink, 4, 0).createRevLinks(conn.getArtifactPages(pkg, 10));
+
+		assertFalse("A workspace has been used by two threads at the same time", concurrentUse.get());
+		assertTrue(sessions.get() > 1);
+		assertEquals(2 * HOLDERS, countRevLinks(revLink));
+		for(List<Artifact> page : conn.getArtifactPages(pkg, 10)) {
+			for(Artifact holder : page) {
+				assertTrue(holder.getPropertyValueOrNull(ForwardLinks.STAMP_PROPERTY_KEY) instanceof Long);
+			}
+		}
+	}
+
+	@Test
+	public void edgesOfTheSessionsAreWritten() {
+		DSRevLink revLink = conn.getOrCreateReverseLinkClass().withStorageMode(DSRevLink.StorageMode.EDGE_LIST);
+		new RevLinkCreationEngine(conn, revLink, 4, 0).createRevLinks(conn.getArtifactPages(pkg, 10));
+
+		assertFalse(concurrentUse.get());
+		assertEquals(2 * HOLDERS, countRevLinks(revLink));
+	}
+
+	@Test
+	public void existingReverseLinksAreNotCreatedAgain() {
+		DSRevLink revLink = conn.getOrCreateReverseLinkClass();
+		new RevLinkCreationEngine(conn, revLink, 4, 0).createRevLinks(conn.getArtifactPages(pkg, 10));
+		new RevLinkCreationEngine(conn, revLink, 3, 0).createRevLinks(conn.getArtifactPages(pkg, 7));
+
+		assertEquals(2 * HOLDERS, countRevLinks(revLink));
+	}
+
+	private int countRevLinks(DSRevLink revLink) {
+		int count = 0;
+		for(Package targetPkg : targetPkgs) {
+			Package rlPkg = conn.getPackageFromName(RevLinkCreation.getReverseLinkPackageName(targetPkg)).get();
+			for(List<Artifact> page : conn.getArtifactPagesOfType(revLink, rlPkg, ArtifactPages.DEFAULT_PAGE_SIZE)) {
+				count += page.size();
+			}
+			for(DSEdgeList chunk : DSEdgeList.read(conn, rlPkg)) {
+				count += chunk.size();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns a provider of the in-memory Design Space that isn't thread-safe. Every session has a workspace of its own, which
+	 * reports when two threads use it at the same time.
+	 */
+	private DSProvider singleThreaded() {
+		Workspace workspace = guarded(Workspace.class, memory.getWorkspace());
+		return (DSProvider) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {DSProvider.class}, (self, method, args) -> {
+			switch(method.getName()) {
+			case "isThreadSafe":
+				return false;
+			case "getWorkspace":
+				return workspace;
+			case "openSession":
+				sessions.incrementAndGet();
+				return singleThreaded();
+			default:
+				return invoke(memory, method, args);
+			}
+		});
+	}
+
+	private <T> T guarded(Class<T> type, T target) {
+		AtomicInteger users = new AtomicInteger();
+		return type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {type}, (self, method, args) -> {
+			if(users.incrementAndGet() > 1) {
+				concurrentUse.set(true);
+			}
+			try {
+				// Gives other threads the chance to use the workspace at the same time
+				Thread.yield();
+				return invoke(target, method, args);
+			} finally {
+				users.decrementAndGet();
+			}
+		}));
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch(InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+}
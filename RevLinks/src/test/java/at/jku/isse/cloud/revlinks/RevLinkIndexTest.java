@@ -0,0 +1,108 @@
+package at.jku.isse.cloud.revlinks;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.jku.isse.cloud.artifact.ArtifactPages;
+import at.jku.isse.cloud.artifact.DSClass;
+import at.jku.isse.cloud.artifact.DSConnection;
+import at.jku.isse.cloud.artifact.DSEdgeList;
+import at.jku.isse.cloud.artifact.DSInstance;
+import at.jku.isse.cloud.artifact.DSRevLink;
+import at.jku.isse.cloud.artifact.InMemoryDSProvider;
+import at.jku.sea.cloud.Artifact;
+import at.jku.sea.cloud.Package;
+
+public class RevLinkIndexTest {
+
+	private DSConnection conn;
+	private DSRevLink revLink;
+	private DSClass type;
+	private Package rlPkg;
+	private List<DSInstance> instances;
+
+	@Before
+	public void setUp() {
+		conn = new DSConnection(new InMemoryDSProvider());
+		revLink = conn.getOrCreateReverseLinkClass();
+		type = new DSClass(conn, "T", conn.getOrCreatePackage("model"));
+		Package pkg = conn.getOrCreatePackage("p");
+		rlPkg = conn.getOrCreatePackage("RL_p");
+		instances = new ArrayList<>();
+		for(int i = 0; i < 4; i++) {
+			instances.add(type.createInstance("x" + i, pkg));
+		}
+	}
+
+	@Test
+	public void targetsAreGroupedBySource() {
+		// Instance 0 is referenced by instances 1 and 2, instance 1 by instance 2
+		create(1, 0);
+		create(2, 0);
+		create(2, 1);
+		RevLinkIndex index = RevLinkIndex.of(conn.getArtifactsOfType(revLink, rlPkg));
+
+		assertEquals(3, index.size());
+		assertEquals(Arrays.asList(artifact(1), artifact(2)), new ArrayList<>(index.getTargets(id(0))));
+		assertArrayEquals(new long[] {id(2)}, index.getTargetIds(id(1)));
+		assertTrue(index.getTargets(id(2)).isEmpty());
+	}
+
+	@Test
+	public void revLinksWithoutArtifactsAreSkipped() {
+		create(1, 0);
+		List<Artifact> revLinks = new ArrayList<>(conn.getArtifactsOfType(revLink, rlPkg));
+		Artifact withoutTarget = type.createInstance("without target", rlPkg).getArtifact();
+		conn.setPropertyValue(withoutTarget, DSRevLink.SOURCE_NAME, artifact(0));
+		revLinks.add(withoutTarget);
+		revLinks.add(type.createInstance("without source", rlPkg).getArtifact());
+		RevLinkIndex index = RevLinkIndex.of(revLinks);
+
+		assertEquals(1, index.size());
+		assertArrayEquals(new long[] {id(1)}, index.getTargetIds(id(0)));
+	}
+
+	@Test
+	public void edgesAreResolvedOncePerTarget() {
+		create(1, 0);
+		revLink.withStorageMode(DSRevLink.StorageMode.EDGE_LIST);
+		create(2, 0);
+		create(2, 1);
+		create(3, 1);
+		revLink.flushEdges();
+		artifact(3).delete(conn.getProvider().getWorkspace());
+
+		List<Long> resolved = new ArrayList<>();
+		RevLinkIndex index = RevLinkIndex.of(ArtifactPages.of(conn.getArtifactsOfType(revLink, rlPkg), 10), DSEdgeList.read(conn, rlPkg), id -> {
+			resolved.add(id);
+			return conn.getProvider().getArtifact(id);
+		});
+
+		// The edge to the deleted artifact is skipped
+		assertEquals(3, index.size());
+		assertEquals(Arrays.asList(id(2), id(3)), resolved);
+		assertEquals(Arrays.asList(artifact(1), artifact(2)), new ArrayList<>(index.getTargets(id(0))));
+		assertEquals(Collections.singleton(artifact(2)), index.getTargets(id(1)));
+	}
+
+	private void create(int target, int source) {
+		revLink.createRevLink(type, type, instances.get(target), instances.get(source), rlPkg, "next");
+	}
+
+	private Artifact artifact(int instance) {
+		return instances.get(instance).getArtifact();
+	}
+
+	private long id(int instance) {
+		return artifact(instance).getId();
+	}
+}
@@ -0,0 +1,116 @@
+package at.jku.isse.cloud.revlinks;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.jku.isse.cloud.artifact.DSClass;
+import at.jku.isse.cloud.artifact.DSConnection;
+import at.jku.isse.cloud.artifact.DSEdgeList;
+import at.jku.isse.cloud.artifact.DSInstance;
+import at.jku.isse.cloud.artifact.DSRevLink;
+import at.jku.isse.cloud.artifact.InMemoryDSProvider;
+import at.jku.sea.cloud.Artifact;
+import at.jku.sea.cloud.CollectionArtifact;
+import at.jku.sea.cloud.Package;
+
+public class RevLinkUpdaterTest {
+
+	private DSConnection conn;
+	private DSRevLink revLink;
+	private Package pkg;
+	private List<DSInstance> instances;
+
+	@Before
+	public void setUp() {
+		conn = new DSConnection(new InMemoryDSProvider());
+		revLink = conn.getOrCreateReverseLinkClass();
+		DSClass type = new DSClass(conn, "T", conn.getOrCreatePackage("model"));
+		pkg = conn.getOrCreatePackage("p");
+		instances = new ArrayList<>();
+		for(int i = 0; i < 3; i++) {
+			instances.add(type.createInstance("x" + i, pkg));
+		}
+		// Instance 0 is linked by instances 1 and 2, instance 1 by instance 2
+		instances.get(1).setProperty("next", instances.get(0));
+		instances.get(2).setProperty("next", instances.get(0));
+		instances.get(2).setProperty("previous", instances.get(1));
+	}
+
+	@Test
+	public void reverseLinksOfDeletedLinkingArtifactsAreRemoved() {
+		createRevLinks();
+		delete(2);
+
+		assertEquals(0, new RevLinkUpdater(conn, revLink).update(pkg));
+		assertEquals(1, countRevLinks());
+		assertEquals(Arrays.asList(artifact(1)), opposites(0));
+		assertEquals(Collections.emptyList(), opposites(1));
+	}
+
+	@Test
+	public void reverseLinksOfDeletedLinkedArtifactsAreRemoved() {
+		createRevLinks();
+		delete(0);
+
+		assertEquals(0, new RevLinkUpdater(conn, revLink).update(pkg));
+		assertEquals(1, countRevLinks());
+		assertEquals(Arrays.asList(artifact(2)), opposites(1));
+	}
+
+	@Test
+	public void edgesOfDeletedArtifactsAreRemoved() {
+		revLink.withStorageMode(DSRevLink.StorageMode.EDGE_LIST);
+		createRevLinks();
+		delete(2);
+
+		assertEquals(0, new RevLinkUpdater(conn, revLink).update(pkg));
+		assertEquals(1, countRevLinks());
+		assertEquals(Arrays.asList(artifact(1)), opposites(0));
+	}
+
+	@Test
+	public void updatesWithoutDeletedArtifactsKeepTheReverseLinks() {
+		createRevLinks();
+		RevLinkUpdater updater = new RevLinkUpdater(conn, revLink);
+		assertEquals(0, updater.update(pkg));
+		assertEquals(0, updater.update(pkg));
+		assertEquals(3, countRevLinks());
+		assertEquals(Arrays.asList(artifact(1), artifact(2)), opposites(0));
+	}
+
+	private void createRevLinks() {
+		RevLinkCreation.createRevLinksAndSetOpposites(conn, pkg, revLink, 1, CommitPolicy.none());
+		assertEquals(3, countRevLinks());
+	}
+
+	private void delete(int instance) {
+		artifact(instance).delete(conn.getProvider().getWorkspace());
+	}
+
+	private int countRevLinks() {
+		Package rlPkg = conn.getPackageFromName(RevLinkCreation.getReverseLinkPackageName(pkg)).get();
+		int count = conn.getArtifactsOfType(revLink, rlPkg).size();
+		for(DSEdgeList chunk : DSEdgeList.read(conn, rlPkg)) {
+			count += chunk.size();
+		}
+		return count;
+	}
+
+	private List<Object> opposites(int instance) {
+		Object opposites = artifact(instance).getPropertyValueOrNull(RevLinkCreation.OPPOSITE_PROPERTY_KEY);
+		List<Object> elements = new ArrayList<>(((CollectionArtifact) opposites).getElements());
+		elements.sort((first, second) -> Long.compare(((Artifact) first).getId(), ((Artifact) second).getId()));
+		return elements;
+	}
+
+	private Artifact artifact(int instance) {
+		return instances.get(instance).getArtifact();
+	}
+}
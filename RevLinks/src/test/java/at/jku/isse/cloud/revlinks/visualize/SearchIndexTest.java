@@ -0,0 +1,133 @@
+package at.jku.isse.cloud.revlinks.visualize;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.jku.sea.cloud.Artifact;
+
+public class SearchIndexTest {
+
+	private Map<Long, Map<String, Object>> properties;
+	private SearchIndex index;
+
+	@Before
+	public void setUp() {
+		properties = new HashMap<>();
+		index = new SearchIndex();
+	}
+
+	@Test
+	public void textIsFoundCaseInsensitively() {
+		Artifact brake = create("Brake Controller", 7);
+		Artifact engine = create("Engine Controller", 8);
+		assertEquals(2, index.index(Arrays.asList(brake, engine)));
+
+		assertEquals(Collections.singleton(brake.getId()), index.search("BRAKE"));
+		assertEquals(ids(brake, engine), index.search("controller"));
+		// Shorter than a trigram, so every artifact is a candidate
+		assertEquals(ids(brake, engine), index.search("co"));
+		assertTrue(index.search("missing").isEmpty());
+	}
+
+	@Test
+	public void candidatesAreVerifiedAgainstTheirValues() {
+		// Contains all trigrams of "abcab", but not the text itself
+		Artifact artifact = create("abca cab", 0);
+		index.index(Collections.singleton(artifact));
+		assertTrue(index.search("abcab").isEmpty());
+		assertEquals(Collections.singleton(artifact.getId()), index.search("a ca"));
+	}
+
+	@Test
+	public void numbersMatchIdsAndNumericValues() {
+		Artifact first = create("first", 42);
+		Artifact second = create("second", 1);
+		index.index(Arrays.asList(first, second));
+
+		assertEquals(Collections.singleton(first.getId()), index.search("42"));
+		assertTrue(index.search(String.valueOf(second.getId())).contains(second.getId()));
+		assertTrue(index.search("99999999999999999999").isEmpty());
+	}
+
+	@Test
+	public void indexedArtifactsAreSkipped() {
+		Artifact artifact = create("once", 0);
+		assertEquals(1, index.index(Collections.singleton(artifact)));
+		assertEquals(0, index.index(Collections.singleton(artifact)));
+		assertEquals(0, index.index(new long[] {artifact.getId(), -1}, id -> Optional.empty()));
+		assertEquals(1, index.size());
+	}
+
+	@Test
+	public void artifactsAreResolvedByIdOnlyIfNotIndexed() {
+		Artifact first = create("first", 0);
+		Artifact second = create("second", 0);
+		index.index(Collections.singleton(first));
+		Map<Long, Artifact> artifacts = new HashMap<>();
+		artifacts.put(second.getId(), second);
+		assertEquals(1, index.index(new long[] {first.getId(), second.getId(), -1}, id -> Optional.ofNullable(artifacts.remove(id))));
+		assertEquals(Collections.singleton(second.getId()), index.search("second"));
+	}
+
+	@Test
+	public void updatedAndRemovedArtifactsAreReindexed() {
+		Artifact artifact = create("old name", 0);
+		index.index(Collections.singleton(artifact));
+		assertEquals(Collections.singleton(artifact.getId()), index.search("old"));
+
+		properties.get(artifact.getId()).put("name", "new name");
+		index.update(artifact);
+		assertTrue(index.search("old").isEmpty());
+		assertEquals(Collections.singleton(artifact.getId()), index.search("new"));
+
+		index.remove(artifact.getId());
+		assertTrue(index.search("name").isEmpty());
+		assertEquals(0, index.size());
+	}
+
+	/**
+	 * Returns an artifact whose alive properties are its name and priority. The ids start at 1000, so they don't match the priorities.
+	 */
+	private Artifact create(String name, int priority) {
+		long id = 1000 + properties.size();
+		Map<String, Object> props = new HashMap<>();
+		props.put("name", name);
+		props.put("priority", priority);
+		properties.put(id, props);
+		return (Artifact) Proxy.newProxyInstance(SearchIndexTest.class.getClassLoader(), new Class<?>[] {Artifact.class},
+				(self, method, args) -> {
+					switch(method.getName()) {
+					case "getId":
+						return id;
+					case "getAlivePropertiesMap":
+						return new HashMap<>(props);
+					case "hashCode":
+						return Long.hashCode(id);
+					case "equals":
+						return self == args[0];
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private static Set<Long> ids(Artifact... artifacts) {
+		Set<Long> ids = new HashSet<>();
+		for(Artifact artifact : artifacts) {
+			ids.add(artifact.getId());
+		}
+		return ids;
+	}
+}
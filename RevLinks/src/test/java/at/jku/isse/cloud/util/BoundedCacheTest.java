@@ -0,0 +1,65 @@
+package at.jku.isse.cloud.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class BoundedCacheTest {
+
+	@Test
+	public void valuesAreLoadedOnce() {
+		BoundedCache<Integer, String> cache = new BoundedCache<>("test", 10, 0);
+		AtomicInteger loads = new AtomicInteger();
+		assertEquals("1", cache.get(1, key -> loads.incrementAndGet() + ""));
+		assertEquals("1", cache.get(1, key -> loads.incrementAndGet() + ""));
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void leastRecentlyUsedEntryIsEvicted() {
+		BoundedCache<Integer, String> cache = new BoundedCache<>("test", 2, 0);
+		cache.put(1, "a");
+		cache.put(2, "b");
+		// Makes 2 the least recently used entry
+		cache.get(1, key -> "reloaded");
+		cache.put(3, "c");
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertTrue(cache.asMap().containsKey(1));
+		assertFalse(cache.asMap().containsKey(2));
+		assertTrue(cache.asMap().containsKey(3));
+	}
+
+	@Test
+	public void expiredEntriesAreLoadedAgain() throws InterruptedException {
+		BoundedCache<Integer, String> cache = new BoundedCache<>("test", 10, 1);
+		cache.put(1, "old");
+		Thread.sleep(5);
+		assertTrue(cache.asMap().isEmpty());
+		assertEquals("new", cache.get(1, key -> "new"));
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void valuesLoadedDuringAnInvalidationAreNotCached() {
+		BoundedCache<Integer, String> cache = new BoundedCache<>("test", 10, 0);
+		assertEquals("stale", cache.get(1, key -> {
+			cache.invalidateAll();
+			return "stale";
+		}));
+		assertEquals(0, cache.size());
+		assertEquals("fresh", cache.get(1, key -> "fresh"));
+		assertEquals(1, cache.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void maximumSizeMustBePositive() {
+		new BoundedCache<Integer, String>("test", 0, 0);
+	}
+}
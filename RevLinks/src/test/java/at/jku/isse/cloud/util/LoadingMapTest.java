@@ -0,0 +1,96 @@
+package at.jku.isse.cloud.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class LoadingMapTest {
+
+	@Test
+	public void loadsEveryKeyOnce() {
+		LoadingMap<Long, String> map = new LoadingMap<>();
+		AtomicInteger loads = new AtomicInteger();
+		assertEquals("1", map.get(1L, key -> loads.incrementAndGet() + ""));
+		assertEquals("1", map.get(1L, key -> loads.incrementAndGet() + ""));
+		assertEquals(1, loads.get());
+		assertEquals("1", map.getIfLoaded(1L).get());
+		assertFalse(map.getIfLoaded(2L).isPresent());
+	}
+
+	@Test
+	public void concurrentRequestsWaitForTheSameLoad() throws Exception {
+		LoadingMap<Long, String> map = new LoadingMap<>();
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService threads = Executors.newFixedThreadPool(4);
+		try {
+			Future<String> first = threads.submit(() -> map.get(1L, key -> {
+				loads.incrementAndGet();
+				loading.countDown();
+				await(release);
+				return "loaded";
+			}));
+			assertTrue(loading.await(5, TimeUnit.SECONDS));
+			List<Future<String>> waiting = new ArrayList<>();
+			for(int i = 0; i < 3; i++) {
+				waiting.add(threads.submit(() -> map.get(1L, key -> {
+					loads.incrementAndGet();
+					return "again";
+				})));
+			}
+			// Other keys are not blocked by the running load
+			assertEquals("other", map.get(2L, key -> "other"));
+			release.countDown();
+			assertEquals("loaded", first.get(5, TimeUnit.SECONDS));
+			for(Future<String> future : waiting) {
+				assertEquals("loaded", future.get(5, TimeUnit.SECONDS));
+			}
+			assertEquals(1, loads.get());
+		} finally {
+			threads.shutdownNow();
+		}
+	}
+
+	@Test
+	public void failedLoadIsRetried() {
+		LoadingMap<Long, String> map = new LoadingMap<>();
+		try {
+			map.get(1L, key -> {
+				throw new IllegalStateException("unavailable");
+			});
+			fail();
+		} catch(IllegalStateException e) {
+			assertEquals("unavailable", e.getMessage());
+		}
+		assertTrue(map.loadedValues().isEmpty());
+		assertEquals("loaded", map.get(1L, key -> "loaded"));
+		assertEquals(1, map.loadedValues().size());
+	}
+
+	@Test
+	public void loaderMayUseTheMap() {
+		LoadingMap<Long, String> map = new LoadingMap<>();
+		assertEquals("2+1", map.get(2L, key -> map.get(1L, k -> "1").replace("1", "2+1")));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
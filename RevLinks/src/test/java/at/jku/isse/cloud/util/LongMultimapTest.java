@@ -0,0 +1,85 @@
+package at.jku.isse.cloud.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class LongMultimapTest {
+
+	@Test
+	public void valuesAreKeptInInsertionOrder() {
+		LongMultimap map = new LongMultimap();
+		map.put(1, 30);
+		map.put(1, 10);
+		map.put(1, 30);
+		map.put(2, 20);
+		assertArrayEquals(new long[] {30, 10, 30}, map.get(1));
+		assertArrayEquals(new long[] {20}, map.get(2));
+		assertEquals(3, map.count(1));
+		assertEquals(2, map.size());
+		assertEquals(4, map.valueSize());
+
+		StringBuilder visited = new StringBuilder();
+		map.forEach(1, value -> visited.append(value).append(' '));
+		assertEquals("30 10 30 ", visited.toString());
+	}
+
+	@Test
+	public void missingKeysHaveNoValues() {
+		LongMultimap map = new LongMultimap();
+		map.put(1, 1);
+		assertFalse(map.containsKey(2));
+		assertEquals(0, map.get(2).length);
+		assertEquals(0, map.count(2));
+		map.forEach(2, value -> {
+			throw new AssertionError("Unexpected value " + value);
+		});
+	}
+
+	@Test
+	public void zeroAndNegativeKeysAreStored() {
+		LongMultimap map = new LongMultimap();
+		map.put(0, 1);
+		map.put(-1, 2);
+		map.put(Long.MIN_VALUE, 3);
+		assertTrue(map.containsKey(0));
+		assertArrayEquals(new long[] {1}, map.get(0));
+		assertArrayEquals(new long[] {2}, map.get(-1));
+		assertArrayEquals(new long[] {3}, map.get(Long.MIN_VALUE));
+	}
+
+	@Test
+	public void keysSurviveRehashing() {
+		// A small table that is rehashed several times, with keys that collide in the low bits
+		LongMultimap map = new LongMultimap(1);
+		for(long key = 0; key < 1000; key++) {
+			map.put(key << 20, key);
+			map.put(key << 20, -key);
+		}
+		assertEquals(1000, map.size());
+		assertEquals(2000, map.valueSize());
+		for(long key = 0; key < 1000; key++) {
+			assertArrayEquals(new long[] {key, -key}, map.get(key << 20));
+		}
+
+		long[] keys = map.keys();
+		Arrays.sort(keys);
+		assertEquals(1000, keys.length);
+		for(int i = 0; i < keys.length; i++) {
+			assertEquals((long) i << 20, keys[i]);
+		}
+	}
+
+	@Test
+	public void getReturnsACopy() {
+		LongMultimap map = new LongMultimap();
+		map.put(1, 1);
+		map.get(1)[0] = 2;
+		assertArrayEquals(new long[] {1}, map.get(1));
+	}
+}
@@ -0,0 +1,48 @@
+package at.jku.isse.cloud.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import at.jku.isse.cloud.artifact.DSConnection;
+import at.jku.isse.cloud.artifact.InMemoryDSProvider;
+
+/**
+ * Creates the Design Space connections of the benchmarks. By default, every connection works on an {@link InMemoryDSProvider}
+ * of its own, so the benchmarks run offline and reproducibly. The latency and jitter of every Design Space operation are read
+ * from the system properties "revlinks.bench.latencyMicros" and "revlinks.bench.jitterMicros".
+ * <p>
+ * If the system property "revlinks.bench.server" is true, then a Design Space server is used instead. The connection parameters
+ * are read from the system properties "revlinks.bench.user", "revlinks.bench.password" and "revlinks.bench.workspace" and
+ * every connection uses a workspace of its own, so benchmarks don't see the artifacts of other benchmarks.
+ */
+public final class BenchmarkConnections {
+
+	public static final String SERVER_PROPERTY = "revlinks.bench.server";
+	public static final String LATENCY_PROPERTY = "revlinks.bench.latencyMicros";
+	public static final String JITTER_PROPERTY = "revlinks.bench.jitterMicros";
+	public static final String USER_PROPERTY = "revlinks.bench.user";
+	public static final String PASSWORD_PROPERTY = "revlinks.bench.password";
+	public static final String WORKSPACE_PROPERTY = "revlinks.bench.workspace";
+
+	private static final long SEED = 42;
+
+	private static int workspaces;
+
+	private BenchmarkConnections() {
+	}
+
+	/**
+	 * Opens a new connection with a new workspace.
+	 * @return the connection
+	 */
+	public static synchronized DSConnection connect() {
+		if(Boolean.getBoolean(SERVER_PROPERTY)) {
+			String user = System.getProperty(USER_PROPERTY, "bench_user");
+			String pwd = System.getProperty(PASSWORD_PROPERTY, "bench_pwd");
+			String workspace = System.getProperty(WORKSPACE_PROPERTY, "bench_workspace") + "_" + workspaces++;
+			return new DSConnection(user, pwd, workspace);
+		}
+		InMemoryDSProvider provider = new InMemoryDSProvider(SEED)
+				.withLatency(Long.getLong(LATENCY_PROPERTY, 0), Long.getLong(JITTER_PROPERTY, 0), TimeUnit.MICROSECONDS);
+		return new DSConnection(provider);
+	}
+}
@@ -0,0 +1,89 @@
+package at.jku.isse.cloud.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import at.jku.isse.cloud.artifact.DSClass;
+import at.jku.isse.cloud.artifact.DSConnection;
+import at.jku.isse.cloud.artifact.DSInstance;
+import at.jku.isse.cloud.artifact.DSLink;
+import at.jku.sea.cloud.Artifact;
+import at.jku.sea.cloud.Package;
+
+/**
+ * The model the benchmarks work on. It consists of a meta model with the classes "Source" and "Target" and an instance package
+ * with the given number of source and target instances. Every source instance links to as many target instances as the fan-out
+ * specifies, each with a link of its own. The targets are chosen round-robin, so every target is linked equally often.
+ */
+public class BenchmarkModel {
+
+	private final Package metaPkg;
+	private final Package pkg;
+	private final List<Artifact> sources;
+	private final List<Artifact> targets;
+
+	private BenchmarkModel(Package metaPkg, Package pkg, List<Artifact> sources, List<Artifact> targets) {
+		this.metaPkg = metaPkg;
+		this.pkg = pkg;
+		this.sources = sources;
+		this.targets = targets;
+	}
+
+	/**
+	 * Creates the model and commits it.
+	 * @param conn the Design Space connection
+	 * @param name the name of the instance package, the meta model is created in the package "&ltname&gt_UML"
+	 * @param packageSize the number of source instances and of target instances
+	 * @param fanOut the number of links of every source instance
+	 * @return the model
+	 */
+	public static BenchmarkModel create(DSConnection conn, String name, int packageSize, int fanOut) {
+		Package metaPkg = conn.getOrCreatePackage(name + "_UML");
+		Package pkg = conn.getOrCreatePackage(name);
+		List<Artifact> sources = new ArrayList<>(packageSize);
+		List<Artifact> targets = new ArrayList<>(packageSize);
+		conn.runInBatch(() -> {
+			DSClass targetModel = new DSClass(conn, "Target", metaPkg).withFeatures("name", "@opposite");
+			DSLink[] links = new DSLink[fanOut];
+			for(int i = 0; i < fanOut; i++) {
+				links[i] = new DSLink("link" + i, targetModel, 0, -1, 1, 1);
+			}
+			DSClass sourceModel = new DSClass(conn, "Source", metaPkg).withFeatures("name", "number").withLinks(links);
+
+			List<DSInstance> targetInstances = new ArrayList<>(packageSize);
+			for(int i = 0; i < packageSize; i++) {
+				DSInstance target = targetModel.createInstance("Target " + i, pkg);
+				target.setProperty("name", "target" + i);
+				targetInstances.add(target);
+				targets.add(target.getArtifact());
+			}
+			for(int i = 0; i < packageSize; i++) {
+				DSInstance source = sourceModel.createInstance("Source " + i, pkg);
+				source.setProperty("name", "source" + i);
+				source.setProperty("number", String.valueOf(i));
+				for(int j = 0; j < fanOut; j++) {
+					source.setLinkProperty(links[j], targetInstances.get((i * fanOut + j) % packageSize));
+				}
+				sources.add(source.getArtifact());
+			}
+		});
+		conn.commit("");
+		return new BenchmarkModel(metaPkg, pkg, sources, targets);
+	}
+
+	public Package getMetaPackage() {
+		return metaPkg;
+	}
+
+	public Package getPackage() {
+		return pkg;
+	}
+
+	public List<Artifact> getSources() {
+		return sources;
+	}
+
+	public List<Artifact> getTargets() {
+		return targets;
+	}
+}
@@ -0,0 +1,97 @@
+package at.jku.isse.cloud.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import at.jku.isse.cloud.artifact.DSConnection;
+import at.jku.isse.cloud.revlinks.RevLink;
+import at.jku.isse.cloud.revlinks.RevLinkCreation;
+import at.jku.isse.cloud.revlinks.RevLinkTable;
+import at.jku.isse.cloud.revlinks.visualize.LinkQuery;
+import at.jku.sea.cloud.Artifact;
+
+/**
+ * Measures the queries of the visualizer on a package whose reverse links have been created. The "cold" benchmarks invalidate
+ * the caches of the {@link LinkQuery} first, so every artifact is read from the Design Space again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinkQueryBenchmark {
+
+	@Param({"100", "1000"})
+	public int packageSize;
+
+	@Param({"1", "5"})
+	public int fanOut;
+
+	private LinkQuery linkQuery;
+	private BenchmarkModel model;
+	private int nextTarget;
+
+	@Setup(Level.Trial)
+	public void createModel() {
+		DSConnection conn = BenchmarkConnections.connect();
+		model = BenchmarkModel.create(conn, "Query", packageSize, fanOut);
+		RevLinkCreation.createRevLinksAndSetOpposites(conn, model.getPackage(), conn.getOrCreateReverseLinkClass());
+		conn.commit("");
+		linkQuery = new LinkQuery(conn);
+	}
+
+	@TearDown(Level.Trial)
+	public void closeQuery() {
+		linkQuery.close();
+	}
+
+	@Benchmark
+	public Map<Artifact, List<RevLink>> getRevLinks() {
+		return linkQuery.getRevLinks(model.getPackage());
+	}
+
+	@Benchmark
+	public Map<Artifact, List<RevLink>> getRevLinksCold() {
+		linkQuery.invalidateCaches();
+		return linkQuery.getRevLinks(model.getPackage());
+	}
+
+	@Benchmark
+	public RevLinkTable getRevLinkTableCold() {
+		linkQuery.invalidateCaches();
+		return linkQuery.getRevLinkTable(model.getPackage());
+	}
+
+	@Benchmark
+	public List<RevLink> visualizeRevLinks() {
+		return linkQuery.visualizeRevLinks(nextTarget().getId());
+	}
+
+	@Benchmark
+	public List<RevLink> visualizeRevLinksCold() {
+		linkQuery.invalidateCaches();
+		return linkQuery.visualizeRevLinks(nextTarget().getId());
+	}
+
+	private Artifact nextTarget() {
+		// The targets are the artifacts with incoming links
+		nextTarget = (nextTarget + 1) % model.getTargets().size();
+		return model.getTargets().get(nextTarget);
+	}
+}
@@ -0,0 +1,67 @@
+package at.jku.isse.cloud.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import at.jku.isse.cloud.artifact.DSConnection;
+import at.jku.sea.cloud.Package;
+
+/**
+ * Measures the lookup of packages by name in a workspace with the given number of packages. The "cold" benchmark 
+ * reloads the package cache of the connection first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PackageBenchmark {
+
+	@Param({"10", "100", "1000"})
+	public int packages;
+
+	private DSConnection conn;
+	private int nextPackage;
+
+	@Setup(Level.Trial)
+	public void createPackages() {
+		conn = BenchmarkConnections.connect();
+		for(int i = 0; i < packages; i++) {
+			conn.getOrCreatePackage(packageName(i));
+		}
+		conn.commit("");
+	}
+
+	@Benchmark
+	public Package getOrCreatePackage() {
+		return conn.getOrCreatePackage(nextPackageName());
+	}
+
+	@Benchmark
+	public Package getOrCreatePackageCold() {
+		conn.invalidatePackageCache();
+		return conn.getOrCreatePackage(nextPackageName());
+	}
+
+	private String nextPackageName() {
+		nextPackage = (nextPackage + 1) % packages;
+		return packageName(nextPackage);
+	}
+
+	private static String packageName(int i) {
+		return "Package_" + i;
+	}
+}
@@ -0,0 +1,60 @@
+package at.jku.isse.cloud.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import at.jku.isse.cloud.artifact.DSConnection;
+import at.jku.isse.cloud.artifact.DSRevLink;
+import at.jku.isse.cloud.revlinks.RevLinkCreation;
+
+/**
+ * Measures the creation of the reverse links and the "@opposite" properties of a package. Every invocation works on a newly 
+ * created package, because the reverse links of a package are only created once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RevLinkCreationBenchmark {
+
+	@Param({"100", "1000"})
+	public int packageSize;
+
+	@Param({"1", "5"})
+	public int fanOut;
+
+	private DSConnection conn;
+	private DSRevLink revLink;
+	private BenchmarkModel model;
+	private int models;
+
+	@Setup(Level.Trial)
+	public void connect() {
+		conn = BenchmarkConnections.connect();
+		revLink = conn.getOrCreateReverseLinkClass();
+	}
+
+	@Setup(Level.Invocation)
+	public void createModel() {
+		model = BenchmarkModel.create(conn, "Creation_" + models++, packageSize, fanOut);
+	}
+
+	@Benchmark
+	public void createRevLinksAndSetOpposites() {
+		RevLinkCreation.createRevLinksAndSetOpposites(conn, model.getPackage(), revLink);
+	}
+}
@@ -0,0 +1,70 @@
+package at.jku.isse.cloud.revlinks.visualize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import at.jku.isse.cloud.benchmark.BenchmarkConnections;
+import at.jku.isse.cloud.benchmark.BenchmarkModel;
+import at.jku.sea.cloud.Artifact;
+
+/**
+ * Measures the search of the link list of the visualizer: building the {@link SearchIndex} for the artifacts of a package
+ * and answering a search from it. The benchmark is placed in the package of the index, which is not public.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+	@Param({"100", "1000"})
+	public int packageSize;
+
+	@Param({"1", "5"})
+	public int fanOut;
+
+	@Param({"source4", "7", "unknown"})
+	public String searchText;
+
+	private List<Artifact> artifacts;
+	private SearchIndex index;
+
+	@Setup(Level.Trial)
+	public void createModel() {
+		BenchmarkModel model = BenchmarkModel.create(BenchmarkConnections.connect(), "Search", packageSize, fanOut);
+		artifacts = new ArrayList<>(model.getSources());
+		artifacts.addAll(model.getTargets());
+		index = new SearchIndex();
+		index.index(artifacts);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public SearchIndex buildIndex() {
+		SearchIndex newIndex = new SearchIndex();
+		newIndex.index(artifacts);
+		return newIndex;
+	}
+
+	@Benchmark
+	public Set<Long> search() {
+		return index.search(searchText);
+	}
+}